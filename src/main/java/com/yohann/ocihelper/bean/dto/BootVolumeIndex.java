@@ -0,0 +1,108 @@
+package com.yohann.ocihelper.bean.dto;
+
+import com.oracle.bmc.core.model.BootVolume;
+import com.oracle.bmc.core.model.BootVolumeAttachment;
+
+import java.util.*;
+
+/**
+ * <p>
+ * BootVolumeIndex
+ * </p >
+ * 单个配置在单个区域下所有未终止的引导卷及其挂载关系，由每个可用域一次引导卷列表和一次挂载列表拼成，
+ * 按引导卷 ID、按实例 ID 查询都不再调用接口
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+public final class BootVolumeIndex {
+
+    private final List<BootVolume> bootVolumes;
+    private final Map<String, BootVolume> byId;
+    private final Map<String, List<String>> bootVolumeIdsByInstance;
+    private final Map<String, String> instanceIdByBootVolume;
+
+    private BootVolumeIndex(List<BootVolume> bootVolumes, Map<String, BootVolume> byId,
+                            Map<String, List<String>> bootVolumeIdsByInstance, Map<String, String> instanceIdByBootVolume) {
+        this.bootVolumes = bootVolumes;
+        this.byId = byId;
+        this.bootVolumeIdsByInstance = bootVolumeIdsByInstance;
+        this.instanceIdByBootVolume = instanceIdByBootVolume;
+    }
+
+    /**
+     * @param bootVolumes 引导卷（已排除终止状态）
+     * @param attachments 处于已挂载状态的引导卷挂载
+     */
+    public static BootVolumeIndex of(Collection<BootVolume> bootVolumes, Collection<BootVolumeAttachment> attachments) {
+        Map<String, BootVolume> byId = new LinkedHashMap<>();
+        bootVolumes.forEach(x -> byId.put(x.getId(), x));
+        Map<String, List<String>> bootVolumeIdsByInstance = new HashMap<>();
+        Map<String, String> instanceIdByBootVolume = new HashMap<>();
+        for (BootVolumeAttachment attachment : attachments) {
+            if (attachment.getInstanceId() == null || attachment.getBootVolumeId() == null) {
+                continue;
+            }
+            bootVolumeIdsByInstance.computeIfAbsent(attachment.getInstanceId(), k -> new ArrayList<>()).add(attachment.getBootVolumeId());
+            instanceIdByBootVolume.put(attachment.getBootVolumeId(), attachment.getInstanceId());
+        }
+        return new BootVolumeIndex(List.copyOf(byId.values()), byId, bootVolumeIdsByInstance, instanceIdByBootVolume);
+    }
+
+    /**
+     * 合并各可用域的索引
+     */
+    public static BootVolumeIndex merge(Collection<BootVolumeIndex> parts) {
+        Map<String, List<String>> bootVolumeIdsByInstance = new HashMap<>();
+        Map<String, String> instanceIdByBootVolume = new HashMap<>();
+        Map<String, BootVolume> byId = new LinkedHashMap<>();
+        for (BootVolumeIndex part : parts) {
+            byId.putAll(part.byId);
+            part.bootVolumeIdsByInstance.forEach((instanceId, ids) ->
+                    bootVolumeIdsByInstance.computeIfAbsent(instanceId, k -> new ArrayList<>()).addAll(ids));
+            instanceIdByBootVolume.putAll(part.instanceIdByBootVolume);
+        }
+        return new BootVolumeIndex(List.copyOf(byId.values()), byId, bootVolumeIdsByInstance, instanceIdByBootVolume);
+    }
+
+    public List<BootVolume> all() {
+        return bootVolumes;
+    }
+
+    public int size() {
+        return bootVolumes.size();
+    }
+
+    public BootVolume get(String bootVolumeId) {
+        return byId.get(bootVolumeId);
+    }
+
+    /**
+     * 实例当前挂载的引导卷，没有时返回空列表
+     */
+    public List<BootVolume> listByInstanceId(String instanceId) {
+        List<BootVolume> result = new ArrayList<>();
+        for (String bootVolumeId : bootVolumeIdsByInstance.getOrDefault(instanceId, Collections.emptyList())) {
+            BootVolume bootVolume = byId.get(bootVolumeId);
+            if (bootVolume != null) {
+                result.add(bootVolume);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 实例当前挂载的引导卷，没有时返回 null
+     */
+    public BootVolume getByInstanceId(String instanceId) {
+        List<BootVolume> list = listByInstanceId(instanceId);
+        return list.isEmpty() ? null : list.get(0);
+    }
+
+    /**
+     * 挂载了该引导卷的实例 ID，未挂载时返回 null
+     */
+    public String getAttachedInstanceId(String bootVolumeId) {
+        return instanceIdByBootVolume.get(bootVolumeId);
+    }
+}
@@ -0,0 +1,35 @@
+package com.yohann.ocihelper.bean.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * <p>
+ * CfgHealthDTO
+ * </p >
+ * 单个 oci 配置最近一次测活结果
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CfgHealthDTO {
+
+    private String cfgId;
+    private String username;
+    private boolean alive;
+    /** 测活请求耗时（毫秒） */
+    private long latencyMillis;
+    private String lastError;
+    /** 最近一次测活时间（毫秒） */
+    private long checkedAt;
+    /** 最近一次测活成功时间（毫秒），从未成功为 0 */
+    private long lastAliveAt;
+    /** 连续失败次数 */
+    private int consecutiveFailures;
+}
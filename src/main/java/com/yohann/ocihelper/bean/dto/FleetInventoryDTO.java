@@ -0,0 +1,47 @@
+package com.yohann.ocihelper.bean.dto;
+
+import com.oracle.bmc.core.model.BootVolume;
+import com.oracle.bmc.core.model.Instance;
+import com.oracle.bmc.core.model.Vnic;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * <p>
+ * FleetInventoryDTO
+ * </p >
+ * 单个配置在单个区域下的资源快照
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class FleetInventoryDTO {
+
+    private String cfgId;
+    private String region;
+    /** 快照生成时间（毫秒） */
+    private long refreshedAt;
+    /** 本次刷新耗时（毫秒） */
+    private long costMillis;
+    private List<InstanceItem> instances;
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class InstanceItem {
+        private Instance instance;
+        /** 已挂载的 VNIC，公网 IP 为本次刷新时的值 */
+        private List<Vnic> vnics;
+        /** 引导卷，未挂载或已删除时为 null */
+        private BootVolume bootVolume;
+    }
+}
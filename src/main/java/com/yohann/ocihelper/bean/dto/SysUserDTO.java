@@ -31,6 +31,8 @@ public class SysUserDTO {
     private String operationSystem = "Ubuntu";
     private List<CloudInstance> instanceList;
     private boolean joinChannelBroadcast = true;
+    /** 多可用域竞速开机并发数，null/0/1 为串行 */
+    private Integer raceConcurrency;
 
     @Data
     @Builder
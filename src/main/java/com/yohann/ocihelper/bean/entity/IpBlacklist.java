@@ -0,0 +1,48 @@
+package com.yohann.ocihelper.bean.entity;
+
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One IP or CIDR range of the access blacklist.
+ *
+ * @TableName ip_blacklist
+ */
+@TableName(value ="ip_blacklist")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IpBlacklist implements Serializable {
+
+    /**
+     * IP or CIDR range in canonical form, other text as entered
+     */
+    @TableId
+    private String id;
+
+    /**
+     * manual / import / auto
+     */
+    private String source;
+
+    /**
+     * Ban ends at this time, epoch millis; null means permanent
+     */
+    private Long expireAt;
+
+    /**
+     * Number of auto-bans so far, drives the escalating ban duration
+     */
+    private Integer strikes;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
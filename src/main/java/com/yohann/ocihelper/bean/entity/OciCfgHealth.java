@@ -0,0 +1,54 @@
+package com.yohann.ocihelper.bean.entity;
+
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Last liveness probe of one oci config, kept so failure streaks survive a restart.
+ *
+ * @TableName oci_cfg_health
+ */
+@TableName(value ="oci_cfg_health")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OciCfgHealth implements Serializable {
+
+    /**
+     * oci_user id
+     */
+    @TableId
+    private String id;
+
+    /**
+     * 1 = alive, 0 = failing
+     */
+    private Integer alive;
+
+    private Long latencyMillis;
+
+    private String lastError;
+
+    /**
+     * Epoch millis
+     */
+    private Long checkedAt;
+
+    /**
+     * Epoch millis, 0 if never alive
+     */
+    private Long lastAliveAt;
+
+    private Integer consecutiveFailures;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
@@ -52,6 +52,11 @@ public class OciCreateTask implements Serializable {
      */
     private Integer paused;
 
+    /**
+     * Multi-AD race concurrency: 0/1 = sequential, >1 = launch at up to N availability domains at once
+     */
+    private Integer raceConcurrency;
+
     @TableField(exist = false)
     private static final long serialVersionUID = 1L;
 }
\ No newline at end of file
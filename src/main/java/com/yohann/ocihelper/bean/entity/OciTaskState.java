@@ -0,0 +1,62 @@
+package com.yohann.ocihelper.bean.entity;
+
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Runtime state of a create / change-IP task (attempt counts, last error), persisted write-behind.
+ *
+ * @TableName oci_task_state
+ */
+@TableName(value ="oci_task_state")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OciTaskState implements Serializable {
+
+    /**
+     * kind + "_" + taskId
+     */
+    @TableId
+    private String id;
+
+    /**
+     * Task kind, see TaskStateStore.Kind
+     */
+    private String kind;
+
+    /**
+     * Create task id or instance id (change-IP)
+     */
+    private String taskId;
+
+    private Long attempts;
+
+    private Long errors;
+
+    private String lastError;
+
+    /**
+     * Epoch millis
+     */
+    private Long lastErrorAt;
+
+    /**
+     * Epoch millis
+     */
+    private Long updatedAt;
+
+    private LocalDateTime createTime;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
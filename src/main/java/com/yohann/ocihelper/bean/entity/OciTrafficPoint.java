@@ -0,0 +1,59 @@
+package com.yohann.ocihelper.bean.entity;
+
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Traffic of one VNIC in one hour, day or month bucket, synced from OCI Monitoring.
+ *
+ * @TableName oci_traffic_point
+ */
+@TableName(value ="oci_traffic_point")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OciTrafficPoint implements Serializable {
+
+    /**
+     * vnicId + "_" + granularity + "_" + bucket
+     */
+    @TableId
+    private String id;
+
+    private String cfgId;
+
+    private String region;
+
+    private String vnicId;
+
+    /**
+     * HOUR / DAY / MONTH, see ITrafficStoreService.Granularity
+     */
+    private String granularity;
+
+    /**
+     * Bucket start, epoch millis
+     */
+    private Long bucket;
+
+    /**
+     * VnicToNetworkBytes
+     */
+    private Long toNetworkBytes;
+
+    /**
+     * VnicFromNetworkBytes
+     */
+    private Long fromNetworkBytes;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,47 @@
+package com.yohann.ocihelper.bean.entity;
+
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Sync progress of the local traffic store for one config and region.
+ *
+ * @TableName oci_traffic_sync
+ */
+@TableName(value ="oci_traffic_sync")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OciTrafficSync implements Serializable {
+
+    /**
+     * cfgId + "_" + region
+     */
+    @TableId
+    private String id;
+
+    private String cfgId;
+
+    private String region;
+
+    /**
+     * Data is complete from this time on, epoch millis
+     */
+    private Long coveredFrom;
+
+    /**
+     * Data is complete up to this time, epoch millis
+     */
+    private Long syncedTo;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
@@ -27,6 +27,8 @@ public class ChangeIpParams {
 
     @NotBlank(message = "vnicId不能为空")
     private String vnicId;
+    /** 同时更换的其他 VNIC（可选），每个 VNIC 都拿到目标网段内的 IP 后任务才结束 */
+    private List<String> vnicIds;
 
     @NotNull(message = "是否更新 Cloudflare DNS 记录不能为空")
     private boolean changeCfDns;
@@ -37,4 +37,9 @@ public class CreateInstanceParams {
 
     private boolean joinChannelBroadcast = true;
 
+    /**
+     * 多可用域竞速开机并发数，不传或 <= 1 为串行逐个可用域尝试
+     */
+    private Integer raceConcurrency;
+
 }
@@ -21,4 +21,7 @@ public class GetLimitsParams {
 
     /** 按服务名称筛选，如 compute；留空则查询全部 */
     private String serviceName;
+
+    /** 忽略缓存重新查询使用量（配额定义仍走缓存） */
+    private boolean cleanReLaunch;
 }
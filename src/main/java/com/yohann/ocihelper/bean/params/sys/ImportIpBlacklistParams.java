@@ -0,0 +1,22 @@
+package com.yohann.ocihelper.bean.params.sys;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+/**
+ * <p>
+ * ImportIpBlacklistParams
+ * </p >
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+@Data
+public class ImportIpBlacklistParams {
+
+    /**
+     * IPs / CIDR ranges separated by newline, whitespace, comma or semicolon; '#' starts a comment
+     */
+    @NotBlank(message = "黑名单内容不能为空")
+    private String content;
+}
@@ -0,0 +1,36 @@
+package com.yohann.ocihelper.bean.params.sys;
+
+import lombok.Data;
+
+/**
+ * <p>
+ * QueryLogsParams
+ * </p >
+ * Filter for the log history; every field is optional.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+@Data
+public class QueryLogsParams {
+
+    /**
+     * yyyy-MM-dd HH:mm:ss
+     */
+    private String beginTime;
+    /**
+     * yyyy-MM-dd HH:mm:ss
+     */
+    private String endTime;
+    /**
+     * 最低日志级别：DEBUG / INFO / WARN / ERROR
+     */
+    private String level;
+    private String taskId;
+    /**
+     * 配置名称
+     */
+    private String username;
+    private String keyword;
+    private Integer limit;
+}
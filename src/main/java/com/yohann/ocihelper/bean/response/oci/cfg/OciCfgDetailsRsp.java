@@ -25,6 +25,8 @@ public class OciCfgDetailsRsp {
     private String privateKeyPath;
     private String region;
     private List<InstanceInfo> instanceList;
+    /** 实例列表所用快照的年龄（秒），用于提示数据可能不是最新 */
+    private Long instanceSnapshotAgeSeconds;
     private List<CfCfg> cfCfgList;
     private List<NetLoadBalancer> nlbList;
 
@@ -17,4 +17,7 @@ public class GetLimitsRsp {
 
     /** Limit and usage records */
     private List<LimitItemRsp> items;
+
+    /** Age of the cached result in seconds; 0 when it was just queried */
+    private long ageSeconds;
 }
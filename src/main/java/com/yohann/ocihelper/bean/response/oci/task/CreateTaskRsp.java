@@ -36,8 +36,18 @@ public class CreateTaskRsp {
 
     private String counts;
 
+    /**
+     * Effective create attempt rate (attempts per minute) granted by the tenancy/region governor
+     */
+    private String rate;
+
     /**
      * Task paused flag: 0 = running, 1 = paused
      */
     private Integer paused;
+
+    /**
+     * Multi-AD race concurrency, 0/1 = sequential
+     */
+    private Integer raceConcurrency;
 }
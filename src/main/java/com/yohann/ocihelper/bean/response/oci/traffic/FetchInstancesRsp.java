@@ -19,4 +19,14 @@ public class FetchInstancesRsp {
     private String inboundTraffic;
     private String outboundTraffic;
     private Integer instanceCount;
+    /** 区域内各实例本月流量 */
+    private List<InstanceTraffic> instances;
+
+    @Data
+    public static class InstanceTraffic {
+        private String instanceId;
+        private String instanceName;
+        private String inboundTraffic;
+        private String outboundTraffic;
+    }
 }
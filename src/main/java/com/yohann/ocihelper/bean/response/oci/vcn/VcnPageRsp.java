@@ -17,6 +17,11 @@ import java.util.List;
 @Data
 public class VcnPageRsp<T> extends Page<T> {
 
+    /**
+     * 列表数据距上次从 OCI 拉取经过的秒数
+     */
+    private Long snapshotAgeSeconds;
+
     @Data
     public static class VcnInfo{
         private String id;
@@ -35,4 +40,10 @@ public class VcnPageRsp<T> extends Page<T> {
         page.setPages((long) (Math.ceil((double) total / size)));
         return page;
     }
+
+    public static <T> Page<T> buildPage(List<T> entities, long size, long current, long total, long snapshotAgeMillis) {
+        VcnPageRsp<T> page = (VcnPageRsp<T>) buildPage(entities, size, current, total);
+        page.setSnapshotAgeSeconds(snapshotAgeMillis / 1000);
+        return page;
+    }
 }
@@ -18,6 +18,11 @@ import java.util.List;
 @Data
 public class BootVolumeListPage<T> extends Page<T> {
 
+    /**
+     * 列表数据距上次从 OCI 拉取经过的秒数
+     */
+    private Long snapshotAgeSeconds;
+
     @Data
     public static class BootVolumeInfo {
         private String id;
@@ -41,4 +46,10 @@ public class BootVolumeListPage<T> extends Page<T> {
         page.setPages((long) (Math.ceil((double) total / size)));
         return page;
     }
+
+    public static <T> Page<T> buildPage(List<T> entities, long size, long current, long total, long snapshotAgeMillis) {
+        BootVolumeListPage<T> page = (BootVolumeListPage<T>) buildPage(entities, size, current, total);
+        page.setSnapshotAgeSeconds(snapshotAgeMillis / 1000);
+        return page;
+    }
 }
@@ -0,0 +1,40 @@
+package com.yohann.ocihelper.config;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Layout;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import com.yohann.ocihelper.utils.LogRingBuffer;
+
+/**
+ * <p>
+ * LogRingAppender
+ * </p >
+ * Logback appender that publishes every formatted event into {@link LogRingBuffer}, from which the
+ * log websocket streams. Registered in {@code logback-spring.xml} with the console pattern, so the
+ * page shows exactly what the console prints, without any log file.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+public class LogRingAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    private Layout<ILoggingEvent> layout;
+
+    public void setLayout(Layout<ILoggingEvent> layout) {
+        this.layout = layout;
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        String text = layout == null ? event.getFormattedMessage() : layout.doLayout(event);
+        if (text == null) {
+            return;
+        }
+        // 去掉 pattern 末尾的换行，由展示端自行分行
+        int end = text.length();
+        while (end > 0 && (text.charAt(end - 1) == '\n' || text.charAt(end - 1) == '\r')) {
+            end--;
+        }
+        LogRingBuffer.publish(text.substring(0, end));
+    }
+}
@@ -0,0 +1,95 @@
+package com.yohann.ocihelper.config;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import com.yohann.ocihelper.utils.LogStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * LogStoreAppender
+ * </p >
+ * Logback appender that writes every event into the rolling {@link LogStore}. Registered in
+ * {@code logback-spring.xml}; its settings come from the {@code log-store.*} properties.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+public class LogStoreAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    private String dir = "logs";
+    private long segmentMb = 16;
+    private long segmentHours = 24;
+    private long maxTotalMb = 512;
+    private long maxDays = 30;
+
+    private LogStore store;
+
+    public void setDir(String dir) {
+        this.dir = dir;
+    }
+
+    public void setSegmentMb(long segmentMb) {
+        this.segmentMb = segmentMb;
+    }
+
+    public void setSegmentHours(long segmentHours) {
+        this.segmentHours = segmentHours;
+    }
+
+    public void setMaxTotalMb(long maxTotalMb) {
+        this.maxTotalMb = maxTotalMb;
+    }
+
+    public void setMaxDays(long maxDays) {
+        this.maxDays = maxDays;
+    }
+
+    @Override
+    public void start() {
+        try {
+            // 相对路径与 SQLite 数据库文件一样以程序工作目录为基准
+            File base = new File(dir);
+            if (!base.isAbsolute()) {
+                base = new File(System.getProperty("user.dir"), dir);
+            }
+            store = LogStore.start(base, this,
+                    Math.max(1, segmentMb) * 1024 * 1024,
+                    TimeUnit.HOURS.toMillis(Math.max(1, segmentHours)),
+                    Math.max(1, maxTotalMb) * 1024 * 1024,
+                    TimeUnit.DAYS.toMillis(Math.max(1, maxDays)));
+        } catch (IOException e) {
+            addError("日志存储启动失败：" + e.getLocalizedMessage(), e);
+            return;
+        }
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (store != null) {
+            store.close();
+            store = null;
+        }
+        super.stop();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        String text = event.getFormattedMessage();
+        IThrowableProxy throwable = event.getThrowableProxy();
+        if (throwable != null) {
+            text = text + '\n' + ThrowableProxyUtil.asString(throwable);
+        }
+        try {
+            store.append(event.getTimeStamp(), event.getLevel().toString(), text);
+        } catch (IOException e) {
+            addError("写入日志存储失败：" + e.getLocalizedMessage());
+        }
+    }
+}
@@ -3,7 +3,6 @@ package com.yohann.ocihelper.config;
 import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.extra.spring.SpringUtil;
-import com.oracle.bmc.Region;
 import com.oracle.bmc.auth.SimpleAuthenticationDetailsProvider;
 import com.oracle.bmc.core.BlockstorageClient;
 import com.oracle.bmc.core.ComputeClient;
@@ -46,27 +45,34 @@ import com.oracle.bmc.ospgateway.responses.ListSubscriptionsResponse;
 import com.oracle.bmc.workrequests.WorkRequestClient;
 import com.yohann.ocihelper.bean.constant.CacheConstant;
 import com.yohann.ocihelper.bean.constant.OciInstanceConstant;
+import com.yohann.ocihelper.bean.dto.BootVolumeIndex;
 import com.yohann.ocihelper.bean.dto.InstanceCfgDTO;
 import com.yohann.ocihelper.bean.dto.InstanceDetailDTO;
 import com.yohann.ocihelper.bean.dto.SysUserDTO;
 import com.yohann.ocihelper.bean.params.oci.securityrule.UpdateSecurityRuleListParams;
+import com.yohann.ocihelper.config.oci.OciClientPool;
+import com.yohann.ocihelper.config.oci.OciClientSession;
+import com.yohann.ocihelper.config.oci.OciTopologyCache;
 import com.yohann.ocihelper.bean.response.oci.cfg.OciCfgDetailsRsp;
 import com.yohann.ocihelper.enums.*;
 import com.yohann.ocihelper.exception.OciException;
 import com.yohann.ocihelper.utils.CommonUtils;
-import com.yohann.ocihelper.utils.ProxyUtils;
-import com.oracle.bmc.http.client.StandardClientProperties;
 import com.oracle.bmc.http.client.ProxyConfiguration;
 import com.yohann.ocihelper.utils.CustomExpiryGuavaCache;
+import com.yohann.ocihelper.utils.OciFanOut;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.*;
+import java.lang.ref.Cleaner;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static com.oracle.bmc.core.model.CreatePublicIpDetails.Lifetime.Ephemeral;
+import static com.yohann.ocihelper.config.VirtualThreadConfig.VIRTUAL_EXECUTOR;
 import static com.yohann.ocihelper.service.impl.OciServiceImpl.TASK_MAP;
 
 /**
@@ -81,86 +87,76 @@ import static com.yohann.ocihelper.service.impl.OciServiceImpl.TASK_MAP;
 @Data
 public class OracleInstanceFetcher implements Closeable {
 
-    private final ComputeClient computeClient;
-    private final IdentityClient identityClient;
-    private final WorkRequestClient workRequestClient;
-    private final VirtualNetworkClient virtualNetworkClient;
-    private final BlockstorageClient blockstorageClient;
-    private final MonitoringClient monitoringClient;
-    private final NetworkLoadBalancerClient networkLoadBalancerClient;
-    private final IdentityDomainsClient identityDomainsClient;
-    private final LimitsClient limitsClient;
-    private final SimpleAuthenticationDetailsProvider provider;
+    /** 从 {@link OciClientPool} 借出的共享客户端会话，close 时归还 */
+    private final OciClientSession session;
+    private final Cleaner.Cleanable lease;
     private SysUserDTO user;
     private String compartmentId;
-    /** 当前实例使用的代理配置，null 表示直连 */
-    private ProxyConfiguration proxyCfg;
 
     private static final String CIDR_BLOCK = "10.0.0.0/16";
 
+    /**
+     * 归还客户端会话，客户端本身由 {@link OciClientPool} 统一复用和回收。
+     * 重复调用无副作用，未显式关闭的实例在被回收时也会自动归还。
+     */
     @Override
     public void close() {
-        computeClient.close();
-        identityClient.close();
-        workRequestClient.close();
-        virtualNetworkClient.close();
-        blockstorageClient.close();
-        monitoringClient.close();
-        networkLoadBalancerClient.close();
-        identityDomainsClient.close();
-        limitsClient.close();
+        lease.clean();
     }
 
     public OracleInstanceFetcher(SysUserDTO user) {
         this.user = user;
         SysUserDTO.OciCfg ociCfg = user.getOciCfg();
-        SimpleAuthenticationDetailsProvider provider = SimpleAuthenticationDetailsProvider.builder()
-                .tenantId(ociCfg.getTenantId())
-                .userId(ociCfg.getUserId())
-                .fingerprint(ociCfg.getFingerprint())
-                .privateKeySupplier(() -> {
-                    try (FileInputStream fis = new FileInputStream(ociCfg.getPrivateKeyPath());
-                         ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-                        byte[] buffer = new byte[1024];
-                        int bytesRead;
-                        while ((bytesRead = fis.read(buffer)) != -1) {
-                            baos.write(buffer, 0, bytesRead);
-                        }
-                        return new ByteArrayInputStream(baos.toByteArray());
-                    } catch (Exception e) {
-                        throw new RuntimeException("获取密钥失败");
-                    }
-                })
-                .region(Region.valueOf(ociCfg.getRegion()))
-                .build();
-
-        // 解析代理配置（仅使用配置专属代理，不使用全局代理）
-        ProxyConfiguration proxyCfg = ProxyUtils.parseProxy(ociCfg.getProxy());
+        this.session = OciClientPool.borrow(ociCfg);
+        this.lease = OciClientPool.lease(this, session);
+        compartmentId = StrUtil.isBlank(ociCfg.getCompartmentId()) ? session.getRootCompartmentId() : ociCfg.getCompartmentId();
+    }
 
-        identityClient = applyProxy(IdentityClient.builder(), proxyCfg).build(provider);
-        computeClient = applyProxy(ComputeClient.builder(), proxyCfg).build(provider);
-        blockstorageClient = applyProxy(BlockstorageClient.builder(), proxyCfg).build(provider);
-        workRequestClient = applyProxy(WorkRequestClient.builder(), proxyCfg).build(provider);
-        virtualNetworkClient = applyProxy(VirtualNetworkClient.builder(), proxyCfg).build(provider);
-        monitoringClient = applyProxy(MonitoringClient.builder(), proxyCfg).build(provider);
-        networkLoadBalancerClient = applyProxy(NetworkLoadBalancerClient.builder(), proxyCfg).build(provider);
-        identityDomainsClient = applyProxy(IdentityDomainsClient.builder(), proxyCfg).build(provider);
-        limitsClient = applyProxy(LimitsClient.builder(), proxyCfg).build(provider);
-        this.provider = provider;
-        this.proxyCfg = proxyCfg;
-        compartmentId = StrUtil.isBlank(ociCfg.getCompartmentId()) ? findRootCompartment(identityClient, provider.getTenantId()) : ociCfg.getCompartmentId();
+    public SimpleAuthenticationDetailsProvider getProvider() {
+        return session.getProvider();
     }
 
     /**
-     * 为 OCI 客户端 Builder 设置代理，proxyCfg 为 null 时直接返回原 builder。
+     * 当前实例使用的代理配置，null 表示直连
      */
-    @SuppressWarnings("unchecked")
-    private static <B extends com.oracle.bmc.common.ClientBuilderBase<B, ?>> B applyProxy(B builder, ProxyConfiguration proxyCfg) {
-        if (proxyCfg != null) {
-            builder.clientConfigurator(httpClientBuilder ->
-                    httpClientBuilder.property(StandardClientProperties.PROXY, proxyCfg));
-        }
-        return builder;
+    public ProxyConfiguration getProxyCfg() {
+        return session.getProxyCfg();
+    }
+
+    public ComputeClient getComputeClient() {
+        return session.getComputeClient();
+    }
+
+    public IdentityClient getIdentityClient() {
+        return session.getIdentityClient();
+    }
+
+    public WorkRequestClient getWorkRequestClient() {
+        return session.getWorkRequestClient();
+    }
+
+    public VirtualNetworkClient getVirtualNetworkClient() {
+        return session.getVirtualNetworkClient();
+    }
+
+    public BlockstorageClient getBlockstorageClient() {
+        return session.getBlockstorageClient();
+    }
+
+    public MonitoringClient getMonitoringClient() {
+        return session.getMonitoringClient();
+    }
+
+    public NetworkLoadBalancerClient getNetworkLoadBalancerClient() {
+        return session.getNetworkLoadBalancerClient();
+    }
+
+    public IdentityDomainsClient getIdentityDomainsClient() {
+        return session.getIdentityDomainsClient();
+    }
+
+    public LimitsClient getLimitsClient() {
+        return session.getLimitsClient();
     }
 
     /**
@@ -169,9 +165,7 @@ public class OracleInstanceFetcher implements Closeable {
      * 并发场景下请使用此方法代替 {@link #getIdentityDomainsClient()}，避免共享客户端的 endpoint 竞争问题。
      */
     public IdentityDomainsClient newIdentityDomainsClient(String endpoint) {
-        IdentityDomainsClient client = applyProxy(IdentityDomainsClient.builder(), proxyCfg).build(provider);
-        client.setEndpoint(endpoint);
-        return client;
+        return session.newIdentityDomainsClient(endpoint);
     }
 
     /**
@@ -194,7 +188,7 @@ public class OracleInstanceFetcher implements Closeable {
     public String resetUserPassword(String classicUserId) {
         // --- Attempt 1: classic IAM API (works for non-Identity-Domain users) ---
         try {
-            CreateOrResetUIPasswordResponse response = identityClient.createOrResetUIPassword(
+            CreateOrResetUIPasswordResponse response = getIdentityClient().createOrResetUIPassword(
                     CreateOrResetUIPasswordRequest.builder()
                             .userId(classicUserId)
                             .build());
@@ -214,7 +208,7 @@ public class OracleInstanceFetcher implements Closeable {
 
         // --- Attempt 2: Identity Domains SCIM API (new-style tenancy users) ---
         String tenantId = user.getOciCfg().getTenantId();
-        String domainUrl = com.yohann.ocihelper.utils.OciUtils.getDomain(identityClient, tenantId);
+        String domainUrl = com.yohann.ocihelper.utils.OciUtils.getDomain(getIdentityClient(), tenantId);
         if (StrUtil.isBlank(domainUrl)) {
             throw new OciException(-1, "未找到活跃的 Identity Domain，无法重置密码");
         }
@@ -265,27 +259,23 @@ public class OracleInstanceFetcher implements Closeable {
     }
 
     synchronized public InstanceDetailDTO createInstanceData() {
-        InstanceDetailDTO instanceDetailDTO = new InstanceDetailDTO();
-        instanceDetailDTO.setTaskId(user.getTaskId());
-        instanceDetailDTO.setUsername(user.getUsername());
-        instanceDetailDTO.setRegion(user.getOciCfg().getRegion());
-        instanceDetailDTO.setArchitecture(user.getArchitecture());
-        instanceDetailDTO.setCreateNumbers(user.getCreateNumbers());
+        InstanceDetailDTO instanceDetailDTO = newInstanceDetail();
 
-        List<AvailabilityDomain> availabilityDomains = getAvailabilityDomains(identityClient, compartmentId);
+        // 可用域、机型、镜像、公有子网在两次开机之间基本不变，走拓扑缓存
+        String topologyScope = OciTopologyCache.scope(user.getOciCfg().getTenantId(), user.getOciCfg().getRegion(), compartmentId);
+        List<AvailabilityDomain> availabilityDomains = OciTopologyCache.get(topologyScope, "ad", OciTopologyCache.AD_TTL,
+                () -> getAvailabilityDomains(getIdentityClient(), compartmentId));
         int size = availabilityDomains.size();
 
-        List<String> shapeList = availabilityDomains.parallelStream().map(availabilityDomain ->
-                        computeClient.listShapes(ListShapesRequest.builder()
-                                .availabilityDomain(availabilityDomain.getName())
-                                .compartmentId(compartmentId)
-                                .build()).getItems())
+        Map<String, List<Shape>> shapeCatalog = getShapeCatalog(topologyScope, availabilityDomains);
+        List<String> shapeList = shapeCatalog.values().stream()
                 .flatMap(Collection::stream)
                 .map(Shape::getShape)
                 .distinct()
                 .collect(Collectors.toList());
         String type = ArchitectureEnum.getType(user.getArchitecture());
         if (CollectionUtil.isEmpty(shapeList) || !shapeList.contains(type)) {
+            OciTopologyCache.invalidate(topologyScope);
             instanceDetailDTO.setNoShape(true);
             log.error("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],开机失败,该区域可能不支持 CPU 架构:[{}],用户可开机的机型:[{}]",
                     user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture(), user.getArchitecture(), shapeList);
@@ -301,71 +291,78 @@ public class OracleInstanceFetcher implements Closeable {
                     NetworkSecurityGroup networkSecurityGroup = null;
                     LaunchInstanceDetails launchInstanceDetails;
                     Instance instance;
-                    List<Vcn> vcnList = listVcn();
-                    List<Shape> shapes = getShape(computeClient, compartmentId, availableDomain, user);
+                    List<Shape> shapes = getShape(shapeCatalog.getOrDefault(availableDomain.getName(), Collections.emptyList()), user);
                     if (shapes.size() == 0) {
                         continue;
                     }
                     for (Shape shape : shapes) {
-                        Image image = getImage(computeClient, compartmentId, shape, user);
+                        Image image = getImage(topologyScope, shape, user);
                         if (image == null) {
                             continue;
                         }
 
-                        if (CollectionUtil.isEmpty(vcnList)) {
-                            log.info("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],检测到VCN不存在,正在创建VCN...",
-                                    user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture());
-                            String networkCidrBlock = getCidr(virtualNetworkClient, compartmentId);
-                            vcn = createVcn(virtualNetworkClient, compartmentId, networkCidrBlock);
-                            internetGateway = createInternetGateway(virtualNetworkClient, compartmentId, vcn);
-                            addInternetGatewayToDefaultRouteTable(virtualNetworkClient, vcn, internetGateway);
-                            subnet = createSubnet(virtualNetworkClient, compartmentId, availableDomain, networkCidrBlock, vcn);
-                            if (null == subnet) {
-                                continue;
-                            }
-//                            networkSecurityGroup = createNetworkSecurityGroup(virtualNetworkClient, compartmentId, vcn);
-//                            addNetworkSecurityGroupSecurityRules(virtualNetworkClient, networkSecurityGroup, networkCidrBlock);
-                        } else {
-                            for (Vcn vcnItem : vcnList) {
-                                vcn = vcnItem;
-
-                                List<InternetGateway> internetGatewayList = virtualNetworkClient.listInternetGateways(ListInternetGatewaysRequest.builder()
-                                        .vcnId(vcn.getId())
-                                        .compartmentId(compartmentId)
-                                        .build()).getItems();
-                                if (CollectionUtil.isEmpty(internetGatewayList)) {
-                                    log.info("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],检测到 VCN:[{}] 的 Internet 网关不存在,正在创建 Internet 网关...",
-                                            user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture(), vcn.getDisplayName());
-                                    internetGateway = createInternetGateway(virtualNetworkClient, compartmentId, vcn);
-                                    addInternetGatewayToDefaultRouteTable(virtualNetworkClient, vcn, internetGateway);
-                                }
+                        subnet = OciTopologyCache.peek(topologyScope, "subnet");
+                        if (subnet == null) {
+                            List<Vcn> vcnList = listVcn();
 
-                                List<Subnet> subnets = listSubnets(vcnItem.getId());
-                                if (CollectionUtil.isEmpty(subnets)) {
-                                    log.info("【开机任务】用户:[{}],区域:[{}],系统架构:[{}], 检测到 VCN:[{}] 的子网不存在,正在创建子网...",
-                                            user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture(), vcn.getDisplayName());
-                                    subnet = createSubnet(virtualNetworkClient, compartmentId, availableDomain,
-                                            getCidr(virtualNetworkClient, compartmentId), vcnItem);
-                                    break;
-                                } else {
-                                    for (Subnet subnetItem : subnets) {
-                                        if (!subnetItem.getProhibitInternetIngress()) {
-                                            subnet = subnetItem;
-                                            break;
-                                        }
+                            if (CollectionUtil.isEmpty(vcnList)) {
+                                log.info("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],检测到VCN不存在,正在创建VCN...",
+                                        user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture());
+                                String networkCidrBlock = getCidr(getVirtualNetworkClient(), compartmentId);
+                                vcn = createVcn(getVirtualNetworkClient(), compartmentId, networkCidrBlock);
+                                internetGateway = createInternetGateway(getVirtualNetworkClient(), compartmentId, vcn);
+                                addInternetGatewayToDefaultRouteTable(getVirtualNetworkClient(), vcn, internetGateway);
+                                subnet = createSubnet(getVirtualNetworkClient(), compartmentId, availableDomain, networkCidrBlock, vcn);
+                                if (null == subnet) {
+                                    continue;
+                                }
+//                                networkSecurityGroup = createNetworkSecurityGroup(getVirtualNetworkClient(), compartmentId, vcn);
+//                                addNetworkSecurityGroupSecurityRules(getVirtualNetworkClient(), networkSecurityGroup, networkCidrBlock);
+                            } else {
+                                for (Vcn vcnItem : vcnList) {
+                                    vcn = vcnItem;
+
+                                    List<InternetGateway> internetGatewayList = getVirtualNetworkClient().listInternetGateways(ListInternetGatewaysRequest.builder()
+                                            .vcnId(vcn.getId())
+                                            .compartmentId(compartmentId)
+                                            .build()).getItems();
+                                    if (CollectionUtil.isEmpty(internetGatewayList)) {
+                                        log.info("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],检测到 VCN:[{}] 的 Internet 网关不存在,正在创建 Internet 网关...",
+                                                user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture(), vcn.getDisplayName());
+                                        internetGateway = createInternetGateway(getVirtualNetworkClient(), compartmentId, vcn);
+                                        addInternetGatewayToDefaultRouteTable(getVirtualNetworkClient(), vcn, internetGateway);
                                     }
-                                    if (subnet == null) {
-                                        log.info("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],检测到 VCN:[{}] 不存在公有子网,正在删除私有子网并创建公有子网...",
+
+                                    List<Subnet> subnets = listSubnets(vcnItem.getId());
+                                    if (CollectionUtil.isEmpty(subnets)) {
+                                        log.info("【开机任务】用户:[{}],区域:[{}],系统架构:[{}], 检测到 VCN:[{}] 的子网不存在,正在创建子网...",
                                                 user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture(), vcn.getDisplayName());
-                                        subnets.forEach(this::deleteSubnet);
-                                        subnet = createSubnet(virtualNetworkClient, compartmentId, availableDomain,
-                                                getCidr(virtualNetworkClient, compartmentId), vcn);
+                                        subnet = createSubnet(getVirtualNetworkClient(), compartmentId, availableDomain,
+                                                getCidr(getVirtualNetworkClient(), compartmentId), vcnItem);
                                         break;
+                                    } else {
+                                        for (Subnet subnetItem : subnets) {
+                                            if (!subnetItem.getProhibitInternetIngress()) {
+                                                subnet = subnetItem;
+                                                break;
+                                            }
+                                        }
+                                        if (subnet == null) {
+                                            log.info("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],检测到 VCN:[{}] 不存在公有子网,正在删除私有子网并创建公有子网...",
+                                                    user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture(), vcn.getDisplayName());
+                                            subnets.forEach(this::deleteSubnet);
+                                            subnet = createSubnet(getVirtualNetworkClient(), compartmentId, availableDomain,
+                                                    getCidr(getVirtualNetworkClient(), compartmentId), vcn);
+                                            break;
+                                        }
                                     }
                                 }
+                                log.info("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],默认使用 VCN:[{}] 的公有子网:[{}] 创建实例...",
+                                        user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture(), vcn.getDisplayName(), subnet.getDisplayName());
+                            }
+                            if (subnet != null) {
+                                OciTopologyCache.put(topologyScope, "subnet", subnet, OciTopologyCache.SUBNET_TTL);
                             }
-                            log.info("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],默认使用 VCN:[{}] 的公有子网:[{}] 创建实例...",
-                                    user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture(), vcn.getDisplayName(), subnet.getDisplayName());
                         }
 
                         String cloudInitScript = CommonUtils.getPwdShell(user.getRootPassword());
@@ -374,8 +371,8 @@ public class OracleInstanceFetcher implements Closeable {
                                 shape, image,
                                 subnet, networkSecurityGroup,
                                 cloudInitScript, user);
-                        instance = createInstance(computeClient.newWaiters(workRequestClient), launchInstanceDetails);
-                        printInstance(computeClient, virtualNetworkClient, instance, instanceDetailDTO);
+                        instance = createInstance(getComputeClient().newWaiters(getWorkRequestClient()), launchInstanceDetails);
+                        printInstance(getComputeClient(), getVirtualNetworkClient(), instance, instanceDetailDTO);
 
                         log.info("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],开机成功,正在为实例预配...",
                                 user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture());
@@ -393,38 +390,16 @@ public class OracleInstanceFetcher implements Closeable {
                 } catch (Exception e) {
                     if (e instanceof BmcException) {
                         BmcException error = (BmcException) e;
-                        if (error.getStatusCode() == 500 ||
-                                (error.getMessage().contains(ErrorEnum.CAPACITY.getErrorType()) ||
-                                        error.getMessage().contains(ErrorEnum.CAPACITY_HOST.getErrorType()))) {
-                            size--;
-                            if (size > 0) {
-                                log.warn("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],容量不足,换可用区域继续执行...",
-                                        user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture());
-                            } else {
-                                log.warn("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],容量不足,[{}]秒后将重试...",
-                                        user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture(), user.getInterval());
-                                return instanceDetailDTO;
-                            }
-                        } else if (error.getStatusCode() == 400 && error.getMessage().contains(ErrorEnum.LIMIT_EXCEEDED.getErrorType())) {
-                            instanceDetailDTO.setOut(true);
-                            log.error("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],无法创建实例,配额已经超过限制~",
-                                    user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture(), e);
-                            return instanceDetailDTO;
-                        } else if (error.getStatusCode() == 429 || error.getMessage().contains(ErrorEnum.TOO_MANY_REQUESTS.getErrorType())) {
-                            instanceDetailDTO.setTooManyReq(true);
-                            log.warn("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],开机请求频繁,[{}]秒后将重试...",
-                                    user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture(), user.getInterval());
+                        if (!markLaunchError(error, instanceDetailDTO, topologyScope)) {
                             return instanceDetailDTO;
-                        } else if (error.getStatusCode() == 401 || error.getMessage().contains(ErrorEnum.NOT_AUTHENTICATED.getErrorType())) {
-                            instanceDetailDTO.setDie(true);
-                            log.error("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],开机失败,可能的原因：(新生成的API暂未生效|账号已无权|账号已封禁\uD83D\uDC7B)",
+                        }
+                        size--;
+                        if (size > 0) {
+                            log.warn("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],容量不足,换可用区域继续执行...",
                                     user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture());
-                            return instanceDetailDTO;
                         } else {
-//                            instanceDetailDTO.setOut(true);
-                            log.error("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],出现错误了,原因为:{}",
-                                    user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture(),
-                                    e.getMessage(), e);
+                            log.warn("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],容量不足,[{}]秒后将重试...",
+                                    user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture(), user.getInterval());
                             return instanceDetailDTO;
                         }
                     } else {
@@ -448,12 +423,171 @@ public class OracleInstanceFetcher implements Closeable {
         return instanceDetailDTO;
     }
 
+    /**
+     * 按开机接口返回的错误设置结果标记（配额超限、请求频繁、账号失效），串行开机和竞速开机共用
+     *
+     * @return true 表示容量不足，可以换可用域继续尝试
+     */
+    private boolean markLaunchError(BmcException error, InstanceDetailDTO instanceDetailDTO, String topologyScope) {
+        // 子网/镜像等被删除或失效时丢弃拓扑缓存，下次重新发现
+        if (error.getStatusCode() == 404 || (error.getStatusCode() == 400
+                && !error.getMessage().contains(ErrorEnum.LIMIT_EXCEEDED.getErrorType()))) {
+            OciTopologyCache.invalidate(topologyScope);
+        }
+        if (error.getStatusCode() == 500 ||
+                (error.getMessage().contains(ErrorEnum.CAPACITY.getErrorType()) ||
+                        error.getMessage().contains(ErrorEnum.CAPACITY_HOST.getErrorType()))) {
+            return true;
+        }
+        if (error.getStatusCode() == 400 && error.getMessage().contains(ErrorEnum.LIMIT_EXCEEDED.getErrorType())) {
+            instanceDetailDTO.setOut(true);
+            log.error("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],无法创建实例,配额已经超过限制~",
+                    user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture(), error);
+        } else if (error.getStatusCode() == 429 || error.getMessage().contains(ErrorEnum.TOO_MANY_REQUESTS.getErrorType())) {
+            instanceDetailDTO.setTooManyReq(true);
+            log.warn("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],开机请求频繁,[{}]秒后将重试...",
+                    user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture(), user.getInterval());
+        } else if (error.getStatusCode() == 401 || error.getMessage().contains(ErrorEnum.NOT_AUTHENTICATED.getErrorType())) {
+            instanceDetailDTO.setDie(true);
+            log.error("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],开机失败,可能的原因：(新生成的API暂未生效|账号已无权|账号已封禁\uD83D\uDC7B)",
+                    user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture());
+        } else {
+            log.error("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],出现错误了,原因为:{}",
+                    user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture(),
+                    error.getMessage(), error);
+        }
+        return false;
+    }
+
+    /**
+     * 竞速开机：同时向多个可用域发起开机请求，取最先进入运行状态的 wanted 台，多开的实例随即终止。
+     * 依赖拓扑缓存中的公有子网，缓存未预热时退化为一次串行开机（同时完成预热）。
+     *
+     * @param wanted      本轮还需要的实例数量
+     * @param concurrency 同时发起请求的可用域数量上限
+     * @return 成功的实例；未达到 wanted 时附带一条汇总失败原因的记录
+     */
+    public List<InstanceDetailDTO> raceInstanceData(int wanted, int concurrency) {
+        String topologyScope = OciTopologyCache.scope(user.getOciCfg().getTenantId(), user.getOciCfg().getRegion(), compartmentId);
+        Subnet subnet = OciTopologyCache.peek(topologyScope, "subnet");
+        if (subnet == null) {
+            return Collections.singletonList(createInstanceData());
+        }
+        List<AvailabilityDomain> availabilityDomains = OciTopologyCache.get(topologyScope, "ad", OciTopologyCache.AD_TTL,
+                () -> getAvailabilityDomains(getIdentityClient(), compartmentId));
+        Map<String, List<Shape>> shapeCatalog = getShapeCatalog(topologyScope, availabilityDomains);
+
+        // 每个可用域取第一个可用的机型+镜像作为竞速候选
+        List<RaceCandidate> candidates = new ArrayList<>();
+        for (AvailabilityDomain availableDomain : availabilityDomains) {
+            for (Shape shape : getShape(shapeCatalog.getOrDefault(availableDomain.getName(), Collections.emptyList()), user)) {
+                Image image = getImage(topologyScope, shape, user);
+                if (image != null) {
+                    candidates.add(new RaceCandidate(availableDomain, shape, image));
+                    break;
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return Collections.singletonList(createInstanceData());
+        }
+
+        int parallelism = Math.min(concurrency, candidates.size());
+        String cloudInitScript = CommonUtils.getPwdShell(user.getRootPassword());
+        AtomicInteger confirmed = new AtomicInteger();
+        List<InstanceDetailDTO> successList = Collections.synchronizedList(new ArrayList<>());
+        InstanceDetailDTO failure = newInstanceDetail();
+        log.info("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],竞速模式同时向 [{}] 个可用域发起开机,需要 [{}] 台...",
+                user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture(), parallelism, wanted);
+
+        List<CompletableFuture<Void>> futures = candidates.subList(0, parallelism).stream()
+                .map(candidate -> CompletableFuture.runAsync(() -> raceLaunch(candidate, subnet, cloudInitScript,
+                        wanted, confirmed, successList, failure, topologyScope), VIRTUAL_EXECUTOR))
+                .collect(Collectors.toList());
+        // 等待全部请求结束，确保多开的实例都已被终止
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        List<InstanceDetailDTO> result = new ArrayList<>(successList);
+        if (result.size() < wanted) {
+            result.add(failure);
+        }
+        return result;
+    }
+
+    private record RaceCandidate(AvailabilityDomain availableDomain, Shape shape, Image image) {
+    }
+
+    /**
+     * @param confirmed 已进入运行状态的实例数，只在等到运行后才计入，下单成功但随后失败的不占名额
+     */
+    private void raceLaunch(RaceCandidate candidate, Subnet subnet, String cloudInitScript, int wanted, AtomicInteger confirmed,
+                            List<InstanceDetailDTO> successList, InstanceDetailDTO failure, String topologyScope) {
+        AvailabilityDomain availableDomain = candidate.availableDomain();
+        Shape shape = candidate.shape();
+        Image image = candidate.image();
+        if (confirmed.get() >= wanted) {
+            // 已满额，不再发出请求
+            return;
+        }
+        try {
+            LaunchInstanceDetails launchInstanceDetails = createLaunchInstanceDetails(
+                    compartmentId, availableDomain, shape, image, subnet, null, cloudInitScript, user);
+            Instance launched = getComputeClient().launchInstance(LaunchInstanceRequest.builder()
+                    .launchInstanceDetails(launchInstanceDetails)
+                    .build()).getInstance();
+            Instance instance = getComputeClient().getWaiters()
+                    .forInstance(GetInstanceRequest.builder().instanceId(launched.getId()).build(), Instance.LifecycleState.Running)
+                    .execute()
+                    .getInstance();
+            if (confirmed.incrementAndGet() > wanted) {
+                log.warn("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],竞速多开,终止可用域:[{}]的多余实例:[{}]",
+                        user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture(),
+                        availableDomain.getName(), instance.getId());
+                terminateInstance(instance.getId(), false, false);
+                return;
+            }
+            InstanceDetailDTO instanceDetailDTO = newInstanceDetail();
+            printInstance(getComputeClient(), getVirtualNetworkClient(), instance, instanceDetailDTO);
+            log.info("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],可用域:[{}]竞速开机成功,正在为实例预配...",
+                    user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture(), availableDomain.getName());
+            instanceDetailDTO.setSuccess(true);
+            instanceDetailDTO.setImage(image.getId());
+            instanceDetailDTO.setOcpus(user.getOcpus());
+            instanceDetailDTO.setMemory(user.getMemory());
+            instanceDetailDTO.setDisk(user.getDisk() == null ? 50L : user.getDisk());
+            instanceDetailDTO.setRootPassword(user.getRootPassword());
+            instanceDetailDTO.setShape(shape.getShape());
+            instanceDetailDTO.setInstance(instance);
+            successList.add(instanceDetailDTO);
+        } catch (BmcException error) {
+            synchronized (failure) {
+                if (markLaunchError(error, failure, topologyScope)) {
+                    log.warn("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],可用域:[{}]容量不足...",
+                            user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture(), availableDomain.getName());
+                }
+            }
+        } catch (Exception e) {
+            log.error("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],出现错误了,原因为:{}",
+                    user.getUsername(), user.getOciCfg().getRegion(), user.getArchitecture(), e.getMessage(), e);
+        }
+    }
+
+    private InstanceDetailDTO newInstanceDetail() {
+        InstanceDetailDTO instanceDetailDTO = new InstanceDetailDTO();
+        instanceDetailDTO.setTaskId(user.getTaskId());
+        instanceDetailDTO.setUsername(user.getUsername());
+        instanceDetailDTO.setRegion(user.getOciCfg().getRegion());
+        instanceDetailDTO.setArchitecture(user.getArchitecture());
+        instanceDetailDTO.setCreateNumbers(user.getCreateNumbers());
+        return instanceDetailDTO;
+    }
+
     public SysUserDTO getUser() {
         return user;
     }
 
     public String getRegisteredTime() {
-        return CommonUtils.dateFmt2String(identityClient.getCompartment(GetCompartmentRequest.builder()
+        return CommonUtils.dateFmt2String(getIdentityClient().getCompartment(GetCompartmentRequest.builder()
                 .compartmentId(compartmentId)
                 .build()).getCompartment().getTimeCreated());
     }
@@ -474,13 +608,13 @@ public class OracleInstanceFetcher implements Closeable {
     }
 
     public List<com.oracle.bmc.identity.model.Region> listAllRegions() {
-        ListRegionsResponse listRegionsResponse = identityClient.listRegions(ListRegionsRequest.builder().build());
+        ListRegionsResponse listRegionsResponse = getIdentityClient().listRegions(ListRegionsRequest.builder().build());
         List<com.oracle.bmc.identity.model.Region> regions = listRegionsResponse.getItems();
         return CollectionUtil.isEmpty(regions) ? Collections.emptyList() : regions;
     }
 
     public List<RegionSubscription> listRegionSubscriptions() {
-        ListRegionSubscriptionsResponse response = identityClient.listRegionSubscriptions(
+        ListRegionSubscriptionsResponse response = getIdentityClient().listRegionSubscriptions(
                 ListRegionSubscriptionsRequest.builder()
                         .tenancyId(compartmentId)
                         .build());
@@ -489,14 +623,14 @@ public class OracleInstanceFetcher implements Closeable {
     }
 
     public void deleteAllMfa() {
-        ListMfaTotpDevicesResponse listMfaTotpDevicesResponse = identityClient.listMfaTotpDevices(
+        ListMfaTotpDevicesResponse listMfaTotpDevicesResponse = getIdentityClient().listMfaTotpDevices(
                 ListMfaTotpDevicesRequest.builder()
                         .userId(user.getOciCfg().getUserId())
                         .build());
         List<MfaTotpDeviceSummary> listMfaTotpDevicesResponseItems = listMfaTotpDevicesResponse.getItems();
         if (CollectionUtil.isNotEmpty(listMfaTotpDevicesResponseItems)) {
-            listMfaTotpDevicesResponseItems.parallelStream().forEach(item -> {
-                identityClient.deleteMfaTotpDevice(DeleteMfaTotpDeviceRequest.builder()
+            OciFanOut.forEach(user.getOciCfg().getTenantId(), "deleteMfaTotpDevice", listMfaTotpDevicesResponseItems, item -> {
+                getIdentityClient().deleteMfaTotpDevice(DeleteMfaTotpDeviceRequest.builder()
                         .mfaTotpDeviceId(item.getId())
                         .userId(user.getOciCfg().getUserId())
                         .build());
@@ -505,13 +639,13 @@ public class OracleInstanceFetcher implements Closeable {
     }
 
     public void deleteAllApiKey() {
-        ListApiKeysResponse listApiKeysResponse = identityClient.listApiKeys(ListApiKeysRequest.builder()
+        ListApiKeysResponse listApiKeysResponse = getIdentityClient().listApiKeys(ListApiKeysRequest.builder()
                 .userId(user.getOciCfg().getUserId())
                 .build());
         List<ApiKey> items = listApiKeysResponse.getItems();
         if (CollectionUtil.isNotEmpty(items)) {
-            items.parallelStream().forEach(item -> {
-                identityClient.deleteApiKey(DeleteApiKeyRequest.builder()
+            OciFanOut.forEach(user.getOciCfg().getTenantId(), "deleteApiKey", items, item -> {
+                getIdentityClient().deleteApiKey(DeleteApiKeyRequest.builder()
                         .userId(user.getOciCfg().getUserId())
                         .fingerprint(item.getFingerprint())
                         .build());
@@ -520,13 +654,13 @@ public class OracleInstanceFetcher implements Closeable {
     }
 
     public User getUserInfo() {
-        return identityClient.getUser(GetUserRequest.builder()
+        return getIdentityClient().getUser(GetUserRequest.builder()
                 .userId(user.getOciCfg().getUserId())
                 .build()).getUser();
     }
 
     public void updateUser(String email, String dbUserName, String description) {
-        identityClient.updateUser(UpdateUserRequest.builder()
+        getIdentityClient().updateUser(UpdateUserRequest.builder()
                 .userId(user.getOciCfg().getUserId())
                 .updateUserDetails(UpdateUserDetails.builder()
                         .email(email)
@@ -537,7 +671,7 @@ public class OracleInstanceFetcher implements Closeable {
     }
 
     public String createOrResetUIPassword() {
-        CreateOrResetUIPasswordResponse uIPassword = identityClient.createOrResetUIPassword(
+        CreateOrResetUIPasswordResponse uIPassword = getIdentityClient().createOrResetUIPassword(
                 CreateOrResetUIPasswordRequest.builder()
                         .userId(user.getOciCfg().getUserId())
                         .build());
@@ -556,7 +690,7 @@ public class OracleInstanceFetcher implements Closeable {
     public Subscription getSubscriptionInfo() {
         String tenantId = user.getOciCfg().getTenantId();
         // Resolve the home region name from the subscribed regions list
-        String homeRegion = identityClient.listRegionSubscriptions(
+        String homeRegion = getIdentityClient().listRegionSubscriptions(
                         ListRegionSubscriptionsRequest.builder()
                                 .tenancyId(tenantId)
                                 .build()).getItems().stream()
@@ -568,7 +702,7 @@ public class OracleInstanceFetcher implements Closeable {
             log.warn("用户:[{}] 无法获取 home region，跳过订阅信息查询", user.getUsername());
             return null;
         }
-        try (SubscriptionServiceClient client = SubscriptionServiceClient.builder().build(provider)) {
+        try (SubscriptionServiceClient client = SubscriptionServiceClient.builder().build(getProvider())) {
             // OSP Gateway must use the home region endpoint
             client.setRegion(homeRegion);
             ListSubscriptionsResponse listResp = client.listSubscriptions(
@@ -603,15 +737,15 @@ public class OracleInstanceFetcher implements Closeable {
         ListInstancesRequest request = ListInstancesRequest.builder()
                 .compartmentId(user.getOciCfg().getTenantId())
                 .build();
-        ListInstancesResponse response = computeClient.listInstances(request);
+        ListInstancesResponse response = getComputeClient().listInstances(request);
         List<Instance> instanceList = response.getItems();
-        return CollectionUtil.isEmpty(instanceList) ? Collections.emptyList() : instanceList.parallelStream()
+        return CollectionUtil.isEmpty(instanceList) ? Collections.emptyList() : instanceList.stream()
                 .filter(x -> !x.getLifecycleState().getValue().equals(InstanceStateEnum.LIFECYCLE_STATE_TERMINATED.getState()))
                 .collect(Collectors.toList());
     }
 
     public Instance getInstanceById(String instanceId) {
-        GetInstanceResponse instance = computeClient.getInstance(GetInstanceRequest.builder()
+        GetInstanceResponse instance = getComputeClient().getInstance(GetInstanceRequest.builder()
                 .instanceId(instanceId)
                 .build());
         return instance.getInstance();
@@ -624,21 +758,127 @@ public class OracleInstanceFetcher implements Closeable {
                 .instanceId(instanceId)
                 .build();
 
-        ListVnicAttachmentsResponse vnicResponse = computeClient.listVnicAttachments(vnicRequest);
-        List<VnicAttachment> vnicAttachments = vnicResponse.getItems();
-        return vnicAttachments.parallelStream()
+        ListVnicAttachmentsResponse vnicResponse = getComputeClient().listVnicAttachments(vnicRequest);
+        List<VnicAttachment> vnicAttachments = vnicResponse.getItems().stream()
                 .filter(x -> x.getLifecycleState().equals(VnicAttachment.LifecycleState.Attached))
-                .map(x -> {
-                    String vnicId = x.getVnicId();
-                    if (vnicId != null) {
-                        // 获取VNIC详细信息,包括IP地址
-                        GetVnicRequest getVnicRequest = GetVnicRequest.builder().vnicId(vnicId).build();
-                        GetVnicResponse getVnicResponse = virtualNetworkClient.getVnic(getVnicRequest);
-                        Vnic vnic = getVnicResponse.getVnic();
-                        return vnic;
+                .collect(Collectors.toList());
+        return OciFanOut.map(user.getOciCfg().getTenantId(), "getVnic", vnicAttachments, x -> {
+            String vnicId = x.getVnicId();
+            if (vnicId != null) {
+                // 获取VNIC详细信息,包括IP地址
+                GetVnicRequest getVnicRequest = GetVnicRequest.builder().vnicId(vnicId).build();
+                GetVnicResponse getVnicResponse = getVirtualNetworkClient().getVnic(getVnicRequest);
+                Vnic vnic = getVnicResponse.getVnic();
+                return vnic;
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 以下 listAll* 为区间级分页列表，供资源快照一次拉全后在内存中关联，避免逐实例查询
+     */
+    public List<Instance> listAllInstances() {
+        List<Instance> instances = new ArrayList<>();
+        getComputeClient().getPaginators().listInstancesRecordIterator(ListInstancesRequest.builder()
+                        .compartmentId(user.getOciCfg().getTenantId())
+                        .build())
+                .forEach(x -> {
+                    if (x.getLifecycleState() != Instance.LifecycleState.Terminated) {
+                        instances.add(x);
+                    }
+                });
+        return instances;
+    }
+
+    public List<VnicAttachment> listAllVnicAttachments() {
+        List<VnicAttachment> attachments = new ArrayList<>();
+        getComputeClient().getPaginators().listVnicAttachmentsRecordIterator(ListVnicAttachmentsRequest.builder()
+                        .compartmentId(compartmentId)
+                        .build())
+                .forEach(x -> {
+                    if (x.getLifecycleState() == VnicAttachment.LifecycleState.Attached) {
+                        attachments.add(x);
+                    }
+                });
+        return attachments;
+    }
+
+    public List<BootVolumeAttachment> listAllBootVolumeAttachments(String availabilityDomain) {
+        List<BootVolumeAttachment> attachments = new ArrayList<>();
+        getComputeClient().getPaginators().listBootVolumeAttachmentsRecordIterator(ListBootVolumeAttachmentsRequest.builder()
+                        .availabilityDomain(availabilityDomain)
+                        .compartmentId(compartmentId)
+                        .build())
+                .forEach(x -> {
+                    if (x.getLifecycleState() == BootVolumeAttachment.LifecycleState.Attached) {
+                        attachments.add(x);
+                    }
+                });
+        return attachments;
+    }
+
+    public List<BootVolume> listAllBootVolumes(String availabilityDomain) {
+        List<BootVolume> bootVolumes = new ArrayList<>();
+        getBlockstorageClient().getPaginators().listBootVolumesRecordIterator(ListBootVolumesRequest.builder()
+                        .availabilityDomain(availabilityDomain)
+                        .compartmentId(compartmentId)
+                        .build())
+                .forEach(x -> {
+                    if (x.getLifecycleState() != BootVolume.LifecycleState.Terminated) {
+                        bootVolumes.add(x);
+                    }
+                });
+        return bootVolumes;
+    }
+
+    /**
+     * 区间内所有子网下的主私有 IP，vnicId -> PrivateIp
+     */
+    public Map<String, PrivateIp> listAllPrimaryPrivateIps() {
+        Map<String, PrivateIp> privateIps = new HashMap<>();
+        VirtualNetworkClient client = getVirtualNetworkClient();
+        client.getPaginators().listSubnetsRecordIterator(ListSubnetsRequest.builder()
+                        .compartmentId(compartmentId)
+                        .build())
+                .forEach(subnet -> client.getPaginators().listPrivateIpsRecordIterator(ListPrivateIpsRequest.builder()
+                                .subnetId(subnet.getId())
+                                .build())
+                        .forEach(ip -> {
+                            if (ip.getVnicId() != null && Boolean.TRUE.equals(ip.getIsPrimary())) {
+                                privateIps.put(ip.getVnicId(), ip);
+                            }
+                        }));
+        return privateIps;
+    }
+
+    /**
+     * 区间内已分配给私有 IP 的公网 IP（区域级保留 IP + 各可用域临时 IP），privateIpId -> 公网 IP
+     */
+    public Map<String, String> listAllAssignedPublicIps(List<String> availabilityDomains) {
+        Map<String, String> publicIps = new HashMap<>();
+        VirtualNetworkClient client = getVirtualNetworkClient();
+        List<ListPublicIpsRequest> requests = new ArrayList<>();
+        requests.add(ListPublicIpsRequest.builder()
+                .scope(ListPublicIpsRequest.Scope.Region)
+                .compartmentId(compartmentId)
+                .build());
+        availabilityDomains.forEach(ad -> requests.add(ListPublicIpsRequest.builder()
+                .scope(ListPublicIpsRequest.Scope.AvailabilityDomain)
+                .availabilityDomain(ad)
+                .compartmentId(compartmentId)
+                .build()));
+        requests.forEach(request -> client.getPaginators().listPublicIpsRecordIterator(request)
+                .forEach(ip -> {
+                    if (ip.getAssignedEntityType() == PublicIp.AssignedEntityType.PrivateIp && ip.getAssignedEntityId() != null) {
+                        publicIps.put(ip.getAssignedEntityId(), ip.getIpAddress());
                     }
-                    return null;
-                }).collect(Collectors.toList());
+                }));
+        return publicIps;
+    }
+
+    public Vnic getVnicById(String vnicId) {
+        return getVirtualNetworkClient().getVnic(GetVnicRequest.builder().vnicId(vnicId).build()).getVnic();
     }
 
     private String getCidr(VirtualNetworkClient virtualNetworkClient, String compartmentId) {
@@ -671,7 +911,7 @@ public class OracleInstanceFetcher implements Closeable {
 
     public List<AvailabilityDomain> getAvailabilityDomains() {
         ListAvailabilityDomainsResponse listAvailabilityDomainsResponse =
-                identityClient.listAvailabilityDomains(ListAvailabilityDomainsRequest.builder()
+                getIdentityClient().listAvailabilityDomains(ListAvailabilityDomainsRequest.builder()
                         .compartmentId(compartmentId)
                         .build());
         List<AvailabilityDomain> availabilityDomainList = listAvailabilityDomainsResponse.getItems();
@@ -682,16 +922,26 @@ public class OracleInstanceFetcher implements Closeable {
         return availabilityDomainList;
     }
 
-    private List<Shape> getShape(
-            ComputeClient computeClient,
-            String compartmentId,
-            AvailabilityDomain availabilityDomain,
-            SysUserDTO user) {
-        ListShapesResponse listShapesResponse = computeClient.listShapes(ListShapesRequest.builder()
-                .availabilityDomain(availabilityDomain.getName())
-                .compartmentId(compartmentId)
-                .build());
-        List<Shape> shapes = listShapesResponse.getItems();
+    /**
+     * 各可用域的机型目录（可用域名称 -> 机型列表），按拓扑缓存 TTL 复用
+     */
+    private Map<String, List<Shape>> getShapeCatalog(String topologyScope, List<AvailabilityDomain> availabilityDomains) {
+        return OciTopologyCache.get(topologyScope, "shape", OciTopologyCache.SHAPE_TTL,
+                () -> {
+                    List<List<Shape>> shapes = OciFanOut.map(user.getOciCfg().getTenantId(), "listShapes", availabilityDomains,
+                            availabilityDomain -> getComputeClient().listShapes(ListShapesRequest.builder()
+                                    .availabilityDomain(availabilityDomain.getName())
+                                    .compartmentId(compartmentId)
+                                    .build()).getItems());
+                    Map<String, List<Shape>> catalog = new HashMap<>();
+                    for (int i = 0; i < availabilityDomains.size(); i++) {
+                        catalog.put(availabilityDomains.get(i).getName(), shapes.get(i));
+                    }
+                    return catalog;
+                });
+    }
+
+    private List<Shape> getShape(List<Shape> shapes, SysUserDTO user) {
         List<Shape> vmShapes = CollectionUtil.isEmpty(shapes) ? Collections.emptyList() : shapes;
         List<Shape> shapesNewList = new ArrayList<>();
         String type = ArchitectureEnum.getType(user.getArchitecture());
@@ -705,8 +955,15 @@ public class OracleInstanceFetcher implements Closeable {
         return shapesNewList;
     }
 
-    private Image getImage(ComputeClient computeClient, String compartmentId, Shape shape, SysUserDTO user) {
+    private Image getImage(String topologyScope, Shape shape, SysUserDTO user) {
         OperationSystemEnum systemType = OperationSystemEnum.getSystemType(user.getOperationSystem());
+        return OciTopologyCache.get(topologyScope,
+                "image:" + systemType.getType() + ":" + systemType.getVersion() + ":" + shape.getShape(),
+                OciTopologyCache.IMAGE_TTL,
+                () -> getImage(getComputeClient(), compartmentId, shape, systemType));
+    }
+
+    private Image getImage(ComputeClient computeClient, String compartmentId, Shape shape, OperationSystemEnum systemType) {
         ListImagesRequest listImagesRequest =
                 ListImagesRequest.builder()
                         .shape(shape.getShape())
@@ -758,10 +1015,10 @@ public class OracleInstanceFetcher implements Closeable {
                 .displayName(vcnName)
                 .build();
         CreateVcnRequest createVcnRequest = CreateVcnRequest.builder().createVcnDetails(createVcnDetails).build();
-        CreateVcnResponse createVcnResponse = virtualNetworkClient.createVcn(createVcnRequest);
+        CreateVcnResponse createVcnResponse = getVirtualNetworkClient().createVcn(createVcnRequest);
 
         GetVcnRequest getVcnRequest = GetVcnRequest.builder().vcnId(createVcnResponse.getVcn().getId()).build();
-        GetVcnResponse getVcnResponse = virtualNetworkClient
+        GetVcnResponse getVcnResponse = getVirtualNetworkClient()
                 .getWaiters()
                 .forVcn(getVcnRequest, Vcn.LifecycleState.Available)
                 .execute();
@@ -784,7 +1041,7 @@ public class OracleInstanceFetcher implements Closeable {
                 .compartmentId(compartmentId)
                 .lifecycleState(Vcn.LifecycleState.Available)
                 .build();
-        ListVcnsResponse response = virtualNetworkClient.listVcns(request);
+        ListVcnsResponse response = getVirtualNetworkClient().listVcns(request);
         return response.getItems();
     }
 
@@ -793,17 +1050,17 @@ public class OracleInstanceFetcher implements Closeable {
         // 获取子网信息
         String subnetId = vnic.getSubnetId();
         GetSubnetRequest getSubnetRequest = GetSubnetRequest.builder().subnetId(subnetId).build();
-        GetSubnetResponse getSubnetResponse = virtualNetworkClient.getSubnet(getSubnetRequest);
+        GetSubnetResponse getSubnetResponse = getVirtualNetworkClient().getSubnet(getSubnetRequest);
         Subnet subnet = getSubnetResponse.getSubnet();
         // 获取 VCN 信息
         String vcnId = subnet.getVcnId();
         GetVcnRequest getVcnRequest = GetVcnRequest.builder().vcnId(vcnId).build();
-        GetVcnResponse getVcnResponse = virtualNetworkClient.getVcn(getVcnRequest);
+        GetVcnResponse getVcnResponse = getVirtualNetworkClient().getVcn(getVcnRequest);
         return getVcnResponse.getVcn();
     }
 
     public void deleteVcnById(String vcnId) {
-        virtualNetworkClient.updateRouteTable(UpdateRouteTableRequest.builder()
+        getVirtualNetworkClient().updateRouteTable(UpdateRouteTableRequest.builder()
                 .rtId(getVcnById(vcnId).getDefaultRouteTableId())
                 .updateRouteTableDetails(UpdateRouteTableDetails.builder()
                         .routeRules(Collections.emptyList())
@@ -811,30 +1068,30 @@ public class OracleInstanceFetcher implements Closeable {
                 .build());
         deleteAllSubnets(vcnId);
         deleteAllInternetGateways(vcnId);
-        List<NetworkSecurityGroup> securityGroupList = virtualNetworkClient.listNetworkSecurityGroups(ListNetworkSecurityGroupsRequest.builder()
+        List<NetworkSecurityGroup> securityGroupList = getVirtualNetworkClient().listNetworkSecurityGroups(ListNetworkSecurityGroupsRequest.builder()
                 .compartmentId(compartmentId)
                 .vcnId(vcnId)
                 .build()).getItems();
         if (CollectionUtil.isNotEmpty(securityGroupList)) {
             for (NetworkSecurityGroup networkSecurityGroup : securityGroupList) {
-                virtualNetworkClient.updateNetworkSecurityGroupSecurityRules(UpdateNetworkSecurityGroupSecurityRulesRequest.builder()
+                getVirtualNetworkClient().updateNetworkSecurityGroupSecurityRules(UpdateNetworkSecurityGroupSecurityRulesRequest.builder()
                         .networkSecurityGroupId(networkSecurityGroup.getId())
                         .updateNetworkSecurityGroupSecurityRulesDetails(UpdateNetworkSecurityGroupSecurityRulesDetails.builder()
                                 .securityRules(Collections.emptyList())
                                 .build())
                         .build());
-                virtualNetworkClient.deleteNetworkSecurityGroup(DeleteNetworkSecurityGroupRequest.builder()
+                getVirtualNetworkClient().deleteNetworkSecurityGroup(DeleteNetworkSecurityGroupRequest.builder()
                         .networkSecurityGroupId(networkSecurityGroup.getId())
                         .build());
             }
         }
-        virtualNetworkClient.deleteVcn(DeleteVcnRequest.builder()
+        getVirtualNetworkClient().deleteVcn(DeleteVcnRequest.builder()
                 .vcnId(vcnId)
                 .build());
     }
 
     private void deleteAllSubnets(String vcnId) {
-        ListSubnetsResponse subnetsResponse = virtualNetworkClient.listSubnets(
+        ListSubnetsResponse subnetsResponse = getVirtualNetworkClient().listSubnets(
                 ListSubnetsRequest.builder()
                         .vcnId(vcnId)
                         .compartmentId(compartmentId)
@@ -843,12 +1100,12 @@ public class OracleInstanceFetcher implements Closeable {
         if (CollectionUtil.isEmpty(subnetsResponse.getItems())) {
             return;
         }
-        subnetsResponse.getItems().forEach(subnet -> virtualNetworkClient.deleteSubnet(
+        subnetsResponse.getItems().forEach(subnet -> getVirtualNetworkClient().deleteSubnet(
                 DeleteSubnetRequest.builder().subnetId(subnet.getId()).build()));
     }
 
     private void deleteAllInternetGateways(String vcnId) {
-        ListInternetGatewaysResponse response = virtualNetworkClient.listInternetGateways(
+        ListInternetGatewaysResponse response = getVirtualNetworkClient().listInternetGateways(
                 ListInternetGatewaysRequest.builder()
                         .vcnId(vcnId)
                         .compartmentId(compartmentId)
@@ -857,7 +1114,7 @@ public class OracleInstanceFetcher implements Closeable {
         if (CollectionUtil.isEmpty(response.getItems())) {
             return;
         }
-        response.getItems().forEach(ig -> virtualNetworkClient.deleteInternetGateway(
+        response.getItems().forEach(ig -> getVirtualNetworkClient().deleteInternetGateway(
                 DeleteInternetGatewayRequest.builder().igId(ig.getId()).build()));
     }
 
@@ -1023,10 +1280,10 @@ public class OracleInstanceFetcher implements Closeable {
     private void deleteSubnet(Subnet subnet) {
         try {
             DeleteSubnetRequest deleteSubnetRequest = DeleteSubnetRequest.builder().subnetId(subnet.getId()).build();
-            virtualNetworkClient.deleteSubnet(deleteSubnetRequest);
+            getVirtualNetworkClient().deleteSubnet(deleteSubnetRequest);
 
             GetSubnetRequest getSubnetRequest = GetSubnetRequest.builder().subnetId(subnet.getId()).build();
-            virtualNetworkClient
+            getVirtualNetworkClient()
                     .getWaiters()
                     .forSubnet(getSubnetRequest, Subnet.LifecycleState.Terminated)
                     .execute();
@@ -1043,7 +1300,7 @@ public class OracleInstanceFetcher implements Closeable {
                 .vcnId(vcnId)
                 .build();
 
-        ListSubnetsResponse response = virtualNetworkClient.listSubnets(request);
+        ListSubnetsResponse response = getVirtualNetworkClient().listSubnets(request);
 
 //        for (Subnet subnet :response.getItems()) {
 //            System.out.println("Subnet Name:" + subnet.getDisplayName() + ", OCID:" + subnet.getId());
@@ -1137,7 +1394,7 @@ public class OracleInstanceFetcher implements Closeable {
                 .compartmentId(compartmentId)
                 .build();
 
-        ListNetworkSecurityGroupsResponse response = virtualNetworkClient.listNetworkSecurityGroups(request);
+        ListNetworkSecurityGroupsResponse response = getVirtualNetworkClient().listNetworkSecurityGroups(request);
 
 //        for (NetworkSecurityGroup nsg :response.getItems()) {
 //            System.out.println("NetworkSecurityGroup Name:" + nsg.getDisplayName() + ", OCID:" + nsg.getId());
@@ -1404,7 +1661,7 @@ public class OracleInstanceFetcher implements Closeable {
     private String getCompartmentIdFromCache() {
         CustomExpiryGuavaCache cache = SpringUtil.getBean(CustomExpiryGuavaCache.class);
         Object compartmentIdInCache = cache.get(CacheConstant.PREFIX_TENANT_COMPARTMENT_ID + getUser().getOciCfg().getTenantId());
-        return compartmentIdInCache == null ? findRootCompartment(identityClient, getUser().getOciCfg().getTenantId()) : String.valueOf(compartmentIdInCache);
+        return compartmentIdInCache == null ? session.getRootCompartmentId() : String.valueOf(compartmentIdInCache);
     }
 
     private String getRegionFromCache() {
@@ -1413,38 +1670,12 @@ public class OracleInstanceFetcher implements Closeable {
         return regionInCache == null ? getUser().getOciCfg().getRegion() : String.valueOf(regionInCache);
     }
 
-    private String findRootCompartment(IdentityClient identityClient, String tenantId) {
-        // 使用`compartmentIdInSubtree`参数来获取所有子区间
-        ListCompartmentsRequest request = ListCompartmentsRequest.builder()
-                .compartmentId(tenantId)
-                .compartmentIdInSubtree(true)
-                .accessLevel(ListCompartmentsRequest.AccessLevel.Accessible)
-                .build();
-
-        try {
-            ListCompartmentsResponse response = identityClient.listCompartments(request);
-            List<Compartment> compartments = response.getItems();
-
-            // 根区间是没有parentCompartmentId的区间
-            for (Compartment compartment : compartments) {
-                if (compartment.getCompartmentId().equals(tenantId) && compartment.getId().equals(compartment.getCompartmentId())) {
-                    return compartment.getId(); // 返回根区间ID
-                }
-            }
-        } catch (Exception e) {
-            return tenantId;
-        }
-
-        // 如果没有找到根区间,返回租户ID作为默认值
-        return tenantId;
-    }
-
     public String getPrivateIpIdForVnic(Vnic vnic) {
         ListPrivateIpsRequest listPrivateIpsRequest = ListPrivateIpsRequest.builder()
                 .vnicId(vnic.getId())
                 .build();
 
-        ListPrivateIpsResponse privateIpsResponse = virtualNetworkClient.listPrivateIps(listPrivateIpsRequest);
+        ListPrivateIpsResponse privateIpsResponse = getVirtualNetworkClient().listPrivateIps(listPrivateIpsRequest);
 
         for (PrivateIp privateIp : privateIpsResponse.getItems()) {
             // 返回第一个 Private IP 的 ID
@@ -1453,38 +1684,41 @@ public class OracleInstanceFetcher implements Closeable {
         throw new RuntimeException("No Private IP found for VNIC ID:" + vnic.getId());
     }
 
-    public void releaseUnusedPublicIps() {
-        ListPublicIpsRequest listPublicIpsRequest = ListPublicIpsRequest.builder()
-                .compartmentId(compartmentId)
-                .scope(ListPublicIpsRequest.Scope.Region)
-                .lifetime(ListPublicIpsRequest.Lifetime.Ephemeral)
-                .build();
-
-        ListPublicIpsResponse response = virtualNetworkClient.listPublicIps(listPublicIpsRequest);
-        List<PublicIp> publicIpList = response.getItems();
-        if (CollectionUtil.isEmpty(publicIpList)) {
+    /**
+     * 释放本次换 IP 创建但没能挂到 VNIC 上的公共IP；只处理自己创建的这一个，不扫描整个区间，
+     * 避免误删其他任务或用户刚创建、尚未挂载的公共IP
+     */
+    private void releaseCreatedPublicIp(String publicIpId) {
+        if (publicIpId == null) {
             return;
         }
-        for (PublicIp publicIp : response.getItems()) {
-            if (publicIp.getAssignedEntityId() == null) {  // 检查是否未分配到实例
-                DeletePublicIpRequest deleteRequest = DeletePublicIpRequest.builder()
-                        .publicIpId(publicIp.getId())
-                        .build();
-                virtualNetworkClient.deletePublicIp(deleteRequest);
+        try {
+            PublicIp publicIp = getVirtualNetworkClient().getPublicIp(GetPublicIpRequest.builder()
+                    .publicIpId(publicIpId)
+                    .build()).getPublicIp();
+            if (publicIp.getAssignedEntityId() == null) {
+                getVirtualNetworkClient().deletePublicIp(DeletePublicIpRequest.builder()
+                        .publicIpId(publicIpId)
+                        .build());
                 log.info("Released unused Public IP:[{}]", publicIp.getIpAddress());
             }
+        } catch (Exception e) {
+            log.warn("【更换公共IP】用户:[{}],区域:[{}],释放未使用的公共IP:[{}]失败:{}",
+                    user.getUsername(), user.getOciCfg().getRegion(), publicIpId, e.getLocalizedMessage());
         }
     }
 
+    /**
+     * 换一个临时公共IP；失败时只释放本次创建的公共IP
+     */
     public String reassignEphemeralPublicIp(Vnic vnic) {
         if (vnic == null) {
             throw new RuntimeException("当前实例的VNIC不存在");
         }
         String vnicId = vnic.getId();
         if (vnicId != null) {
-            // Step 1:解除当前的 Public IP（如果已存在）
-            GetVnicRequest getVnicRequest = GetVnicRequest.builder().vnicId(vnicId).build();
-            String existingPublicIpAddress = virtualNetworkClient.getVnic(getVnicRequest).getVnic().getPublicIp();
+            // Step 1:解除当前的 Public IP（如果已存在），调用方刚查过 VNIC，直接用其中的公网 IP
+            String existingPublicIpAddress = vnic.getPublicIp();
             if (StrUtil.isNotBlank(existingPublicIpAddress)) {
                 // Step 1:查找公网 IP 的 OCID
                 GetPublicIpByIpAddressRequest getPublicIpByIpAddressRequest = GetPublicIpByIpAddressRequest.builder()
@@ -1494,17 +1728,18 @@ public class OracleInstanceFetcher implements Closeable {
                                         .build())
                         .build();
 
-                String existingPublicIpId = virtualNetworkClient.getPublicIpByIpAddress(getPublicIpByIpAddressRequest).getPublicIp().getId();
+                String existingPublicIpId = getVirtualNetworkClient().getPublicIpByIpAddress(getPublicIpByIpAddressRequest).getPublicIp().getId();
 
                 DeletePublicIpRequest deleteRequest = DeletePublicIpRequest.builder()
                         .publicIpId(existingPublicIpId)
                         .build();
-                virtualNetworkClient.deletePublicIp(deleteRequest);
+                getVirtualNetworkClient().deletePublicIp(deleteRequest);
 //                System.out.println("Existing public IP detached:" + existingPublicIpId);
             }
         }
 
         String publicIp;
+        String createdPublicIpId = null;
         try {
             String privateIpId = getPrivateIpIdForVnic(vnic);
             // Step 1:创建一个 Reserved Public IP
@@ -1518,7 +1753,8 @@ public class OracleInstanceFetcher implements Closeable {
                     .createPublicIpDetails(createPublicIpDetails)
                     .build();
 
-            PublicIp reservedPublicIp = virtualNetworkClient.createPublicIp(createRequest).getPublicIp();
+            PublicIp reservedPublicIp = getVirtualNetworkClient().createPublicIp(createRequest).getPublicIp();
+            createdPublicIpId = reservedPublicIp.getId();
 //            log.info("Reserved Public IP created:[{}]", reservedPublicIp.getIpAddress());
 
             // Step 2:使用 UpdatePublicIpRequest 将 Reserved Public IP 关联到 VNIC
@@ -1530,99 +1766,93 @@ public class OracleInstanceFetcher implements Closeable {
                     .updatePublicIpDetails(updatePublicIpDetails)
                     .build();
 
-            virtualNetworkClient.updatePublicIp(updateRequest);
+            getVirtualNetworkClient().updatePublicIp(updateRequest);
 //            log.info("Reserved Public IP attached to VNIC:" + reservedPublicIp.getIpAddress());
             publicIp = reservedPublicIp.getIpAddress();
             return publicIp;
         } catch (Exception e) {
             log.error("【更换公共IP】用户:[{}],区域:[{}],更换IP任务异常,稍后将重试...", user.getUsername(), user.getOciCfg().getRegion());
-        } finally {
-            releaseUnusedPublicIps();
+            releaseCreatedPublicIp(createdPublicIpId);
         }
         return null;
     }
 
     public BootVolume getBootVolumeByInstanceId(String instanceId) {
-        BootVolume bootVolume = null;
-        List<AvailabilityDomain> availabilityDomains = getAvailabilityDomains(identityClient, compartmentId);
-        for (AvailabilityDomain availabilityDomain : availabilityDomains) {
-            List<String> BootVolumeIdList = computeClient.listBootVolumeAttachments(ListBootVolumeAttachmentsRequest.builder()
-                            .availabilityDomain(availabilityDomain.getName())
-                            .compartmentId(compartmentId)
-                            .instanceId(instanceId)
-                            .build()).getItems()
-                    .stream().map(BootVolumeAttachment::getBootVolumeId)
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toList());
-            if (CollectionUtil.isNotEmpty(BootVolumeIdList)) {
-                GetBootVolumeRequest getBootVolumeRequest = GetBootVolumeRequest.builder()
-                        .bootVolumeId(BootVolumeIdList.get(0))
-                        .build();
-                GetBootVolumeResponse getBootVolumeResponse = blockstorageClient.getBootVolume(getBootVolumeRequest);
-                bootVolume = getBootVolumeResponse.getBootVolume();
-            }
+        List<String> bootVolumeIds = listBootVolumeIdsByInstanceId(instanceId, null);
+        if (bootVolumeIds.isEmpty()) {
+            throw new OciException(-1, "引导卷不存在");
         }
-        if (null == bootVolume) {
+        return getBootVolumeById(bootVolumeIds.get(0));
+    }
+
+    /**
+     * 已拿到实例时只查实例所在可用域的挂载，一次挂载列表加一次引导卷查询
+     */
+    public BootVolume getBootVolumeByInstance(Instance instance) {
+        List<String> bootVolumeIds = listBootVolumeIdsByInstanceId(instance.getId(), instance.getAvailabilityDomain());
+        if (bootVolumeIds.isEmpty()) {
             throw new OciException(-1, "引导卷不存在");
         }
-        return bootVolume;
+        return getBootVolumeById(bootVolumeIds.get(0));
     }
 
     public List<BootVolume> listBootVolumeListByInstanceId(String instanceId) {
-        List<BootVolume> bootVolumes = new ArrayList<>();
-        List<AvailabilityDomain> availabilityDomains = getAvailabilityDomains(identityClient, compartmentId);
-        for (AvailabilityDomain availabilityDomain : availabilityDomains) {
-            List<String> BootVolumeIdList = computeClient.listBootVolumeAttachments(ListBootVolumeAttachmentsRequest.builder()
-                            .availabilityDomain(availabilityDomain.getName())
-                            .compartmentId(compartmentId)
-                            .instanceId(instanceId)
-                            .build()).getItems()
-                    .stream().map(BootVolumeAttachment::getBootVolumeId)
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toList());
-            if (CollectionUtil.isNotEmpty(BootVolumeIdList)) {
-                bootVolumes.addAll(BootVolumeIdList.parallelStream()
-                        .map(this::getBootVolumeById)
-                        .collect(Collectors.toList()));
-            }
-        }
-        if (CollectionUtil.isEmpty(bootVolumes)) {
+        List<String> bootVolumeIds = listBootVolumeIdsByInstanceId(instanceId, null);
+        if (CollectionUtil.isEmpty(bootVolumeIds)) {
             throw new OciException(-1, "实例引导卷不存在");
         }
-        return bootVolumes;
+        return OciFanOut.map(user.getOciCfg().getTenantId(), "getBootVolume", bootVolumeIds, this::getBootVolumeById);
+    }
+
+    /**
+     * 实例挂载的引导卷 ID；未指定可用域时各可用域并发查询
+     */
+    private List<String> listBootVolumeIdsByInstanceId(String instanceId, String availabilityDomain) {
+        List<String> availabilityDomains = StrUtil.isNotBlank(availabilityDomain)
+                ? Collections.singletonList(availabilityDomain)
+                : getAvailabilityDomains().stream().map(AvailabilityDomain::getName).collect(Collectors.toList());
+        List<List<String>> perAd = OciFanOut.map(user.getOciCfg().getTenantId(), "listBootVolumeAttachments", availabilityDomains, ad ->
+                getComputeClient().listBootVolumeAttachments(ListBootVolumeAttachmentsRequest.builder()
+                                .availabilityDomain(ad)
+                                .compartmentId(compartmentId)
+                                .instanceId(instanceId)
+                                .build()).getItems()
+                        .stream().map(BootVolumeAttachment::getBootVolumeId)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList()));
+        return perAd.stream().flatMap(Collection::stream).collect(Collectors.toList());
     }
 
     public BootVolume getBootVolumeById(String bootVolumeId) {
         GetBootVolumeRequest getBootVolumeRequest = GetBootVolumeRequest.builder()
                 .bootVolumeId(bootVolumeId)
                 .build();
-        GetBootVolumeResponse getBootVolumeResponse = blockstorageClient.getBootVolume(getBootVolumeRequest);
+        GetBootVolumeResponse getBootVolumeResponse = getBlockstorageClient().getBootVolume(getBootVolumeRequest);
         return getBootVolumeResponse.getBootVolume();
     }
 
-    public List<BootVolume> listBootVolume() {
-        List<BootVolume> bootVolumes = new ArrayList<>();
-        List<AvailabilityDomain> availabilityDomains = getAvailabilityDomains(identityClient, compartmentId);
-        availabilityDomains.parallelStream().forEach(availabilityDomain -> {
-            List<BootVolume> items = blockstorageClient.listBootVolumes(ListBootVolumesRequest.builder()
-                    .availabilityDomain(availabilityDomain.getName())
-                    .compartmentId(compartmentId)
-                    .build()).getItems();
-            if (CollectionUtil.isNotEmpty(items)) {
-                bootVolumes.addAll(items.stream()
-                        .filter(x -> !x.getLifecycleState().getValue().equals(BootVolume.LifecycleState.Terminated.getValue()))
-                        .map(BootVolume::getId)
-                        .collect(Collectors.toList())
-                        .parallelStream().map(this::getBootVolumeById)
-                        .collect(Collectors.toList()));
-            }
-        });
+    /**
+     * 区间内所有未终止的引导卷及挂载关系：每个可用域并发查一次引导卷列表和一次挂载列表，
+     * 列表返回的就是完整的引导卷对象，不再逐个 getBootVolume
+     */
+    public BootVolumeIndex loadBootVolumeIndex() {
+        return loadBootVolumeIndex(getAvailabilityDomains().stream()
+                .map(AvailabilityDomain::getName)
+                .collect(Collectors.toList()));
+    }
 
-        return bootVolumes;
+    public BootVolumeIndex loadBootVolumeIndex(List<String> availabilityDomains) {
+        List<BootVolumeIndex> perAd = OciFanOut.map(user.getOciCfg().getTenantId(), "listBootVolumeIndex", availabilityDomains,
+                ad -> BootVolumeIndex.of(listAllBootVolumes(ad), listAllBootVolumeAttachments(ad)));
+        return BootVolumeIndex.merge(perAd);
+    }
+
+    public List<BootVolume> listBootVolume() {
+        return loadBootVolumeIndex().all();
     }
 
     public void terminateBootVolume(String bootVolumeId) {
-        blockstorageClient.deleteBootVolume(DeleteBootVolumeRequest.builder()
+        getBlockstorageClient().deleteBootVolume(DeleteBootVolumeRequest.builder()
                 .bootVolumeId(bootVolumeId)
                 .build());
     }
@@ -1631,7 +1861,7 @@ public class OracleInstanceFetcher implements Closeable {
         Instance instance = getInstanceById(instanceId);
         String bootVolumeSize = null;
         try {
-            BootVolume bootVolume = getBootVolumeByInstanceId(instanceId);
+            BootVolume bootVolume = getBootVolumeByInstance(instance);
             bootVolumeSize = bootVolume.getSizeInGBs() + "";
         } catch (Exception e) {
             log.error("用户:[{}],区域:[{}],实例:[{}],连接超时或者实例的引导卷不存在~",
@@ -1675,7 +1905,7 @@ public class OracleInstanceFetcher implements Closeable {
                 .action(action.getAction()) // "START" or "STOP"
                 .build();
 
-        InstanceActionResponse response = computeClient.instanceAction(request);
+        InstanceActionResponse response = getComputeClient().instanceAction(request);
         String currentState = response.getInstance().getLifecycleState().getValue();
         log.info("用户:[{}],区域:[{}],修改实例:[{}],状态成功！实例当前状态:[{}]",
                 user.getUsername(), user.getOciCfg().getRegion(),
@@ -1692,7 +1922,7 @@ public class OracleInstanceFetcher implements Closeable {
                 .build();
 
         /* Send request to the Client */
-        TerminateInstanceResponse response = computeClient.terminateInstance(terminateInstanceRequest);
+        TerminateInstanceResponse response = getComputeClient().terminateInstance(terminateInstanceRequest);
     }
 
     public List<Vnic> listVnicByInstanceId(String instanceId) {
@@ -1720,7 +1950,7 @@ public class OracleInstanceFetcher implements Closeable {
         if (vcnId == null) {
             return null;
         }
-        GetVcnResponse getVcnResponse = virtualNetworkClient.getVcn(GetVcnRequest.builder().vcnId(vcnId).build());
+        GetVcnResponse getVcnResponse = getVirtualNetworkClient().getVcn(GetVcnRequest.builder().vcnId(vcnId).build());
         return getVcnResponse.getVcn();
     }
 
@@ -1732,7 +1962,7 @@ public class OracleInstanceFetcher implements Closeable {
         String bootVolumeSize = null;
         String bootVolumeVpu = null;
         try {
-            BootVolume bootVolume = getBootVolumeByInstanceId(instanceId);
+            BootVolume bootVolume = getBootVolumeByInstance(instance);
             bootVolumeSize = bootVolume.getSizeInGBs() + "";
             bootVolumeVpu = bootVolume.getVpusPerGB() + "";
         } catch (Exception e) {
@@ -1769,7 +1999,7 @@ public class OracleInstanceFetcher implements Closeable {
                 .build();
         List<RouteRule> routeRules = Arrays.asList(v4Route, v6Route);
 //        GetRouteTableRequest getRouteTableRequest = GetRouteTableRequest.builder().rtId(vcn.getDefaultRouteTableId()).build();
-//        GetRouteTableResponse getRouteTableResponse = virtualNetworkClient.getRouteTable(getRouteTableRequest);
+//        GetRouteTableResponse getRouteTableResponse = getVirtualNetworkClient().getRouteTable(getRouteTableRequest);
 //        RouteTable routeTable = getRouteTableResponse.getRouteTable();
 //        if (CollectionUtil.isEmpty(routeTable.getRouteRules())) {
 //            routeRules.add(v4Route);
@@ -1792,7 +2022,7 @@ public class OracleInstanceFetcher implements Closeable {
                         .routeRules(routeRules)
                         .build())
                 .build();
-        virtualNetworkClient.updateRouteTable(updateRouteTableRequest);
+        getVirtualNetworkClient().updateRouteTable(updateRouteTableRequest);
         log.info("用户:[{}],区域:[{}],更新了 VCN:[{}] 的路由表",
                 user.getUsername(), user.getOciCfg().getRegion(), vcn.getDisplayName());
     }
@@ -1840,7 +2070,7 @@ public class OracleInstanceFetcher implements Closeable {
         }
 
         GetSecurityListRequest getSecurityListRequest = GetSecurityListRequest.builder().securityListId(vcn.getDefaultSecurityListId()).build();
-        GetSecurityListResponse getSecurityListResponse = virtualNetworkClient.getSecurityList(getSecurityListRequest);
+        GetSecurityListResponse getSecurityListResponse = getVirtualNetworkClient().getSecurityList(getSecurityListRequest);
         List<IngressSecurityRule> ingressSecurityRules = getSecurityListResponse.getSecurityList().getIngressSecurityRules();
         if (CollectionUtil.isEmpty(ingressSecurityRules)) {
             ingressSecurityRules = inList;
@@ -1871,7 +2101,7 @@ public class OracleInstanceFetcher implements Closeable {
 //            }
             egressSecurityRules.addAll(outList);
         }
-        virtualNetworkClient.updateSecurityList(UpdateSecurityListRequest.builder()
+        getVirtualNetworkClient().updateSecurityList(UpdateSecurityListRequest.builder()
                 .securityListId(vcn.getDefaultSecurityListId())
                 .updateSecurityListDetails(UpdateSecurityListDetails.builder()
                         .ingressSecurityRules(ingressSecurityRules)
@@ -1886,8 +2116,8 @@ public class OracleInstanceFetcher implements Closeable {
     public Ipv6 createIpv6(Vnic vnic, Vcn vcn) {
         if (vcn == null) {
             try {
-                vcn = createVcn(virtualNetworkClient, compartmentId, CIDR_BLOCK);
-                createInternetGateway(virtualNetworkClient, compartmentId, vcn);
+                vcn = createVcn(getVirtualNetworkClient(), compartmentId, CIDR_BLOCK);
+                createInternetGateway(getVirtualNetworkClient(), compartmentId, vcn);
             } catch (Exception e) {
                 log.error("用户:[{}],区域:[{}],创建 VCN 失败", user.getUsername(), user.getOciCfg().getRegion());
                 throw new OciException(-1, "创建 VCN 失败");
@@ -1900,7 +2130,7 @@ public class OracleInstanceFetcher implements Closeable {
         List<String> oldIpv6CidrBlocks = vcn.getIpv6CidrBlocks();
         if (CollectionUtil.isEmpty(oldIpv6CidrBlocks)) {
             try {
-                virtualNetworkClient.addIpv6VcnCidr(AddIpv6VcnCidrRequest.builder()
+                getVirtualNetworkClient().addIpv6VcnCidr(AddIpv6VcnCidrRequest.builder()
                         .vcnId(vcnId)
                         .addVcnIpv6CidrDetails(AddVcnIpv6CidrDetails.builder()
                                 .isOracleGuaAllocationEnabled(true)
@@ -1920,9 +2150,9 @@ public class OracleInstanceFetcher implements Closeable {
         if (CollectionUtil.isEmpty(oldSubnet)) {
             try {
                 log.warn("用户:[{}],区域:[{}],正在创建子网...", user.getUsername(), user.getOciCfg().getRegion());
-                oldSubnet.add(createSubnet(virtualNetworkClient,
+                oldSubnet.add(createSubnet(getVirtualNetworkClient(),
                         compartmentId,
-                        getAvailabilityDomains(identityClient, compartmentId).get(0),
+                        getAvailabilityDomains(getIdentityClient(), compartmentId).get(0),
                         CIDR_BLOCK, vcn));
             } catch (Exception e) {
                 log.error("用户:[{}],区域:[{}],创建子网失败,原因:[{}]", user.getUsername(), user.getOciCfg().getRegion(), e.getLocalizedMessage());
@@ -1936,7 +2166,7 @@ public class OracleInstanceFetcher implements Closeable {
                 String subnetV6Cidr = v6Cidr.replaceAll("/56", "/64");
                 if (null == subnet.getIpv6CidrBlock()) {
                     try {
-                        virtualNetworkClient.updateSubnet(UpdateSubnetRequest.builder()
+                        getVirtualNetworkClient().updateSubnet(UpdateSubnetRequest.builder()
                                 .subnetId(subnet.getId())
                                 .updateSubnetDetails(UpdateSubnetDetails.builder()
                                         .ipv6CidrBlock(subnetV6Cidr)
@@ -1955,14 +2185,14 @@ public class OracleInstanceFetcher implements Closeable {
         }
 
         // 更新路由表（默认存在）
-        ListInternetGatewaysResponse listInternetGatewaysResponse = virtualNetworkClient.listInternetGateways(
+        ListInternetGatewaysResponse listInternetGatewaysResponse = getVirtualNetworkClient().listInternetGateways(
                 ListInternetGatewaysRequest.builder()
                         .compartmentId(compartmentId)
                         .vcnId(vcnId)
                         .build());
         if (CollectionUtil.isEmpty(listInternetGatewaysResponse.getItems())) {
             try {
-                InternetGateway gateway = createInternetGateway(virtualNetworkClient, compartmentId, vcn);
+                InternetGateway gateway = createInternetGateway(getVirtualNetworkClient(), compartmentId, vcn);
                 updateRouteRules(gateway, vcn);
             } catch (Exception e) {
                 log.error("用户:[{}],区域:[{}],创建网关失败,原因:{}", user.getUsername(), user.getOciCfg().getRegion(), e.getLocalizedMessage());
@@ -1981,7 +2211,7 @@ public class OracleInstanceFetcher implements Closeable {
             log.error("release security rule error >>>>>>>>>>>>>>>>>> ", e);
         }
 
-        CreateIpv6Response createIpv6Response = virtualNetworkClient.createIpv6(CreateIpv6Request.builder()
+        CreateIpv6Response createIpv6Response = getVirtualNetworkClient().createIpv6(CreateIpv6Request.builder()
                 .createIpv6Details(CreateIpv6Details.builder()
                         .vnicId(vnic.getId())
                         .build())
@@ -2008,7 +2238,7 @@ public class OracleInstanceFetcher implements Closeable {
             tags.put(OciInstanceConstant.TAG_ROOT_PASSWORD, password);
         }
 
-        computeClient.updateInstance(UpdateInstanceRequest.builder()
+        getComputeClient().updateInstance(UpdateInstanceRequest.builder()
                 .instanceId(instanceId)
                 .updateInstanceDetails(UpdateInstanceDetails.builder()
                         .freeformTags(tags)
@@ -2019,7 +2249,7 @@ public class OracleInstanceFetcher implements Closeable {
     }
 
     public void updateInstanceName(String instanceId, String name) {
-        computeClient.updateInstance(UpdateInstanceRequest.builder()
+        getComputeClient().updateInstance(UpdateInstanceRequest.builder()
                 .instanceId(instanceId)
                 .updateInstanceDetails(UpdateInstanceDetails.builder()
                         .displayName(name)
@@ -2027,8 +2257,8 @@ public class OracleInstanceFetcher implements Closeable {
                 .build());
 
         List<BootVolume> bootVolumes = listBootVolumeListByInstanceId(instanceId);
-        bootVolumes.parallelStream().forEach(bootVolume -> {
-            blockstorageClient.updateBootVolume(UpdateBootVolumeRequest.builder()
+        OciFanOut.forEach(user.getOciCfg().getTenantId(), "updateBootVolume", bootVolumes, bootVolume -> {
+            getBlockstorageClient().updateBootVolume(UpdateBootVolumeRequest.builder()
                     .bootVolumeId(bootVolume.getId())
                     .updateBootVolumeDetails(UpdateBootVolumeDetails.builder()
                             .displayName(name + " (Boot Volume)")
@@ -2038,7 +2268,7 @@ public class OracleInstanceFetcher implements Closeable {
     }
 
     public void updateInstanceCfg(String instanceId, float ocpus, float memory) {
-        computeClient.updateInstance(UpdateInstanceRequest.builder()
+        getComputeClient().updateInstance(UpdateInstanceRequest.builder()
                 .instanceId(instanceId)
                 .updateInstanceDetails(UpdateInstanceDetails.builder()
                         .shapeConfig(UpdateInstanceShapeConfigDetails.builder()
@@ -2050,7 +2280,7 @@ public class OracleInstanceFetcher implements Closeable {
     }
 
     public void updateBootVolumeCfg(String bootVolumeId, long size, long vpusPer) {
-        blockstorageClient.updateBootVolume(UpdateBootVolumeRequest.builder()
+        getBlockstorageClient().updateBootVolume(UpdateBootVolumeRequest.builder()
                 .bootVolumeId(bootVolumeId)
                 .updateBootVolumeDetails(UpdateBootVolumeDetails.builder()
                         .sizeInGBs(size == 50L ? null : size)
@@ -2060,7 +2290,7 @@ public class OracleInstanceFetcher implements Closeable {
     }
 
     public SecurityList listSecurityRule(Vcn vcn) {
-        GetSecurityListResponse getSecurityListResponse = virtualNetworkClient.getSecurityList(GetSecurityListRequest.builder()
+        GetSecurityListResponse getSecurityListResponse = getVirtualNetworkClient().getSecurityList(GetSecurityListRequest.builder()
                 .securityListId(vcn.getDefaultSecurityListId())
                 .build());
         return getSecurityListResponse.getSecurityList();
@@ -2068,7 +2298,7 @@ public class OracleInstanceFetcher implements Closeable {
 
     public void updateSecurityRuleList(Vcn vcn, UpdateSecurityRuleListParams params) {
         SecurityList securityList = listSecurityRule(vcn);
-        List<IngressSecurityRule> ingressSecurityRuleList = params.getIngressRuleList().parallelStream()
+        List<IngressSecurityRule> ingressSecurityRuleList = params.getIngressRuleList().stream()
                 .map(ingressRule -> {
                     IngressSecurityRule.Builder builder = IngressSecurityRule.builder()
                             .isStateless(ingressRule.getIsStateless())
@@ -2140,7 +2370,7 @@ public class OracleInstanceFetcher implements Closeable {
                 .collect(Collectors.toList());
         ingressSecurityRuleList.addAll(securityList.getIngressSecurityRules());
 
-        List<EgressSecurityRule> egressSecurityRuleList = params.getEgressRuleList().parallelStream()
+        List<EgressSecurityRule> egressSecurityRuleList = params.getEgressRuleList().stream()
                 .map(egressRule -> {
                     EgressSecurityRule.Builder builder = EgressSecurityRule.builder()
                             .destination(egressRule.getDestination())
@@ -2212,7 +2442,7 @@ public class OracleInstanceFetcher implements Closeable {
                 .collect(Collectors.toList());
         egressSecurityRuleList.addAll(securityList.getEgressSecurityRules());
 
-        virtualNetworkClient.updateSecurityList(UpdateSecurityListRequest.builder()
+        getVirtualNetworkClient().updateSecurityList(UpdateSecurityListRequest.builder()
                 .securityListId(vcn.getDefaultSecurityListId())
                 .updateSecurityListDetails(UpdateSecurityListDetails.builder()
                         .ingressSecurityRules(ingressSecurityRuleList)
@@ -2240,7 +2470,7 @@ public class OracleInstanceFetcher implements Closeable {
             if (nextPageToken != null) {
                 builder.page(nextPageToken);
             }
-            ListLimitDefinitionsResponse response = limitsClient.listLimitDefinitions(builder.build());
+            ListLimitDefinitionsResponse response = getLimitsClient().listLimitDefinitions(builder.build());
             result.addAll(response.getItems());
             nextPageToken = response.getOpcNextPage();
         } while (nextPageToken != null);
@@ -2251,7 +2481,8 @@ public class OracleInstanceFetcher implements Closeable {
      * Get the current limit value for a specific limit name and scope.
      *
      * @param serviceName service name, e.g. "compute"
-     * @param limitName   limit name, e.g. "vm-standard-e4-flex-ocpus"
+     * @param limitName   limit name, e.g. "vm-standard-e4-flex-ocpus"; null or blank lists the values of
+     *                    every limit of the service in one paged call
      * @return list of LimitValueSummary (may contain multiple items for AD-scoped limits)
      */
     public List<LimitValueSummary> listLimitValues(String serviceName, String limitName) {
@@ -2259,13 +2490,15 @@ public class OracleInstanceFetcher implements Closeable {
         String nextPageToken = null;
         ListLimitValuesRequest.Builder builder = ListLimitValuesRequest.builder()
                 .compartmentId(compartmentId)
-                .serviceName(serviceName)
-                .name(limitName);
+                .serviceName(serviceName);
+        if (limitName != null && !limitName.isBlank()) {
+            builder.name(limitName);
+        }
         do {
             if (nextPageToken != null) {
                 builder.page(nextPageToken);
             }
-            ListLimitValuesResponse response = limitsClient.listLimitValues(builder.build());
+            ListLimitValuesResponse response = getLimitsClient().listLimitValues(builder.build());
             result.addAll(response.getItems());
             nextPageToken = response.getOpcNextPage();
         } while (nextPageToken != null);
@@ -2289,7 +2522,7 @@ public class OracleInstanceFetcher implements Closeable {
         if (availabilityDomain != null && !availabilityDomain.isBlank()) {
             builder.availabilityDomain(availabilityDomain);
         }
-        GetResourceAvailabilityResponse response = limitsClient.getResourceAvailability(builder.build());
+        GetResourceAvailabilityResponse response = getLimitsClient().getResourceAvailability(builder.build());
         return response.getResourceAvailability();
     }
 
@@ -2308,7 +2541,7 @@ public class OracleInstanceFetcher implements Closeable {
             if (nextPageToken != null) {
                 builder.page(nextPageToken);
             }
-            ListServicesResponse response = limitsClient.listServices(builder.build());
+            ListServicesResponse response = getLimitsClient().listServices(builder.build());
             result.addAll(response.getItems());
             nextPageToken = response.getOpcNextPage();
         } while (nextPageToken != null);
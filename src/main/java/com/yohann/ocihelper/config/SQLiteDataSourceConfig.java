@@ -4,12 +4,17 @@ import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.sqlite.SQLiteConfig;
 import org.sqlite.SQLiteDataSource;
 
 import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
 
 /**
  * SQLite DataSource configuration.
@@ -20,6 +25,11 @@ import javax.sql.DataSource;
  * ({@code maximumPoolSize=1}), which forces all operations to queue up and execute
  * one at a time — no WAL mode required, no extra sidecar files (.db-shm/.db-wal).</p>
  *
+ * <p>With {@code sqlite.wal-enabled=true} the database is switched to WAL journaling instead:
+ * reads outside transactions are served by a pool of read-only connections while all writes go
+ * through a single writer connection, so dashboards no longer queue behind task updates.
+ * See {@link SQLiteRoutingDataSource} and {@code SQLiteWriteQueue}.</p>
+ *
  * <p>A {@code busy_timeout} is still set as a safety net in case an external process
  * (e.g. the install script's sqlite3 command) briefly holds the file lock.</p>
  *
@@ -31,10 +41,17 @@ public class SQLiteDataSourceConfig {
 
     @Value("${spring.datasource.url}")
     private String jdbcUrl;
+    @Value("${sqlite.wal-enabled:false}")
+    private boolean walEnabled;
+    @Value("${sqlite.read-pool-size:4}")
+    private int readPoolSize;
 
     @Bean
     @Primary
     public DataSource dataSource() {
+        if (walEnabled) {
+            return walDataSource();
+        }
         SQLiteDataSource sqLiteDataSource = new SQLiteDataSource();
         sqLiteDataSource.setUrl(jdbcUrl);
         // Wait up to 5 s if an external process (e.g. install script) holds the lock
@@ -55,4 +72,51 @@ public class SQLiteDataSourceConfig {
         log.info("SQLite DataSource initialized: pool-size=1 (serialized), busy_timeout=5s");
         return new HikariDataSource(hikariConfig);
     }
+
+    @Bean
+    @ConditionalOnProperty(name = "sqlite.wal-enabled", havingValue = "true")
+    public SQLiteReadRoutingInterceptor sqLiteReadRoutingInterceptor() {
+        return new SQLiteReadRoutingInterceptor();
+    }
+
+    private DataSource walDataSource() {
+        SQLiteConfig writerConfig = new SQLiteConfig();
+        writerConfig.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        // WAL + NORMAL 只在检查点时 fsync，掉电最多丢失最近一次提交，不会损坏数据库
+        writerConfig.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+        writerConfig.setBusyTimeout(5000);
+        SQLiteDataSource writer = new SQLiteDataSource(writerConfig);
+        writer.setUrl(jdbcUrl);
+        // journal_mode=WAL 是持久化在库文件里的，先用写连接切换一次，只读连接才能以 WAL 方式打开
+        try (Connection conn = writer.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA journal_mode=WAL");
+        } catch (SQLException e) {
+            throw new IllegalStateException("开启 SQLite WAL 模式失败", e);
+        }
+
+        SQLiteConfig readerConfig = new SQLiteConfig();
+        readerConfig.setReadOnly(true);
+        readerConfig.setBusyTimeout(5000);
+        SQLiteDataSource reader = new SQLiteDataSource(readerConfig);
+        reader.setUrl(jdbcUrl);
+
+        HikariDataSource writerPool = pool(writer, "sqlite-writer-pool", 1, false);
+        HikariDataSource readerPool = pool(reader, "sqlite-reader-pool", Math.max(1, readPoolSize), true);
+        log.info("SQLite DataSource initialized: WAL mode, writer=1, readers={}, busy_timeout=5s", Math.max(1, readPoolSize));
+        return new SQLiteRoutingDataSource(writerPool, readerPool);
+    }
+
+    private static HikariDataSource pool(SQLiteDataSource dataSource, String name, int size, boolean readOnly) {
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setDataSource(dataSource);
+        hikariConfig.setMaximumPoolSize(size);
+        hikariConfig.setMinimumIdle(1);
+        hikariConfig.setReadOnly(readOnly);
+        hikariConfig.setConnectionTimeout(30_000);
+        hikariConfig.setIdleTimeout(600_000);
+        hikariConfig.setMaxLifetime(1_800_000);
+        hikariConfig.setPoolName(name);
+        hikariConfig.setConnectionTestQuery("SELECT 1");
+        return new HikariDataSource(hikariConfig);
+    }
 }
@@ -0,0 +1,46 @@
+package com.yohann.ocihelper.config;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * <p>
+ * SQLiteReadRoutingInterceptor
+ * </p >
+ * Marks MyBatis queries that run outside a Spring transaction as reads, so that
+ * {@link SQLiteRoutingDataSource} hands them a read-only connection. Queries inside a transaction keep
+ * using the transaction's (writer) connection and therefore see its uncommitted changes.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class})
+})
+public class SQLiteReadRoutingInterceptor implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive() || SQLiteRoutingDataSource.isRead()) {
+            return invocation.proceed();
+        }
+        SQLiteRoutingDataSource.markRead();
+        try {
+            return invocation.proceed();
+        } finally {
+            SQLiteRoutingDataSource.clear();
+        }
+    }
+}
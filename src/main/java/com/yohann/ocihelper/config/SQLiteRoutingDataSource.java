@@ -0,0 +1,48 @@
+package com.yohann.ocihelper.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * <p>
+ * SQLiteRoutingDataSource
+ * </p >
+ * WAL mode data source: statements marked as reads by {@link SQLiteReadRoutingInterceptor} borrow a
+ * connection from the read-only pool, everything else (writes, transactions, schema init) uses the
+ * single writer connection.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+public class SQLiteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String READ = "read";
+    public static final String WRITE = "write";
+
+    private static final ThreadLocal<Boolean> READ_HINT = new ThreadLocal<>();
+
+    public SQLiteRoutingDataSource(DataSource writer, DataSource reader) {
+        setTargetDataSources(Map.of(READ, reader, WRITE, writer));
+        setDefaultTargetDataSource(writer);
+        afterPropertiesSet();
+    }
+
+    static void markRead() {
+        READ_HINT.set(Boolean.TRUE);
+    }
+
+    static boolean isRead() {
+        return Boolean.TRUE.equals(READ_HINT.get());
+    }
+
+    static void clear() {
+        READ_HINT.remove();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return isRead() ? READ : WRITE;
+    }
+}
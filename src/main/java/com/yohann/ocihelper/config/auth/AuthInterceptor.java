@@ -1,12 +1,9 @@
 package com.yohann.ocihelper.config.auth;
 
-import cn.hutool.jwt.JWTUtil;
 import com.yohann.ocihelper.exception.OciException;
 import com.yohann.ocihelper.service.IpSecurityService;
-import com.yohann.ocihelper.utils.CommonUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
 import org.springframework.web.servlet.ModelAndView;
@@ -24,11 +21,10 @@ import java.util.List;
 @Component
 public class AuthInterceptor implements HandlerInterceptor {
 
-    @Value("${web.password}")
-    private String password;
-    
     @Autowired
     private IpSecurityService ipSecurityService;
+    @Autowired
+    private TokenVerifier tokenVerifier;
 
     List<String> noTokenList = Arrays.asList(
             "/api/sys/login",
@@ -67,7 +63,7 @@ public class AuthInterceptor implements HandlerInterceptor {
             if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
                 String token = authorizationHeader.substring(7); // 去掉"Bearer "前缀
                 // 验证token（这里可以调用你的验证逻辑）
-                boolean isValid = validateToken(token);
+                boolean isValid = tokenVerifier.verify(token);
                 if (isValid) {
                     return true; // 继续处理请求
                 } else {
@@ -93,10 +89,6 @@ public class AuthInterceptor implements HandlerInterceptor {
         HandlerInterceptor.super.afterCompletion(request, response, handler, ex);
     }
 
-        private boolean validateToken(String token) {
-        return !CommonUtils.isTokenExpired(token) && JWTUtil.verify(token, password.getBytes());
-    }
-    
     /**
      * Get client IP address (supports proxy headers)
      * 
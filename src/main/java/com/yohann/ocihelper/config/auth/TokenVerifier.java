@@ -0,0 +1,160 @@
+package com.yohann.ocihelper.config.auth;
+
+import cn.hutool.core.convert.Convert;
+import cn.hutool.crypto.SecureUtil;
+import cn.hutool.jwt.JWT;
+import cn.hutool.jwt.JWTUtil;
+import com.yohann.ocihelper.utils.CommonUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * TokenVerifier
+ * </p >
+ * Issues and verifies the login JWTs for the REST API and both websockets. A token that passed the
+ * signature check is remembered by its SHA-256 until it expires, so repeated requests with the same
+ * token cost one hash and a map lookup instead of a JSON parse plus HMAC; malformed tokens are rejected
+ * before any parsing. The signing secret is the configured web password, which only changes on restart.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+@Slf4j
+@Component
+public class TokenVerifier {
+
+    private static final int MAX_TOKEN_LENGTH = 4096;
+    private static final int MAX_CACHED = 1024;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @Value("${web.password}")
+    private String password;
+
+    /**
+     * 密钥和用它验过的 token 放在一起，缓存只对签发它的密钥有效
+     */
+    private volatile Secret secret;
+
+    private record Secret(String password, byte[] key, Map<String, Long> verified) {
+    }
+
+    @PostConstruct
+    public void init() {
+        secret = new Secret(password, password.getBytes(), new ConcurrentHashMap<>());
+    }
+
+    /**
+     * 用当前密钥签发 token 并直接记入缓存
+     */
+    public String issue(Map<String, Object> payload) {
+        Secret current = secret;
+        String token = CommonUtils.genToken(payload, current.password());
+        Long expireAt = expireAt(JWTUtil.parseToken(token));
+        if (expireAt != null) {
+            remember(current, SecureUtil.sha256(token), expireAt);
+        }
+        return token;
+    }
+
+    /**
+     * @return true if the token is well formed, signed with the current secret and not expired
+     */
+    public boolean verify(String token) {
+        if (!wellFormed(token)) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        String hash = SecureUtil.sha256(token);
+        Secret current = secret;
+        Long cached = current.verified().get(hash);
+        if (cached != null) {
+            if (cached > now) {
+                hits.incrementAndGet();
+                return true;
+            }
+            current.verified().remove(hash, cached);
+            rejected.incrementAndGet();
+            return false;
+        }
+
+        misses.incrementAndGet();
+        Long expireAt;
+        try {
+            JWT jwt = JWTUtil.parseToken(token);
+            expireAt = jwt.setKey(current.key()).verify() ? expireAt(jwt) : null;
+        } catch (Exception e) {
+            expireAt = null;
+        }
+        if (expireAt == null || expireAt <= now) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        remember(current, hash, expireAt);
+        return true;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("cached", secret.verified().size());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+
+    private static void remember(Secret current, String hash, long expireAt) {
+        Map<String, Long> verified = current.verified();
+        if (verified.size() >= MAX_CACHED) {
+            long now = System.currentTimeMillis();
+            verified.values().removeIf(exp -> exp <= now);
+            if (verified.size() >= MAX_CACHED) {
+                verified.clear();
+            }
+        }
+        verified.put(hash, expireAt);
+    }
+
+    /**
+     * exp 声明转为毫秒，没有 exp 的 token 不认
+     */
+    private static Long expireAt(JWT jwt) {
+        Long exp = Convert.toLong(jwt.getPayload("exp"), null);
+        return exp == null ? null : exp * 1000;
+    }
+
+    /**
+     * 三段 base64url，不解析即可挡掉明显非法的 token
+     */
+    private static boolean wellFormed(String token) {
+        if (token == null || token.isEmpty() || token.length() > MAX_TOKEN_LENGTH) {
+            return false;
+        }
+        int dots = 0;
+        int segmentStart = 0;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c == '.') {
+                if (i == segmentStart) {
+                    return false;
+                }
+                dots++;
+                segmentStart = i + 1;
+            } else if (!(c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '-' || c == '_')) {
+                return false;
+            }
+        }
+        return dots == 2 && segmentStart < token.length();
+    }
+}
@@ -0,0 +1,158 @@
+package com.yohann.ocihelper.config.oci;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * CreateRateGovernor
+ * </p >
+ * Adaptive token bucket shared by every create-instance loop of the same tenancy and region.
+ * The bucket hands out attempts at a rate that follows AIMD: it is halved on 429 and raised by a
+ * fixed step after each quiet window without one. Any other response, out-of-capacity included,
+ * is neutral, since it says nothing about the request rate. Permits are reserved in order, so loops
+ * that fire together are spread out instead of hitting the API at once; the caller runs its attempt
+ * at the reserved time instead of blocking for it.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+@Slf4j
+public final class CreateRateGovernor {
+
+    /** 速率单位：次/分钟 */
+    private static final double INITIAL_RATE = 6D;
+    private static final double MIN_RATE = 0.5D;
+    private static final double MAX_RATE = 30D;
+    private static final double INCREASE_STEP = 1D;
+    private static final double THROTTLE_FACTOR = 0.5D;
+    private static final double MAX_BURST = 2D;
+    private static final long QUIET_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(60);
+    private static final long TASK_ACTIVE_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private static final Map<String, Bucket> BUCKETS = new ConcurrentHashMap<>();
+    private static final Map<String, TaskSlot> TASKS = new ConcurrentHashMap<>();
+
+    private CreateRateGovernor() {
+    }
+
+    /**
+     * Reserve one create attempt for the task. The caller must not attempt before the returned delay
+     * has passed.
+     *
+     * @param maxWaitMillis give up (without consuming a permit) if the slot is further away than this
+     * @return nanos until the reserved slot comes up, or -1 if the caller should skip this round
+     */
+    public static long reserve(String taskId, String tenantId, String region, long intervalSeconds, long maxWaitMillis) {
+        String key = key(tenantId, region);
+        Bucket bucket = BUCKETS.computeIfAbsent(key, k -> new Bucket());
+        TASKS.put(taskId, new TaskSlot(key, intervalSeconds, System.nanoTime()));
+        return bucket.reserve(TimeUnit.MILLISECONDS.toNanos(maxWaitMillis));
+    }
+
+    public static void onThrottled(String tenantId, String region) {
+        Bucket bucket = BUCKETS.get(key(tenantId, region));
+        if (bucket != null) {
+            double rate = bucket.throttle();
+            log.warn("【开机限速】租户:[{}],区域:[{}] 请求被限流,开机速率降至 [{}] 次/分钟", tenantId, region, format(rate));
+        }
+    }
+
+    /**
+     * A response that was not throttled, whether the launch succeeded or not.
+     */
+    public static void onAccepted(String tenantId, String region) {
+        Bucket bucket = BUCKETS.get(key(tenantId, region));
+        if (bucket != null) {
+            bucket.increase();
+        }
+    }
+
+    public static void removeTask(String taskId) {
+        TASKS.remove(taskId);
+    }
+
+    /**
+     * Effective attempt rate of a task in attempts per minute: its own interval capped by its share
+     * of the tenancy/region bucket. Returns null for tasks that have not gone through the governor yet.
+     */
+    public static String effectiveRate(String taskId) {
+        TaskSlot slot = TASKS.get(taskId);
+        if (slot == null) {
+            return null;
+        }
+        Bucket bucket = BUCKETS.get(slot.key());
+        if (bucket == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        long sharing = TASKS.values().stream()
+                .filter(x -> x.key().equals(slot.key()) && now - x.lastSeen() < TASK_ACTIVE_NANOS)
+                .count();
+        double own = slot.intervalSeconds() > 0 ? 60D / slot.intervalSeconds() : MAX_RATE;
+        return format(Math.min(own, bucket.rate() / Math.max(1, sharing)));
+    }
+
+    private static String key(String tenantId, String region) {
+        return tenantId + "@" + region;
+    }
+
+    private static String format(double rate) {
+        return String.format("%.1f", rate);
+    }
+
+    private record TaskSlot(String key, long intervalSeconds, long lastSeen) {
+    }
+
+    private static final class Bucket {
+
+        /** 次/分钟 */
+        private double rate = INITIAL_RATE;
+        private double storedPermits = 0D;
+        private long nextFreeNanos = System.nanoTime();
+        private long lastThrottleNanos = System.nanoTime() - QUIET_WINDOW_NANOS;
+        private long lastIncreaseNanos = System.nanoTime();
+
+        /**
+         * @return nanos to wait for the reserved permit, or -1 if it is further away than maxWaitNanos
+         */
+        synchronized long reserve(long maxWaitNanos) {
+            long now = System.nanoTime();
+            double intervalNanos = TimeUnit.MINUTES.toNanos(1) / rate;
+            if (now > nextFreeNanos) {
+                storedPermits = Math.min(MAX_BURST, storedPermits + (now - nextFreeNanos) / intervalNanos);
+                nextFreeNanos = now;
+            }
+            long waitNanos = nextFreeNanos - now;
+            if (waitNanos > maxWaitNanos) {
+                return -1;
+            }
+            double spend = Math.min(1D, storedPermits);
+            storedPermits -= spend;
+            nextFreeNanos += (long) ((1D - spend) * intervalNanos);
+            return waitNanos;
+        }
+
+        synchronized double throttle() {
+            rate = Math.max(MIN_RATE, rate * THROTTLE_FACTOR);
+            storedPermits = 0D;
+            lastThrottleNanos = System.nanoTime();
+            return rate;
+        }
+
+        synchronized void increase() {
+            long now = System.nanoTime();
+            if (rate < MAX_RATE && now - lastThrottleNanos > QUIET_WINDOW_NANOS && now - lastIncreaseNanos > QUIET_WINDOW_NANOS) {
+                rate = Math.min(MAX_RATE, rate + INCREASE_STEP);
+                lastIncreaseNanos = now;
+            }
+        }
+
+        synchronized double rate() {
+            return rate;
+        }
+    }
+}
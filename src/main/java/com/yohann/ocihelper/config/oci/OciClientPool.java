@@ -0,0 +1,128 @@
+package com.yohann.ocihelper.config.oci;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.StrUtil;
+import com.yohann.ocihelper.bean.dto.SysUserDTO;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.ref.Cleaner;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * <p>
+ * OciClientPool
+ * </p >
+ * Process-wide registry of {@link OciClientSession}s keyed by tenant/user/fingerprint/region/key/proxy.
+ * Borrowers get a shared warm session; sessions nobody holds are evicted after {@link #IDLE_MILLIS},
+ * and config or proxy changes invalidate the matching sessions (closed once the last borrower returns).
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+@Slf4j
+public final class OciClientPool {
+
+    private static final long IDLE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final Map<SessionKey, OciClientSession> SESSIONS = new ConcurrentHashMap<>();
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final ScheduledThreadPoolExecutor SCHEDULER = new ScheduledThreadPoolExecutor(1,
+            ThreadFactoryBuilder.create().setDaemon(true).setNamePrefix("oci-client-pool-").build());
+
+    static {
+        SCHEDULER.scheduleWithFixedDelay(OciClientPool::evictIdle, 1, 1, TimeUnit.MINUTES);
+    }
+
+    private OciClientPool() {
+    }
+
+    public record SessionKey(String tenantId, String userId, String fingerprint,
+                             String region, String privateKeyPath, String proxy) {
+
+        static SessionKey of(SysUserDTO.OciCfg ociCfg) {
+            return new SessionKey(ociCfg.getTenantId(), ociCfg.getUserId(), ociCfg.getFingerprint(),
+                    ociCfg.getRegion(), ociCfg.getPrivateKeyPath(), StrUtil.nullToEmpty(ociCfg.getProxy()));
+        }
+    }
+
+    /**
+     * Borrow the session matching the given config, creating it on first use.
+     * Every borrow must be paired with {@link #release(OciClientSession)}.
+     */
+    public static OciClientSession borrow(SysUserDTO.OciCfg ociCfg) {
+        SessionKey key = SessionKey.of(ociCfg);
+        while (true) {
+            OciClientSession session = SESSIONS.computeIfAbsent(key, k -> new OciClientSession(k, ociCfg));
+            session.retain();
+            // 会话可能在 retain 前刚被失效/回收，此时丢弃并重新获取
+            if (!session.isInvalidated()) {
+                return session;
+            }
+            SESSIONS.remove(key, session);
+            if (session.release()) {
+                session.closeClients();
+            }
+        }
+    }
+
+    /**
+     * Tie a borrowed session to its holder: cleaning the returned handle releases the session exactly once,
+     * and a holder that is garbage collected without being closed releases it as well.
+     */
+    public static Cleaner.Cleanable lease(Object holder, OciClientSession session) {
+        return CLEANER.register(holder, () -> release(session));
+    }
+
+    public static void release(OciClientSession session) {
+        if (session.release()) {
+            session.closeClients();
+        }
+    }
+
+    /**
+     * Invalidate every session of the given tenant/user pair, e.g. after its proxy or key changed.
+     */
+    public static void invalidate(String tenantId, String userId) {
+        invalidateIf(key -> StrUtil.equals(key.tenantId(), tenantId) && StrUtil.equals(key.userId(), userId));
+    }
+
+    public static void invalidateAll() {
+        invalidateIf(key -> true);
+    }
+
+    public static Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessions", SESSIONS.size());
+        stats.put("borrowed", SESSIONS.values().stream().mapToInt(OciClientSession::borrowedCount).sum());
+        stats.put("clients", SESSIONS.values().stream().mapToInt(OciClientSession::clientCount).sum());
+        return stats;
+    }
+
+    private static void invalidateIf(Predicate<SessionKey> predicate) {
+        SESSIONS.forEach((key, session) -> {
+            if (predicate.test(key) && SESSIONS.remove(key, session) && session.invalidate()) {
+                session.closeClients();
+            }
+        });
+    }
+
+    private static void evictIdle() {
+        try {
+            long now = System.currentTimeMillis();
+            SESSIONS.forEach((key, session) -> {
+                if (session.isIdle(now, IDLE_MILLIS) && SESSIONS.remove(key, session)) {
+                    // 被移除后仍可能有并发 borrow 拿到了该会话，invalidate 返回 false 时由最后的归还者关闭
+                    if (session.invalidate()) {
+                        session.closeClients();
+                    }
+                }
+            });
+        } catch (Exception e) {
+            log.error("清理空闲 OCI 客户端会话失败", e);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.yohann.ocihelper.config.oci;
+
+import com.oracle.bmc.Region;
+import com.oracle.bmc.auth.SimpleAuthenticationDetailsProvider;
+import com.oracle.bmc.common.ClientBuilderBase;
+import com.oracle.bmc.core.BlockstorageClient;
+import com.oracle.bmc.core.ComputeClient;
+import com.oracle.bmc.core.VirtualNetworkClient;
+import com.oracle.bmc.http.client.ProxyConfiguration;
+import com.oracle.bmc.http.client.StandardClientProperties;
+import com.oracle.bmc.identity.IdentityClient;
+import com.oracle.bmc.identity.model.Compartment;
+import com.oracle.bmc.identity.requests.ListCompartmentsRequest;
+import com.oracle.bmc.identitydomains.IdentityDomainsClient;
+import com.oracle.bmc.limits.LimitsClient;
+import com.oracle.bmc.monitoring.MonitoringClient;
+import com.oracle.bmc.networkloadbalancer.NetworkLoadBalancerClient;
+import com.oracle.bmc.workrequests.WorkRequestClient;
+import com.yohann.ocihelper.bean.dto.SysUserDTO;
+import com.yohann.ocihelper.utils.ProxyUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * <p>
+ * OciClientSession
+ * </p >
+ * A warm set of OCI SDK clients bound to one {@link OciClientPool.SessionKey}.
+ * Clients are built lazily on first use and shared by every borrower of the session;
+ * the private key is read from disk once and the root compartment is resolved once per tenancy.
+ * Once the session is closed its client getters throw instead of building new clients.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+@Slf4j
+public class OciClientSession {
+
+    /** 租户 ID -> 根区间 ID，租户的根区间不会变化，所有会话共用 */
+    private static final Map<String, String> ROOT_COMPARTMENTS = new ConcurrentHashMap<>();
+
+    private final OciClientPool.SessionKey key;
+    private final SimpleAuthenticationDetailsProvider provider;
+    private final ProxyConfiguration proxyCfg;
+    private final Map<Class<?>, AutoCloseable> clients = new ConcurrentHashMap<>();
+    private final AtomicInteger borrowed = new AtomicInteger();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile long lastAccess = System.currentTimeMillis();
+    private volatile boolean invalidated = false;
+
+    OciClientSession(OciClientPool.SessionKey key, SysUserDTO.OciCfg ociCfg) {
+        this.key = key;
+        byte[] privateKey;
+        try {
+            privateKey = Files.readAllBytes(Paths.get(ociCfg.getPrivateKeyPath()));
+        } catch (Exception e) {
+            throw new RuntimeException("获取密钥失败");
+        }
+        this.provider = SimpleAuthenticationDetailsProvider.builder()
+                .tenantId(ociCfg.getTenantId())
+                .userId(ociCfg.getUserId())
+                .fingerprint(ociCfg.getFingerprint())
+                .privateKeySupplier(() -> new ByteArrayInputStream(privateKey))
+                .region(Region.valueOf(ociCfg.getRegion()))
+                .build();
+        // 解析代理配置（仅使用配置专属代理，不使用全局代理）
+        this.proxyCfg = ProxyUtils.parseProxy(ociCfg.getProxy());
+    }
+
+    public OciClientPool.SessionKey getKey() {
+        return key;
+    }
+
+    public SimpleAuthenticationDetailsProvider getProvider() {
+        return provider;
+    }
+
+    public ProxyConfiguration getProxyCfg() {
+        return proxyCfg;
+    }
+
+    public ComputeClient getComputeClient() {
+        return client(ComputeClient.class, () -> applyProxy(ComputeClient.builder(), proxyCfg).build(provider));
+    }
+
+    public IdentityClient getIdentityClient() {
+        return client(IdentityClient.class, () -> applyProxy(IdentityClient.builder(), proxyCfg).build(provider));
+    }
+
+    public WorkRequestClient getWorkRequestClient() {
+        return client(WorkRequestClient.class, () -> applyProxy(WorkRequestClient.builder(), proxyCfg).build(provider));
+    }
+
+    public VirtualNetworkClient getVirtualNetworkClient() {
+        return client(VirtualNetworkClient.class, () -> applyProxy(VirtualNetworkClient.builder(), proxyCfg).build(provider));
+    }
+
+    public BlockstorageClient getBlockstorageClient() {
+        return client(BlockstorageClient.class, () -> applyProxy(BlockstorageClient.builder(), proxyCfg).build(provider));
+    }
+
+    public MonitoringClient getMonitoringClient() {
+        return client(MonitoringClient.class, () -> applyProxy(MonitoringClient.builder(), proxyCfg).build(provider));
+    }
+
+    public NetworkLoadBalancerClient getNetworkLoadBalancerClient() {
+        return client(NetworkLoadBalancerClient.class, () -> applyProxy(NetworkLoadBalancerClient.builder(), proxyCfg).build(provider));
+    }
+
+    public IdentityDomainsClient getIdentityDomainsClient() {
+        return client(IdentityDomainsClient.class, () -> applyProxy(IdentityDomainsClient.builder(), proxyCfg).build(provider));
+    }
+
+    public LimitsClient getLimitsClient() {
+        return client(LimitsClient.class, () -> applyProxy(LimitsClient.builder(), proxyCfg).build(provider));
+    }
+
+    /**
+     * Build a standalone {@link IdentityDomainsClient} bound to the given endpoint.
+     * Not cached: the endpoint differs per domain and the caller is responsible for closing it.
+     */
+    public IdentityDomainsClient newIdentityDomainsClient(String endpoint) {
+        IdentityDomainsClient client = applyProxy(IdentityDomainsClient.builder(), proxyCfg).build(provider);
+        client.setEndpoint(endpoint);
+        return client;
+    }
+
+    /**
+     * Root compartment of the tenancy, resolved once per tenancy and shared by all its sessions.
+     */
+    public String getRootCompartmentId() {
+        String tenantId = provider.getTenantId();
+        String id = ROOT_COMPARTMENTS.get(tenantId);
+        if (id != null) {
+            return id;
+        }
+        id = findRootCompartment(getIdentityClient(), tenantId);
+        if (id == null) {
+            // 查询失败时退回租户 ID，不缓存，下次再查
+            return tenantId;
+        }
+        ROOT_COMPARTMENTS.put(tenantId, id);
+        return id;
+    }
+
+    /**
+     * 为 OCI 客户端 Builder 设置代理，proxyCfg 为 null 时直接返回原 builder。
+     */
+    static <B extends ClientBuilderBase<B, ?>> B applyProxy(B builder, ProxyConfiguration proxyCfg) {
+        if (proxyCfg != null) {
+            builder.clientConfigurator(httpClientBuilder ->
+                    httpClientBuilder.property(StandardClientProperties.PROXY, proxyCfg));
+        }
+        return builder;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends AutoCloseable> T client(Class<T> type, Supplier<T> factory) {
+        if (closed.get()) {
+            throw new IllegalStateException("OCI 客户端会话已关闭");
+        }
+        T client = (T) clients.computeIfAbsent(type, k -> factory.get());
+        if (closed.get()) {
+            // 与 closeClients 并发时新建的客户端可能没被关到，这里补关
+            if (clients.remove(type, client)) {
+                closeQuietly(client);
+            }
+            throw new IllegalStateException("OCI 客户端会话已关闭");
+        }
+        return client;
+    }
+
+    private static String findRootCompartment(IdentityClient identityClient, String tenantId) {
+        try {
+            List<Compartment> compartments = identityClient.listCompartments(ListCompartmentsRequest.builder()
+                    .compartmentId(tenantId)
+                    .compartmentIdInSubtree(true)
+                    .accessLevel(ListCompartmentsRequest.AccessLevel.Accessible)
+                    .build()).getItems();
+            // 根区间是没有parentCompartmentId的区间
+            for (Compartment compartment : compartments) {
+                if (compartment.getCompartmentId().equals(tenantId) && compartment.getId().equals(compartment.getCompartmentId())) {
+                    return compartment.getId();
+                }
+            }
+        } catch (Exception e) {
+            log.warn("查询根区间失败：{}", e.getMessage());
+            return null;
+        }
+        // 如果没有找到根区间,返回租户ID作为默认值
+        return tenantId;
+    }
+
+    int retain() {
+        lastAccess = System.currentTimeMillis();
+        return borrowed.incrementAndGet();
+    }
+
+    /**
+     * @return true if the session was invalidated and this was the last borrower, i.e. the caller must close it
+     */
+    boolean release() {
+        lastAccess = System.currentTimeMillis();
+        return borrowed.decrementAndGet() <= 0 && invalidated;
+    }
+
+    boolean isIdle(long now, long idleMillis) {
+        return borrowed.get() <= 0 && now - lastAccess > idleMillis;
+    }
+
+    /**
+     * @return true if nobody is holding the session any more and it can be closed right away
+     */
+    boolean invalidate() {
+        invalidated = true;
+        return borrowed.get() <= 0;
+    }
+
+    boolean isInvalidated() {
+        return invalidated;
+    }
+
+    int borrowedCount() {
+        return borrowed.get();
+    }
+
+    int clientCount() {
+        return clients.size();
+    }
+
+    void closeClients() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        clients.keySet().forEach(type -> {
+            AutoCloseable client = clients.remove(type);
+            if (client != null) {
+                closeQuietly(client);
+            }
+        });
+        log.debug("OCI 客户端会话已关闭：租户:[{}],区域:[{}]", key.tenantId(), key.region());
+    }
+
+    private static void closeQuietly(AutoCloseable client) {
+        try {
+            client.close();
+        } catch (Exception e) {
+            log.warn("关闭 OCI 客户端失败：{}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.yohann.ocihelper.config.oci;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * <p>
+ * OciTopologyCache
+ * </p >
+ * Slow-changing launch topology per tenant/region/compartment (availability domains, shape catalog,
+ * image per OS/version/shape and the chosen public subnet), so a steady-state create attempt only has
+ * to call {@code launchInstance}. Entries expire after their TTL and a whole scope is dropped when a
+ * launch fails in a way that suggests the cached data went stale. Loads run outside any map lock and
+ * concurrent misses of the same key share one load; expired entries are swept on the way.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+@Slf4j
+public final class OciTopologyCache {
+
+    public static final long AD_TTL = TimeUnit.HOURS.toMillis(24);
+    public static final long SHAPE_TTL = TimeUnit.HOURS.toMillis(1);
+    public static final long IMAGE_TTL = TimeUnit.HOURS.toMillis(6);
+    public static final long SUBNET_TTL = TimeUnit.MINUTES.toMillis(30);
+
+    private static final long SWEEP_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private static final Map<String, Entry> CACHE = new ConcurrentHashMap<>();
+    private static final Map<String, CompletableFuture<Object>> LOADING = new ConcurrentHashMap<>();
+    private static volatile long nextSweepAt;
+
+    private OciTopologyCache() {
+    }
+
+    public static String scope(String tenantId, String region, String compartmentId) {
+        return tenantId + "|" + region + "|" + compartmentId + "|";
+    }
+
+    /**
+     * Return the cached value for {@code scope + name}, loading it when absent or expired.
+     * Null results are not cached, the next call loads again.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T get(String scope, String name, long ttlMillis, Supplier<T> loader) {
+        String key = scope + name;
+        Entry entry = CACHE.get(key);
+        if (entry != null && entry.expireAt() > System.currentTimeMillis()) {
+            return (T) entry.value();
+        }
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> running = LOADING.putIfAbsent(key, future);
+        if (running != null) {
+            try {
+                return (T) running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException re ? re : e;
+            }
+        }
+        try {
+            T value = loader.get();
+            put(scope, name, value, ttlMillis);
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            LOADING.remove(key, future);
+            sweep();
+        }
+    }
+
+    /**
+     * Return the cached value without loading, or null when absent or expired.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T peek(String scope, String name) {
+        Entry entry = CACHE.get(scope + name);
+        if (entry == null || entry.expireAt() <= System.currentTimeMillis()) {
+            return null;
+        }
+        return (T) entry.value();
+    }
+
+    public static void put(String scope, String name, Object value, long ttlMillis) {
+        if (value == null) {
+            CACHE.remove(scope + name);
+            return;
+        }
+        CACHE.put(scope + name, new Entry(value, System.currentTimeMillis() + ttlMillis));
+    }
+
+    /**
+     * Drop everything cached for the scope, e.g. after a launch failed with 404 or an invalid parameter.
+     */
+    public static void invalidate(String scope) {
+        if (CACHE.keySet().removeIf(k -> k.startsWith(scope))) {
+            log.info("【开机任务】拓扑缓存已失效:[{}]", scope);
+        }
+    }
+
+    /**
+     * 清理已过期的条目，最多每分钟一次
+     */
+    private static void sweep() {
+        long now = System.currentTimeMillis();
+        if (now < nextSweepAt) {
+            return;
+        }
+        nextSweepAt = now + SWEEP_INTERVAL;
+        CACHE.values().removeIf(entry -> entry.expireAt() <= now);
+    }
+
+    private record Entry(Object value, long expireAt) {
+    }
+}
@@ -1,29 +1,33 @@
 package com.yohann.ocihelper.config.ws;
 
-import cn.hutool.core.io.FileUtil;
-import cn.hutool.core.io.file.Tailer;
-import cn.hutool.jwt.JWTUtil;
-import com.yohann.ocihelper.utils.CommonUtils;
+import cn.hutool.core.map.MapUtil;
+import cn.hutool.extra.spring.SpringUtil;
+import cn.hutool.json.JSONUtil;
+import com.yohann.ocihelper.config.auth.TokenVerifier;
+import com.yohann.ocihelper.utils.LogRingBuffer;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.input.TailerListener;
-import org.apache.commons.io.input.TailerListenerAdapter;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
 
-import java.io.File;
-import java.io.IOException;
-import java.nio.charset.Charset;
-import java.util.ArrayList;
-import java.util.Deque;
-import java.util.List;
-import java.util.concurrent.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
-import static com.yohann.ocihelper.service.impl.OciServiceImpl.TEMP_MAP;
+import static com.yohann.ocihelper.config.VirtualThreadConfig.VIRTUAL_EXECUTOR;
 
 /**
+ * 日志推送：每个连接独立持有 {@link LogRingBuffer} 的读游标，由各自的虚拟线程按批推送，
+ * 慢连接只会落后并丢弃最旧的日志，不会拖慢其它连接和打日志的线程。
+ * <p>
+ * 连接参数：token（必填）；since=序号，从该序号续传（断线重连用，超出当前序号时视为服务已重启，改为推送最近日志）；batch=true，按批推送 JSON，
+ * 格式为 {"from":首条序号,"next":下次续传序号,"dropped":丢弃条数,"lines":[...]}，否则每帧一行。
+ *
  * @projectName: oci-helper
  * @package: com.yohann.ocihelper.utils
  * @className: LogWebSocketHandler
@@ -33,148 +37,115 @@ import static com.yohann.ocihelper.service.impl.OciServiceImpl.TEMP_MAP;
 @Slf4j
 @Component
 public class LogWebSocketHandler extends TextWebSocketHandler {
-    private static WebSocketSession currentSession;
-    private final BlockingQueue<String> messageQueue = new LinkedBlockingQueue<>();
-    private final ExecutorService pushThreadExecutor = Executors.newSingleThreadExecutor();
-    private final Deque<String> recentLogs = new ConcurrentLinkedDeque<>();
-    private static final int MAX_RECENT_LOGS = 200;
-    Tailer tailer;
-    Future<?> logPushTask;
-    private volatile boolean close = false;
-    private volatile boolean isSenderRunning = false;
 
-    private String getTokenFromSession(WebSocketSession session) {
-        // 解析 URI 中的 token 参数
-        String query = session.getUri().getQuery();
-        if (query != null && query.contains("token=")) {
-            return query.replaceAll(".*token=([^&]*).*", "$1");
+    private static final Map<String, Subscriber> SUBSCRIBERS = new ConcurrentHashMap<>();
+    private static final AtomicLong SENT = new AtomicLong();
+    private static final AtomicLong DROPPED = new AtomicLong();
+    private static final int MAX_RECENT_LOGS = 200;
+    private static final int MAX_BATCH = 500;
+    private static final long FLUSH_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private static final class Subscriber {
+        final WebSocketSession session;
+        final boolean batch;
+        volatile long cursor;
+        volatile boolean closed;
+
+        Subscriber(WebSocketSession session, boolean batch, long cursor) {
+            this.session = session;
+            this.batch = batch;
+            this.cursor = cursor;
         }
-        return null;
-    }
-
-    private boolean validateToken(String token) {
-        return !CommonUtils.isTokenExpired(token) && JWTUtil.verify(token, ((String) TEMP_MAP.get("password")).getBytes());
     }
 
     @Override
-    public void afterConnectionEstablished(WebSocketSession session) {
-        String token = getTokenFromSession(session);
-        if (token == null || !validateToken(token)) {
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        Map<String, String> params = UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().toSingleValueMap();
+        String token = params.get("token");
+        if (!SpringUtil.getBean(TokenVerifier.class).verify(token)) {
+            session.close(CloseStatus.POLICY_VIOLATION);
             return;
         }
 
-        close = false;
-        if (currentSession != null && currentSession.isOpen()) {
+        long cursor = LogRingBuffer.tail(MAX_RECENT_LOGS);
+        String since = params.get("since");
+        if (since != null) {
             try {
-                currentSession.close();
-            } catch (IOException e) {
-                log.error("Error while closing old WebSocket session: {}", e.getLocalizedMessage());
-            }
-        }
-        currentSession = session;
-
-        try {
-            startLogTailer(CommonUtils.LOG_FILE_PATH);
-        } catch (Exception e) {
-            if (e.getLocalizedMessage().contains("Negative seek offset")) {
-                List<String> readUtf8Lines = FileUtil.readUtf8Lines(CommonUtils.LOG_FILE_PATH);
-                readUtf8Lines.add("\n");
-                FileUtil.writeUtf8Lines(new ArrayList<>(MAX_RECENT_LOGS), CommonUtils.LOG_FILE_PATH);
-                FileUtil.writeUtf8Lines(readUtf8Lines, CommonUtils.LOG_FILE_PATH);
-                tailer.stop();
-                startLogTailer(CommonUtils.LOG_FILE_PATH);
-            } else {
-                log.error("启动日志监听服务失败：{}", e.getLocalizedMessage(), e);
+                long requested = Long.parseLong(since);
+                // 序号超过当前位置说明服务已重启、序号从头计数，按新连接处理
+                if (requested >= 0 && requested <= LogRingBuffer.nextSeq()) {
+                    cursor = requested;
+                }
+            } catch (NumberFormatException ignored) {
             }
         }
-
-        sendRecentLogs();
-        startMessageSender();
+        Subscriber subscriber = new Subscriber(session, Boolean.parseBoolean(params.get("batch")), cursor);
+        SUBSCRIBERS.put(session.getId(), subscriber);
+        VIRTUAL_EXECUTOR.execute(() -> pump(subscriber));
     }
 
-    private void sendRecentLogs() {
-        if (currentSession == null || !currentSession.isOpen() || !close) {
-            return;
-        }
-
-        synchronized (recentLogs) {
-            recentLogs.forEach(recentLog -> {
-                try {
-                    currentSession.sendMessage(new TextMessage(recentLog));
-                } catch (IOException e) {
-                    log.error("Error while sending recent log: {}", e.getLocalizedMessage());
-                }
-            });
-        }
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        // 客户端心跳 ping，无需处理
     }
 
-    private void startLogTailer(String filePath) {
-        File logFile = new File(filePath);
-        if (!logFile.exists() || !logFile.isFile()) {
-            log.error("Invalid log file path: {}", filePath);
-            return;
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Subscriber subscriber = SUBSCRIBERS.remove(session.getId());
+        if (subscriber != null) {
+            subscriber.closed = true;
         }
-
-        tailer = new Tailer(logFile, Charset.defaultCharset(), line -> {
-            try {
-                if (!close) {
-                    messageQueue.put(line);
-
-                    synchronized (recentLogs) {
-                        if (recentLogs.size() >= MAX_RECENT_LOGS) {
-                            recentLogs.pollFirst();
-                        }
-                        recentLogs.addLast(line);
-                    }
-                }
-            } catch (Exception e) {
-                Thread.currentThread().interrupt();
-                log.error("Failed to enqueue log line: {}", e.getLocalizedMessage());
-            }
-        }, MAX_RECENT_LOGS, 1000);
-        tailer.start(true);
     }
 
-    private void startMessageSender() {
-        if (isSenderRunning) {
-            return;
-        }
-        isSenderRunning = true;
+    public static Map<String, Object> stats() {
+        Map<String, Object> stats = LogRingBuffer.stats();
+        stats.put("subscribers", SUBSCRIBERS.size());
+        stats.put("sent", SENT.get());
+        stats.put("dropped", DROPPED.get());
+        return stats;
+    }
 
-        logPushTask = pushThreadExecutor.submit(() -> {
-            try {
-                while (!close) {
-                    String message = messageQueue.take();
-                    synchronized (LogWebSocketHandler.class) {
-                        if (currentSession != null && currentSession.isOpen()) {
-                            currentSession.sendMessage(new TextMessage(message));
+    private static void pump(Subscriber subscriber) {
+        WebSocketSession session = subscriber.session;
+        try {
+            while (!subscriber.closed && session.isOpen()) {
+                LogRingBuffer.Batch batch = LogRingBuffer.read(subscriber.cursor, MAX_BATCH);
+                if (batch.texts().isEmpty() && batch.dropped() == 0) {
+                    LockSupport.parkNanos(FLUSH_NANOS);
+                    continue;
+                }
+                subscriber.cursor = batch.next();
+                if (batch.dropped() > 0) {
+                    DROPPED.addAndGet(batch.dropped());
+                }
+                if (subscriber.batch) {
+                    session.sendMessage(new TextMessage(JSONUtil.toJsonStr(MapUtil.builder()
+                            .put("from", batch.from())
+                            .put("next", batch.next())
+                            .put("dropped", batch.dropped())
+                            .put("lines", batch.texts())
+                            .build())));
+                } else {
+                    if (batch.dropped() > 0) {
+                        session.sendMessage(new TextMessage("...... 推送过慢，已跳过 " + batch.dropped() + " 条日志 ......"));
+                    }
+                    for (String text : batch.texts()) {
+                        // 页面每帧渲染为一行，异常堆栈按行拆开
+                        for (String line : text.split("\r?\n")) {
+                            session.sendMessage(new TextMessage(line));
                         }
                     }
                 }
-            } catch (Exception e) {
-                log.error("Error while sending WebSocket message: {}", e.getLocalizedMessage());
-            } finally {
-                isSenderRunning = false;
+                SENT.addAndGet(batch.texts().size());
             }
-        });
-    }
-
-    @Override
-    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
-        try {
-            tailer.stop();
-            if (logPushTask != null) {
-                logPushTask.cancel(false);
-            }
-            if (session == currentSession) {
-                currentSession.close();
-                currentSession = null;
-            } else {
+        } catch (Exception e) {
+            log.warn("日志推送中断，sessionId：{}，原因：{}", session.getId(), e.getLocalizedMessage());
+        } finally {
+            SUBSCRIBERS.remove(session.getId(), subscriber);
+            try {
                 session.close();
+            } catch (Exception ignored) {
             }
-            close = true;
-        } catch (Exception e) {
-            log.error("WebSocket session closed: {}", session.getId());
         }
     }
 }
\ No newline at end of file
@@ -1,11 +1,11 @@
 package com.yohann.ocihelper.config.ws;
 
 import cn.hutool.core.map.MapUtil;
-import cn.hutool.core.util.StrUtil;
+import cn.hutool.extra.spring.SpringUtil;
 import cn.hutool.json.JSONUtil;
-import cn.hutool.jwt.JWTUtil;
+import com.yohann.ocihelper.config.auth.TokenVerifier;
 import com.yohann.ocihelper.exception.OciException;
-import com.yohann.ocihelper.utils.CommonUtils;
+import com.yohann.ocihelper.utils.HostMetricsSampler;
 import jakarta.websocket.OnClose;
 import jakarta.websocket.OnMessage;
 import jakarta.websocket.OnOpen;
@@ -14,20 +14,14 @@ import jakarta.websocket.server.PathParam;
 import jakarta.websocket.server.ServerEndpoint;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
-import oshi.SystemInfo;
-import oshi.hardware.CentralProcessor;
-import oshi.hardware.GlobalMemory;
-import oshi.hardware.HardwareAbstractionLayer;
-import oshi.hardware.NetworkIF;
 
-import java.io.IOException;
-import java.time.LocalTime;
-import java.util.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-
-import static com.yohann.ocihelper.service.impl.OciServiceImpl.TEMP_MAP;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author Yohann
@@ -39,56 +33,37 @@ import static com.yohann.ocihelper.service.impl.OciServiceImpl.TEMP_MAP;
 public class MetricsWebSocketHandler {
 
     private static final ConcurrentHashMap<String, Session> SESSION_MAP = new ConcurrentHashMap<>();
-    private static final ConcurrentHashMap<String, Boolean> IS_OPEN_MAP = new ConcurrentHashMap<>();
-    private static final ConcurrentHashMap<String, Future<?>> FUTURE_MAP = new ConcurrentHashMap<>();
+    private static final AtomicBoolean SUBSCRIBED = new AtomicBoolean();
+    private static final DateTimeFormatter TIME_FMT = DateTimeFormatter.ofPattern("HH:mm:ss").withZone(ZoneId.systemDefault());
     /**
-     * Reused across calls so CPU tick-delta is meaningful
+     * 流量图展示的点数
      */
-    private CentralProcessor processor;
-    private long[] prevCpuTicks;
-    Map<String, Object> metrics = new HashMap<>();
-    List<String> timestamps = new LinkedList<>();
-    List<Double> inRates = new LinkedList<>();
-    List<Double> outRates = new LinkedList<>();
-    int interval = 5;
-    int size = 15;
-
-    private boolean validateToken(String token) {
-        return !CommonUtils.isTokenExpired(token) && JWTUtil.verify(token, ((String) TEMP_MAP.get("password")).getBytes());
-    }
+    private static final int SIZE = 15;
 
     @OnOpen
     public void onOpen(Session session, @PathParam(value = "token") String token) {
-        if (token == null || !validateToken(token)) {
+        if (!SpringUtil.getBean(TokenVerifier.class).verify(token)) {
             throw new OciException(-1, "无效的token");
         }
 
-        // 如果已存在旧的 session，先关闭它
-        Session oldSession = SESSION_MAP.get(token);
-        if (oldSession != null) {
-            try {
-                oldSession.close();
-            } catch (IOException e) {
-                log.error("Close old session error", e);
-            }
-        }
-
-        SESSION_MAP.put(token, session);
-        IS_OPEN_MAP.put(token, true);
+        // 按连接区分，同一账号多开页面时各自接收推送
+        SESSION_MAP.put(session.getId(), session);
 
-        genCpuMemData(token);
-        execGenTrafficData(token);
+        // 所有连接共用一个采样器，每次采样后把同一份数据推给全部连接
+        HostMetricsSampler sampler = SpringUtil.getBean(HostMetricsSampler.class);
+        if (SUBSCRIBED.compareAndSet(false, true)) {
+            sampler.addListener(point -> broadcast(sampler));
+        }
+        // 新连接立即推送一次已有的历史数据
+        String message = buildMessage(sampler);
+        if (message != null) {
+            sendOneMessage(session, message);
+        }
     }
 
     @OnClose
-    public void onClose(Session session, @PathParam(value = "token") String token) {
-        SESSION_MAP.remove(token);
-        IS_OPEN_MAP.remove(token);
-        // 取消正在运行的任务
-        Future<?> future = FUTURE_MAP.remove(token);
-        if (future != null && !future.isDone()) {
-            future.cancel(true);
-        }
+    public void onClose(Session session) {
+        SESSION_MAP.remove(session.getId());
     }
 
     @OnMessage
@@ -101,7 +76,7 @@ public class MetricsWebSocketHandler {
      *
      * @param message 消息
      */
-    public void sendOneMessage(Session session, String message) {
+    public static void sendOneMessage(Session session, String message) {
         if (session != null && session.isOpen()) {
             try {
                 synchronized (session) {
@@ -113,112 +88,46 @@ public class MetricsWebSocketHandler {
         }
     }
 
-    private void genCpuMemData(String token) {
-        // --- CPU ---
-        // processor is initialised once per connection (in execGenTrafficData) so that
-        // prevCpuTicks and the current ticks are separated by a real time interval.
-        double cpu = 0.0;
-        if (processor != null && prevCpuTicks != null) {
-            cpu = processor.getSystemCpuLoadBetweenTicks(prevCpuTicks) * 100;
-        }
-        // Take the next baseline snapshot immediately after reading
-        if (processor != null) {
-            prevCpuTicks = processor.getSystemCpuLoadTicks();
+    private static void broadcast(HostMetricsSampler sampler) {
+        // 异常断开未触发 onClose 的连接在这里清理
+        SESSION_MAP.values().removeIf(session -> !session.isOpen());
+        if (SESSION_MAP.isEmpty()) {
+            return;
         }
-        String cpuUsage = String.format("%.2f", cpu);
-        metrics.put("cpuUsage", MapUtil.builder()
-                .put("used", cpuUsage)
-                .put("free", String.format("%.2f", 100 - Double.parseDouble(cpuUsage)))
-                .build());
-
-        // --- Memory ---
-        GlobalMemory memory = new SystemInfo().getHardware().getMemory();
-        long totalMemory = memory.getTotal();
-        long availableMemory = memory.getAvailable();
-        long usedMemory = totalMemory - availableMemory;
-        double usedMemoryPercentage = ((double) usedMemory / totalMemory) * 100;
-        double freeMemoryPercentage = ((double) availableMemory / totalMemory) * 100;
-
-        metrics.put("memoryUsage", MapUtil.builder()
-                .put("used", String.format("%.2f", usedMemoryPercentage))
-                .put("free", String.format("%.2f", freeMemoryPercentage))
-                .build());
-
-        metrics.put("trafficData", MapUtil.builder()
-                .put("timestamps", timestamps)
-                .put("inbound", inRates)
-                .put("outbound", outRates)
-                .build());
-
-        Session userSession = SESSION_MAP.get(token);
-        if (userSession != null && userSession.isOpen()) {
-            sendOneMessage(userSession, JSONUtil.toJsonStr(metrics));
+        String message = buildMessage(sampler);
+        if (message != null) {
+            SESSION_MAP.values().forEach(session -> sendOneMessage(session, message));
         }
     }
 
-    private void execGenTrafficData(String token) {
-        Future<?> future = Executors.newSingleThreadExecutor().submit(() -> {
-            SystemInfo systemInfo = new SystemInfo();
-            HardwareAbstractionLayer hardware = systemInfo.getHardware();
-
-            // Initialise the shared CPU processor and take the first tick baseline.
-            // The first genCpuMemData() call (interval seconds later) will then have
-            // a meaningful delta to calculate real CPU usage.
-            processor = hardware.getProcessor();
-            prevCpuTicks = processor.getSystemCpuLoadTicks();
-
-            List<NetworkIF> networkIFs = hardware.getNetworkIFs();
-            NetworkIF networkIF = networkIFs.stream()
-                    .filter(NetworkIF::isConnectorPresent)
-                    .filter(iface -> !Arrays.asList(iface.getIPv4addr()).isEmpty() || !Arrays.asList(iface.getIPv6addr()).isEmpty())
-                    .filter(iface -> iface.getName().startsWith("e"))
-                    .min((a, b) -> Long.compare(b.getSpeed(), a.getSpeed()))
-                    .orElse(null);
-
-            if (null != networkIF) {
-                // First snapshot — raw bytes, no division yet
-                networkIF.updateAttributes();
-                long previousRxBytes = networkIF.getBytesRecv();
-                long previousTxBytes = networkIF.getBytesSent();
-
-                while (IS_OPEN_MAP.getOrDefault(token, false)) {
-                    try {
-                        Thread.sleep(interval * 1000L);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
-
-                    // Record the timestamp right after waking up
-                    LocalTime now = LocalTime.now();
-                    String timestamp = String.format("%02d:%02d:%02d",
-                            now.getHour(), now.getMinute(), now.getSecond());
-
-                    networkIF.updateAttributes();
-                    long currentRxBytes = networkIF.getBytesRecv();
-                    long currentTxBytes = networkIF.getBytesSent();
-
-                    // Rate in KB/s: delta bytes / interval seconds / 1024
-                    double rxRate = (currentRxBytes - previousRxBytes) / (double) interval / 1024.0;
-                    double txRate = (currentTxBytes - previousTxBytes) / (double) interval / 1024.0;
-
-                    previousRxBytes = currentRxBytes;
-                    previousTxBytes = currentTxBytes;
-
-                    // Keep sliding window
-                    if (inRates.size() == size) inRates.remove(0);
-                    if (outRates.size() == size) outRates.remove(0);
-                    if (timestamps.size() == size) timestamps.remove(0);
-
-                    inRates.add(Double.parseDouble(String.format("%.2f", rxRate)));
-                    outRates.add(Double.parseDouble(String.format("%.2f", txRate)));
-                    timestamps.add(timestamp);
-
-                    genCpuMemData(token);
-                }
-            }
-        });
-
-        FUTURE_MAP.put(token, future);
+    private static String buildMessage(HostMetricsSampler sampler) {
+        HostMetricsSampler.Point latest = sampler.latest();
+        if (latest == null) {
+            return null;
+        }
+        HostMetricsSampler.History history = sampler.history(SIZE);
+        List<String> timestamps = new ArrayList<>(history.time().length);
+        List<Double> inRates = new ArrayList<>(history.time().length);
+        List<Double> outRates = new ArrayList<>(history.time().length);
+        for (int i = 0; i < history.time().length; i++) {
+            timestamps.add(TIME_FMT.format(Instant.ofEpochMilli(history.time()[i])));
+            inRates.add(history.rxRate()[i]);
+            outRates.add(history.txRate()[i]);
+        }
+        return JSONUtil.toJsonStr(MapUtil.builder()
+                .put("cpuUsage", MapUtil.builder()
+                        .put("used", latest.cpuUsage())
+                        .put("free", Math.round((100 - latest.cpuUsage()) * 100) / 100.0)
+                        .build())
+                .put("memoryUsage", MapUtil.builder()
+                        .put("used", latest.memoryUsage())
+                        .put("free", Math.round((100 - latest.memoryUsage()) * 100) / 100.0)
+                        .build())
+                .put("trafficData", MapUtil.builder()
+                        .put("timestamps", timestamps)
+                        .put("inbound", inRates)
+                        .put("outbound", outRates)
+                        .build())
+                .build());
     }
 }
@@ -5,10 +5,15 @@ import com.yohann.ocihelper.bean.params.oci.limits.GetLimitsParams;
 import com.yohann.ocihelper.bean.response.oci.limits.GetLimitsRsp;
 import com.yohann.ocihelper.service.ILimitsService;
 import jakarta.annotation.Resource;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.yohann.ocihelper.config.VirtualThreadConfig.VIRTUAL_EXECUTOR;
 
 /**
  * REST controller for OCI service limits / quota queries.
@@ -19,6 +24,8 @@ import java.util.List;
 @RequestMapping("/api/limits")
 public class LimitsController {
 
+    private static final long STREAM_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
     @Resource
     private ILimitsService limitsService;
 
@@ -33,6 +40,37 @@ public class LimitsController {
         return ResponseData.successData(limitsService.getLimits(params), "查询配额成功");
     }
 
+    /**
+     * Stream the query as server-sent events: an {@code items} event per batch of rows while the
+     * query runs, then {@code done} with the full response, or {@code error} with the message.
+     *
+     * @param params request body containing ociCfgId, region, and optional serviceName
+     * @return event stream
+     */
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@Validated @RequestBody GetLimitsParams params) {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MILLIS);
+        VIRTUAL_EXECUTOR.execute(() -> {
+            try {
+                GetLimitsRsp rsp = limitsService.streamLimits(params, batch -> send(emitter, "items", batch));
+                send(emitter, "done", rsp);
+            } catch (Exception e) {
+                send(emitter, "error", e.getLocalizedMessage());
+            } finally {
+                emitter.complete();
+            }
+        });
+        return emitter;
+    }
+
+    private static void send(SseEmitter emitter, String event, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+        } catch (Exception ignored) {
+            // client went away; the query still finishes and lands in the cache
+        }
+    }
+
     /**
      * List available service names for the given OCI configuration and region.
      * Used to populate the service-name filter drop-down on the front end.
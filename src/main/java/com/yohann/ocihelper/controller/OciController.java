@@ -23,6 +23,7 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import jakarta.annotation.Resource;
@@ -204,8 +205,8 @@ public class OciController {
     }
 
     @PostMapping(path = "/checkAlive")
-    public ResponseData<Void> checkAlive() {
-        return ResponseData.successData(ociService.checkAlive());
+    public ResponseData<Void> checkAlive(@RequestParam(value = "forceRefresh", required = false, defaultValue = "false") boolean forceRefresh) {
+        return ResponseData.successData(ociService.checkAlive(forceRefresh));
     }
 
     @PostMapping(path = "/refreshPlanTypeBatch")
@@ -1,17 +1,32 @@
 package com.yohann.ocihelper.controller;
 
 import com.yohann.ocihelper.bean.ResponseData;
+import com.yohann.ocihelper.config.auth.TokenVerifier;
+import com.yohann.ocihelper.config.ws.LogWebSocketHandler;
 import com.yohann.ocihelper.bean.params.sys.*;
 import com.yohann.ocihelper.bean.response.sys.GetGlanceRsp;
 import com.yohann.ocihelper.bean.response.sys.GetSysCfgRsp;
 import com.yohann.ocihelper.bean.response.sys.LoginRsp;
+import com.yohann.ocihelper.service.IFleetInventoryService;
+import com.yohann.ocihelper.service.ILivenessService;
+import com.yohann.ocihelper.service.IpSecurityService;
 import com.yohann.ocihelper.service.ISysService;
+import com.yohann.ocihelper.service.ITrafficStoreService;
 import com.yohann.ocihelper.utils.CommonUtils;
+import com.yohann.ocihelper.utils.HostMetricsSampler;
+import com.yohann.ocihelper.utils.IpHuntStats;
+import com.yohann.ocihelper.utils.LogStore;
+import com.yohann.ocihelper.utils.NotificationDispatcher;
+import com.yohann.ocihelper.utils.OciFanOut;
+import com.yohann.ocihelper.utils.TimerWheelScheduler;
+import com.yohann.ocihelper.utils.TypedCache;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.annotation.Resource;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @projectName: oci-helper
@@ -26,6 +41,20 @@ public class SysCfgController {
 
     @Resource
     private ISysService sysService;
+    @Resource
+    private NotificationDispatcher notificationDispatcher;
+    @Resource
+    private IFleetInventoryService fleetInventoryService;
+    @Resource
+    private ILivenessService livenessService;
+    @Resource
+    private TokenVerifier tokenVerifier;
+    @Resource
+    private ITrafficStoreService trafficStoreService;
+    @Resource
+    private HostMetricsSampler hostMetricsSampler;
+    @Resource
+    private IpSecurityService ipSecurityService;
 
     @PostMapping(path = "/login")
     public ResponseData<LoginRsp> addCfg(@Validated @RequestBody LoginParams params) {
@@ -82,6 +111,77 @@ public class SysCfgController {
         return ResponseData.successData(sysService.glance(), "获取仪表盘数据成功");
     }
 
+    @GetMapping(path = "/schedulerStats")
+    public ResponseData<Map<String, Object>> schedulerStats() {
+        return ResponseData.successData(TimerWheelScheduler.INSTANCE.stats(), "获取调度器状态成功");
+    }
+
+    @GetMapping(path = "/notificationStats")
+    public ResponseData<Map<String, Object>> notificationStats() {
+        return ResponseData.successData(notificationDispatcher.stats(), "获取消息通知状态成功");
+    }
+
+    @GetMapping(path = "/inventoryStats")
+    public ResponseData<Map<String, Object>> inventoryStats() {
+        return ResponseData.successData(fleetInventoryService.stats(), "获取资源快照状态成功");
+    }
+
+    @GetMapping(path = "/livenessStats")
+    public ResponseData<Map<String, Object>> livenessStats() {
+        return ResponseData.successData(livenessService.stats(), "获取测活状态成功");
+    }
+
+    @GetMapping(path = "/fanOutStats")
+    public ResponseData<Map<String, Object>> fanOutStats() {
+        return ResponseData.successData(OciFanOut.stats(), "获取并发请求状态成功");
+    }
+
+    @GetMapping(path = "/trafficStoreStats")
+    public ResponseData<Map<String, Object>> trafficStoreStats() {
+        return ResponseData.successData(trafficStoreService.stats(), "获取流量同步状态成功");
+    }
+
+    @GetMapping(path = "/logStreamStats")
+    public ResponseData<Map<String, Object>> logStreamStats() {
+        return ResponseData.successData(LogWebSocketHandler.stats(), "获取日志推送状态成功");
+    }
+
+    @PostMapping(path = "/queryLogs")
+    public ResponseData<LogStore.Result> queryLogs(@RequestBody QueryLogsParams params) {
+        return ResponseData.successData(sysService.queryLogs(params), "查询日志成功");
+    }
+
+    @GetMapping(path = "/logStoreStats")
+    public ResponseData<Map<String, Object>> logStoreStats() {
+        LogStore store = LogStore.get();
+        return ResponseData.successData(store == null ? Map.of() : store.stats(), "获取日志存储状态成功");
+    }
+
+    @GetMapping(path = "/tokenStats")
+    public ResponseData<Map<String, Object>> tokenStats() {
+        return ResponseData.successData(tokenVerifier.stats(), "获取登录令牌缓存状态成功");
+    }
+
+    @GetMapping(path = "/cacheStats")
+    public ResponseData<List<Map<String, Object>>> cacheStats() {
+        return ResponseData.successData(TypedCache.statsAll(), "获取缓存状态成功");
+    }
+
+    @GetMapping(path = "/ipHuntStats")
+    public ResponseData<List<Map<String, Object>>> ipHuntStats() {
+        return ResponseData.successData(IpHuntStats.stats(), "获取换IP命中率统计成功");
+    }
+
+    @PostMapping(path = "/importIpBlacklist")
+    public ResponseData<Integer> importIpBlacklist(@Validated @RequestBody ImportIpBlacklistParams params) {
+        return ResponseData.successData(ipSecurityService.importBlacklist(params.getContent()), "导入IP黑名单成功");
+    }
+
+    @GetMapping(path = "/hostMetrics")
+    public ResponseData<Map<String, Object>> hostMetrics(@RequestParam(value = "limit", required = false, defaultValue = "0") int limit) {
+        return ResponseData.successData(hostMetricsSampler.snapshot(limit), "获取主机监控数据成功");
+    }
+
     @PostMapping(path = "/googleLogin")
     public ResponseData<LoginRsp> googleLogin(@Validated @RequestBody GoogleLoginParams params) {
         return ResponseData.successData(sysService.googleLogin(params), "Google登录成功");
@@ -18,6 +18,7 @@ public enum SysCfgTypeEnum {
     SYS_INIT_CFG("Y001", "系统基本配置"),
     SYS_MFA_CFG("Y002", "系统MFA配置"),
     SYS_INFO("Y003", "系统信息"),
+    TRAFFIC_ALERT("Y004", "流量告警记录"),
 
     ;
 
@@ -0,0 +1,25 @@
+package com.yohann.ocihelper.exception;
+
+/**
+ * <p>
+ * MessageRateLimitException
+ * </p >
+ * Thrown by a message channel when the remote side asked us to back off (e.g. Telegram 429).
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+public class MessageRateLimitException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+    private final long retryAfterMillis;
+
+    public MessageRateLimitException(String msg, long retryAfterMillis) {
+        super(msg);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
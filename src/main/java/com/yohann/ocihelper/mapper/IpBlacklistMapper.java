@@ -0,0 +1,18 @@
+package com.yohann.ocihelper.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.yohann.ocihelper.bean.entity.IpBlacklist;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * @author yohann
+ * @description 针对表【ip_blacklist】的数据库操作Mapper
+ * @createDate 2026-10-18 18:02:13
+ * @Entity com.yohann.ocihelper.bean.entity.IpBlacklist
+ */
+public interface IpBlacklistMapper extends BaseMapper<IpBlacklist> {
+
+    void upsertBatch(@Param("list") List<IpBlacklist> list);
+}
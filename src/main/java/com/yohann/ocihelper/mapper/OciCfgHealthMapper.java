@@ -0,0 +1,18 @@
+package com.yohann.ocihelper.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.yohann.ocihelper.bean.entity.OciCfgHealth;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * @author yohann
+ * @description 针对表【oci_cfg_health】的数据库操作Mapper
+ * @createDate 2026-10-18 21:36:40
+ * @Entity com.yohann.ocihelper.bean.entity.OciCfgHealth
+ */
+public interface OciCfgHealthMapper extends BaseMapper<OciCfgHealth> {
+
+    void upsertBatch(@Param("list") List<OciCfgHealth> list);
+}
@@ -0,0 +1,18 @@
+package com.yohann.ocihelper.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.yohann.ocihelper.bean.entity.OciTaskState;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * @author yohann
+ * @description 针对表【oci_task_state】的数据库操作Mapper
+ * @createDate 2026-10-18 10:12:05
+ * @Entity com.yohann.ocihelper.bean.entity.OciTaskState
+ */
+public interface OciTaskStateMapper extends BaseMapper<OciTaskState> {
+
+    void upsertBatch(@Param("list") List<OciTaskState> list);
+}
@@ -0,0 +1,18 @@
+package com.yohann.ocihelper.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.yohann.ocihelper.bean.entity.OciTrafficPoint;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * @author yohann
+ * @description 针对表【oci_traffic_point】的数据库操作Mapper
+ * @createDate 2026-10-18 15:20:41
+ * @Entity com.yohann.ocihelper.bean.entity.OciTrafficPoint
+ */
+public interface OciTrafficPointMapper extends BaseMapper<OciTrafficPoint> {
+
+    void upsertBatch(@Param("list") List<OciTrafficPoint> list);
+}
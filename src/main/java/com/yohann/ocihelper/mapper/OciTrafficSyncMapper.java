@@ -0,0 +1,14 @@
+package com.yohann.ocihelper.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.yohann.ocihelper.bean.entity.OciTrafficSync;
+
+/**
+ * @author yohann
+ * @description 针对表【oci_traffic_sync】的数据库操作Mapper
+ * @createDate 2026-10-18 15:20:41
+ * @Entity com.yohann.ocihelper.bean.entity.OciTrafficSync
+ */
+public interface OciTrafficSyncMapper extends BaseMapper<OciTrafficSync> {
+
+}
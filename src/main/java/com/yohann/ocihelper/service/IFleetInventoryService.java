@@ -0,0 +1,52 @@
+package com.yohann.ocihelper.service;
+
+import com.yohann.ocihelper.bean.dto.FleetInventoryDTO;
+import com.yohann.ocihelper.bean.dto.SysUserDTO;
+import com.yohann.ocihelper.bean.response.oci.cfg.OciCfgDetailsRsp;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * IFleetInventoryService
+ * </p >
+ * 所有配置、所有已订阅区域的实例资源快照，后台定时刷新
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+public interface IFleetInventoryService {
+
+    /**
+     * 配置在指定区域的快照；尚无快照或 forceRefresh 时同步刷新一次
+     */
+    FleetInventoryDTO get(String cfgId, String region, boolean forceRefresh);
+
+    /**
+     * 配置已订阅的区域
+     */
+    List<String> listRegions(String cfgId);
+
+    /**
+     * 主区域实例详情（配置详情页）
+     */
+    List<OciCfgDetailsRsp.InstanceInfo> listInstanceInfos(String cfgId, boolean forceRefresh);
+
+    /**
+     * 主区域快照距上次刷新的毫秒数，尚无快照时返回 -1
+     */
+    long snapshotAgeMillis(String cfgId);
+
+    /**
+     * 主区域实例概要（TG、IP 数据同步）
+     */
+    List<SysUserDTO.CloudInstance> listCloudInstances(String cfgId);
+
+    /**
+     * 实例发生变化（开机、终止、换 IP 等），稍后在后台刷新该配置的快照
+     */
+    void invalidate(String cfgId);
+
+    Map<String, Object> stats();
+}
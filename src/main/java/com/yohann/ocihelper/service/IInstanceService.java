@@ -1,7 +1,5 @@
 package com.yohann.ocihelper.service;
 
-import com.oracle.bmc.core.model.Instance;
-import com.yohann.ocihelper.bean.Tuple2;
 import com.yohann.ocihelper.bean.dto.CreateInstanceDTO;
 import com.yohann.ocihelper.bean.dto.InstanceCfgDTO;
 import com.yohann.ocihelper.bean.dto.SysUserDTO;
@@ -25,10 +23,10 @@ public interface IInstanceService {
     /**
      * 获取已开机实例信息
      *
-     * @param sysUserDTO oci配置
+     * @param ociCfgId oci配置id
      * @return 已开机实例信息
      */
-    List<SysUserDTO.CloudInstance> listRunningInstances(SysUserDTO sysUserDTO);
+    List<SysUserDTO.CloudInstance> listRunningInstances(String ociCfgId);
 
     /**
      * 开机
@@ -39,15 +37,14 @@ public interface IInstanceService {
     CreateInstanceDTO createInstance(OracleInstanceFetcher fetcher);
 
     /**
-     * 根据 CIDR 网段更换实例公共IP
+     * 更换 VNIC 的临时公共IP，是否落在目标网段由调用方判断
      *
-     * @param instanceId 实例Id
-     * @param vnicId     vnicId
-     * @param sysUserDTO oci配置
-     * @param cidrList   CIDR 网段 （传为空则随机更换一个ip）
-     * @return 新的实例公共IP，实例
+     * @param sysUserDTO   oci配置
+     * @param vnicId       vnicId
+     * @param instanceName 实例名称（仅用于日志）
+     * @return 新的公共IP，失败时为 null
      */
-    Tuple2<String, Instance> changeInstancePublicIp(String instanceId, String vnicId, SysUserDTO sysUserDTO, List<String> cidrList);
+    String changeVnicPublicIp(SysUserDTO sysUserDTO, String vnicId, String instanceName);
 
     /**
      * 获取实例需修改的配置信息
@@ -2,8 +2,10 @@ package com.yohann.ocihelper.service;
 
 import com.yohann.ocihelper.bean.params.oci.limits.GetLimitsParams;
 import com.yohann.ocihelper.bean.response.oci.limits.GetLimitsRsp;
+import com.yohann.ocihelper.bean.response.oci.limits.LimitItemRsp;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Service interface for querying OCI service limits and quotas.
@@ -20,6 +22,16 @@ public interface ILimitsService {
      */
     GetLimitsRsp getLimits(GetLimitsParams params);
 
+    /**
+     * Same as {@link #getLimits}, but hands out the rows of each limit definition as soon as they are
+     * ready. A result served from cache (or loaded by a concurrent query) arrives as a single batch.
+     *
+     * @param params  query parameters (ociCfgId, region, optional serviceName)
+     * @param onBatch receives rows in completion order; called from several threads
+     * @return the complete response, rows in definition order
+     */
+    GetLimitsRsp streamLimits(GetLimitsParams params, Consumer<List<LimitItemRsp>> onBatch);
+
     /**
      * List all available service names for a given OCI configuration and region.
      * Used to populate the service-name filter drop-down.
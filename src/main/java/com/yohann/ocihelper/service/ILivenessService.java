@@ -0,0 +1,25 @@
+package com.yohann.ocihelper.service;
+
+import com.yohann.ocihelper.bean.dto.CfgHealthDTO;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * ILivenessService
+ * </p >
+ * oci 配置测活，结果保存在内存表中并落库，后台定时刷新
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+public interface ILivenessService {
+
+    /**
+     * 所有配置的测活结果；结果过期或尚未测活的配置会先测一次，forceRefresh 时全部重新测活
+     */
+    List<CfgHealthDTO> check(boolean forceRefresh);
+
+    Map<String, Object> stats();
+}
@@ -10,5 +10,26 @@ package com.yohann.ocihelper.service;
  */
 public interface IMessageService {
 
-    void sendMessage(String message);
+    /**
+     * 立即发送一条消息，由 NotificationDispatcher 排队合并后调用，业务代码请使用 ISysService#sendMessage
+     *
+     * @return 渠道未配置时返回 false
+     * @throws com.yohann.ocihelper.exception.MessageRateLimitException 被渠道限流
+     * @throws RuntimeException 发送失败
+     */
+    boolean sendMessage(String message);
+
+    /**
+     * 单条消息的最大长度，合并后超出会分段发送
+     */
+    default int maxMessageLength() {
+        return 4000;
+    }
+
+    /**
+     * 两次发送之间的最小间隔（毫秒）
+     */
+    default long minIntervalMillis() {
+        return 0;
+    }
 }
@@ -2,7 +2,9 @@ package com.yohann.ocihelper.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.yohann.ocihelper.bean.entity.OciKv;
-import com.yohann.ocihelper.bean.entity.OciUser;
+import com.yohann.ocihelper.enums.SysCfgEnum;
+
+import java.util.Map;
 
 /**
 * @author Administrator
@@ -11,4 +13,18 @@ import com.yohann.ocihelper.bean.entity.OciUser;
 */
 public interface IOciKvService extends IService<OciKv> {
 
+    /**
+     * 从内存快照读取配置值，不访问数据库；未配置时返回 null
+     */
+    String getCfgValue(SysCfgEnum cfg);
+
+    /**
+     * 当前配置快照（只读）
+     */
+    Map<SysCfgEnum, String> getCfgSnapshot();
+
+    /**
+     * 从数据库重新加载配置快照并整体替换
+     */
+    void refreshCfgSnapshot();
 }
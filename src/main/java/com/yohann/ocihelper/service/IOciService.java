@@ -74,7 +74,10 @@ public interface IOciService {
 
     void updateBootVolumeCfg(UpdateBootVolumeCfgParams params);
 
-    String checkAlive();
+    /**
+     * 测活结果默认取自测活表，forceRefresh 时重新测活所有配置
+     */
+    String checkAlive(boolean forceRefresh);
 
     void updateCfgName(UpdateCfgNameParams params);
 
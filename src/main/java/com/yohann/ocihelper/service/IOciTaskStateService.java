@@ -0,0 +1,16 @@
+package com.yohann.ocihelper.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.yohann.ocihelper.bean.entity.OciTaskState;
+
+import java.util.List;
+
+/**
+ * @author yohann
+ * @description 针对表【oci_task_state】的数据库操作Service
+ * @createDate 2026-10-18 10:12:05
+ */
+public interface IOciTaskStateService extends IService<OciTaskState> {
+
+    void upsertBatch(List<OciTaskState> list);
+}
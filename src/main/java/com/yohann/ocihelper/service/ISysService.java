@@ -5,6 +5,7 @@ import com.yohann.ocihelper.bean.params.sys.*;
 import com.yohann.ocihelper.bean.response.sys.GetGlanceRsp;
 import com.yohann.ocihelper.bean.response.sys.GetSysCfgRsp;
 import com.yohann.ocihelper.bean.response.sys.LoginRsp;
+import com.yohann.ocihelper.utils.LogStore;
 
 public interface ISysService {
 
@@ -62,4 +63,12 @@ public interface ISysService {
      * @return Google Client ID
      */
     String getGoogleClientId();
+
+    /**
+     * Newest log records matching the filter, oldest first
+     *
+     * @param params time range, level, task id, config name and keyword filters
+     * @return matching records
+     */
+    LogStore.Result queryLogs(QueryLogsParams params);
 }
@@ -0,0 +1,51 @@
+package com.yohann.ocihelper.service;
+
+import com.yohann.ocihelper.utils.TrafficAggregator;
+
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+/**
+ * <p>
+ * ITrafficStoreService
+ * </p >
+ * 本地流量时序库：按小时增量同步各 vnic 流量，并汇总到天、月
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+public interface ITrafficStoreService {
+
+    /**
+     * 天、月的划分时区；OCI Monitoring 的 [1440m] 聚合按 UTC 零点切分，本地库和实时查询都按它划分
+     */
+    ZoneId ZONE = ZoneOffset.UTC;
+
+    enum Granularity {
+        HOUR, DAY, MONTH
+    }
+
+    /**
+     * 按时间升序的列式数据，三个数组下标一一对应
+     */
+    record Series(long[] buckets, long[] toNetworkBytes, long[] fromNetworkBytes) {
+    }
+
+    /**
+     * 同步所有配置的流量，已有同步在进行时直接返回
+     */
+    void sync();
+
+    /**
+     * 单个 vnic 的流量序列；本地数据不能完整覆盖该时间段时返回 null
+     */
+    Series series(String cfgId, String region, String vnicId, Granularity granularity, long beginTime, long endTime);
+
+    /**
+     * 区域内本月各 vnic 流量；本地数据未同步到本月时返回 null
+     */
+    TrafficAggregator.Totals monthTotals(String cfgId, String region);
+
+    Map<String, Object> stats();
+}
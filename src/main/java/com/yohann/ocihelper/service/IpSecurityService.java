@@ -1,56 +1,126 @@
 package com.yohann.ocihelper.service;
 
-import com.yohann.ocihelper.utils.CustomExpiryGuavaCache;
+import com.yohann.ocihelper.bean.entity.IpBlacklist;
+import com.yohann.ocihelper.mapper.IpBlacklistMapper;
+import com.yohann.ocihelper.utils.CidrTrie;
+import com.yohann.ocihelper.utils.SQLiteWriteQueue;
+import com.yohann.ocihelper.utils.SlidingWindowCounter;
+import com.yohann.ocihelper.utils.TimerWheelScheduler;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 /**
  * IP Security Service
- * Manages IP blacklist and defense mode
+ * Manages IP blacklist and defense mode. The blacklist is persisted in ip_blacklist and matched
+ * through a {@link CidrTrie} snapshot, so a lookup costs O(prefix length) however many ranges are loaded.
+ * Login failures are counted per IP and per subnet in lock-free sliding windows; crossing a threshold
+ * places a temporary ban whose duration escalates with every repeat offence, persisted with the blacklist.
+ * Entries are keyed by their canonical network ({@link CidrTrie#canonical(String)}), so different
+ * spellings of one network are one entry and an expiring auto-ban cannot lift a manual entry.
  * 
  * @author yohann
  */
 @Slf4j
 @Service
 public class IpSecurityService {
-    
-    // Dedicated cache for IP blacklist
-    private final CustomExpiryGuavaCache<String, String> ipBlacklistCache;
-    
-    // Maintain a separate set for tracking all blacklist entries
+
+    private static final int IMPORT_BATCH = 500;
+    private static final Pattern LIST_SEPARATOR = Pattern.compile("[\\s,;]+");
+
+    @Resource
+    private IpBlacklistMapper ipBlacklistMapper;
+    @Resource
+    private SQLiteWriteQueue sqLiteWriteQueue;
+
+    // All blacklist entries in canonical form, for listing and removal
     private final Set<String> blacklistEntries = ConcurrentHashMap.newKeySet();
-    
-    // Login failure tracking: IP -> failure count
-    private final CustomExpiryGuavaCache<String, Integer> loginFailureCache;
-    
-    // Max login failures before auto-blacklist
+
+    // IPs and CIDR ranges, replaced as a whole on every change so lookups need no lock
+    private volatile CidrTrie blacklistTrie = CidrTrie.empty();
+
+    // Entries that are not IP literals (e.g. "unknown" from a proxy header), matched exactly
+    private final Set<String> otherEntries = ConcurrentHashMap.newKeySet();
+
+    // Max login failures per IP before auto-ban
     private static final int MAX_LOGIN_FAILURES = 5;
+
+    // Max login failures per /24 (IPv4) or /64 (IPv6) before the whole subnet is auto-banned
+    private static final int MAX_SUBNET_FAILURES = 20;
     
     // Login failure tracking window (15 minutes)
     private static final long FAILURE_TRACKING_WINDOW_MS = 15 * 60 * 1000;
+
+    // Auto-ban durations grow by this factor per strike: 15m, 1h, 4h, 16h, ... up to 30 days
+    private static final long BASE_BAN_MS = 15 * 60 * 1000;
+    private static final int BAN_GROWTH = 4;
+    private static final long MAX_BAN_MS = TimeUnit.DAYS.toMillis(30);
+
+    // Strikes are forgotten this long after the last auto-ban ended
+    private static final long STRIKE_MEMORY_MS = TimeUnit.DAYS.toMillis(30);
+
+    // Login failure counters: fixed memory, lock-free, one for IPs and one for subnets
+    private final SlidingWindowCounter ipFailures = new SlidingWindowCounter(16384, FAILURE_TRACKING_WINDOW_MS, 5);
+    private final SlidingWindowCounter subnetFailures = new SlidingWindowCounter(4096, FAILURE_TRACKING_WINDOW_MS, 5);
+
+    // Auto-bans (active or expired but still remembered for escalation), by entry
+    private final Map<String, IpBlacklist> autoBans = new ConcurrentHashMap<>();
     
     // Defense mode flag - when true, all IPs are blocked
     private volatile boolean defenseMode = false;
-    
-    // Pattern for IP address validation
-    private static final Pattern IP_PATTERN = Pattern.compile(
-        "^((25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.){3}(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)$"
-    );
-    
-    // Pattern for IP range (CIDR notation)
-    private static final Pattern CIDR_PATTERN = Pattern.compile(
-        "^((25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.){3}(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)/(3[0-2]|[12]?[0-9])$"
-    );
-    
-    public IpSecurityService() {
-        // Create dedicated cache instances for IP security
-        this.ipBlacklistCache = new CustomExpiryGuavaCache<>();
-        this.loginFailureCache = new CustomExpiryGuavaCache<>();
-        log.info("IpSecurityService initialized with dedicated cache instances");
+
+    /**
+     * Load the persisted blacklist
+     */
+    @PostConstruct
+    public void loadBlacklist() {
+        List<IpBlacklist> rows = new ArrayList<>(ipBlacklistMapper.selectList(null));
+        // 永久条目先加载，同一网段的临时封禁不能覆盖它
+        rows.sort(Comparator.comparing(row -> row.getExpireAt() != null));
+        long now = System.currentTimeMillis();
+        int active = 0;
+        List<String> staleIds = new ArrayList<>();
+        List<IpBlacklist> renamed = new ArrayList<>();
+        synchronized (this) {
+            for (IpBlacklist row : rows) {
+                String key = normalize(row.getId());
+                boolean rename = !key.equals(row.getId());
+                if (rename) {
+                    // 按原样保存的旧条目改存规范形式
+                    staleIds.add(row.getId());
+                }
+                if (blacklistEntries.contains(key) || autoBans.containsKey(key)) {
+                    continue;
+                }
+                if (rename) {
+                    row.setId(key);
+                    renamed.add(row);
+                }
+                if (row.getExpireAt() != null) {
+                    autoBans.put(key, row);
+                    if (row.getExpireAt() <= now) {
+                        continue;
+                    }
+                }
+                addEntry(key);
+                active++;
+            }
+        }
+        if (!staleIds.isEmpty()) {
+            sqLiteWriteQueue.submit(() -> ipBlacklistMapper.deleteByIds(staleIds));
+            if (!renamed.isEmpty()) {
+                persist(renamed);
+            }
+        }
+        TimerWheelScheduler.INSTANCE.scheduleWithFixedDelay(TimerWheelScheduler.TaskType.SYSTEM, "ip-ban-expiry",
+                this::expireBans, 1, 1, TimeUnit.MINUTES, 0);
+        log.info("IpSecurityService initialized, {} blacklist entries loaded", active);
     }
     
     /**
@@ -81,44 +151,33 @@ public class IpSecurityService {
     }
     
     /**
-     * Check if IP is in blacklist (supports CIDR ranges)
+     * Check if IP is in blacklist (supports IPv4/IPv6 CIDR ranges)
      * 
      * @param ip IP address to check
      * @return true if blacklisted
      */
     public boolean isIpBlacklisted(String ip) {
-        // Direct match
-        String cachedValue = ipBlacklistCache.get(ip);
-        if (cachedValue != null) {
-            return true;
+        if (ip == null) {
+            return false;
         }
-        
-        // Also check the Set
-        if (blacklistEntries.contains(ip)) {
-            return true;
+        byte[] address = CidrTrie.parseAddress(ip);
+        if (address != null) {
+            return blacklistTrie.contains(address);
         }
-        
-        // Check CIDR ranges
-        List<String> allBlacklistEntries = getAllBlacklistEntries();
-        for (String entry : allBlacklistEntries) {
-            if (entry.contains("/")) {
-                // CIDR range
-                if (isIpInRange(ip, entry)) {
-                    return true;
-                }
-            }
-        }
-        
-        return false;
+        return otherEntries.contains(ip);
     }
     
     /**
      * Add IP or IP range to blacklist
      * 
-     * @param ipOrRange IP address or CIDR range (e.g., "192.168.1.100" or "192.168.1.0/24")
+     * @param ipOrRange IP address or CIDR range (e.g., "192.168.1.100", "192.168.1.0/24" or "2001:db8::/32")
      * @return true if added successfully, false if invalid format
      */
     public boolean addToBlacklist(String ipOrRange) {
+        return addToBlacklist(ipOrRange, "manual");
+    }
+
+    private boolean addToBlacklist(String ipOrRange, String source) {
         if (ipOrRange == null || ipOrRange.isEmpty()) {
             log.warn("Attempted to add null or empty IP to blacklist");
             return false;
@@ -126,22 +185,60 @@ public class IpSecurityService {
         
         ipOrRange = ipOrRange.trim();
         
-        // Validate format for IPv4
+        // Validate format
         if (!isValidIpOrRange(ipOrRange)) {
-            // For auto-blacklist from login failures, accept any format (IPv6, localhost, etc.)
+            // For auto-blacklist from login failures, accept any format (localhost, etc.)
             // We'll add it anyway but log a warning
-            log.warn("IP format does not match IPv4 pattern, adding anyway: {}", ipOrRange);
+            log.warn("IP format is not a valid IP or CIDR range, adding anyway: {}", ipOrRange);
         }
-        
-        // Add to cache with no expiry (use a very long time)
-        ipBlacklistCache.put(ipOrRange, ipOrRange, Long.MAX_VALUE);
-        
-        // Also add to the tracking set
-        blacklistEntries.add(ipOrRange);
+        ipOrRange = normalize(ipOrRange);
+
+        String entry = ipOrRange;
+        synchronized (this) {
+            // 手动添加的条目为永久拉黑，覆盖原有的临时封禁
+            autoBans.remove(entry);
+            addEntry(entry);
+        }
+        persist(List.of(IpBlacklist.builder().id(entry).source(source).strikes(0).build()));
         
         log.info("Added to blacklist: {} (total entries: {})", ipOrRange, blacklistEntries.size());
         return true;
     }
+
+    /**
+     * Bulk import IPs and CIDR ranges, e.g. an abuse list. Entries are separated by whitespace, comma
+     * or semicolon; text after '#' on a line is ignored. Invalid entries are skipped.
+     *
+     * @param content list content
+     * @return number of new entries
+     */
+    public int importBlacklist(String content) {
+        if (content == null || content.isBlank()) {
+            return 0;
+        }
+        List<IpBlacklist> added = new ArrayList<>();
+        synchronized (this) {
+            CidrTrie trie = blacklistTrie;
+            for (String line : content.split("\\R")) {
+                int comment = line.indexOf('#');
+                for (String raw : LIST_SEPARATOR.split(comment < 0 ? line : line.substring(0, comment))) {
+                    String entry = CidrTrie.canonical(raw);
+                    if (entry == null || !blacklistEntries.add(entry)) {
+                        continue;
+                    }
+                    autoBans.remove(entry);
+                    trie = trie.with(entry);
+                    added.add(IpBlacklist.builder().id(entry).source("import").strikes(0).build());
+                }
+            }
+            blacklistTrie = trie;
+        }
+        for (int i = 0; i < added.size(); i += IMPORT_BATCH) {
+            persist(added.subList(i, Math.min(i + IMPORT_BATCH, added.size())));
+        }
+        log.info("Imported {} entries to blacklist (total entries: {})", added.size(), blacklistEntries.size());
+        return added.size();
+    }
     
     /**
      * Remove IP or IP range from blacklist
@@ -153,11 +250,16 @@ public class IpSecurityService {
         if (ipOrRange == null || ipOrRange.isEmpty()) {
             return false;
         }
+        String entry = normalize(ipOrRange);
+
+        synchronized (this) {
+            // 手动删除同时清除封禁升级记录
+            autoBans.remove(entry);
+            removeEntry(entry);
+        }
+        sqLiteWriteQueue.submit(() -> ipBlacklistMapper.deleteById(entry));
         
-        ipBlacklistCache.remove(ipOrRange);
-        blacklistEntries.remove(ipOrRange);
-        
-        log.info("Removed from blacklist: {} (remaining entries: {})", ipOrRange, blacklistEntries.size());
+        log.info("Removed from blacklist: {} (remaining entries: {})", entry, blacklistEntries.size());
         return true;
     }
     
@@ -165,8 +267,13 @@ public class IpSecurityService {
      * Clear all blacklist entries
      */
     public void clearBlacklist() {
-        ipBlacklistCache.cleanUp();
-        blacklistEntries.clear();
+        synchronized (this) {
+            blacklistEntries.clear();
+            otherEntries.clear();
+            autoBans.clear();
+            blacklistTrie = CidrTrie.empty();
+        }
+        sqLiteWriteQueue.submit(() -> ipBlacklistMapper.delete(null));
         log.info("Blacklist cleared");
     }
     
@@ -216,64 +323,56 @@ public class IpSecurityService {
     }
     
     /**
-     * Validate IP address or CIDR range format
+     * Validate IP address or CIDR range format (IPv4 or IPv6)
      * 
      * @param ipOrRange IP or range string
      * @return true if valid
      */
     private boolean isValidIpOrRange(String ipOrRange) {
-        if (ipOrRange.contains("/")) {
-            return CIDR_PATTERN.matcher(ipOrRange).matches();
-        } else {
-            return IP_PATTERN.matcher(ipOrRange).matches();
-        }
+        return CidrTrie.parseCidr(ipOrRange) != null;
     }
-    
+
     /**
-     * Check if IP is in CIDR range
-     * 
-     * @param ip IP address to check
-     * @param cidr CIDR notation (e.g., "192.168.1.0/24")
-     * @return true if IP is in range
+     * Canonical network for IPs and CIDR ranges, the trimmed text for anything else
      */
-    private boolean isIpInRange(String ip, String cidr) {
-        try {
-            String[] parts = cidr.split("/");
-            String baseIp = parts[0];
-            int prefixLength = Integer.parseInt(parts[1]);
-            
-            long ipLong = ipToLong(ip);
-            long baseIpLong = ipToLong(baseIp);
-            
-            // Calculate network mask
-            long mask = (0xFFFFFFFFL << (32 - prefixLength)) & 0xFFFFFFFFL;
-            
-            // Check if IP is in the same network
-            return (ipLong & mask) == (baseIpLong & mask);
-            
-        } catch (Exception e) {
-            log.error("Failed to check IP in range: ip={}, cidr={}", ip, cidr, e);
-            return false;
+    private static String normalize(String entry) {
+        String canonical = CidrTrie.canonical(entry);
+        return canonical != null ? canonical : entry.trim();
+    }
+
+    /**
+     * Add an entry to the in-memory structures; caller holds the lock
+     */
+    private void addEntry(String entry) {
+        if (!blacklistEntries.add(entry)) {
+            return;
+        }
+        if (isValidIpOrRange(entry)) {
+            blacklistTrie = blacklistTrie.with(entry);
+        } else {
+            otherEntries.add(entry);
         }
     }
-    
+
     /**
-     * Convert IP address string to long
-     * 
-     * @param ip IP address
-     * @return long representation
+     * Remove an entry from the in-memory structures; caller holds the lock
      */
-    private long ipToLong(String ip) {
-        String[] octets = ip.split("\\.");
-        long result = 0;
-        for (int i = 0; i < 4; i++) {
-            result |= (Long.parseLong(octets[i]) << (24 - (8 * i)));
+    private void removeEntry(String entry) {
+        if (blacklistEntries.remove(entry)) {
+            blacklistTrie = blacklistTrie.without(entry);
+            otherEntries.remove(entry);
         }
-        return result & 0xFFFFFFFFL;
+    }
+
+    private void persist(List<IpBlacklist> rows) {
+        List<IpBlacklist> batch = new ArrayList<>(rows);
+        sqLiteWriteQueue.submit(() -> ipBlacklistMapper.upsertBatch(batch));
     }
     
     /**
-     * Record login failure and auto-blacklist if threshold exceeded
+     * Record login failure and auto-ban the IP or its subnet if a threshold is exceeded within the
+     * window. Each auto-ban of the same IP or subnet lasts {@link #BAN_GROWTH} times longer than the
+     * previous one.
      * 
      * @param ip IP address that failed login
      * @return true if IP was auto-blacklisted
@@ -282,31 +381,98 @@ public class IpSecurityService {
         if (ip == null || ip.isEmpty()) {
             return false;
         }
+        ip = normalize(ip);
+
+        long now = System.currentTimeMillis();
+        int failures = ipFailures.increment(ip, now);
+        String subnet = subnetOf(ip);
+        int subnetCount = subnet == null ? 0 : subnetFailures.increment(subnet, now);
         
-        // Get current failure count
-        Integer currentFailures = loginFailureCache.get(ip);
-        int newFailureCount = (currentFailures == null ? 0 : currentFailures) + 1;
-        
-        // Update failure count with expiry window
-        loginFailureCache.put(ip, newFailureCount, FAILURE_TRACKING_WINDOW_MS);
-        
-        log.warn("Login failure recorded for IP: {}, failure count: {}/{}", 
-                ip, newFailureCount, MAX_LOGIN_FAILURES);
-        
-        // Check if threshold exceeded
-        if (newFailureCount >= MAX_LOGIN_FAILURES) {
-            // Auto-blacklist the IP
-            boolean added = addToBlacklist(ip);
-            if (added) {
-                log.error("IP {} has been AUTO-BLACKLISTED due to {} failed login attempts", 
-                        ip, newFailureCount);
-                // Clear failure count as IP is now blacklisted
-                loginFailureCache.remove(ip);
-                return true;
+        // 每次失败只记 debug，封禁和解封时才输出日志
+        log.debug("Login failure recorded for IP: {}, failure count: {}/{}, subnet {} failure count: {}/{}",
+                ip, failures, MAX_LOGIN_FAILURES, subnet, subnetCount, MAX_SUBNET_FAILURES);
+
+        boolean banned = false;
+        if (subnet != null && subnetCount >= MAX_SUBNET_FAILURES) {
+            subnetFailures.reset(subnet);
+            banned = autoBan(subnet, subnetCount, now);
+        }
+        if (failures >= MAX_LOGIN_FAILURES) {
+            ipFailures.reset(ip);
+            banned |= autoBan(ip, failures, now);
+        }
+        return banned;
+    }
+
+    /**
+     * Ban an IP or subnet for the next escalation step
+     *
+     * @return true if a new ban was placed
+     */
+    private boolean autoBan(String entry, int failures, long now) {
+        IpBlacklist ban;
+        synchronized (this) {
+            IpBlacklist previous = autoBans.get(entry);
+            if (blacklistEntries.contains(entry)) {
+                // 已被拉黑（手动拉黑或并发请求已封禁）
+                return false;
+            }
+            int strikes = previous == null || previous.getStrikes() == null ? 0 : previous.getStrikes();
+            long duration = BASE_BAN_MS;
+            for (int k = 0; k < strikes && duration < MAX_BAN_MS; k++) {
+                duration *= BAN_GROWTH;
             }
+            duration = Math.min(duration, MAX_BAN_MS);
+            ban = IpBlacklist.builder()
+                    .id(entry)
+                    .source("auto")
+                    .expireAt(now + duration)
+                    .strikes(strikes + 1)
+                    .build();
+            autoBans.put(entry, ban);
+            addEntry(entry);
         }
-        
-        return false;
+        persist(List.of(ban));
+        log.error("{} has been AUTO-BANNED for {} minutes due to {} failed login attempts (strike {})",
+                entry, (ban.getExpireAt() - now) / 60000, failures, ban.getStrikes());
+        return true;
+    }
+
+    /**
+     * Lift expired auto-bans; strikes are kept for escalation until they are old enough to forget
+     */
+    private void expireBans() {
+        long now = System.currentTimeMillis();
+        List<String> forgotten = new ArrayList<>();
+        synchronized (this) {
+            for (IpBlacklist ban : autoBans.values()) {
+                if (ban.getExpireAt() > now) {
+                    continue;
+                }
+                if (blacklistEntries.contains(ban.getId())) {
+                    removeEntry(ban.getId());
+                    log.info("Auto-ban expired: {}", ban.getId());
+                }
+                if (ban.getExpireAt() + STRIKE_MEMORY_MS <= now) {
+                    autoBans.remove(ban.getId(), ban);
+                    forgotten.add(ban.getId());
+                }
+            }
+        }
+        if (!forgotten.isEmpty()) {
+            sqLiteWriteQueue.submit(() -> ipBlacklistMapper.deleteByIds(forgotten));
+        }
+    }
+
+    /**
+     * /24 for IPv4, /64 for IPv6, null for anything that is not an IP literal
+     */
+    private static String subnetOf(String ip) {
+        byte[] address = CidrTrie.parseAddress(ip);
+        if (address == null) {
+            return null;
+        }
+        return CidrTrie.canonical(new CidrTrie.Cidr(address, address.length == 4 ? 24 : 64));
     }
     
     /**
@@ -316,7 +482,7 @@ public class IpSecurityService {
      */
     public void clearLoginFailures(String ip) {
         if (ip != null && !ip.isEmpty()) {
-            loginFailureCache.remove(ip);
+            ipFailures.reset(normalize(ip));
             log.debug("Login failure count cleared for IP: {}", ip);
         }
     }
@@ -331,8 +497,7 @@ public class IpSecurityService {
         if (ip == null || ip.isEmpty()) {
             return 0;
         }
-        Integer count = loginFailureCache.get(ip);
-        return count == null ? 0 : count;
+        return ipFailures.count(normalize(ip), System.currentTimeMillis());
     }
     
     /**
@@ -346,12 +511,17 @@ public class IpSecurityService {
         
         long ipCount = entries.stream().filter(e -> !e.contains("/")).count();
         long rangeCount = entries.stream().filter(e -> e.contains("/")).count();
+        long ipv6Count = entries.stream().filter(e -> e.contains(":")).count();
         
         stats.put("totalEntries", entries.size());
         stats.put("ipCount", ipCount);
         stats.put("rangeCount", rangeCount);
+        stats.put("ipv6Count", ipv6Count);
         stats.put("defenseMode", defenseMode);
         stats.put("maxLoginFailures", MAX_LOGIN_FAILURES);
+        stats.put("maxSubnetFailures", MAX_SUBNET_FAILURES);
+        stats.put("activeAutoBans", autoBans.values().stream()
+                .filter(ban -> ban.getExpireAt() > System.currentTimeMillis()).count());
         stats.put("failureTrackingWindowMinutes", FAILURE_TRACKING_WINDOW_MS / 60000);
         
         return stats;
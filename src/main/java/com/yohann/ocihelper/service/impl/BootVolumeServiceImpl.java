@@ -1,13 +1,10 @@
 package com.yohann.ocihelper.service.impl;
 
 import cn.hutool.core.date.DateUtil;
-import cn.hutool.core.util.ObjUtil;
 import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
-import com.oracle.bmc.core.model.BootVolume;
 import com.oracle.bmc.core.model.Instance;
-import com.yohann.ocihelper.bean.Tuple2;
-import com.yohann.ocihelper.bean.constant.CacheConstant;
+import com.yohann.ocihelper.bean.dto.BootVolumeIndex;
 import com.yohann.ocihelper.bean.dto.SysUserDTO;
 import com.yohann.ocihelper.bean.params.oci.volume.BootVolumePageParams;
 import com.yohann.ocihelper.bean.params.oci.volume.TerminateBootVolumeParams;
@@ -18,7 +15,8 @@ import com.yohann.ocihelper.exception.OciException;
 import com.yohann.ocihelper.service.IBootVolumeService;
 import com.yohann.ocihelper.service.ISysService;
 import com.yohann.ocihelper.utils.CommonUtils;
-import com.yohann.ocihelper.utils.CustomExpiryGuavaCache;
+import com.yohann.ocihelper.utils.OciFanOut;
+import com.yohann.ocihelper.utils.TypedCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -26,7 +24,10 @@ import jakarta.annotation.Resource;
 
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 
@@ -42,63 +43,72 @@ import java.util.stream.Collectors;
 @Slf4j
 public class BootVolumeServiceImpl implements IBootVolumeService {
 
+    /**
+     * 每个配置的引导卷列表，按引导卷个数计重；过期后半小时内先返回旧列表，后台刷新
+     */
+    private static final TypedCache<String, List<BootVolumeListPage.BootVolumeInfo>> BOOT_VOLUME_PAGE_CACHE =
+            TypedCache.<String, List<BootVolumeListPage.BootVolumeInfo>>create("boot_volume_page", 10, TimeUnit.MINUTES, 10000, List::size)
+                    .staleWhileRevalidate(30, TimeUnit.MINUTES);
+
     @Resource
     private ISysService sysService;
     @Resource
-    private CustomExpiryGuavaCache<String, Object> customCache;
-    @Resource
     private ExecutorService virtualExecutor;
 
     @Override
     public Page<BootVolumeListPage.BootVolumeInfo> bootVolumeListPage(BootVolumePageParams params) {
-        if (params.isCleanReLaunch()) {
-            customCache.remove(CacheConstant.PREFIX_BOOT_VOLUME_PAGE + params.getOciCfgId());
-        }
-        List<BootVolumeListPage.BootVolumeInfo> bootVolumeInCache =
-                (List<BootVolumeListPage.BootVolumeInfo>) customCache.get(CacheConstant.PREFIX_BOOT_VOLUME_PAGE + params.getOciCfgId());
-        SysUserDTO sysUserDTO = sysService.getOciUser(params.getOciCfgId());
-        if (ObjUtil.isEmpty(bootVolumeInCache)) {
-            try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
-                bootVolumeInCache = fetcher.listBootVolume().parallelStream().map(x -> {
-                    Tuple2<Boolean, String> attachInstance = getAttachInstance(sysUserDTO, x.getId());
-                    BootVolumeListPage.BootVolumeInfo bootVolumeInfo = new BootVolumeListPage.BootVolumeInfo();
-                    bootVolumeInfo.setId(x.getId());
-                    bootVolumeInfo.setAvailabilityDomain(x.getAvailabilityDomain());
-                    bootVolumeInfo.setDisplayName(x.getDisplayName());
-                    bootVolumeInfo.setVpusPerGB(x.getVpusPerGB() + "");
-                    bootVolumeInfo.setSizeInGBs(x.getSizeInGBs() + "");
-                    bootVolumeInfo.setLifecycleState(x.getLifecycleState().getValue());
-                    bootVolumeInfo.setTimeCreated(DateUtil.format(x.getTimeCreated(), CommonUtils.DATETIME_FMT_NORM));
-                    bootVolumeInfo.setAttached(attachInstance.getFirst());
-                    bootVolumeInfo.setInstanceName(attachInstance.getSecond());
-                    bootVolumeInfo.setJsonStr(JSONUtil.toJsonStr(x));
-                    return bootVolumeInfo;
-                }).collect(Collectors.toList());
-            } catch (Exception e) {
-                log.error("获取引导卷列表失败", e);
-                throw new OciException(-1, "获取引导卷列表失败");
-            }
-        }
-        customCache.put(CacheConstant.PREFIX_BOOT_VOLUME_PAGE + params.getOciCfgId(), bootVolumeInCache, 10 * 60 * 1000);
+        // 强制刷新只替换缓存，不清空，其他人在刷新期间仍能拿到旧列表
+        Supplier<List<BootVolumeListPage.BootVolumeInfo>> loader = () -> loadBootVolumeList(params.getOciCfgId());
+        TypedCache.Snapshot<List<BootVolumeListPage.BootVolumeInfo>> snapshot = params.isCleanReLaunch()
+                ? BOOT_VOLUME_PAGE_CACHE.refresh(params.getOciCfgId(), loader)
+                : BOOT_VOLUME_PAGE_CACHE.getSnapshot(params.getOciCfgId(), loader);
 
-        List<BootVolumeListPage.BootVolumeInfo> resList = bootVolumeInCache.parallelStream()
+        List<BootVolumeListPage.BootVolumeInfo> resList = snapshot.value().stream()
                 .filter(x -> CommonUtils.contains(x.getDisplayName(), params.getKeyword(), true) ||
                         CommonUtils.contains(x.getAvailabilityDomain(), params.getKeyword(), true) ||
                         CommonUtils.contains(x.getLifecycleState(), params.getKeyword(), true) ||
                         CommonUtils.contains(x.getTimeCreated(), params.getKeyword(), true) ||
                         CommonUtils.contains(x.getInstanceName(), params.getKeyword(), true))
-                .collect(Collectors.toList()).parallelStream()
                 .sorted(Comparator.comparing(BootVolumeListPage.BootVolumeInfo::getDisplayName)).collect(Collectors.toList());
 
         List<BootVolumeListPage.BootVolumeInfo> pageList = CommonUtils.getPage(resList, params.getCurrentPage(), params.getPageSize());
-        return BootVolumeListPage.buildPage(pageList, params.getPageSize(), params.getCurrentPage(), pageList.size());
+        return BootVolumeListPage.buildPage(pageList, params.getPageSize(), params.getCurrentPage(), pageList.size(),
+                snapshot.ageMillis());
+    }
+
+    private List<BootVolumeListPage.BootVolumeInfo> loadBootVolumeList(String ociCfgId) {
+        SysUserDTO sysUserDTO = sysService.getOciUser(ociCfgId);
+        try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
+            // 引导卷和挂载关系按可用域各查一次，挂载的实例名从实例列表里取，不再逐个实例查引导卷
+            BootVolumeIndex index = fetcher.loadBootVolumeIndex();
+            Map<String, String> instanceNames = fetcher.listInstances().stream()
+                    .collect(Collectors.toMap(Instance::getId, x -> String.valueOf(x.getDisplayName()), (a, b) -> a));
+            return index.all().stream().map(x -> {
+                String instanceName = instanceNames.get(index.getAttachedInstanceId(x.getId()));
+                BootVolumeListPage.BootVolumeInfo bootVolumeInfo = new BootVolumeListPage.BootVolumeInfo();
+                bootVolumeInfo.setId(x.getId());
+                bootVolumeInfo.setAvailabilityDomain(x.getAvailabilityDomain());
+                bootVolumeInfo.setDisplayName(x.getDisplayName());
+                bootVolumeInfo.setVpusPerGB(x.getVpusPerGB() + "");
+                bootVolumeInfo.setSizeInGBs(x.getSizeInGBs() + "");
+                bootVolumeInfo.setLifecycleState(x.getLifecycleState().getValue());
+                bootVolumeInfo.setTimeCreated(DateUtil.format(x.getTimeCreated(), CommonUtils.DATETIME_FMT_NORM));
+                bootVolumeInfo.setAttached(instanceName != null);
+                bootVolumeInfo.setInstanceName(instanceName);
+                bootVolumeInfo.setJsonStr(JSONUtil.toJsonStr(x));
+                return bootVolumeInfo;
+            }).collect(Collectors.toList());
+        } catch (Exception e) {
+            log.error("获取引导卷列表失败", e);
+            throw new OciException(-1, "获取引导卷列表失败");
+        }
     }
 
     @Override
     public void terminateBootVolume(TerminateBootVolumeParams params) {
         SysUserDTO sysUserDTO = sysService.getOciUser(params.getOciCfgId());
         virtualExecutor.execute(() -> {
-            params.getBootVolumeIds().parallelStream().forEach(id -> {
+            OciFanOut.forEach(sysUserDTO.getOciCfg().getTenantId(), "terminateBootVolume", params.getBootVolumeIds(), id -> {
                 String bvName = null;
                 try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
                     fetcher.terminateBootVolume(id);
@@ -124,28 +134,4 @@ public class BootVolumeServiceImpl implements IBootVolumeService {
             throw new OciException(-1, "更改引导卷配置失败");
         }
     }
-
-    private Tuple2<Boolean, String> getAttachInstance(SysUserDTO sysUserDTO, String bootVolumeId) {
-        try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
-            List<Instance> instances = fetcher.listInstances();
-            if (instances.isEmpty()) {
-                return Tuple2.of(false, null);
-            }
-            for (Instance instance : instances) {
-                try {
-                    List<BootVolume> bootVolumes = fetcher.listBootVolumeListByInstanceId(instance.getId());
-                    if (!bootVolumes.isEmpty()) {
-                        if (bootVolumes.parallelStream().map(BootVolume::getId).collect(Collectors.toList()).contains(bootVolumeId)) {
-                            return Tuple2.of(true, instance.getDisplayName());
-                        }
-                    }
-                } catch (Exception e) {
-                    log.error("获取实例引导卷列表失败", e);
-                }
-            }
-        } catch (Exception e) {
-            log.error("获取实例引导卷列表失败", e);
-        }
-        return Tuple2.of(false, null);
-    }
 }
@@ -10,6 +10,7 @@ import com.yohann.ocihelper.bean.dto.CfDnsRecordDTO;
 import com.yohann.ocihelper.bean.params.cf.*;
 import com.yohann.ocihelper.exception.OciException;
 import com.yohann.ocihelper.service.ICfApiService;
+import com.yohann.ocihelper.utils.OciFanOut;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import java.util.*;
@@ -25,6 +26,8 @@ import java.util.stream.Collectors;
 @Slf4j
 public class CfApiServiceImpl implements ICfApiService {
 
+    /** Cloudflare 请求按 zone 限流 */
+    private static final String CF_TENANT_PREFIX = "cf:";
 
     @Override
     public HttpResponse addCfDnsRecords(AddCfDnsRecordsParams params) {
@@ -45,7 +48,7 @@ public class CfApiServiceImpl implements ICfApiService {
 
     @Override
     public void removeCfDnsRecords(RemoveCfDnsRecordsParams params) {
-        params.getProxyDomainList().parallelStream().forEach(proxyDomain -> {
+        OciFanOut.forEach(CF_TENANT_PREFIX + params.getZoneId(), "cfRemoveDnsRecords", params.getProxyDomainList(), proxyDomain -> {
             String url = "https://api.cloudflare.com/client/v4/zones/" + params.getZoneId() + "/dns_records?type=A&name=" + proxyDomain;
             HttpRequest request = HttpRequest.get(url)
                     .header("Authorization", "Bearer " + params.getApiToken())
@@ -71,7 +74,7 @@ public class CfApiServiceImpl implements ICfApiService {
 
     @Override
     public void removeCfDnsByIdsRecords(RemoveCfDnsByIdsParams params) {
-        params.getRecordIds().parallelStream().forEach(id -> {
+        OciFanOut.forEach(CF_TENANT_PREFIX + params.getZoneId(), "cfDeleteDnsRecord", params.getRecordIds(), id -> {
             String deleteUrl = "https://api.cloudflare.com/client/v4/zones/" + params.getZoneId() + "/dns_records/" + id;
             HttpRequest deleteRequest = HttpRequest.delete(deleteUrl)
                     .header("Authorization", "Bearer " + params.getApiToken())
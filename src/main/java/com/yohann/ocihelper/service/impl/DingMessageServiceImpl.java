@@ -1,10 +1,10 @@
 package com.yohann.ocihelper.service.impl;
 
 import cn.hutool.core.util.StrUtil;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.yohann.ocihelper.bean.entity.OciKv;
 import com.yohann.ocihelper.enums.SysCfgEnum;
+import com.yohann.ocihelper.exception.MessageRateLimitException;
 import com.yohann.ocihelper.service.IMessageService;
 import com.yohann.ocihelper.service.IOciKvService;
 import lombok.extern.slf4j.Slf4j;
@@ -14,6 +14,7 @@ import org.springframework.stereotype.Service;
 import jakarta.annotation.Resource;
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
@@ -21,6 +22,7 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * <p>
@@ -39,20 +41,39 @@ public class DingMessageServiceImpl implements IMessageService {
 
     private static final String DING_URL = "https://oapi.dingtalk.com/robot/send?access_token=%s";
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    /** 钉钉文本消息上限约 20000 字节，按中文 3 字节估算 */
+    private static final int DING_MAX_LENGTH = 6000;
+    /** 每个机器人每分钟最多 20 条 */
+    private static final long DING_MIN_INTERVAL_MILLIS = 3000;
+    /** 钉钉限流错误码：发送速度太快 */
+    private static final int DING_ERR_TOO_FAST = 130101;
 
     @Override
-    public void sendMessage(String message) {
-        OciKv dingToken = kvService.getOne(new LambdaQueryWrapper<OciKv>().eq(OciKv::getCode, SysCfgEnum.SYS_DING_BOT_TOKEN.getCode()));
-        OciKv dingSecret = kvService.getOne(new LambdaQueryWrapper<OciKv>().eq(OciKv::getCode, SysCfgEnum.SYS_DING_BOT_SECRET.getCode()));
-
-        if (null != dingToken && StrUtil.isNotBlank(dingToken.getValue()) &&
-                null != dingSecret && StrUtil.isNotBlank(dingSecret.getValue())) {
-            try {
-                sendDingTalkMessage(String.format(DING_URL, dingToken.getValue()), dingSecret.getValue(), message);
-            } catch (Exception e) {
-                log.info("Failed to send dingding message, error: {}", e.getLocalizedMessage());
-            }
+    public boolean sendMessage(String message) {
+        String dingToken = kvService.getCfgValue(SysCfgEnum.SYS_DING_BOT_TOKEN);
+        String dingSecret = kvService.getCfgValue(SysCfgEnum.SYS_DING_BOT_SECRET);
+
+        if (StrUtil.isBlank(dingToken) || StrUtil.isBlank(dingSecret)) {
+            return false;
+        }
+        try {
+            sendDingTalkMessage(String.format(DING_URL, dingToken), dingSecret, message);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("钉钉消息发送失败：" + e.getLocalizedMessage(), e);
         }
+        return true;
+    }
+
+    @Override
+    public int maxMessageLength() {
+        return DING_MAX_LENGTH;
+    }
+
+    @Override
+    public long minIntervalMillis() {
+        return DING_MIN_INTERVAL_MILLIS;
     }
 
     public static void sendDingTalkMessage(String webhook, String secret, String message) throws Exception {
@@ -92,10 +113,22 @@ public class DingMessageServiceImpl implements IMessageService {
         }
 
         int responseCode = connection.getResponseCode();
-        if (responseCode == 200) {
-            log.info("dingding message send successfully!");
-        } else {
-            log.info("Failed to send dingding message, HTTP response code: {}", responseCode);
+        // 读完响应体，连接才能回到 keep-alive 缓存被复用
+        String body;
+        try (InputStream in = responseCode >= 400 ? connection.getErrorStream() : connection.getInputStream()) {
+            body = in == null ? "" : new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        if (responseCode != 200) {
+            throw new IllegalStateException("钉钉消息发送失败，响应码：" + responseCode);
+        }
+        JsonNode result = OBJECT_MAPPER.readTree(body);
+        int errCode = result.path("errcode").asInt(0);
+        if (errCode == DING_ERR_TOO_FAST) {
+            throw new MessageRateLimitException("钉钉消息发送被限流", TimeUnit.MINUTES.toMillis(1));
+        }
+        if (errCode != 0) {
+            throw new IllegalStateException("钉钉消息发送失败：" + result.path("errmsg").asText());
         }
+        log.info("dingding message send successfully!");
     }
 }
@@ -0,0 +1,395 @@
+package com.yohann.ocihelper.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.oracle.bmc.core.model.*;
+import com.oracle.bmc.identity.model.AvailabilityDomain;
+import com.oracle.bmc.identity.model.RegionSubscription;
+import com.oracle.bmc.model.BmcException;
+import com.yohann.ocihelper.bean.constant.OciInstanceConstant;
+import com.yohann.ocihelper.bean.dto.BootVolumeIndex;
+import com.yohann.ocihelper.bean.dto.FleetInventoryDTO;
+import com.yohann.ocihelper.bean.dto.SysUserDTO;
+import com.yohann.ocihelper.bean.entity.OciUser;
+import com.yohann.ocihelper.bean.response.oci.cfg.OciCfgDetailsRsp;
+import com.yohann.ocihelper.config.OracleInstanceFetcher;
+import com.yohann.ocihelper.exception.OciException;
+import com.yohann.ocihelper.service.IFleetInventoryService;
+import com.yohann.ocihelper.service.IOciUserService;
+import com.yohann.ocihelper.service.ISysService;
+import com.yohann.ocihelper.utils.CommonUtils;
+import com.yohann.ocihelper.utils.TimerWheelScheduler;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static com.yohann.ocihelper.config.VirtualThreadConfig.VIRTUAL_EXECUTOR;
+import static com.yohann.ocihelper.service.impl.OciServiceImpl.TASK_MAP;
+
+/**
+ * <p>
+ * FleetInventoryServiceImpl
+ * </p >
+ * Background snapshot of instances, VNICs, boot volumes and public IPs for every config and every
+ * subscribed region. A region is refreshed with compartment-wide list calls (instances, VNIC and boot
+ * volume attachments, boot volumes per AD, primary private IPs per subnet, assigned public IPs) that
+ * are joined in memory; only VNICs not seen before are fetched one by one, and VNICs missing from the
+ * private IP scan are fetched once per full refresh. Snapshots are refreshed
+ * every few minutes with bounded concurrency, on demand when a page asks for it, and shortly after
+ * an operation changed the instances of a config.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+@Slf4j
+@Service
+public class FleetInventoryServiceImpl implements IFleetInventoryService {
+
+    private static final long REFRESH_INTERVAL_MINUTES = 5;
+    private static final long REGION_TTL = TimeUnit.HOURS.toMillis(6);
+    private static final long INVALIDATE_DELAY_SECONDS = 10;
+    private static final int MAX_CONCURRENT_REFRESH = 8;
+    /** 查询时已不存在的 VNIC */
+    private static final Vnic MISSING = Vnic.builder().build();
+
+    @Resource
+    @Lazy
+    private ISysService sysService;
+    @Resource
+    private IOciUserService userService;
+
+    private record Key(String cfgId, String region) {
+    }
+
+    private record Regions(List<String> names, long loadedAt) {
+    }
+
+    private final Map<Key, FleetInventoryDTO> snapshots = new ConcurrentHashMap<>();
+    private final Map<Key, CompletableFuture<FleetInventoryDTO>> inFlight = new ConcurrentHashMap<>();
+    private final Map<Key, String> lastErrors = new ConcurrentHashMap<>();
+    private final Map<String, Regions> regions = new ConcurrentHashMap<>();
+    /** VNIC 名称、是否主网卡、IPv6 等几乎不变，只对新出现的 VNIC 单独查询一次 */
+    private final Map<String, Vnic> vnicMeta = new ConcurrentHashMap<>();
+    /** 私有 IP 扫描里没有的 VNIC（子网不在区间内或已删除），查询结果整条缓存到下一轮全量刷新 */
+    private final Map<String, Vnic> looseVnics = new ConcurrentHashMap<>();
+    private final Semaphore backgroundPermits = new Semaphore(MAX_CONCURRENT_REFRESH);
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong vnicLookups = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        TimerWheelScheduler.INSTANCE.scheduleWithFixedDelay(TimerWheelScheduler.TaskType.SYSTEM, "fleet-inventory",
+                this::refreshAll, 1, REFRESH_INTERVAL_MINUTES, TimeUnit.MINUTES, 0);
+    }
+
+    @Override
+    public FleetInventoryDTO get(String cfgId, String region, boolean forceRefresh) {
+        Key key = new Key(cfgId, region);
+        FleetInventoryDTO snapshot = snapshots.get(key);
+        if (snapshot != null && !forceRefresh) {
+            // 后台定时刷新落后时（例如上次刷新失败），先返回旧快照，同时在后台补刷一次
+            if (snapshot.getRefreshedAt() < System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(REFRESH_INTERVAL_MINUTES * 2)) {
+                refreshAsync(key, true);
+            }
+            return snapshot;
+        }
+        try {
+            return refreshAsync(key, false).join();
+        } catch (CompletionException e) {
+            if (snapshot != null) {
+                log.warn("【资源快照】配置:[{}],区域:[{}] 刷新失败，返回旧快照：{}", cfgId, region, e.getCause().getLocalizedMessage());
+                return snapshot;
+            }
+            throw new OciException(-1, "获取实例信息失败");
+        }
+    }
+
+    @Override
+    public List<String> listRegions(String cfgId) {
+        Regions cached = regions.get(cfgId);
+        if (cached != null && cached.loadedAt() > System.currentTimeMillis() - REGION_TTL) {
+            return cached.names();
+        }
+        try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysService.getOciUser(cfgId))) {
+            List<String> names = Optional.ofNullable(fetcher.listRegionSubscriptions()).orElseGet(Collections::emptyList).stream()
+                    .map(RegionSubscription::getRegionName)
+                    .collect(Collectors.toList());
+            regions.put(cfgId, new Regions(names, System.currentTimeMillis()));
+            return names;
+        } catch (Exception e) {
+            if (cached != null) {
+                return cached.names();
+            }
+            throw new OciException(-1, "获取订阅区域失败：" + e.getLocalizedMessage());
+        }
+    }
+
+    @Override
+    public List<OciCfgDetailsRsp.InstanceInfo> listInstanceInfos(String cfgId, boolean forceRefresh) {
+        return get(cfgId, homeRegion(cfgId), forceRefresh).getInstances().stream()
+                .map(this::toInstanceInfo)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public long snapshotAgeMillis(String cfgId) {
+        FleetInventoryDTO snapshot = snapshots.get(new Key(cfgId, homeRegion(cfgId)));
+        return snapshot == null ? -1 : System.currentTimeMillis() - snapshot.getRefreshedAt();
+    }
+
+    @Override
+    public List<SysUserDTO.CloudInstance> listCloudInstances(String cfgId) {
+        return get(cfgId, homeRegion(cfgId), false).getInstances().stream()
+                .map(x -> SysUserDTO.CloudInstance.builder()
+                        .region(x.getInstance().getRegion())
+                        .name(x.getInstance().getDisplayName())
+                        .ocId(x.getInstance().getId())
+                        .shape(x.getInstance().getShape())
+                        .publicIp(x.getVnics().stream().map(Vnic::getPublicIp).collect(Collectors.toList()))
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void invalidate(String cfgId) {
+        TimerWheelScheduler.INSTANCE.schedule(TimerWheelScheduler.TaskType.SYSTEM, "fleet-inventory-" + cfgId, () ->
+                snapshots.keySet().stream()
+                        .filter(x -> x.cfgId().equals(cfgId))
+                        .toList()
+                        .forEach(x -> refreshAsync(x, false)), INVALIDATE_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("snapshots", snapshots.size());
+        stats.put("instances", snapshots.values().stream().mapToInt(x -> x.getInstances().size()).sum());
+        stats.put("inFlight", inFlight.size());
+        stats.put("refreshes", refreshes.get());
+        stats.put("failures", failures.get());
+        stats.put("vnicLookups", vnicLookups.get());
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> items = new ArrayList<>();
+        snapshots.forEach((key, snapshot) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("cfgId", key.cfgId());
+            item.put("region", key.region());
+            item.put("instances", snapshot.getInstances().size());
+            item.put("ageSeconds", TimeUnit.MILLISECONDS.toSeconds(now - snapshot.getRefreshedAt()));
+            item.put("costMillis", snapshot.getCostMillis());
+            item.put("lastError", lastErrors.get(key));
+            items.add(item);
+        });
+        stats.put("items", items);
+        return stats;
+    }
+
+    private void refreshAll() {
+        List<String> cfgIds = userService.listObjs(new LambdaQueryWrapper<OciUser>().select(OciUser::getId), String::valueOf);
+        Set<String> alive = new HashSet<>(cfgIds);
+        snapshots.keySet().removeIf(x -> !alive.contains(x.cfgId()));
+        lastErrors.keySet().removeIf(x -> !alive.contains(x.cfgId()));
+        regions.keySet().removeIf(x -> !alive.contains(x));
+        looseVnics.clear();
+
+        // 最近刚被按需刷新过的跳过
+        long freshAfter = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(REFRESH_INTERVAL_MINUTES) / 2;
+        List<CompletableFuture<FleetInventoryDTO>> futures = new ArrayList<>();
+        for (String cfgId : cfgIds) {
+            List<String> names;
+            try {
+                names = listRegions(cfgId);
+            } catch (Exception e) {
+                log.warn("【资源快照】配置:[{}] 获取订阅区域失败，跳过：{}", cfgId, e.getLocalizedMessage());
+                continue;
+            }
+            // 已退订区域的快照不再刷新，直接清掉
+            Set<String> subscribed = new HashSet<>(names);
+            snapshots.keySet().removeIf(x -> x.cfgId().equals(cfgId) && !subscribed.contains(x.region()));
+            lastErrors.keySet().removeIf(x -> x.cfgId().equals(cfgId) && !subscribed.contains(x.region()));
+            for (String region : names) {
+                Key key = new Key(cfgId, region);
+                FleetInventoryDTO snapshot = snapshots.get(key);
+                if (snapshot == null || snapshot.getRefreshedAt() < freshAfter) {
+                    futures.add(refreshAsync(key, true));
+                }
+            }
+        }
+        futures.forEach(x -> x.exceptionally(e -> null).join());
+
+        Set<String> liveVnics = snapshots.values().stream()
+                .flatMap(x -> x.getInstances().stream())
+                .flatMap(x -> x.getVnics().stream())
+                .map(Vnic::getId)
+                .collect(Collectors.toSet());
+        vnicMeta.keySet().retainAll(liveVnics);
+    }
+
+    /**
+     * Refresh one (config, region); concurrent callers share the same in-flight refresh.
+     */
+    private CompletableFuture<FleetInventoryDTO> refreshAsync(Key key, boolean background) {
+        CompletableFuture<FleetInventoryDTO> future = new CompletableFuture<>();
+        CompletableFuture<FleetInventoryDTO> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            return running;
+        }
+        VIRTUAL_EXECUTOR.execute(() -> {
+            if (background) {
+                backgroundPermits.acquireUninterruptibly();
+            }
+            try {
+                FleetInventoryDTO snapshot = refresh(key);
+                inFlight.remove(key, future);
+                future.complete(snapshot);
+            } catch (Throwable e) {
+                inFlight.remove(key, future);
+                future.completeExceptionally(e);
+            } finally {
+                if (background) {
+                    backgroundPermits.release();
+                }
+            }
+        });
+        return future;
+    }
+
+    private FleetInventoryDTO refresh(Key key) {
+        long start = System.currentTimeMillis();
+        SysUserDTO user = sysService.getOciUser(key.cfgId(), key.region(), null);
+        try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(user)) {
+            List<Instance> instances = fetcher.listAllInstances();
+            List<FleetInventoryDTO.InstanceItem> items = instances.isEmpty() ? Collections.emptyList() : join(fetcher, instances);
+            FleetInventoryDTO snapshot = FleetInventoryDTO.builder()
+                    .cfgId(key.cfgId())
+                    .region(key.region())
+                    .refreshedAt(System.currentTimeMillis())
+                    .costMillis(System.currentTimeMillis() - start)
+                    .instances(items)
+                    .build();
+            snapshots.put(key, snapshot);
+            lastErrors.remove(key);
+            refreshes.incrementAndGet();
+            return snapshot;
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            lastErrors.put(key, String.valueOf(e.getLocalizedMessage()));
+            log.warn("【资源快照】用户:[{}],区域:[{}] 刷新失败：{}", user.getUsername(), key.region(), e.getLocalizedMessage());
+            throw e instanceof RuntimeException re ? re : new CompletionException(e);
+        }
+    }
+
+    private List<FleetInventoryDTO.InstanceItem> join(OracleInstanceFetcher fetcher, List<Instance> instances) {
+        List<String> ads = fetcher.getAvailabilityDomains().stream()
+                .map(AvailabilityDomain::getName)
+                .collect(Collectors.toList());
+
+        BootVolumeIndex bootVolumes = fetcher.loadBootVolumeIndex(ads);
+
+        Map<String, PrivateIp> privateIps = fetcher.listAllPrimaryPrivateIps();
+        Map<String, String> publicIps = fetcher.listAllAssignedPublicIps(ads);
+        Map<String, List<Vnic>> vnicsByInstance = new HashMap<>();
+        fetcher.listAllVnicAttachments().stream()
+                .filter(x -> x.getVnicId() != null)
+                .sorted(Comparator.comparing(x -> Optional.ofNullable(x.getNicIndex()).orElse(0)))
+                .forEach(x -> {
+                    Vnic vnic = vnic(fetcher, x.getVnicId(), privateIps, publicIps);
+                    if (vnic != null) {
+                        vnicsByInstance.computeIfAbsent(x.getInstanceId(), k -> new ArrayList<>()).add(vnic);
+                    }
+                });
+
+        return instances.stream()
+                .map(x -> FleetInventoryDTO.InstanceItem.builder()
+                        .instance(x)
+                        .vnics(vnicsByInstance.getOrDefault(x.getId(), Collections.emptyList()))
+                        .bootVolume(bootVolumes.getByInstanceId(x.getId()))
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return VNIC 已不存在时返回 null
+     */
+    private Vnic vnic(OracleInstanceFetcher fetcher, String vnicId, Map<String, PrivateIp> privateIps, Map<String, String> publicIps) {
+        PrivateIp privateIp = privateIps.get(vnicId);
+        if (privateIp == null) {
+            // 子网不在当前区间内或 VNIC 已删除，每轮全量刷新只单独查询一次
+            Vnic vnic = looseVnics.get(vnicId);
+            if (vnic == null) {
+                vnic = lookup(fetcher, vnicId);
+                looseVnics.put(vnicId, vnic);
+            }
+            return vnic == MISSING ? null : vnic;
+        }
+        Vnic meta = vnicMeta.get(vnicId);
+        if (meta == null) {
+            // 新出现的 VNIC，单独查询一次
+            Vnic vnic = lookup(fetcher, vnicId);
+            if (vnic == MISSING) {
+                return null;
+            }
+            vnicMeta.put(vnicId, vnic);
+            return vnic;
+        }
+        return Vnic.builder().copy(meta)
+                .privateIp(privateIp.getIpAddress())
+                .publicIp(publicIps.get(privateIp.getId()))
+                .build();
+    }
+
+    private Vnic lookup(OracleInstanceFetcher fetcher, String vnicId) {
+        vnicLookups.incrementAndGet();
+        try {
+            return fetcher.getVnicById(vnicId);
+        } catch (BmcException e) {
+            if (e.getStatusCode() == 404) {
+                return MISSING;
+            }
+            throw e;
+        }
+    }
+
+    private OciCfgDetailsRsp.InstanceInfo toInstanceInfo(FleetInventoryDTO.InstanceItem item) {
+        Instance instance = item.getInstance();
+        // 从实例自由标签中读取 root 密码（开机时写入，方便未配置通知的用户找回密码）
+        Map<String, String> freeformTags = instance.getFreeformTags();
+        String rootPassword = (freeformTags != null) ? freeformTags.get(OciInstanceConstant.TAG_ROOT_PASSWORD) : null;
+
+        return OciCfgDetailsRsp.InstanceInfo.builder()
+                .ocId(instance.getId())
+                .region(instance.getRegion())
+                .name(instance.getDisplayName())
+                .shape(instance.getShape())
+                .publicIp(item.getVnics().stream()
+                        .map(Vnic::getPublicIp)
+                        .collect(Collectors.toList()))
+                .enableChangeIp(TASK_MAP.get(CommonUtils.CREATE_TASK_PREFIX + instance.getId()) != null ? 1 : 0)
+                .ocpus(String.valueOf(instance.getShapeConfig().getOcpus()))
+                .memory(String.valueOf(instance.getShapeConfig().getMemoryInGBs()))
+                .bootVolumeSize(item.getBootVolume() == null ? null : item.getBootVolume().getSizeInGBs() + "")
+                .createTime(CommonUtils.dateFmt2String(instance.getTimeCreated()))
+                .state(instance.getLifecycleState().getValue())
+                .availabilityDomain(instance.getAvailabilityDomain())
+                .vnicList(item.getVnics().isEmpty() ? null : item.getVnics().stream()
+                        .map(x -> new OciCfgDetailsRsp.InstanceVnicInfo(x.getId(), x.getDisplayName() + "（" + x.getPublicIp() + "）"))
+                        .collect(Collectors.toList()))
+                .rootPassword(rootPassword)
+                .build();
+    }
+
+    private String homeRegion(String cfgId) {
+        OciUser ociUser = userService.getById(cfgId);
+        if (ociUser == null) {
+            throw new OciException(-1, "配置不存在");
+        }
+        return ociUser.getOciRegion();
+    }
+}
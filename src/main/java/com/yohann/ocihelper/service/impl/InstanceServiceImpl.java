@@ -5,7 +5,6 @@ import cn.hutool.core.date.DatePattern;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.http.HttpRequest;
 import cn.hutool.http.HttpResponse;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.oracle.bmc.core.ComputeClient;
 import com.oracle.bmc.core.VirtualNetworkClient;
 import com.oracle.bmc.core.model.*;
@@ -18,26 +17,24 @@ import com.oracle.bmc.networkloadbalancer.requests.DeleteNetworkLoadBalancerRequ
 import com.oracle.bmc.networkloadbalancer.requests.GetNetworkLoadBalancerRequest;
 import com.oracle.bmc.networkloadbalancer.requests.ListNetworkLoadBalancersRequest;
 import com.oracle.bmc.ospgateway.model.Subscription;
-import com.yohann.ocihelper.bean.Tuple2;
-import com.yohann.ocihelper.bean.constant.CacheConstant;
 import com.yohann.ocihelper.bean.dto.CreateInstanceDTO;
 import com.yohann.ocihelper.bean.dto.InstanceCfgDTO;
 import com.yohann.ocihelper.bean.dto.InstanceDetailDTO;
 import com.yohann.ocihelper.bean.dto.SysUserDTO;
 import com.yohann.ocihelper.bean.entity.OciCreateTask;
-import com.yohann.ocihelper.bean.entity.OciKv;
 import com.yohann.ocihelper.bean.entity.OciUser;
 import com.yohann.ocihelper.bean.params.oci.instance.Close500MParams;
 import com.yohann.ocihelper.bean.params.oci.instance.CreateNetworkLoadBalancerParams;
 import com.yohann.ocihelper.bean.params.oci.instance.UpdateShapeParams;
 import com.yohann.ocihelper.config.OracleInstanceFetcher;
+import com.yohann.ocihelper.config.oci.CreateRateGovernor;
 import com.yohann.ocihelper.enums.ArchitectureEnum;
 import com.yohann.ocihelper.enums.OciRegionsEnum;
 import com.yohann.ocihelper.enums.SysCfgEnum;
 import com.yohann.ocihelper.exception.OciException;
 import com.yohann.ocihelper.service.*;
 import com.yohann.ocihelper.utils.CommonUtils;
-import com.yohann.ocihelper.utils.CustomExpiryGuavaCache;
+import com.yohann.ocihelper.utils.TaskStateStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -50,10 +47,8 @@ import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
 
 import static com.oracle.bmc.core.model.RouteTable.LifecycleState.Available;
-import static com.yohann.ocihelper.service.impl.OciServiceImpl.TEMP_MAP;
 
 /**
  * <p>
@@ -78,7 +73,7 @@ public class InstanceServiceImpl implements IInstanceService {
     @Resource
     private ExecutorService virtualExecutor;
     @Resource
-    private CustomExpiryGuavaCache<String, Object> customCache;
+    private IFleetInventoryService fleetInventoryService;
 
     @Value("${oci-cfg.boot-broadcast-url}")
     private String bootBroadcastUrl;
@@ -112,43 +107,45 @@ public class InstanceServiceImpl implements IInstanceService {
                     "账户类型：%s";
 
     @Override
-    public List<SysUserDTO.CloudInstance> listRunningInstances(SysUserDTO sysUserDTO) {
-        try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
-            return fetcher.listInstances().parallelStream()
-                    .map(x -> SysUserDTO.CloudInstance.builder()
-                            .region(x.getRegion())
-                            .name(x.getDisplayName())
-                            .ocId(x.getId())
-                            .shape(x.getShape())
-                            .publicIp(fetcher.listInstanceIPs(x.getId()).stream().map(Vnic::getPublicIp).collect(Collectors.toList()))
-                            .build())
-                    .collect(Collectors.toList());
-        } catch (Exception e) {
-            throw new OciException(-1, "获取实例信息失败");
-        }
-
+    public List<SysUserDTO.CloudInstance> listRunningInstances(String ociCfgId) {
+        return fleetInventoryService.listCloudInstances(ociCfgId);
     }
 
     @Override
     public CreateInstanceDTO createInstance(OracleInstanceFetcher fetcher) {
         SysUserDTO sysUserDTO = fetcher.getUser();
-        Long currentCount = (Long) TEMP_MAP.compute(
-                CommonUtils.CREATE_COUNTS_PREFIX + fetcher.getUser().getTaskId(),
-                (key, value) -> value == null ? 1L : Long.parseLong(String.valueOf(value)) + 1
-        );
+        Long currentCount = TaskStateStore.incrementAttempts(TaskStateStore.Kind.CREATE, fetcher.getUser().getTaskId());
         log.info("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],开机数量:[{}],开始执行第 [{}] 次创建实例操作...",
                 fetcher.getUser().getUsername(), fetcher.getUser().getOciCfg().getRegion(),
                 fetcher.getUser().getArchitecture(), fetcher.getUser().getCreateNumbers(), currentCount);
 
-        OciKv bootBroadcastTokenCfg = kvService.getOne(new LambdaQueryWrapper<OciKv>()
-                .eq(OciKv::getCode, SysCfgEnum.BOOT_BROADCAST_TOKEN.getCode()));
+        String bootBroadcastToken = kvService.getCfgValue(SysCfgEnum.BOOT_BROADCAST_TOKEN);
         OciCreateTask createTask = createTaskService.getById(fetcher.getUser().getTaskId());
         List<InstanceDetailDTO> instanceList = new ArrayList<>();
         // 收集本轮所有成功实例;频道广播在循环后发送一次
         List<InstanceDetailDTO> successList = new ArrayList<>();
 
+        // 竞速模式一次性并发向多个可用域下单，结果再按串行模式相同的流程逐个处理
+        Integer raceConcurrency = fetcher.getUser().getRaceConcurrency();
+        boolean race = raceConcurrency != null && raceConcurrency > 1;
+        Deque<InstanceDetailDTO> raceResults = race
+                ? new ArrayDeque<>(fetcher.raceInstanceData(fetcher.getUser().getCreateNumbers(), raceConcurrency))
+                : null;
+
         for (int i = 0; i < fetcher.getUser().getCreateNumbers(); i++) {
-            InstanceDetailDTO instanceDetail = fetcher.createInstanceData();
+            if (race && raceResults.isEmpty()) {
+                break;
+            }
+            InstanceDetailDTO instanceDetail = race ? raceResults.poll() : fetcher.createInstanceData();
+            // 将本次结果反馈给同租户同区域共享的开机限速器
+            String tenantId = fetcher.getUser().getOciCfg().getTenantId();
+            String region = fetcher.getUser().getOciCfg().getRegion();
+            // 只有 429 说明请求过快；容量不足等其他结果与速率无关，安静窗口过后照常提速
+            if (instanceDetail.isTooManyReq()) {
+                CreateRateGovernor.onThrottled(tenantId, region);
+            } else {
+                CreateRateGovernor.onAccepted(tenantId, region);
+            }
             if (instanceDetail.isTooManyReq()) {
                 log.info("【开机任务】用户:[{}],区域:[{}],系统架构:[{}],开机数量:[{}],执行第 [{}] 次创建实例操作时创建第 [{}] 台时请求频繁,本次任务暂停",
                         fetcher.getUser().getUsername(), fetcher.getUser().getOciCfg().getRegion(),
@@ -186,7 +183,7 @@ public class InstanceServiceImpl implements IInstanceService {
                         try (HttpResponse response = HttpRequest.get(bootBroadcastUrl)
                                 .form("region", OciRegionsEnum.getKeyById(instanceDetail.getRegion()))
                                 .form("arch", arch)
-                                .form("token", bootBroadcastTokenCfg == null ? null : bootBroadcastTokenCfg.getValue())
+                                .form("token", bootBroadcastToken)
                                 .timeout(20_000)
                                 .execute()) {
                             int status = response.getStatus();
@@ -204,6 +201,10 @@ public class InstanceServiceImpl implements IInstanceService {
             }
         }
 
+        if (!successList.isEmpty() && createTask != null) {
+            fleetInventoryService.invalidate(createTask.getUserId());
+        }
+
         // TG通道广播：每执行轮仅发送一次，所有成功实例
         if (!successList.isEmpty() && isCanBroadcast(successList.get(0), currentCount)) {
             virtualExecutor.execute(() -> {
@@ -269,34 +270,21 @@ public class InstanceServiceImpl implements IInstanceService {
     }
 
     @Override
-    public Tuple2<String, Instance> changeInstancePublicIp(String instanceId,
-                                                           String vnicId,
-                                                           SysUserDTO sysUserDTO,
-                                                           List<String> cidrList) {
-        String publicIp = null;
-        String instanceName = null;
-        Instance instance = null;
-        Tuple2<String, Instance> tuple2;
+    public String changeVnicPublicIp(SysUserDTO sysUserDTO, String vnicId, String instanceName) {
         try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
-            instance = fetcher.getInstanceById(instanceId);
-            instanceName = instance.getDisplayName();
-            publicIp = fetcher.reassignEphemeralPublicIp(fetcher.getVirtualNetworkClient().getVnic(GetVnicRequest.builder()
+            return fetcher.reassignEphemeralPublicIp(fetcher.getVirtualNetworkClient().getVnic(GetVnicRequest.builder()
                     .vnicId(vnicId)
                     .build()).getVnic());
-            tuple2 = Tuple2.of(publicIp, instance);
-            return tuple2;
         } catch (BmcException ociException) {
             log.error("【更换公共IP】用户:[{}],区域:[{}],实例:[{}],更换公共IP失败,原因:{}",
                     sysUserDTO.getUsername(), sysUserDTO.getOciCfg().getRegion(), instanceName,
                     ociException.getLocalizedMessage());
-            tuple2 = Tuple2.of(publicIp, instance);
         } catch (Exception e) {
             log.error("【更换公共IP】用户:[{}],区域:[{}],实例:[{}],执行更换IP任务异常:{}",
                     sysUserDTO.getUsername(), sysUserDTO.getOciCfg().getRegion(), instanceName,
                     e.getLocalizedMessage());
-            tuple2 = Tuple2.of(publicIp, instance);
         }
-        return tuple2;
+        return null;
     }
 
     @Override
@@ -657,7 +645,7 @@ public class InstanceServiceImpl implements IInstanceService {
                 log.info("【一键开启下行500Mbps任务】实例vnic绑定路由表成功,实例:【{}】已成功开启下行500Mbps🎉,公网IP:{}", instance.getDisplayName(), publicIp);
                 sysService.sendMessage(String.format("【一键开启下行500Mbps任务】用户:[%s],区域:[%s],实例:[%s] 已成功开启下行500Mbps🎉,公网IP:%s",
                         sysUserDTO.getUsername(), sysUserDTO.getOciCfg().getRegion(), instance.getDisplayName(), publicIp));
-                customCache.remove(CacheConstant.PREFIX_NETWORK_LOAD_BALANCER + params.getOciCfgId());
+                OciServiceImpl.NLB_CACHE.invalidate(params.getOciCfgId());
             } catch (Exception e) {
                 log.error("【一键开启下行500Mbps任务】用户:[{}],区域:[{}],实例:[{}] 开启下行500Mbps失败❌",
                         sysUserDTO.getUsername(), sysUserDTO.getOciCfg().getRegion(), instanceName, e);
@@ -104,7 +104,7 @@ public class IpDataServiceImpl extends ServiceImpl<IpDataMapper, IpData> impleme
                         log.warn("oci配置：[{}]，区域：[{}] 已失效，跳过本次IP数据同步", ociUser.getUsername(), ociUser.getOciCfg().getRegion());
                         continue;
                     }
-                    List<SysUserDTO.CloudInstance> cloudInstances = instanceService.listRunningInstances(ociUser);
+                    List<SysUserDTO.CloudInstance> cloudInstances = instanceService.listRunningInstances(x);
                     if (CollectionUtil.isEmpty(cloudInstances)) {
                         continue;
                     }
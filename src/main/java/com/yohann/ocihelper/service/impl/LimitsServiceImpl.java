@@ -13,19 +13,23 @@ import com.yohann.ocihelper.config.OracleInstanceFetcher;
 import com.yohann.ocihelper.exception.OciException;
 import com.yohann.ocihelper.service.ILimitsService;
 import com.yohann.ocihelper.service.ISysService;
+import com.yohann.ocihelper.utils.OciFanOut;
+import com.yohann.ocihelper.utils.TypedCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.Resource;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * Implementation of {@link ILimitsService} that queries OCI service limits
- * using the OCI Limits SDK.
+ * using the OCI Limits SDK. Definitions are cached, limit values are listed once
+ * per service, and availability is fetched concurrently with a bounded fan-out.
  *
  * @author Yohann
  */
@@ -33,65 +37,79 @@ import java.util.stream.Collectors;
 @Slf4j
 public class LimitsServiceImpl implements ILimitsService {
 
+    /** Limit definitions rarely change, so they are kept per config, region and service filter */
+    private static final TypedCache<String, List<LimitDefinitionSummary>> DEFINITION_CACHE =
+            TypedCache.create("limit_definitions", 6, TimeUnit.HOURS, 100000, List::size);
+    /** Finished quota matrices, weighed by row count */
+    private static final TypedCache<String, GetLimitsRsp> LIMITS_CACHE =
+            TypedCache.create("limits", 5, TimeUnit.MINUTES, 100000, rsp -> rsp.getItems().size());
+    /** Whole query budget, kept below the 120 s async request timeout */
+    private static final long QUERY_TIMEOUT_SECONDS = 100;
+
     @Resource
     private ISysService sysService;
 
     @Override
     public GetLimitsRsp getLimits(GetLimitsParams params) {
+        return streamLimits(params, batch -> {
+        });
+    }
+
+    @Override
+    public GetLimitsRsp streamLimits(GetLimitsParams params, Consumer<List<LimitItemRsp>> onBatch) {
+        String key = cacheKey(params);
+        AtomicBoolean streamed = new AtomicBoolean();
+        Supplier<GetLimitsRsp> loader = () -> {
+            streamed.set(true);
+            return query(params, onBatch);
+        };
+        // Concurrent queries for the same key share one load; only the loading caller gets partial batches
+        TypedCache.Snapshot<GetLimitsRsp> snapshot = params.isCleanReLaunch()
+                ? LIMITS_CACHE.refresh(key, loader)
+                : LIMITS_CACHE.getSnapshot(key, loader);
+        List<LimitItemRsp> items = snapshot.value().getItems();
+        if (!streamed.get() && !items.isEmpty()) {
+            onBatch.accept(items);
+        }
+
+        GetLimitsRsp rsp = new GetLimitsRsp();
+        rsp.setTotal(items.size());
+        rsp.setItems(items);
+        rsp.setAgeSeconds(TimeUnit.MILLISECONDS.toSeconds(snapshot.ageMillis()));
+        return rsp;
+    }
+
+    private GetLimitsRsp query(GetLimitsParams params, Consumer<List<LimitItemRsp>> onBatch) {
         SysUserDTO sysUserDTO = sysService.getOciUser(params.getOciCfgId(), params.getRegion(), null);
+        String tenant = sysUserDTO.getOciCfg().getTenantId();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(QUERY_TIMEOUT_SECONDS);
         try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
-            List<LimitDefinitionSummary> definitions =
-                    fetcher.listLimitDefinitions(params.getServiceName());
-
-            List<LimitItemRsp> items = new ArrayList<>();
-            for (LimitDefinitionSummary def : definitions) {
-                String svcName = def.getServiceName();
-                String limitName = def.getName();
-                String scopeType = Optional.ofNullable(def.getScopeType())
-                        .map(LimitDefinitionSummary.ScopeType::getValue)
-                        .orElse("REGION");
-
-                // Fetch current values (may return multiple rows for AD-scoped limits)
-                List<LimitValueSummary> values;
-                try {
-                    values = fetcher.listLimitValues(svcName, limitName);
-                } catch (Exception e) {
-                    log.warn("Failed to get limit values for [{}/{}]: {}", svcName, limitName, e.getMessage());
-                    values = Collections.emptyList();
-                }
-
-                if (CollectionUtil.isEmpty(values)) {
-                    // No value data — still add a placeholder row
-                    LimitItemRsp item = new LimitItemRsp();
-                    item.setServiceName(svcName);
-                    item.setLimitName(limitName);
-                    item.setDescription(def.getDescription());
-                    item.setScopeType(scopeType);
-                    items.add(item);
-                } else {
-                    for (LimitValueSummary val : values) {
-                        LimitItemRsp item = new LimitItemRsp();
-                        item.setServiceName(svcName);
-                        item.setLimitName(limitName);
-                        item.setDescription(def.getDescription());
-                        item.setScopeType(scopeType);
-                        item.setAvailabilityDomain(val.getAvailabilityDomain());
-                        item.setServiceLimit(val.getValue());
-
-                        // Try to get availability (used / available)
-                        try {
-                            ResourceAvailability avail = fetcher.getResourceAvailability(
-                                    svcName, limitName, val.getAvailabilityDomain());
-                            item.setUsed(avail.getUsed());
-                            item.setAvailable(avail.getAvailable());
-                        } catch (Exception e) {
-                            log.debug("Cannot get availability for [{}/{}]: {}", svcName, limitName, e.getMessage());
-                        }
-                        items.add(item);
-                    }
-                }
+            List<LimitDefinitionSummary> definitions = DEFINITION_CACHE.getOrLoad(cacheKey(params),
+                    () -> fetcher.listLimitDefinitions(params.getServiceName()));
+
+            // One paged call per service returns the values of all its limits, instead of one call per limit
+            List<String> services = definitions.stream()
+                    .map(LimitDefinitionSummary::getServiceName)
+                    .distinct()
+                    .collect(Collectors.toList());
+            List<Map<String, List<LimitValueSummary>>> serviceValues = OciFanOut.map(tenant, "listLimitValues", services,
+                    svcName -> listValues(fetcher, svcName), deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            Map<String, Map<String, List<LimitValueSummary>>> valuesByService = new HashMap<>();
+            for (int i = 0; i < services.size(); i++) {
+                valuesByService.put(services.get(i), serviceValues.get(i));
             }
 
+            // Availability lookups run concurrently under the per-tenant limit; the rows of a definition
+            // are handed out as soon as they are complete
+            List<List<LimitItemRsp>> rows = OciFanOut.map(tenant, "getResourceAvailability", definitions, def -> {
+                List<LimitValueSummary> values = valuesByService.getOrDefault(def.getServiceName(), Collections.emptyMap())
+                        .getOrDefault(def.getName(), Collections.emptyList());
+                List<LimitItemRsp> defRows = buildRows(fetcher, def, values);
+                onBatch.accept(defRows);
+                return defRows;
+            }, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+
+            List<LimitItemRsp> items = rows.stream().flatMap(List::stream).collect(Collectors.toList());
             GetLimitsRsp rsp = new GetLimitsRsp();
             rsp.setTotal(items.size());
             rsp.setItems(items);
@@ -104,6 +122,67 @@ public class LimitsServiceImpl implements ILimitsService {
         }
     }
 
+    /**
+     * Current values of every limit of a service, grouped by limit name (AD-scoped limits have one row per AD).
+     */
+    private Map<String, List<LimitValueSummary>> listValues(OracleInstanceFetcher fetcher, String svcName) {
+        try {
+            return fetcher.listLimitValues(svcName, null).stream()
+                    .filter(val -> val.getName() != null)
+                    .collect(Collectors.groupingBy(LimitValueSummary::getName));
+        } catch (Exception e) {
+            log.warn("Failed to get limit values for [{}]: {}", svcName, e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    private List<LimitItemRsp> buildRows(OracleInstanceFetcher fetcher, LimitDefinitionSummary def,
+                                         List<LimitValueSummary> values) {
+        String svcName = def.getServiceName();
+        String limitName = def.getName();
+        String scopeType = Optional.ofNullable(def.getScopeType())
+                .map(LimitDefinitionSummary.ScopeType::getValue)
+                .orElse("REGION");
+
+        if (CollectionUtil.isEmpty(values)) {
+            // No value data — still add a placeholder row
+            LimitItemRsp item = new LimitItemRsp();
+            item.setServiceName(svcName);
+            item.setLimitName(limitName);
+            item.setDescription(def.getDescription());
+            item.setScopeType(scopeType);
+            return Collections.singletonList(item);
+        }
+
+        List<LimitItemRsp> items = new ArrayList<>(values.size());
+        for (LimitValueSummary val : values) {
+            LimitItemRsp item = new LimitItemRsp();
+            item.setServiceName(svcName);
+            item.setLimitName(limitName);
+            item.setDescription(def.getDescription());
+            item.setScopeType(scopeType);
+            item.setAvailabilityDomain(val.getAvailabilityDomain());
+            item.setServiceLimit(val.getValue());
+
+            // Try to get availability (used / available)
+            try {
+                ResourceAvailability avail = fetcher.getResourceAvailability(
+                        svcName, limitName, val.getAvailabilityDomain());
+                item.setUsed(avail.getUsed());
+                item.setAvailable(avail.getAvailable());
+            } catch (Exception e) {
+                log.debug("Cannot get availability for [{}/{}]: {}", svcName, limitName, e.getMessage());
+            }
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static String cacheKey(GetLimitsParams params) {
+        String serviceName = params.getServiceName() == null ? "" : params.getServiceName().trim();
+        return params.getOciCfgId() + "|" + params.getRegion() + "|" + serviceName;
+    }
+
     @Override
     public List<String> getServiceNames(String ociCfgId, String region) {
         SysUserDTO sysUserDTO = sysService.getOciUser(ociCfgId, region, null);
@@ -0,0 +1,255 @@
+package com.yohann.ocihelper.service.impl;
+
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.oracle.bmc.identity.requests.ListAvailabilityDomainsRequest;
+import com.yohann.ocihelper.bean.dto.CfgHealthDTO;
+import com.yohann.ocihelper.bean.dto.SysUserDTO;
+import com.yohann.ocihelper.bean.entity.OciCfgHealth;
+import com.yohann.ocihelper.bean.entity.OciUser;
+import com.yohann.ocihelper.config.OracleInstanceFetcher;
+import com.yohann.ocihelper.mapper.OciCfgHealthMapper;
+import com.yohann.ocihelper.service.ILivenessService;
+import com.yohann.ocihelper.service.IOciUserService;
+import com.yohann.ocihelper.service.ISysService;
+import com.yohann.ocihelper.utils.SQLiteWriteQueue;
+import com.yohann.ocihelper.utils.TimerWheelScheduler;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static com.yohann.ocihelper.config.VirtualThreadConfig.VIRTUAL_EXECUTOR;
+
+/**
+ * <p>
+ * LivenessServiceImpl
+ * </p >
+ * Health table of every oci config: alive or not, probe latency, last error and how long it has been
+ * failing. Configs are probed on virtual threads with at most {@code oci-cfg.liveness-concurrency}
+ * probes in flight, each probe being a single signed ListAvailabilityDomains call. The table is
+ * refreshed in the background; readers get the stored rows and only stale or missing configs are
+ * probed inline, unless a forced refresh is asked for. Concurrent probes of the same config are shared.
+ * Every row is also kept in oci_cfg_health (one row per config) through the write queue, so failure
+ * streaks and last-alive times survive a restart.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+@Slf4j
+@Service
+public class LivenessServiceImpl implements ILivenessService {
+
+    private static final long REFRESH_INTERVAL_MINUTES = 15;
+    /** 读取时结果超过该时长视为过期，需要重新测活 */
+    private static final long MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(20);
+    private static final int MAX_ERROR_LENGTH = 256;
+
+    @Resource
+    private IOciUserService userService;
+    @Resource
+    private OciCfgHealthMapper healthMapper;
+    @Resource
+    @Lazy
+    private ISysService sysService;
+    @Resource
+    private SQLiteWriteQueue writeQueue;
+
+    @Value("${oci-cfg.liveness-concurrency:16}")
+    private int concurrency;
+
+    private final Map<String, CfgHealthDTO> table = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<CfgHealthDTO>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong probes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile long lastRoundAt;
+    private volatile long lastRoundCostMillis;
+    private Semaphore permits;
+
+    @PostConstruct
+    public void start() {
+        permits = new Semaphore(Math.max(1, concurrency));
+        load();
+        // 后台刷新略早于过期时间，保证读取时基本不需要现测
+        long backgroundMaxAge = TimeUnit.MINUTES.toMillis(REFRESH_INTERVAL_MINUTES - 1);
+        TimerWheelScheduler.INSTANCE.scheduleWithFixedDelay(TimerWheelScheduler.TaskType.SYSTEM, "cfg-liveness",
+                () -> round(backgroundMaxAge), 2, REFRESH_INTERVAL_MINUTES, TimeUnit.MINUTES, TimeUnit.MINUTES.toMillis(1));
+    }
+
+    @Override
+    public List<CfgHealthDTO> check(boolean forceRefresh) {
+        return round(forceRefresh ? 0 : MAX_AGE_MILLIS);
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        List<CfgHealthDTO> rows = table.values().stream()
+                .sorted(Comparator.comparing(CfgHealthDTO::isAlive).thenComparing(CfgHealthDTO::getUsername, Comparator.nullsLast(String::compareTo)))
+                .collect(Collectors.toList());
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("concurrency", Math.max(1, concurrency));
+        stats.put("probing", Math.max(1, concurrency) - permits.availablePermits());
+        stats.put("total", rows.size());
+        stats.put("alive", rows.stream().filter(CfgHealthDTO::isAlive).count());
+        stats.put("inFlight", inFlight.size());
+        stats.put("probes", probes.get());
+        stats.put("failures", failures.get());
+        stats.put("lastRoundAt", lastRoundAt);
+        stats.put("lastRoundCostMillis", lastRoundCostMillis);
+        stats.put("items", rows);
+        return stats;
+    }
+
+    /**
+     * Probe every config whose row is older than {@code maxAgeMillis} and return the rows of all configs.
+     */
+    private List<CfgHealthDTO> round(long maxAgeMillis) {
+        long start = System.currentTimeMillis();
+        List<OciUser> users = userService.list();
+        Set<String> ids = users.stream().map(OciUser::getId).collect(Collectors.toSet());
+        if (table.keySet().retainAll(ids)) {
+            writeQueue.submit(() -> healthMapper.delete(new LambdaQueryWrapper<OciCfgHealth>()
+                    .notIn(!ids.isEmpty(), OciCfgHealth::getId, ids)));
+        }
+
+        Map<String, CompletableFuture<CfgHealthDTO>> futures = new HashMap<>();
+        for (OciUser user : users) {
+            CfgHealthDTO row = table.get(user.getId());
+            if (row == null || row.getCheckedAt() <= start - maxAgeMillis) {
+                futures.put(user.getId(), probeAsync(user));
+            }
+        }
+
+        List<CfgHealthDTO> rows = new ArrayList<>(users.size());
+        for (OciUser user : users) {
+            CompletableFuture<CfgHealthDTO> future = futures.get(user.getId());
+            CfgHealthDTO row = future == null ? table.get(user.getId()) : future.exceptionally(e -> table.get(user.getId())).join();
+            if (row != null) {
+                // 配置可能已改名
+                row.setUsername(user.getUsername());
+                rows.add(row);
+            }
+        }
+        if (!futures.isEmpty()) {
+            lastRoundAt = start;
+            lastRoundCostMillis = System.currentTimeMillis() - start;
+        }
+        return rows;
+    }
+
+    private CompletableFuture<CfgHealthDTO> probeAsync(OciUser user) {
+        CompletableFuture<CfgHealthDTO> future = new CompletableFuture<>();
+        CompletableFuture<CfgHealthDTO> running = inFlight.putIfAbsent(user.getId(), future);
+        if (running != null) {
+            return running;
+        }
+        VIRTUAL_EXECUTOR.execute(() -> {
+            try {
+                CfgHealthDTO row;
+                permits.acquireUninterruptibly();
+                try {
+                    row = probe(user);
+                } finally {
+                    permits.release();
+                }
+                table.put(user.getId(), row);
+                persist(row);
+                inFlight.remove(user.getId(), future);
+                future.complete(row);
+            } catch (Throwable e) {
+                inFlight.remove(user.getId(), future);
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 启动时从 oci_cfg_health 恢复测活表，用户名在下一轮测活时按当前配置补上
+     */
+    private void load() {
+        try {
+            healthMapper.selectList(null).forEach(health -> table.put(health.getId(), CfgHealthDTO.builder()
+                    .cfgId(health.getId())
+                    .alive(Integer.valueOf(1).equals(health.getAlive()))
+                    .latencyMillis(health.getLatencyMillis() == null ? 0 : health.getLatencyMillis())
+                    .lastError(health.getLastError())
+                    .checkedAt(health.getCheckedAt() == null ? 0 : health.getCheckedAt())
+                    .lastAliveAt(health.getLastAliveAt() == null ? 0 : health.getLastAliveAt())
+                    .consecutiveFailures(health.getConsecutiveFailures() == null ? 0 : health.getConsecutiveFailures())
+                    .build()));
+        } catch (Exception e) {
+            log.warn("【API测活】加载测活记录失败：{}", e.getLocalizedMessage());
+        }
+    }
+
+    private void persist(CfgHealthDTO row) {
+        OciCfgHealth health = OciCfgHealth.builder()
+                .id(row.getCfgId())
+                .alive(row.isAlive() ? 1 : 0)
+                .latencyMillis(row.getLatencyMillis())
+                .lastError(row.getLastError())
+                .checkedAt(row.getCheckedAt())
+                .lastAliveAt(row.getLastAliveAt())
+                .consecutiveFailures(row.getConsecutiveFailures())
+                .build();
+        writeQueue.submit(() -> healthMapper.upsertBatch(List.of(health)));
+    }
+
+    private CfgHealthDTO probe(OciUser user) {
+        CfgHealthDTO previous = table.get(user.getId());
+        SysUserDTO sysUserDTO = sysService.getOciUser(user.getId());
+
+        probes.incrementAndGet();
+        long start = System.currentTimeMillis();
+        String error = null;
+        try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
+            // 列出可用域是开销最小的签名请求，且任何用户都有权限
+            fetcher.getIdentityClient().listAvailabilityDomains(ListAvailabilityDomainsRequest.builder()
+                    .compartmentId(user.getOciTenantId())
+                    .build());
+        } catch (Exception e) {
+            error = StrUtil.maxLength(String.valueOf(e.getLocalizedMessage()), MAX_ERROR_LENGTH);
+        }
+        long now = System.currentTimeMillis();
+
+        if (error == null) {
+            if (previous != null && !previous.isAlive()) {
+                log.info("【API测活】配置：[{}] 已恢复", user.getUsername());
+            }
+            return CfgHealthDTO.builder()
+                    .cfgId(user.getId())
+                    .username(user.getUsername())
+                    .alive(true)
+                    .latencyMillis(now - start)
+                    .checkedAt(now)
+                    .lastAliveAt(now)
+                    .build();
+        }
+
+        failures.incrementAndGet();
+        if (previous == null || previous.isAlive()) {
+            log.warn("【API测活】配置：[{}] 测活失败：{}", user.getUsername(), error);
+        }
+        return CfgHealthDTO.builder()
+                .cfgId(user.getId())
+                .username(user.getUsername())
+                .alive(false)
+                .latencyMillis(now - start)
+                .lastError(error)
+                .checkedAt(now)
+                .lastAliveAt(previous == null ? 0 : previous.getLastAliveAt())
+                .consecutiveFailures(previous == null ? 1 : previous.getConsecutiveFailures() + 1)
+                .build();
+    }
+}
@@ -1,10 +1,20 @@
 package com.yohann.ocihelper.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.yohann.ocihelper.bean.entity.OciKv;
+import com.yohann.ocihelper.enums.SysCfgEnum;
 import com.yohann.ocihelper.mapper.OciKvMapper;
 import com.yohann.ocihelper.service.IOciKvService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 
 /**
@@ -12,11 +22,188 @@ import org.springframework.stereotype.Service;
 * @description 针对表【oci_kv】的数据库操作Service实现
 * @createDate 2024-11-12 16:44:39
 */
+@Slf4j
 @Service
 public class OciKvServiceImpl extends ServiceImpl<OciKvMapper, OciKv> implements IOciKvService {
 
-}
+    private static final Map<String, SysCfgEnum> CODE_MAP = Arrays.stream(SysCfgEnum.values())
+            .collect(Collectors.toMap(SysCfgEnum::getCode, Function.identity()));
+
+    /**
+     * 系统配置快照：读路径只读这个引用，写入后在事务提交时把改动的配置项应用到副本上再整体替换
+     */
+    private volatile Map<SysCfgEnum, String> cfgSnapshot;
+
+    @Override
+    public String getCfgValue(SysCfgEnum cfg) {
+        return getCfgSnapshot().get(cfg);
+    }
+
+    @Override
+    public Map<SysCfgEnum, String> getCfgSnapshot() {
+        Map<SysCfgEnum, String> snapshot = cfgSnapshot;
+        if (snapshot == null) {
+            synchronized (this) {
+                snapshot = cfgSnapshot;
+                if (snapshot == null) {
+                    refreshCfgSnapshot();
+                    snapshot = cfgSnapshot;
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * 整表重新加载，只用于恢复备份、导入数据这类绕过本类写入的场景
+     */
+    @Override
+    public synchronized void refreshCfgSnapshot() {
+        Map<SysCfgEnum, String> snapshot = new EnumMap<>(SysCfgEnum.class);
+        list().forEach(kv -> {
+            SysCfgEnum cfg = CODE_MAP.get(kv.getCode());
+            if (cfg != null && kv.getValue() != null) {
+                snapshot.putIfAbsent(cfg, kv.getValue());
+            }
+        });
+        cfgSnapshot = Collections.unmodifiableMap(snapshot);
+        log.debug("系统配置快照已刷新，共 [{}] 项", snapshot.size());
+    }
+
+    /**
+     * 写入后把改动的配置项应用到快照；处于事务中时等提交后再应用，回滚则保持原快照
+     *
+     * @param upserts  写入后的完整记录
+     * @param removals 被删除的记录
+     */
+    private <R> R afterWrite(R result, Collection<OciKv> upserts, Collection<OciKv> removals) {
+        if (upserts.isEmpty() && removals.isEmpty()) {
+            return result;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyToSnapshot(upserts, removals);
+                }
+            });
+        } else {
+            applyToSnapshot(upserts, removals);
+        }
+        return result;
+    }
+
+    private synchronized void applyToSnapshot(Collection<OciKv> upserts, Collection<OciKv> removals) {
+        Map<SysCfgEnum, String> current = cfgSnapshot;
+        if (current == null) {
+            // 快照尚未加载，首次读取时会整表加载
+            return;
+        }
+        Map<SysCfgEnum, String> next = new EnumMap<>(SysCfgEnum.class);
+        next.putAll(current);
+        boolean changed = false;
+        for (OciKv kv : removals) {
+            SysCfgEnum cfg = CODE_MAP.get(kv.getCode());
+            changed |= cfg != null && next.remove(cfg) != null;
+        }
+        for (OciKv kv : upserts) {
+            SysCfgEnum cfg = CODE_MAP.get(kv.getCode());
+            if (cfg == null) {
+                continue;
+            }
+            String old = kv.getValue() == null ? next.remove(cfg) : next.put(cfg, kv.getValue());
+            changed |= !Objects.equals(old, kv.getValue());
+        }
+        if (changed) {
+            cfgSnapshot = Collections.unmodifiableMap(next);
+            log.debug("系统配置快照已更新，共 [{}] 项", next.size());
+        }
+    }
+
+    /**
+     * 实体中缺少 code 或 value 的（按 ID 局部更新）回库读出完整记录
+     */
+    private List<OciKv> resolve(Collection<OciKv> entities) {
+        List<OciKv> rows = new ArrayList<>(entities.size());
+        List<Serializable> partial = new ArrayList<>();
+        for (OciKv kv : entities) {
+            if (kv.getCode() != null && kv.getValue() != null) {
+                rows.add(kv);
+            } else if (kv.getId() != null) {
+                partial.add(kv.getId());
+            }
+        }
+        if (!partial.isEmpty()) {
+            rows.addAll(listByIds(partial));
+        }
+        return rows;
+    }
 
+    @Override
+    public boolean save(OciKv entity) {
+        return afterWrite(super.save(entity), resolve(List.of(entity)), List.of());
+    }
 
+    @Override
+    public boolean saveBatch(Collection<OciKv> entityList, int batchSize) {
+        return afterWrite(super.saveBatch(entityList, batchSize), resolve(entityList), List.of());
+    }
 
+    @Override
+    public boolean saveOrUpdate(OciKv entity) {
+        return afterWrite(super.saveOrUpdate(entity), resolve(List.of(entity)), List.of());
+    }
 
+    @Override
+    public boolean saveOrUpdateBatch(Collection<OciKv> entityList, int batchSize) {
+        return afterWrite(super.saveOrUpdateBatch(entityList, batchSize), resolve(entityList), List.of());
+    }
+
+    @Override
+    public boolean updateById(OciKv entity) {
+        return afterWrite(super.updateById(entity), resolve(List.of(entity)), List.of());
+    }
+
+    @Override
+    public boolean update(Wrapper<OciKv> updateWrapper) {
+        return afterWrite(super.update(updateWrapper), list(updateWrapper), List.of());
+    }
+
+    @Override
+    public boolean update(OciKv entity, Wrapper<OciKv> updateWrapper) {
+        return afterWrite(super.update(entity, updateWrapper), list(updateWrapper), List.of());
+    }
+
+    @Override
+    public boolean updateBatchById(Collection<OciKv> entityList, int batchSize) {
+        return afterWrite(super.updateBatchById(entityList, batchSize), resolve(entityList), List.of());
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        List<OciKv> removed = Optional.ofNullable(getById(id)).map(List::of).orElseGet(List::of);
+        return afterWrite(super.removeById(id), List.of(), removed);
+    }
+
+    @Override
+    public boolean removeById(OciKv entity) {
+        List<OciKv> removed = entity.getCode() != null ? List.of(entity)
+                : Optional.ofNullable(getById(entity.getId())).map(List::of).orElseGet(List::of);
+        return afterWrite(super.removeById(entity), List.of(), removed);
+    }
+
+    @Override
+    public boolean removeByIds(Collection<?> list) {
+        List<Serializable> ids = list.stream()
+                .map(x -> x instanceof OciKv kv ? kv.getId() : (Serializable) x)
+                .collect(Collectors.toList());
+        List<OciKv> removed = ids.isEmpty() ? List.of() : listByIds(ids);
+        return afterWrite(super.removeByIds(list), List.of(), removed);
+    }
+
+    @Override
+    public boolean remove(Wrapper<OciKv> queryWrapper) {
+        List<OciKv> removed = list(queryWrapper);
+        return afterWrite(super.remove(queryWrapper), List.of(), removed);
+    }
+}
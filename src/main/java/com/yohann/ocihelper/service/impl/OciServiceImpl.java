@@ -4,8 +4,8 @@ import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.date.DatePattern;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.io.IoUtil;
-import cn.hutool.core.thread.ThreadFactoryBuilder;
 import cn.hutool.core.util.*;
+import cn.hutool.extra.spring.SpringUtil;
 import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
@@ -26,8 +26,7 @@ import com.oracle.bmc.networkloadbalancer.model.IpAddress;
 import com.oracle.bmc.networkloadbalancer.model.LifecycleState;
 import com.oracle.bmc.networkloadbalancer.model.NetworkLoadBalancerSummary;
 import com.oracle.bmc.networkloadbalancer.requests.ListNetworkLoadBalancersRequest;
-import com.yohann.ocihelper.bean.Tuple2;
-import com.yohann.ocihelper.bean.constant.CacheConstant;
+import com.yohann.ocihelper.bean.dto.CfgHealthDTO;
 import com.yohann.ocihelper.bean.dto.InstanceCfgDTO;
 import com.yohann.ocihelper.bean.dto.InstanceDetailDTO;
 import com.yohann.ocihelper.bean.dto.SysUserDTO;
@@ -49,13 +48,22 @@ import com.yohann.ocihelper.bean.response.oci.task.CreateTaskRsp;
 import com.yohann.ocihelper.bean.response.oci.cfg.OciCfgDetailsRsp;
 import com.yohann.ocihelper.bean.response.oci.cfg.OciUserListRsp;
 import com.yohann.ocihelper.config.OracleInstanceFetcher;
+import com.yohann.ocihelper.config.oci.CreateRateGovernor;
+import com.yohann.ocihelper.config.oci.OciClientPool;
 import com.yohann.ocihelper.enums.*;
 import com.yohann.ocihelper.exception.OciException;
 import com.yohann.ocihelper.mapper.OciCreateTaskMapper;
 import com.yohann.ocihelper.service.*;
+import com.yohann.ocihelper.utils.CidrTrie;
 import com.yohann.ocihelper.utils.CommonUtils;
 import com.yohann.ocihelper.utils.CustomExpiryGuavaCache;
+import com.yohann.ocihelper.utils.IpHuntStats;
 import com.yohann.ocihelper.utils.OciConsoleUtils;
+import com.yohann.ocihelper.utils.OciFanOut;
+import com.yohann.ocihelper.utils.SQLiteWriteQueue;
+import com.yohann.ocihelper.utils.TimerWheelScheduler;
+import com.yohann.ocihelper.utils.TimerWheelScheduler.TaskType;
+import com.yohann.ocihelper.utils.TypedCache;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.BeanUtils;
@@ -65,6 +73,7 @@ import org.springframework.stereotype.Service;
 import jakarta.annotation.Resource;
 
 import com.yohann.ocihelper.mapper.OciUserMapper;
+import com.yohann.ocihelper.utils.TaskStateStore;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.*;
@@ -76,7 +85,6 @@ import java.util.*;
 import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
-import static com.yohann.ocihelper.config.VirtualThreadConfig.VIRTUAL_EXECUTOR;
 
 /**
  * <p>
@@ -110,16 +118,28 @@ public class OciServiceImpl implements IOciService {
     private OciCreateTaskMapper createTaskMapper;
     @Resource
     private ExecutorService virtualExecutor;
+    @Resource
+    private IFleetInventoryService fleetInventoryService;
+    @Resource
+    private ILivenessService livenessService;
+    @Resource
+    private SQLiteWriteQueue writeQueue;
 
     @Value("${oci-cfg.key-dir-path}")
     private String keyDirPath;
 
     public final static Map<String, Object> TEMP_MAP = new ConcurrentHashMap<>();
     public final static Map<String, ScheduledFuture<?>> TASK_MAP = new ConcurrentHashMap<>();
-    public final static ScheduledThreadPoolExecutor CREATE_INSTANCE_POOL = new ScheduledThreadPoolExecutor(
-            Math.min(4, Runtime.getRuntime().availableProcessors()),
-            ThreadFactoryBuilder.create().setNamePrefix("oci-task-").build());
     public final static Set<String> RUNNING_TASKS = ConcurrentHashMap.newKeySet();
+    /**
+     * 每个配置的网络负载均衡器列表，按条数计重
+     */
+    public final static TypedCache<String, List<OciCfgDetailsRsp.NetLoadBalancer>> NLB_CACHE =
+            TypedCache.create("network_load_balancer", 10, TimeUnit.MINUTES, 5000, List::size);
+    /**
+     * 换 IP 任务中同一 VNIC 两次更换的间隔
+     */
+    private final static int CHANGE_IP_INTERVAL_SECONDS = 60;
 
     @Override
     public Page<OciUserListRsp> userPage(GetOciUserListParams params) {
@@ -236,7 +256,9 @@ public class OciServiceImpl implements IOciService {
                 throw new OciException(-1, "配置:" + userService.getById(id).getUsername() + " 存在开机任务,无法删除,请先停止开机任务");
             }
         });
+        List<OciUser> removed = userService.listByIds(params.getIdList());
         userService.removeBatchByIds(params.getIdList());
+        removed.forEach(x -> OciClientPool.invalidate(x.getOciTenantId(), x.getOciUserId()));
     }
 
     @Override
@@ -255,6 +277,7 @@ public class OciServiceImpl implements IOciService {
                 .operationSystem(params.getOperationSystem())
                 .rootPassword(params.getRootPassword())
                 .operationSystem(params.getOperationSystem())
+                .raceConcurrency(params.getRaceConcurrency())
                 .build();
         createTaskService.save(ociCreateTask);
         SysUserDTO sysUserDTO = sysService.getOciUser(params.getUserId());
@@ -268,6 +291,7 @@ public class OciServiceImpl implements IOciService {
         sysUserDTO.setOperationSystem(params.getOperationSystem());
         sysUserDTO.setRootPassword(params.getRootPassword());
         sysUserDTO.setJoinChannelBroadcast(params.isJoinChannelBroadcast());
+        sysUserDTO.setRaceConcurrency(params.getRaceConcurrency());
         addTask(CommonUtils.CREATE_TASK_PREFIX + taskId, () ->
                         execCreate(sysUserDTO, sysService, instanceService, createTaskService),
                 0, params.getInterval(), TimeUnit.SECONDS);
@@ -288,11 +312,8 @@ public class OciServiceImpl implements IOciService {
     @Override
     public OciCfgDetailsRsp details(GetOciCfgDetailsParams params) {
         if (params.isCleanReLaunchDetails()) {
-            customCache.remove(CacheConstant.PREFIX_INSTANCE_PAGE + params.getCfgId());
-            customCache.remove(CacheConstant.PREFIX_NETWORK_LOAD_BALANCER + params.getCfgId());
+            NLB_CACHE.invalidate(params.getCfgId());
         }
-        List<OciCfgDetailsRsp.InstanceInfo> instanceInfos =
-                (List<OciCfgDetailsRsp.InstanceInfo>) customCache.get(CacheConstant.PREFIX_INSTANCE_PAGE + params.getCfgId());
 
         SysUserDTO sysUserDTO = getOciUser(params.getCfgId());
         OciCfgDetailsRsp rsp = new OciCfgDetailsRsp();
@@ -300,30 +321,18 @@ public class OciServiceImpl implements IOciService {
         String privateKeyPath = rsp.getPrivateKeyPath();
         rsp.setPrivateKeyPath(privateKeyPath.substring(privateKeyPath.lastIndexOf(File.separator) + 1));
 
-        if (ObjUtil.isEmpty(instanceInfos)) {
-            try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO);) {
-                rsp.setInstanceList(Optional.ofNullable(fetcher.listInstances())
-                        .filter(CollectionUtil::isNotEmpty).orElseGet(Collections::emptyList).parallelStream()
-                        .map(x -> fetcher.getInstanceInfo(x.getId()))
-                        .collect(Collectors.toList()));
-            } catch (Exception e) {
-                log.error("获取实例信息失败", e);
-                throw new OciException(-1, "获取实例信息失败");
-            }
-        } else {
-            rsp.setInstanceList(instanceInfos);
-        }
+        // 实例信息来自后台资源快照，强制刷新时同步重拉一次
+        rsp.setInstanceList(fleetInventoryService.listInstanceInfos(params.getCfgId(), params.isCleanReLaunchDetails()));
+        rsp.setInstanceSnapshotAgeSeconds(TimeUnit.MILLISECONDS.toSeconds(Math.max(0, fleetInventoryService.snapshotAgeMillis(params.getCfgId()))));
 
-        List<OciCfgDetailsRsp.NetLoadBalancer> netLoadBalancers =
-                (List<OciCfgDetailsRsp.NetLoadBalancer>) customCache.get(CacheConstant.PREFIX_NETWORK_LOAD_BALANCER + params.getCfgId());
-        if (ObjUtil.isEmpty(netLoadBalancers)) {
+        rsp.setNlbList(NLB_CACHE.getOrLoad(params.getCfgId(), () -> {
             try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO);) {
                 NetworkLoadBalancerClient networkLoadBalancerClient = fetcher.getNetworkLoadBalancerClient();
                 List<NetworkLoadBalancerSummary> networkLoadBalancerSummaries = networkLoadBalancerClient.listNetworkLoadBalancers(ListNetworkLoadBalancersRequest.builder()
                         .compartmentId(fetcher.getCompartmentId())
                         .lifecycleState(LifecycleState.Active)
                         .build()).getNetworkLoadBalancerCollection().getItems();
-                List<OciCfgDetailsRsp.NetLoadBalancer> nlbList = Optional.ofNullable(networkLoadBalancerSummaries)
+                return Optional.ofNullable(networkLoadBalancerSummaries)
                         .filter(CollectionUtil::isNotEmpty).orElseGet(Collections::emptyList).stream()
                         .map(x -> {
                             try {
@@ -342,16 +351,11 @@ public class OciServiceImpl implements IOciService {
                             }
                             return null;
                         }).filter(Objects::nonNull).collect(Collectors.toList());
-                rsp.setNlbList(nlbList);
             } catch (Exception e) {
                 log.error("获取网络负载平衡器列表失败", e);
+                return null;
             }
-        } else {
-            rsp.setNlbList(netLoadBalancers);
-        }
-
-        customCache.put(CacheConstant.PREFIX_INSTANCE_PAGE + params.getCfgId(), rsp.getInstanceList(), 10 * 60 * 1000);
-        customCache.put(CacheConstant.PREFIX_NETWORK_LOAD_BALANCER + params.getCfgId(), rsp.getNlbList(), 10 * 60 * 1000);
+        }));
 
         rsp.setCfCfgList(Optional.ofNullable(cfCfgService.list())
                 .filter(CollectionUtil::isNotEmpty).orElseGet(Collections::emptyList).stream()
@@ -375,10 +379,21 @@ public class OciServiceImpl implements IOciService {
             }
         }
 
+        // 目标网段只编译一次，之后每次换 IP 只需按位查前缀树
+        CidrTrie targets = CidrTrie.of(params.getCidrList());
+        Set<String> pendingVnicIds = ConcurrentHashMap.newKeySet();
+        pendingVnicIds.add(params.getVnicId());
+        Optional.ofNullable(params.getVnicIds()).ifPresent(pendingVnicIds::addAll);
+
         SysUserDTO sysUserDTO = getOciUser(params.getOciCfgId());
+        String instanceName;
+        Set<String> instanceVnicIds;
         try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
             Instance instance = fetcher.getInstanceById(params.getInstanceId());
-            String currentIp = fetcher.listInstanceIPs(params.getInstanceId()).stream()
+            instanceName = instance.getDisplayName();
+            List<Vnic> vnics = fetcher.listInstanceIPs(params.getInstanceId());
+            instanceVnicIds = vnics.stream().map(Vnic::getId).collect(Collectors.toSet());
+            String currentIp = vnics.stream()
                     .map(Vnic::getPublicIp)
                     .collect(Collectors.toList()).get(0);
             String message = String.format(CommonUtils.BEGIN_CHANGE_IP_MESSAGE_TEMPLATE,
@@ -393,12 +408,20 @@ public class OciServiceImpl implements IOciService {
         } catch (Exception e) {
             throw new OciException(-1, "获取实例信息失败");
         }
+        pendingVnicIds.forEach(vnicId -> {
+            if (!instanceVnicIds.contains(vnicId)) {
+                throw new OciException(-1, "VNIC不属于该实例:" + vnicId);
+            }
+        });
 
-        addTask(CommonUtils.CHANGE_IP_TASK_PREFIX + params.getInstanceId(), () -> execChange(
+        addTask(TaskType.CHANGE_IP, CommonUtils.CHANGE_IP_TASK_PREFIX + params.getInstanceId(), () -> execChange(
                 params,
                 sysUserDTO,
                 instanceService,
-                60), 0, 60, TimeUnit.SECONDS);
+                instanceName,
+                targets,
+                pendingVnicIds,
+                CHANGE_IP_INTERVAL_SECONDS), 0, CHANGE_IP_INTERVAL_SECONDS, TimeUnit.SECONDS);
     }
 
     @Override
@@ -408,7 +431,7 @@ public class OciServiceImpl implements IOciService {
                 .eq(OciCreateTask::getUserId, params.getUserId())
                 .select(OciCreateTask::getId), String::valueOf);
         if (CollectionUtil.isNotEmpty(taskIds)) {
-            taskIds.forEach(x -> TEMP_MAP.remove(CommonUtils.CREATE_COUNTS_PREFIX + x));
+            taskIds.forEach(x -> TaskStateStore.remove(TaskStateStore.Kind.CREATE, x));
             taskIds.forEach(taskId -> stopTask(CommonUtils.CREATE_TASK_PREFIX + taskId));
         }
         createTaskService.remove(new LambdaQueryWrapper<OciCreateTask>().eq(OciCreateTask::getUserId, params.getUserId()));
@@ -417,7 +440,7 @@ public class OciServiceImpl implements IOciService {
     @Override
     public void stopChangeIp(StopChangeIpParams params) {
         stopTask(CommonUtils.CHANGE_IP_TASK_PREFIX + params.getInstanceId());
-        TEMP_MAP.remove(CommonUtils.CHANGE_IP_ERROR_COUNTS_PREFIX + params.getInstanceId());
+        TaskStateStore.resetErrors(TaskStateStore.Kind.CHANGE_IP, params.getInstanceId());
     }
 
     @Override
@@ -426,8 +449,8 @@ public class OciServiceImpl implements IOciService {
         List<CreateTaskRsp> list = createTaskMapper.createTaskPage(offset, params.getPageSize(), params.getKeyword(), params.getArchitecture());
         Long total = createTaskMapper.createTaskPageTotal(params.getKeyword(), params.getArchitecture());
         list.parallelStream().forEach(x -> {
-            Long counts = (Long) TEMP_MAP.get(CommonUtils.CREATE_COUNTS_PREFIX + x.getId());
-            x.setCounts(counts == null ? "0" : String.valueOf(counts));
+            x.setCounts(String.valueOf(TaskStateStore.attempts(TaskStateStore.Kind.CREATE, x.getId())));
+            x.setRate(CreateRateGovernor.effectiveRate(CommonUtils.CREATE_TASK_PREFIX + x.getId()));
             x.setOcpus(Double.valueOf(x.getOcpus()).longValue() + "");
             x.setMemory(Double.valueOf(x.getMemory()).longValue() + "");
         });
@@ -438,15 +461,15 @@ public class OciServiceImpl implements IOciService {
     @Transactional(rollbackFor = Exception.class)
     public void stopCreateBatch(IdListParams params) {
         createTaskService.removeBatchByIds(params.getIdList());
-        params.getIdList().forEach(x -> TEMP_MAP.remove(CommonUtils.CREATE_COUNTS_PREFIX + x));
+        params.getIdList().forEach(x -> TaskStateStore.remove(TaskStateStore.Kind.CREATE, x));
         params.getIdList().forEach(taskId -> stopTask(CommonUtils.CREATE_TASK_PREFIX + taskId));
     }
 
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void pauseCreateBatch(PauseCreateParams params) {
-        // Cancel the scheduled futures but keep the DB records with paused=1
-        params.getIdList().forEach(taskId -> stopTask(CommonUtils.CREATE_TASK_PREFIX + taskId));
+        // Park the scheduled tasks in place and keep the DB records with paused=1
+        params.getIdList().forEach(taskId -> pauseTask(CommonUtils.CREATE_TASK_PREFIX + taskId));
         createTaskService.update(new LambdaUpdateWrapper<OciCreateTask>()
                 .in(OciCreateTask::getId, params.getIdList())
                 .set(OciCreateTask::getPaused, 1));
@@ -460,12 +483,15 @@ public class OciServiceImpl implements IOciService {
                 .in(OciCreateTask::getId, params.getIdList())
                 .set(OciCreateTask::getPaused, 0));
 
-        List<OciCreateTask> tasks = createTaskService.listByIds(params.getIdList());
-        // 错开任务恢复：每个任务在上一个任务后5秒提交，防止所有任务同时进入 OCI API。
+        // 仍挂在时间轮上的任务直接恢复，无需重建
+        List<OciCreateTask> tasks = createTaskService.listByIds(params.getIdList()).stream()
+                .filter(task -> !resumeTask(CommonUtils.CREATE_TASK_PREFIX + task.getId()))
+                .toList();
+        // 错开任务恢复：在一个执行间隔内均匀提交（最多间隔5秒），防止所有任务同时进入 OCI API。
         for (int i = 0; i < tasks.size(); i++) {
             final OciCreateTask task = tasks.get(i);
-            final long delaySeconds = (long) i * 5;
-            CREATE_INSTANCE_POOL.schedule(() -> {
+            final long delayMillis = staggerDelayMillis(i, tasks.size(), task.getInterval());
+            TimerWheelScheduler.INSTANCE.schedule(TaskType.SYSTEM, "resume-" + task.getId(), () -> {
                 if (task.getCreateNumbers() <= 0) {
                     createTaskService.removeById(task.getId());
                     return;
@@ -490,11 +516,12 @@ public class OciServiceImpl implements IOciService {
                 sysUserDTO.setCreateNumbers(task.getCreateNumbers());
                 sysUserDTO.setOperationSystem(task.getOperationSystem());
                 sysUserDTO.setRootPassword(task.getRootPassword());
+                sysUserDTO.setRaceConcurrency(task.getRaceConcurrency());
                 addTask(CommonUtils.CREATE_TASK_PREFIX + task.getId(),
                         () -> execCreate(sysUserDTO, sysService, instanceService, createTaskService),
                         0, task.getInterval(), TimeUnit.SECONDS);
-                log.info("[Resume Task] task [{}] scheduled with {}s delay", task.getId(), delaySeconds);
-            }, delaySeconds, TimeUnit.SECONDS);
+                log.info("[Resume Task] task [{}] scheduled with {}ms delay", task.getId(), delayMillis);
+            }, delayMillis, TimeUnit.MILLISECONDS);
         }
         log.info("[Resume Task] {} tasks queued for resumption", tasks.size());
     }
@@ -508,18 +535,18 @@ public class OciServiceImpl implements IOciService {
             return instanceParams;
         }).collect(Collectors.toList());
 
-        // Stagger task submission: each task is submitted 5 seconds after the previous one,
+        // Stagger task submission across one interval (at most 5 seconds apart),
         // preventing all tasks from hitting the API simultaneously.
         for (int i = 0; i < list.size(); i++) {
             final CreateInstanceParams item = list.get(i);
-            final long delaySeconds = (long) i * 5;
-            CREATE_INSTANCE_POOL.schedule(() -> {
+            final long delayMillis = staggerDelayMillis(i, list.size(), item.getInterval());
+            TimerWheelScheduler.INSTANCE.schedule(TaskType.SYSTEM, "batch-create-" + item.getUserId(), () -> {
                 try {
                     createInstance(item);
                 } catch (Exception e) {
                     throw new OciException(-1, "创建开机任务失败");
                 }
-            }, delaySeconds, TimeUnit.SECONDS);
+            }, delayMillis, TimeUnit.MILLISECONDS);
         }
     }
 
@@ -647,6 +674,7 @@ public class OciServiceImpl implements IOciService {
         SysUserDTO sysUserDTO = getOciUser(params.getOciCfgId());
         try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
             fetcher.updateInstanceState(params.getInstanceId(), InstanceActionEnum.getActionEnum(params.getAction()));
+            fleetInventoryService.invalidate(params.getOciCfgId());
         } catch (Exception e) {
             log.error("用户:[{}],区域:[{}] 更新实例状态失败,错误详情:[{}]",
                     sysUserDTO.getUsername(), sysUserDTO.getOciCfg().getRegion(), e.getLocalizedMessage());
@@ -666,6 +694,7 @@ public class OciServiceImpl implements IOciService {
         virtualExecutor.execute(() -> {
             try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
                 fetcher.terminateInstance(params.getInstanceId(), params.getPreserveBootVolume().equals(1), params.getPreserveBootVolume().equals(1));
+                fleetInventoryService.invalidate(params.getOciCfgId());
                 String message = String.format(CommonUtils.TERMINATE_INSTANCE_MESSAGE_TEMPLATE,
                         sysUserDTO.getUsername(),
                         LocalDateTime.now().format(DateTimeFormatter.ofPattern(DatePattern.NORM_DATETIME_PATTERN)),
@@ -745,31 +774,23 @@ public class OciServiceImpl implements IOciService {
     }
 
     @Override
-    public String checkAlive() {
-        List<String> ids = userService.listObjs(new LambdaQueryWrapper<OciUser>()
-                .isNotNull(OciUser::getId)
-                .select(OciUser::getId), String::valueOf);
-        if (CollectionUtil.isEmpty(ids)) {
+    public String checkAlive(boolean forceRefresh) {
+        List<CfgHealthDTO> healths = livenessService.check(forceRefresh);
+        if (CollectionUtil.isEmpty(healths)) {
             return null;
         }
 
         String rst = "总配置数：%s ，失效配置数：%s ，有效配置数：%s。\n 失效配置：\n%s";
 
-        List<String> failNames = ids.parallelStream().filter(id -> {
-            SysUserDTO ociUser = getOciUser(id);
-            try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(ociUser)) {
-                fetcher.getAvailabilityDomains();
-            } catch (Exception e) {
-                log.error("配置：[{}] 测活失败", ociUser.getUsername(), e);
-                return true;
-            }
-            return false;
-        }).map(id -> getOciUser(id).getUsername()).collect(Collectors.toList());
+        List<String> failNames = healths.stream()
+                .filter(x -> !x.isAlive())
+                .map(CfgHealthDTO::getUsername)
+                .collect(Collectors.toList());
 
         sysService.sendMessage(String.format("【API测活结果】\n\n✅ 有效配置数：%s\n❌ 失效配置数：%s\n\uD83D\uDD11 总配置数：%s\n⚠\uFE0F 失效配置：\n%s",
-                ids.size() - failNames.size(), failNames.size(), ids.size(), String.join("\n", failNames)));
+                healths.size() - failNames.size(), failNames.size(), healths.size(), String.join("\n", failNames)));
 
-        return String.format(rst, ids.size(), failNames.size(), ids.size() - failNames.size(), String.join(" , ", failNames));
+        return String.format(rst, healths.size(), failNames.size(), healths.size() - failNames.size(), String.join(" , ", failNames));
     }
 
     @Override
@@ -792,6 +813,9 @@ public class OciServiceImpl implements IOciService {
         userService.update(new LambdaUpdateWrapper<OciUser>()
                 .in(OciUser::getId, params.getIdList())
                 .set(OciUser::getProxy, StrUtil.isBlank(params.getProxy()) ? null : params.getProxy()));
+        // 旧代理下建立的客户端会话立即失效，正在使用中的会话在归还后关闭
+        userService.listByIds(params.getIdList())
+                .forEach(x -> OciClientPool.invalidate(x.getOciTenantId(), x.getOciUserId()));
         log.info("批量更新代理：id数量=[{}]，proxy=[{}]", params.getIdList().size(), params.getProxy());
     }
 
@@ -812,7 +836,8 @@ public class OciServiceImpl implements IOciService {
             }
             return ociUser;
         }).collect(Collectors.toList());
-        userService.updateBatchById(toUpdate);
+        // 经写队列合并提交，等提交完成后再返回，页面刷新即可看到新值
+        writeQueue.submit(() -> userService.updateBatchById(toUpdate)).join();
     }
 
     @Override
@@ -927,11 +952,11 @@ public class OciServiceImpl implements IOciService {
                 BootVolume bootVolumeByInstanceId = fetcher.getBootVolumeByInstanceId(instanceId);
                 // 检查能否创建AMD实例
                 List<AvailabilityDomain> availabilityDomains = fetcher.getAvailabilityDomains(fetcher.getIdentityClient(), fetcher.getCompartmentId());
-                List<String> shapeList = availabilityDomains.parallelStream().map(availabilityDomain ->
-                                computeClient.listShapes(ListShapesRequest.builder()
+                List<String> shapeList = OciFanOut.map(sysUserDTO.getOciCfg().getTenantId(), "listShapes", availabilityDomains,
+                                availabilityDomain -> computeClient.listShapes(ListShapesRequest.builder()
                                         .availabilityDomain(availabilityDomain.getName())
                                         .compartmentId(fetcher.getCompartmentId())
-                                        .build()).getItems())
+                                        .build()).getItems()).stream()
                         .flatMap(Collection::stream)
                         .map(Shape::getShape)
                         .distinct()
@@ -958,7 +983,7 @@ public class OciServiceImpl implements IOciService {
                     Thread.sleep(1000);
                 }
 
-                while (!fetcher.getBootVolumeByInstanceId(instanceId).getLifecycleState().getValue().equals(BootVolume.LifecycleState.Available.getValue())) {
+                while (!fetcher.getBootVolumeById(bootVolumeByInstanceId.getId()).getLifecycleState().getValue().equals(BootVolume.LifecycleState.Available.getValue())) {
                     Thread.sleep(1000);
                 }
 
@@ -1122,21 +1147,73 @@ public class OciServiceImpl implements IOciService {
     }
 
     public static void addTask(String taskId, Runnable task, long initialDelay, long period, TimeUnit timeUnit) {
-        ScheduledFuture<?> future = CREATE_INSTANCE_POOL.scheduleWithFixedDelay(() -> VIRTUAL_EXECUTOR.execute(task), initialDelay, period, timeUnit);
+        addTask(taskId.startsWith(CommonUtils.CREATE_TASK_PREFIX) ? TaskType.CREATE : TaskType.SYSTEM,
+                taskId, task, initialDelay, period, timeUnit);
+    }
+
+    /**
+     * 与原先把任务转交虚拟线程的调度方式一致，按上次计划时刻计算下次执行，不等本次执行结束
+     */
+    public static void addTask(TaskType type, String taskId, Runnable task, long initialDelay, long period, TimeUnit timeUnit) {
+        ScheduledFuture<?> future = TimerWheelScheduler.INSTANCE.scheduleAtFixedRate(
+                type, taskId, task, initialDelay, period, timeUnit, jitterMillis(type, period, timeUnit));
         TASK_MAP.put(taskId, future);
     }
 
     public static void addAtFixedRateTask(String taskId, Runnable task, long initialDelay, long period, TimeUnit timeUnit) {
-        ScheduledFuture<?> future = CREATE_INSTANCE_POOL.scheduleAtFixedRate(() -> VIRTUAL_EXECUTOR.execute(task), initialDelay, period, timeUnit);
+        ScheduledFuture<?> future = TimerWheelScheduler.INSTANCE.scheduleAtFixedRate(
+                TaskType.SYSTEM, taskId, task, initialDelay, period, timeUnit, 0);
         TASK_MAP.put(taskId, future);
     }
 
+    /**
+     * 暂停任务但保留其调度位置，配合 {@link #resumeTask(String)} 使用
+     */
+    public static void pauseTask(String taskId) {
+        if (TASK_MAP.get(taskId) instanceof TimerWheelScheduler.WheelTask wheelTask) {
+            wheelTask.pause();
+        } else {
+            stopTask(taskId);
+        }
+        CreateRateGovernor.removeTask(taskId);
+    }
+
+    /**
+     * @return true 表示任务仍在调度中并已恢复，false 表示需要重新创建
+     */
+    public static boolean resumeTask(String taskId) {
+        if (TASK_MAP.get(taskId) instanceof TimerWheelScheduler.WheelTask wheelTask && !wheelTask.isCancelled()) {
+            wheelTask.resume();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 批量提交任务时的错开延迟：在一个执行间隔内均匀分布，相邻任务最多相隔5秒
+     */
+    public static long staggerDelayMillis(int index, int total, Integer intervalSeconds) {
+        long windowMillis = TimeUnit.SECONDS.toMillis(intervalSeconds == null || intervalSeconds <= 0 ? 60 : intervalSeconds);
+        return index * Math.min(TimeUnit.SECONDS.toMillis(5), windowMillis / Math.max(1, total));
+    }
+
+    /**
+     * 开机/换IP任务加入周期 10% 以内（最多10秒）的随机抖动，避免同周期任务在同一时刻触发
+     */
+    private static long jitterMillis(TaskType type, long period, TimeUnit timeUnit) {
+        if (type == TaskType.SYSTEM) {
+            return 0;
+        }
+        return Math.min(TimeUnit.SECONDS.toMillis(10), timeUnit.toMillis(period) / 10);
+    }
+
     public static void stopTask(String taskId) {
         ScheduledFuture<?> future = TASK_MAP.get(taskId);
         if (null != future) {
             future.cancel(false);
         }
         TASK_MAP.remove(taskId);
+        CreateRateGovernor.removeTask(taskId);
     }
 
     public static void execCreate(
@@ -1151,6 +1228,42 @@ public class OciServiceImpl implements IOciService {
             return;
         }
 
+        long interval = sysUserDTO.getInterval() == null ? 60L : sysUserDTO.getInterval();
+        // 同租户同区域的开机任务共享令牌桶，拿不到本轮许可则跳过，等待下次调度
+        long waitNanos = CreateRateGovernor.reserve(taskId, sysUserDTO.getOciCfg().getTenantId(), sysUserDTO.getOciCfg().getRegion(),
+                interval, TimeUnit.SECONDS.toMillis(interval));
+        if (waitNanos < 0) {
+            log.debug("【开机任务】任务 [{}] 本轮未获取到开机许可,跳过本轮执行", taskId);
+            RUNNING_TASKS.remove(taskId);
+            return;
+        }
+        if (waitNanos > 0) {
+            // 预留的时刻还没到，交给时间轮到点再开机，不在这里占着执行许可等待
+            TimerWheelScheduler.INSTANCE.schedule(TaskType.CREATE, taskId + "-reserved", () -> {
+                if (isTaskActive(taskId)) {
+                    launchCreate(taskId, sysUserDTO, sysService, instanceService, createTaskService);
+                } else {
+                    RUNNING_TASKS.remove(taskId);
+                }
+            }, waitNanos, TimeUnit.NANOSECONDS);
+            return;
+        }
+        launchCreate(taskId, sysUserDTO, sysService, instanceService, createTaskService);
+    }
+
+    /**
+     * 任务仍在调度中（未停止、未暂停）
+     */
+    private static boolean isTaskActive(String taskId) {
+        ScheduledFuture<?> future = TASK_MAP.get(taskId);
+        return future != null && !future.isCancelled()
+                && !(future instanceof TimerWheelScheduler.WheelTask wheelTask && wheelTask.isPaused());
+    }
+
+    private static void launchCreate(
+            String taskId, SysUserDTO sysUserDTO, ISysService sysService,
+            IInstanceService instanceService,
+            IOciCreateTaskService createTaskService) {
         try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
 
             List<InstanceDetailDTO> createInstanceList = instanceService.createInstance(fetcher).getCreateInstanceList();
@@ -1211,13 +1324,15 @@ public class OciServiceImpl implements IOciService {
                         sysUserDTO.getArchitecture(), sysUserDTO.getCreateNumbers());
             }
 
-            if (leftCreateNum > 0) {
-                createTaskService.update(new LambdaUpdateWrapper<OciCreateTask>()
+            if (leftCreateNum > 0 && leftCreateNum != sysUserDTO.getCreateNumbers()) {
+                // 剩余数量交给写队列合并提交，避免每轮开机都单独写一次库
+                SpringUtil.getBean(SQLiteWriteQueue.class).submit(() -> createTaskService.update(new LambdaUpdateWrapper<OciCreateTask>()
                         .eq(OciCreateTask::getId, sysUserDTO.getTaskId())
-                        .set(OciCreateTask::getCreateNumbers, leftCreateNum));
+                        .set(OciCreateTask::getCreateNumbers, leftCreateNum)));
                 sysUserDTO.setCreateNumbers((int) leftCreateNum);
             }
         } catch (Exception e) {
+            TaskStateStore.recordError(TaskStateStore.Kind.CREATE, sysUserDTO.getTaskId(), e.getLocalizedMessage());
             if (e instanceof BmcException) {
                 BmcException error = (BmcException) e;
                 if (error.getStatusCode() == 401 || error.getMessage().contains(ErrorEnum.NOT_AUTHENTICATED.getErrorType())) {
@@ -1246,68 +1361,87 @@ public class OciServiceImpl implements IOciService {
     }
 
     private static void stopAndRemoveTask(SysUserDTO sysUserDTO, IOciCreateTaskService createTaskService) {
-        TEMP_MAP.remove(CommonUtils.CREATE_COUNTS_PREFIX + sysUserDTO.getTaskId());
+        TaskStateStore.remove(TaskStateStore.Kind.CREATE, sysUserDTO.getTaskId());
         stopTask(CommonUtils.CREATE_TASK_PREFIX + sysUserDTO.getTaskId());
         createTaskService.remove(new LambdaQueryWrapper<OciCreateTask>().eq(OciCreateTask::getId, sysUserDTO.getTaskId()));
         RUNNING_TASKS.remove(CommonUtils.CREATE_TASK_PREFIX + sysUserDTO.getTaskId());
     }
 
+    private record Rotation(String vnicId, String publicIp) {
+    }
+
+    /**
+     * 一次换 IP：还没落到目标网段的 VNIC 并发各换一次，同一租户下所有换 IP 任务共用 OciFanOut 的租户并发上限；
+     * 全部 VNIC 都拿到满足条件的 IP 后任务结束
+     */
     public void execChange(ChangeIpParams params,
                            SysUserDTO sysUserDTO,
                            IInstanceService instanceService,
+                           String instanceName,
+                           CidrTrie targets,
+                           Set<String> pendingVnicIds,
                            int randomIntInterval) {
         List<String> cidrList = params.getCidrList();
-        String vnicId = params.getVnicId();
         String instanceId = params.getInstanceId();
-        if (CollectionUtil.isEmpty(cidrList)) {
-            Tuple2<String, Instance> tuple2 = instanceService.changeInstancePublicIp(instanceId, vnicId, sysUserDTO, cidrList);
-            if (tuple2.getFirst() == null || tuple2.getSecond() == null) {
-                return;
+        String region = sysUserDTO.getOciCfg().getRegion();
+        boolean anyIp = targets.size() == 0;
+
+        List<Rotation> rotations = OciFanOut.map(sysUserDTO.getOciCfg().getTenantId(), "changePublicIp", List.copyOf(pendingVnicIds), vnicId -> {
+            long start = System.currentTimeMillis();
+            String publicIp = instanceService.changeVnicPublicIp(sysUserDTO, vnicId, instanceName);
+            if (!anyIp) {
+                if (publicIp == null) {
+                    IpHuntStats.recordFailure(region, cidrList);
+                } else {
+                    IpHuntStats.record(region, cidrList, targets.contains(publicIp), System.currentTimeMillis() - start, randomIntInterval);
+                }
             }
-            virtualExecutor.execute(() -> updateCfDns(params, tuple2.getFirst()));
-            sendChangeIpMsg(
-                    params.getOciCfgId(),
-                    sysUserDTO.getUsername(),
-                    sysUserDTO.getOciCfg().getRegion(),
-                    tuple2.getSecond().getDisplayName(),
-                    tuple2.getFirst()
-            );
+            return new Rotation(vnicId, publicIp);
+        });
+
+        boolean failed = false;
+        for (Rotation rotation : rotations) {
+            String publicIp = rotation.publicIp();
+            if (publicIp == null) {
+                failed = true;
+            } else if (anyIp || targets.contains(publicIp)) {
+                pendingVnicIds.remove(rotation.vnicId());
+                // Cloudflare DNS 只跟随任务的主 VNIC
+                if (rotation.vnicId().equals(params.getVnicId())) {
+                    virtualExecutor.execute(() -> updateCfDns(params, publicIp));
+                }
+                sendChangeIpMsg(params.getOciCfgId(), sysUserDTO.getUsername(), region, instanceName, publicIp);
+            } else {
+                log.warn("【更换公共IP】用户:[{}],区域:[{}],实例:[{}],获取到的IP:{} 不在给定的 CIDR 网段中,[{}]秒后将继续更换公共IP...",
+                        sysUserDTO.getUsername(), region, instanceName, publicIp, randomIntInterval);
+            }
+        }
+
+        if (pendingVnicIds.isEmpty()) {
             stopTask(CommonUtils.CHANGE_IP_TASK_PREFIX + instanceId);
-            TEMP_MAP.remove(CommonUtils.CHANGE_IP_ERROR_COUNTS_PREFIX + instanceId);
+            TaskStateStore.resetErrors(TaskStateStore.Kind.CHANGE_IP, instanceId);
             return;
         }
-
-        Tuple2<String, Instance> tuple2 = instanceService.changeInstancePublicIp(instanceId, vnicId, sysUserDTO, cidrList);
-        if (tuple2.getFirst() == null || tuple2.getSecond() == null) {
-            Long currentCount = (Long) TEMP_MAP.compute(
-                    CommonUtils.CHANGE_IP_ERROR_COUNTS_PREFIX + instanceId,
-                    (key, value) -> value == null ? 1L : Long.parseLong(String.valueOf(value)) + 1
-            );
-            if (currentCount > 5) {
-                log.error("【更换公共IP】用户:[{}],区域:[{}],实例:[{}],执行更换IP任务失败次数达到5次,任务终止",
-                        sysUserDTO.getUsername(), sysUserDTO.getOciCfg().getRegion(), tuple2.getSecond().getDisplayName());
-                stopTask(CommonUtils.CHANGE_IP_TASK_PREFIX + instanceId);
-                TEMP_MAP.remove(CommonUtils.CHANGE_IP_ERROR_COUNTS_PREFIX + instanceId);
-            }
+        if (!failed) {
+            TaskStateStore.resetErrors(TaskStateStore.Kind.CHANGE_IP, instanceId);
             return;
         }
-        String publicIp = tuple2.getFirst();
-        String instanceName = tuple2.getSecond().getDisplayName();
-        if (!CommonUtils.isIpInCidrList(tuple2.getFirst(), cidrList)) {
-            log.warn("【更换公共IP】用户:[{}],区域:[{}],实例:[{}],获取到的IP:{} 不在给定的 CIDR 网段中,[{}]秒后将继续更换公共IP...",
-                    sysUserDTO.getUsername(), sysUserDTO.getOciCfg().getRegion(), instanceName,
-                    publicIp, randomIntInterval);
-            TEMP_MAP.remove(CommonUtils.CHANGE_IP_ERROR_COUNTS_PREFIX + instanceId);
-        } else {
-            virtualExecutor.execute(() -> updateCfDns(params, publicIp));
-            sendChangeIpMsg(params.getOciCfgId(), sysUserDTO.getUsername(), sysUserDTO.getOciCfg().getRegion(), instanceName, publicIp);
+        if (anyIp) {
+            // 不限网段时失败不计数，下次继续换
+            return;
+        }
+        long currentCount = TaskStateStore.incrementErrors(TaskStateStore.Kind.CHANGE_IP, instanceId);
+        TaskStateStore.recordError(TaskStateStore.Kind.CHANGE_IP, instanceId, "未获取到新的公共IP");
+        if (currentCount > 5) {
+            log.error("【更换公共IP】用户:[{}],区域:[{}],实例:[{}],执行更换IP任务失败次数达到5次,任务终止",
+                    sysUserDTO.getUsername(), region, instanceName);
             stopTask(CommonUtils.CHANGE_IP_TASK_PREFIX + instanceId);
-            TEMP_MAP.remove(CommonUtils.CHANGE_IP_ERROR_COUNTS_PREFIX + instanceId);
+            TaskStateStore.resetErrors(TaskStateStore.Kind.CHANGE_IP, instanceId);
         }
     }
 
     private void sendChangeIpMsg(String ociCfgId, String username, String region, String instanceName, String publicIp) {
-        customCache.remove(CacheConstant.PREFIX_INSTANCE_PAGE + ociCfgId);
+        fleetInventoryService.invalidate(ociCfgId);
 
         log.info("✔✔✔【更换公共IP】用户:[{}],区域:[{}],实例:[{}],更换公共IP成功,新的公共IP地址:{} ✔✔✔",
                 username, region, instanceName,
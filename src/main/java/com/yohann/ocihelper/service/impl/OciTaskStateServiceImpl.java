@@ -0,0 +1,38 @@
+package com.yohann.ocihelper.service.impl;
+
+import cn.hutool.core.collection.CollectionUtil;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.yohann.ocihelper.bean.entity.OciTaskState;
+import com.yohann.ocihelper.mapper.OciTaskStateMapper;
+import com.yohann.ocihelper.service.IOciTaskStateService;
+import com.yohann.ocihelper.utils.TaskStateStore;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * @author yohann
+ * @description 针对表【oci_task_state】的数据库操作Service实现
+ * @createDate 2026-10-18 10:12:05
+ */
+@Service
+public class OciTaskStateServiceImpl extends ServiceImpl<OciTaskStateMapper, OciTaskState>
+        implements IOciTaskStateService {
+
+    private static final int UPSERT_BATCH_SIZE = 200;
+
+    @Override
+    public void upsertBatch(List<OciTaskState> list) {
+        if (CollectionUtil.isEmpty(list)) {
+            return;
+        }
+        CollectionUtil.split(list, UPSERT_BATCH_SIZE).forEach(baseMapper::upsertBatch);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        // 关闭前把尚未落库的计数写回
+        TaskStateStore.flush();
+    }
+}
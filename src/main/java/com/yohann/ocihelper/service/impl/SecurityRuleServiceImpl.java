@@ -1,13 +1,11 @@
 package com.yohann.ocihelper.service.impl;
 
-import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.oracle.bmc.core.model.*;
 import com.oracle.bmc.core.requests.UpdateSecurityListRequest;
 import com.yohann.ocihelper.bean.Tuple2;
-import com.yohann.ocihelper.bean.constant.CacheConstant;
 import com.yohann.ocihelper.bean.dto.SysUserDTO;
 import com.yohann.ocihelper.bean.params.oci.securityrule.*;
 import com.yohann.ocihelper.bean.response.oci.securityrule.SecurityRuleListRsp;
@@ -18,12 +16,13 @@ import com.yohann.ocihelper.exception.OciException;
 import com.yohann.ocihelper.service.ISecurityRuleService;
 import com.yohann.ocihelper.service.ISysService;
 import com.yohann.ocihelper.utils.CommonUtils;
-import com.yohann.ocihelper.utils.CustomExpiryGuavaCache;
+import com.yohann.ocihelper.utils.TypedCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.Resource;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -37,163 +36,164 @@ import java.util.stream.Collectors;
 @Slf4j
 public class SecurityRuleServiceImpl implements ISecurityRuleService {
 
+    /**
+     * 每个 VCN 默认安全列表的规则快照，按规则条数计重
+     */
+    private static final TypedCache<String, RuleSnapshot> SECURITY_RULE_CACHE =
+            TypedCache.create("security_rule", 10, TimeUnit.MINUTES, 20000,
+                    x -> x.ingressRules().size() + x.egressRules().size());
+
     @Resource
     private ISysService sysService;
-    @Resource
-    private CustomExpiryGuavaCache<String, Object> customCache;
+
+    /**
+     * 规则 id 在加载时生成，删除时按 id 找回原始规则，所以展示列表和 id 映射放在同一个快照里
+     */
+    private record RuleSnapshot(List<SecurityRuleListRsp.SecurityRuleInfo> ingressRules,
+                                List<SecurityRuleListRsp.SecurityRuleInfo> egressRules,
+                                Map<String, IngressSecurityRule> ingressMap,
+                                Map<String, EgressSecurityRule> egressMap) {
+    }
 
     @Override
     public Page<SecurityRuleListRsp.SecurityRuleInfo> page(GetSecurityRuleListPageParams params) {
         if (params.isCleanReLaunch()) {
-            customCache.remove(CacheConstant.PREFIX_INGRESS_SECURITY_RULE_PAGE + params.getOciCfgId());
-            customCache.remove(CacheConstant.PREFIX_EGRESS_SECURITY_RULE_PAGE + params.getOciCfgId());
-            customCache.remove(CacheConstant.PREFIX_INGRESS_SECURITY_RULE_MAP + params.getVcnId());
-            customCache.remove(CacheConstant.PREFIX_EGRESS_SECURITY_RULE_MAP + params.getVcnId());
+            SECURITY_RULE_CACHE.invalidate(params.getVcnId());
         }
 
-        List<IngressSecurityRule> ingressSecurityRuleList = (List<IngressSecurityRule>) customCache.get(CacheConstant.PREFIX_INGRESS_SECURITY_RULE_PAGE + params.getOciCfgId());
-        List<EgressSecurityRule> egressSecurityRuleList = (List<EgressSecurityRule>) customCache.get(CacheConstant.PREFIX_EGRESS_SECURITY_RULE_PAGE + params.getOciCfgId());
-        Map<String, IngressSecurityRule> ingressMap = (Map<String, IngressSecurityRule>) customCache.get(CacheConstant.PREFIX_INGRESS_SECURITY_RULE_MAP + params.getVcnId());
-        Map<String, EgressSecurityRule> egressMap = (Map<String, EgressSecurityRule>) customCache.get(CacheConstant.PREFIX_EGRESS_SECURITY_RULE_MAP + params.getVcnId());
-
-        SysUserDTO sysUserDTO = sysService.getOciUser(params.getOciCfgId());
+        RuleSnapshot snapshot = SECURITY_RULE_CACHE.getOrLoad(params.getVcnId(),
+                () -> loadRules(params.getOciCfgId(), params.getVcnId()));
         List<SecurityRuleListRsp.SecurityRuleInfo> rspRuleList = Collections.emptyList();
+        if (params.getType().equals(0)) {
+            rspRuleList = snapshot.ingressRules();
+        }
+        if (params.getType().equals(1)) {
+            rspRuleList = snapshot.egressRules();
+        }
 
-        if (CollectionUtil.isEmpty(ingressSecurityRuleList) || CollectionUtil.isEmpty(egressSecurityRuleList) ||
-                CollectionUtil.isEmpty(ingressMap) || CollectionUtil.isEmpty(egressMap)) {
-            try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
-                SecurityList securityList = fetcher.listSecurityRule(fetcher.getVcnById(params.getVcnId()));
-                ingressSecurityRuleList = securityList.getIngressSecurityRules();
-                egressSecurityRuleList = securityList.getEgressSecurityRules();
+        List<SecurityRuleListRsp.SecurityRuleInfo> resList = rspRuleList.stream()
+                .filter(x -> CommonUtils.contains(x.getSourceOrDestination(), params.getKeyword(), true) ||
+                        CommonUtils.contains(x.getDescription(), params.getKeyword(), true) ||
+                        CommonUtils.contains(x.getSourcePort(), params.getKeyword(), true) ||
+                        CommonUtils.contains(x.getDestinationPort(), params.getKeyword(), true))
+                .sorted(Comparator.comparing(SecurityRuleListRsp.SecurityRuleInfo::getSourceOrDestination))
+                .collect(Collectors.toList());
+        List<SecurityRuleListRsp.SecurityRuleInfo> pageList = CommonUtils.getPage(resList, params.getCurrentPage(), params.getPageSize());
+        return VcnPageRsp.buildPage(pageList, params.getPageSize(), params.getCurrentPage(), resList.size());
+    }
 
-                ingressMap = new HashMap<>();
-                egressMap = new HashMap<>();
+    private RuleSnapshot loadRules(String ociCfgId, String vcnId) {
+        SysUserDTO sysUserDTO = sysService.getOciUser(ociCfgId);
+        try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
+            SecurityList securityList = fetcher.listSecurityRule(fetcher.getVcnById(vcnId));
+            Map<String, IngressSecurityRule> ingressMap = new LinkedHashMap<>();
+            Map<String, EgressSecurityRule> egressMap = new LinkedHashMap<>();
 
-                if (params.getType().equals(0)) {
-                    Map<String, IngressSecurityRule> finalIngressMap = ingressMap;
-                    rspRuleList = ingressSecurityRuleList.parallelStream().map(ingressSecurityRule -> {
-                        SecurityRuleListRsp.SecurityRuleInfo info = new SecurityRuleListRsp.SecurityRuleInfo();
-                        String ruleId = IdUtil.getSnowflakeNextIdStr();
-                        info.setId(ruleId);
-                        info.setIsStateless(ingressSecurityRule.getIsStateless());
-                        info.setProtocol(SecurityRuleProtocolEnum.fromCode(ingressSecurityRule.getProtocol()).getDesc());
-                        info.setSourceOrDestination(ingressSecurityRule.getSource());
-                        info.setTypeAndCode(ingressSecurityRule.getProtocol().equals("1") ? (null == ingressSecurityRule.getIcmpOptions() ? "全部" :
-                                ingressSecurityRule.getIcmpOptions().getType() +
-                                        (null == ingressSecurityRule.getIcmpOptions().getCode() ? "" :
-                                                ", " + ingressSecurityRule.getIcmpOptions().getCode())) : null);
-                        info.setDescription(ingressSecurityRule.getDescription());
-                        List<String> protocolList = Arrays.asList("6", "17");
-                        String sourcePort = protocolList.contains(ingressSecurityRule.getProtocol()) ? "全部" : null;
-                        String destinationPort = protocolList.contains(ingressSecurityRule.getProtocol()) ? "全部" : null;
-                        if ("6".equals(ingressSecurityRule.getProtocol())) {
-                            if (null != ingressSecurityRule.getTcpOptions()) {
-                                if (null != ingressSecurityRule.getTcpOptions().getSourcePortRange()) {
-                                    Integer sourceMin = ingressSecurityRule.getTcpOptions().getSourcePortRange().getMin();
-                                    Integer sourceMax = ingressSecurityRule.getTcpOptions().getSourcePortRange().getMax();
-                                    sourcePort = sourceMin.equals(sourceMax) ? String.valueOf(sourceMin) : sourceMin + "-" + sourceMax;
-                                }
-                                if (null != ingressSecurityRule.getTcpOptions().getDestinationPortRange()) {
-                                    Integer dstMin = ingressSecurityRule.getTcpOptions().getDestinationPortRange().getMin();
-                                    Integer dstMax = ingressSecurityRule.getTcpOptions().getDestinationPortRange().getMax();
-                                    destinationPort = dstMin.equals(dstMax) ? String.valueOf(dstMin) : dstMin + "-" + dstMax;
-                                }
-                            }
+            List<SecurityRuleListRsp.SecurityRuleInfo> ingressRules = securityList.getIngressSecurityRules().stream().map(ingressSecurityRule -> {
+                SecurityRuleListRsp.SecurityRuleInfo info = new SecurityRuleListRsp.SecurityRuleInfo();
+                String ruleId = IdUtil.getSnowflakeNextIdStr();
+                info.setId(ruleId);
+                info.setIsStateless(ingressSecurityRule.getIsStateless());
+                info.setProtocol(SecurityRuleProtocolEnum.fromCode(ingressSecurityRule.getProtocol()).getDesc());
+                info.setSourceOrDestination(ingressSecurityRule.getSource());
+                info.setTypeAndCode(ingressSecurityRule.getProtocol().equals("1") ? (null == ingressSecurityRule.getIcmpOptions() ? "全部" :
+                        ingressSecurityRule.getIcmpOptions().getType() +
+                                (null == ingressSecurityRule.getIcmpOptions().getCode() ? "" :
+                                        ", " + ingressSecurityRule.getIcmpOptions().getCode())) : null);
+                info.setDescription(ingressSecurityRule.getDescription());
+                List<String> protocolList = Arrays.asList("6", "17");
+                String sourcePort = protocolList.contains(ingressSecurityRule.getProtocol()) ? "全部" : null;
+                String destinationPort = protocolList.contains(ingressSecurityRule.getProtocol()) ? "全部" : null;
+                if ("6".equals(ingressSecurityRule.getProtocol())) {
+                    if (null != ingressSecurityRule.getTcpOptions()) {
+                        if (null != ingressSecurityRule.getTcpOptions().getSourcePortRange()) {
+                            Integer sourceMin = ingressSecurityRule.getTcpOptions().getSourcePortRange().getMin();
+                            Integer sourceMax = ingressSecurityRule.getTcpOptions().getSourcePortRange().getMax();
+                            sourcePort = sourceMin.equals(sourceMax) ? String.valueOf(sourceMin) : sourceMin + "-" + sourceMax;
                         }
-                        if ("17".equals(ingressSecurityRule.getProtocol())) {
-                            if (null != ingressSecurityRule.getUdpOptions()) {
-                                if (null != ingressSecurityRule.getUdpOptions().getSourcePortRange()) {
-                                    Integer sourceMin = ingressSecurityRule.getUdpOptions().getSourcePortRange().getMin();
-                                    Integer sourceMax = ingressSecurityRule.getUdpOptions().getSourcePortRange().getMax();
-                                    sourcePort = sourceMin.equals(sourceMax) ? String.valueOf(sourceMin) : sourceMin + "-" + sourceMax;
-                                }
-                                if (null != ingressSecurityRule.getUdpOptions().getDestinationPortRange()) {
-                                    Integer dstMin = ingressSecurityRule.getUdpOptions().getDestinationPortRange().getMin();
-                                    Integer dstMax = ingressSecurityRule.getUdpOptions().getDestinationPortRange().getMax();
-                                    destinationPort = dstMin.equals(dstMax) ? String.valueOf(dstMin) : dstMin + "-" + dstMax;
-                                }
-                            }
+                        if (null != ingressSecurityRule.getTcpOptions().getDestinationPortRange()) {
+                            Integer dstMin = ingressSecurityRule.getTcpOptions().getDestinationPortRange().getMin();
+                            Integer dstMax = ingressSecurityRule.getTcpOptions().getDestinationPortRange().getMax();
+                            destinationPort = dstMin.equals(dstMax) ? String.valueOf(dstMin) : dstMin + "-" + dstMax;
                         }
-                        info.setSourcePort(sourcePort);
-                        info.setDestinationPort(destinationPort);
-
-                        finalIngressMap.put(ruleId, ingressSecurityRule);
-                        return info;
-                    }).collect(Collectors.toList());
+                    }
                 }
-
-                if (params.getType().equals(1)) {
-                    Map<String, EgressSecurityRule> finalEgressMap = egressMap;
-                    rspRuleList = egressSecurityRuleList.parallelStream().map(egressSecurityRule -> {
-                        SecurityRuleListRsp.SecurityRuleInfo info = new SecurityRuleListRsp.SecurityRuleInfo();
-                        String ruleId = IdUtil.getSnowflakeNextIdStr();
-                        info.setId(ruleId);
-                        info.setIsStateless(egressSecurityRule.getIsStateless());
-                        info.setProtocol(SecurityRuleProtocolEnum.fromCode(egressSecurityRule.getProtocol()).getDesc());
-                        info.setSourceOrDestination(egressSecurityRule.getDestination());
-                        info.setTypeAndCode(egressSecurityRule.getProtocol().equals("1") ? (null == egressSecurityRule.getIcmpOptions() ? "全部" :
-                                egressSecurityRule.getIcmpOptions().getType() +
-                                        (null == egressSecurityRule.getIcmpOptions().getCode() ? "" :
-                                                ", " + egressSecurityRule.getIcmpOptions().getCode())) : null);
-                        info.setDescription(egressSecurityRule.getDescription());
-                        List<String> protocolList = Arrays.asList("6", "17");
-                        String sourcePort = protocolList.contains(egressSecurityRule.getProtocol()) ? "全部" : null;
-                        String destinationPort = protocolList.contains(egressSecurityRule.getProtocol()) ? "全部" : null;
-                        if ("6".equals(egressSecurityRule.getProtocol())) {
-                            if (null != egressSecurityRule.getTcpOptions()) {
-                                if (null != egressSecurityRule.getTcpOptions().getSourcePortRange()) {
-                                    Integer sourceMin = egressSecurityRule.getTcpOptions().getSourcePortRange().getMin();
-                                    Integer sourceMax = egressSecurityRule.getTcpOptions().getSourcePortRange().getMax();
-                                    sourcePort = sourceMin.equals(sourceMax) ? String.valueOf(sourceMin) : sourceMin + "-" + sourceMax;
-                                }
-                                if (null != egressSecurityRule.getTcpOptions().getDestinationPortRange()) {
-                                    Integer dstMin = egressSecurityRule.getTcpOptions().getDestinationPortRange().getMin();
-                                    Integer dstMax = egressSecurityRule.getTcpOptions().getDestinationPortRange().getMax();
-                                    destinationPort = dstMin.equals(dstMax) ? String.valueOf(dstMin) : dstMin + "-" + dstMax;
-                                }
-                            }
+                if ("17".equals(ingressSecurityRule.getProtocol())) {
+                    if (null != ingressSecurityRule.getUdpOptions()) {
+                        if (null != ingressSecurityRule.getUdpOptions().getSourcePortRange()) {
+                            Integer sourceMin = ingressSecurityRule.getUdpOptions().getSourcePortRange().getMin();
+                            Integer sourceMax = ingressSecurityRule.getUdpOptions().getSourcePortRange().getMax();
+                            sourcePort = sourceMin.equals(sourceMax) ? String.valueOf(sourceMin) : sourceMin + "-" + sourceMax;
                         }
-                        if ("17".equals(egressSecurityRule.getProtocol())) {
-                            if (null != egressSecurityRule.getUdpOptions()) {
-                                if (null != egressSecurityRule.getUdpOptions().getSourcePortRange()) {
-                                    Integer sourceMin = egressSecurityRule.getUdpOptions().getSourcePortRange().getMin();
-                                    Integer sourceMax = egressSecurityRule.getUdpOptions().getSourcePortRange().getMax();
-                                    sourcePort = sourceMin.equals(sourceMax) ? String.valueOf(sourceMin) : sourceMin + "-" + sourceMax;
-                                }
-                                if (null != egressSecurityRule.getUdpOptions().getDestinationPortRange()) {
-                                    Integer dstMin = egressSecurityRule.getUdpOptions().getDestinationPortRange().getMin();
-                                    Integer dstMax = egressSecurityRule.getUdpOptions().getDestinationPortRange().getMax();
-                                    destinationPort = dstMin.equals(dstMax) ? String.valueOf(dstMin) : dstMin + "-" + dstMax;
-                                }
-                            }
+                        if (null != ingressSecurityRule.getUdpOptions().getDestinationPortRange()) {
+                            Integer dstMin = ingressSecurityRule.getUdpOptions().getDestinationPortRange().getMin();
+                            Integer dstMax = ingressSecurityRule.getUdpOptions().getDestinationPortRange().getMax();
+                            destinationPort = dstMin.equals(dstMax) ? String.valueOf(dstMin) : dstMin + "-" + dstMax;
                         }
-                        info.setSourcePort(sourcePort);
-                        info.setDestinationPort(destinationPort);
+                    }
+                }
+                info.setSourcePort(sourcePort);
+                info.setDestinationPort(destinationPort);
+
+                ingressMap.put(ruleId, ingressSecurityRule);
+                return info;
+            }).collect(Collectors.toList());
 
-                        finalEgressMap.put(ruleId, egressSecurityRule);
-                        return info;
-                    }).collect(Collectors.toList());
+            List<SecurityRuleListRsp.SecurityRuleInfo> egressRules = securityList.getEgressSecurityRules().stream().map(egressSecurityRule -> {
+                SecurityRuleListRsp.SecurityRuleInfo info = new SecurityRuleListRsp.SecurityRuleInfo();
+                String ruleId = IdUtil.getSnowflakeNextIdStr();
+                info.setId(ruleId);
+                info.setIsStateless(egressSecurityRule.getIsStateless());
+                info.setProtocol(SecurityRuleProtocolEnum.fromCode(egressSecurityRule.getProtocol()).getDesc());
+                info.setSourceOrDestination(egressSecurityRule.getDestination());
+                info.setTypeAndCode(egressSecurityRule.getProtocol().equals("1") ? (null == egressSecurityRule.getIcmpOptions() ? "全部" :
+                        egressSecurityRule.getIcmpOptions().getType() +
+                                (null == egressSecurityRule.getIcmpOptions().getCode() ? "" :
+                                        ", " + egressSecurityRule.getIcmpOptions().getCode())) : null);
+                info.setDescription(egressSecurityRule.getDescription());
+                List<String> protocolList = Arrays.asList("6", "17");
+                String sourcePort = protocolList.contains(egressSecurityRule.getProtocol()) ? "全部" : null;
+                String destinationPort = protocolList.contains(egressSecurityRule.getProtocol()) ? "全部" : null;
+                if ("6".equals(egressSecurityRule.getProtocol())) {
+                    if (null != egressSecurityRule.getTcpOptions()) {
+                        if (null != egressSecurityRule.getTcpOptions().getSourcePortRange()) {
+                            Integer sourceMin = egressSecurityRule.getTcpOptions().getSourcePortRange().getMin();
+                            Integer sourceMax = egressSecurityRule.getTcpOptions().getSourcePortRange().getMax();
+                            sourcePort = sourceMin.equals(sourceMax) ? String.valueOf(sourceMin) : sourceMin + "-" + sourceMax;
+                        }
+                        if (null != egressSecurityRule.getTcpOptions().getDestinationPortRange()) {
+                            Integer dstMin = egressSecurityRule.getTcpOptions().getDestinationPortRange().getMin();
+                            Integer dstMax = egressSecurityRule.getTcpOptions().getDestinationPortRange().getMax();
+                            destinationPort = dstMin.equals(dstMax) ? String.valueOf(dstMin) : dstMin + "-" + dstMax;
+                        }
+                    }
                 }
-            } catch (Exception e) {
-                log.error("获取安全列表规则失败", e);
-                throw new OciException(-1, "获取安全列表规则失败");
-            }
-        }
+                if ("17".equals(egressSecurityRule.getProtocol())) {
+                    if (null != egressSecurityRule.getUdpOptions()) {
+                        if (null != egressSecurityRule.getUdpOptions().getSourcePortRange()) {
+                            Integer sourceMin = egressSecurityRule.getUdpOptions().getSourcePortRange().getMin();
+                            Integer sourceMax = egressSecurityRule.getUdpOptions().getSourcePortRange().getMax();
+                            sourcePort = sourceMin.equals(sourceMax) ? String.valueOf(sourceMin) : sourceMin + "-" + sourceMax;
+                        }
+                        if (null != egressSecurityRule.getUdpOptions().getDestinationPortRange()) {
+                            Integer dstMin = egressSecurityRule.getUdpOptions().getDestinationPortRange().getMin();
+                            Integer dstMax = egressSecurityRule.getUdpOptions().getDestinationPortRange().getMax();
+                            destinationPort = dstMin.equals(dstMax) ? String.valueOf(dstMin) : dstMin + "-" + dstMax;
+                        }
+                    }
+                }
+                info.setSourcePort(sourcePort);
+                info.setDestinationPort(destinationPort);
 
-        customCache.put(CacheConstant.PREFIX_INGRESS_SECURITY_RULE_PAGE + params.getOciCfgId(), ingressSecurityRuleList, 10 * 60 * 1000);
-        customCache.put(CacheConstant.PREFIX_EGRESS_SECURITY_RULE_PAGE + params.getOciCfgId(), egressSecurityRuleList, 10 * 60 * 1000);
-        customCache.put(CacheConstant.PREFIX_INGRESS_SECURITY_RULE_MAP + params.getVcnId(), ingressMap, 10 * 60 * 1000);
-        customCache.put(CacheConstant.PREFIX_EGRESS_SECURITY_RULE_MAP + params.getVcnId(), egressMap, 10 * 60 * 1000);
+                egressMap.put(ruleId, egressSecurityRule);
+                return info;
+            }).collect(Collectors.toList());
 
-        List<SecurityRuleListRsp.SecurityRuleInfo> resList = rspRuleList.parallelStream()
-                .filter(x -> CommonUtils.contains(x.getSourceOrDestination(), params.getKeyword(), true) ||
-                        CommonUtils.contains(x.getDescription(), params.getKeyword(), true) ||
-                        CommonUtils.contains(x.getSourcePort(), params.getKeyword(), true) ||
-                        CommonUtils.contains(x.getDestinationPort(), params.getKeyword(), true))
-                .sorted(Comparator.comparing(SecurityRuleListRsp.SecurityRuleInfo::getSourceOrDestination))
-                .collect(Collectors.toList());
-        List<SecurityRuleListRsp.SecurityRuleInfo> pageList = CommonUtils.getPage(resList, params.getCurrentPage(), params.getPageSize());
-        return VcnPageRsp.buildPage(pageList, params.getPageSize(), params.getCurrentPage(), resList.size());
+            return new RuleSnapshot(ingressRules, egressRules, ingressMap, egressMap);
+        } catch (Exception e) {
+            log.error("获取安全列表规则失败", e);
+            throw new OciException(-1, "获取安全列表规则失败");
+        }
     }
 
     @Override
@@ -233,6 +233,7 @@ public class SecurityRuleServiceImpl implements ISecurityRuleService {
             log.error("新增入站规则失败", e);
             throw new OciException(-1, "新增入站规则失败：" + e.getMessage());
         }
+        SECURITY_RULE_CACHE.invalidate(params.getVcnId());
     }
 
     @Override
@@ -272,13 +273,18 @@ public class SecurityRuleServiceImpl implements ISecurityRuleService {
             log.error("新增出站规则失败", e);
             throw new OciException(-1, "新增出站规则失败：" + e.getMessage());
         }
+        SECURITY_RULE_CACHE.invalidate(params.getVcnId());
     }
 
     @Override
     public void remove(RemoveSecurityRuleParams params) {
         SysUserDTO sysUserDTO = sysService.getOciUser(params.getOciCfgId());
-        Map<String, IngressSecurityRule> ingressMap = (Map<String, IngressSecurityRule>) customCache.get(CacheConstant.PREFIX_INGRESS_SECURITY_RULE_MAP + params.getVcnId());
-        Map<String, EgressSecurityRule> egressMap = (Map<String, EgressSecurityRule>) customCache.get(CacheConstant.PREFIX_EGRESS_SECURITY_RULE_MAP + params.getVcnId());
+        RuleSnapshot snapshot = SECURITY_RULE_CACHE.get(params.getVcnId());
+        if (snapshot == null) {
+            throw new OciException(-1, "安全规则列表已过期，请刷新后重试");
+        }
+        Map<String, IngressSecurityRule> ingressMap = new LinkedHashMap<>(snapshot.ingressMap());
+        Map<String, EgressSecurityRule> egressMap = new LinkedHashMap<>(snapshot.egressMap());
         params.getRuleIds().forEach(ruleId -> {
             if (params.getType().equals(0)) {
                 ingressMap.remove(ruleId);
@@ -310,10 +316,7 @@ public class SecurityRuleServiceImpl implements ISecurityRuleService {
             log.error("删除安全规则失败", e);
             throw new OciException(-1, "删除安全规则失败");
         }
-        customCache.remove(CacheConstant.PREFIX_INGRESS_SECURITY_RULE_PAGE + params.getOciCfgId());
-        customCache.remove(CacheConstant.PREFIX_EGRESS_SECURITY_RULE_PAGE + params.getOciCfgId());
-        customCache.remove(CacheConstant.PREFIX_INGRESS_SECURITY_RULE_MAP + params.getVcnId());
-        customCache.remove(CacheConstant.PREFIX_EGRESS_SECURITY_RULE_MAP + params.getVcnId());
+        SECURITY_RULE_CACHE.invalidate(params.getVcnId());
     }
 
     private Tuple2<Integer, Integer> getPortRange(String portRangeStr) {
@@ -1,5 +1,6 @@
 package com.yohann.ocihelper.service.impl;
 
+import ch.qos.logback.classic.Level;
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.date.DatePattern;
@@ -29,6 +30,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 import com.yohann.ocihelper.bean.constant.CacheConstant;
+import com.yohann.ocihelper.bean.dto.CfgHealthDTO;
 import com.yohann.ocihelper.bean.dto.GoogleLoginConfigDTO;
 import com.yohann.ocihelper.bean.dto.SysUserDTO;
 import com.yohann.ocihelper.bean.entity.IpData;
@@ -39,9 +41,9 @@ import com.yohann.ocihelper.bean.params.sys.*;
 import com.yohann.ocihelper.bean.response.sys.GetGlanceRsp;
 import com.yohann.ocihelper.bean.response.sys.GetSysCfgRsp;
 import com.yohann.ocihelper.bean.response.sys.LoginRsp;
-import com.yohann.ocihelper.config.OracleInstanceFetcher;
+import com.yohann.ocihelper.config.auth.TokenVerifier;
+import com.yohann.ocihelper.config.oci.OciClientPool;
 import com.yohann.ocihelper.enums.EnableEnum;
-import com.yohann.ocihelper.enums.MessageTypeEnum;
 import com.yohann.ocihelper.enums.SysCfgEnum;
 import com.yohann.ocihelper.enums.SysCfgTypeEnum;
 import com.yohann.ocihelper.exception.OciException;
@@ -50,7 +52,11 @@ import com.yohann.ocihelper.service.*;
 import com.yohann.ocihelper.telegram.TgBot;
 import com.yohann.ocihelper.utils.CommonUtils;
 import com.yohann.ocihelper.utils.CustomExpiryGuavaCache;
-import com.yohann.ocihelper.utils.MessageServiceFactory;
+import com.yohann.ocihelper.utils.LogStore;
+import com.yohann.ocihelper.utils.NotificationDispatcher;
+import com.yohann.ocihelper.utils.SQLiteWriteQueue;
+import com.yohann.ocihelper.utils.TimerWheelScheduler;
+import com.yohann.ocihelper.utils.TaskStateStore;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
@@ -96,7 +102,7 @@ public class SysServiceImpl implements ISysService {
     private String password;
 
     @Resource
-    private MessageServiceFactory messageServiceFactory;
+    private NotificationDispatcher notificationDispatcher;
     @Resource
     private IOciUserService userService;
     @Resource
@@ -104,6 +110,8 @@ public class SysServiceImpl implements ISysService {
     @Resource
     private IpSecurityService ipSecurityService;
     @Resource
+    private TokenVerifier tokenVerifier;
+    @Resource
     @Lazy
     private IIpDataService ipDataService;
     @Resource
@@ -123,11 +131,15 @@ public class SysServiceImpl implements ISysService {
     private ExecutorService virtualExecutor;
     @Resource
     private CustomExpiryGuavaCache<String, Object> customCache;
+    @Resource
+    private SQLiteWriteQueue writeQueue;
+    @Resource
+    @Lazy
+    private ILivenessService livenessService;
 
     @Override
     public void sendMessage(String message) {
-        virtualExecutor.execute(() -> messageServiceFactory.getMessageService(MessageTypeEnum.MSG_TYPE_DING_DING).sendMessage(message));
-        virtualExecutor.execute(() -> messageServiceFactory.getMessageService(MessageTypeEnum.MSG_TYPE_TELEGRAM).sendMessage(message));
+        notificationDispatcher.dispatch(message);
     }
 
     @Override
@@ -178,9 +190,8 @@ public class SysServiceImpl implements ISysService {
                 }
                 throw new OciException(-1, "验证码不能为空");
             }
-            OciKv mfa = kvService.getOne(new LambdaQueryWrapper<OciKv>()
-                    .eq(OciKv::getCode, SysCfgEnum.SYS_MFA_SECRET.getCode()));
-            if (!CommonUtils.verifyMfaCode(mfa.getValue(), params.getMfaCode())) {
+            String mfa = kvService.getCfgValue(SysCfgEnum.SYS_MFA_SECRET);
+            if (!CommonUtils.verifyMfaCode(mfa, params.getMfaCode())) {
                 log.error("请求IP：{} 登录失败（账号正确但MFA验证码错误）", clientIp);
                 boolean autoBlacklisted = ipSecurityService.recordLoginFailure(clientIp);
                 if (autoBlacklisted) {
@@ -239,13 +250,10 @@ public class SysServiceImpl implements ISysService {
 
         Map<String, Object> payload = new HashMap<>(1);
         payload.put("account", CommonUtils.getMD5(account));
-        String token = CommonUtils.genToken(payload, password);
+        String token = tokenVerifier.issue(payload);
 
         String latestVersion = CommonUtils.getLatestVersion();
-        String currentVersion = kvService.getObj(new LambdaQueryWrapper<OciKv>()
-                .eq(OciKv::getCode, SysCfgEnum.SYS_INFO_VERSION.getCode())
-                .eq(OciKv::getType, SysCfgTypeEnum.SYS_INFO.getCode())
-                .select(OciKv::getValue), String::valueOf);
+        String currentVersion = kvService.getCfgValue(SysCfgEnum.SYS_INFO_VERSION);
         sendMessage(String.format("✅ 登录成功\n\nIP: %s\n账号: %s\n时间: %s",
                 clientIp, params.getAccount(), LocalDateTime.now().format(CommonUtils.DATETIME_FMT_NORM)));
         LoginRsp rsp = new LoginRsp();
@@ -383,11 +391,10 @@ public class SysServiceImpl implements ISysService {
             rsp.setAllowedEmails(null);
         }
 
-        OciKv mfa = kvService.getOne(new LambdaQueryWrapper<OciKv>()
-                .eq(OciKv::getCode, SysCfgEnum.SYS_MFA_SECRET.getCode()));
+        String mfa = kvService.getCfgValue(SysCfgEnum.SYS_MFA_SECRET);
         rsp.setEnableMfa(mfa != null);
         Optional.ofNullable(mfa).ifPresent(x -> {
-            rsp.setMfaSecret(x.getValue());
+            rsp.setMfaSecret(x);
             try (FileInputStream in = new FileInputStream(CommonUtils.MFA_QR_PNG_PATH);
                  ByteArrayOutputStream out = new ByteArrayOutputStream()) {
                 IoUtil.copy(in, out);
@@ -401,8 +408,7 @@ public class SysServiceImpl implements ISysService {
 
     @Override
     public boolean getEnableMfa() {
-        return kvService.getOne(new LambdaQueryWrapper<OciKv>()
-                .eq(OciKv::getCode, SysCfgEnum.SYS_MFA_SECRET.getCode())) != null;
+        return kvService.getCfgValue(SysCfgEnum.SYS_MFA_SECRET) != null;
     }
 
     @Override
@@ -420,6 +426,9 @@ public class SysServiceImpl implements ISysService {
             String keysDirPath = basicDirPath + "keys";
             FileUtil.copy(keysDirPath, tempDir.getAbsolutePath(), true);
 
+            // 先把排队中的写入落库，保证导出的是最新数据
+            TaskStateStore.flush();
+            writeQueue.checkpointForBackup();
             Map<String, IService> serviceMap = SpringUtil.getBeanFactory().getBeansOfType(IService.class);
             Map<String, List> listMap = serviceMap.entrySet().parallelStream()
                     .collect(Collectors.toMap(Map.Entry::getKey, (x) -> x.getValue().list()));
@@ -469,6 +478,9 @@ public class SysServiceImpl implements ISysService {
             String keysDirPath = basicDirPath + "keys";
             FileUtil.copy(keysDirPath, tempDir.getAbsolutePath(), true);
 
+            // 先把排队中的写入落库，保证导出的是最新数据
+            TaskStateStore.flush();
+            writeQueue.checkpointForBackup();
             Map<String, IService> serviceMap = SpringUtil.getBeanFactory().getBeansOfType(IService.class);
             Map<String, List> listMap = serviceMap.entrySet().parallelStream()
                     .collect(Collectors.toMap(Map.Entry::getKey, (x) -> x.getValue().list()));
@@ -576,6 +588,12 @@ public class SysServiceImpl implements ISysService {
         } finally {
             FileUtil.del(tempZip);
             FileUtil.del(unzipDir);
+            // 配置可能整体被替换，丢弃已缓存的 OCI 客户端会话
+            OciClientPool.invalidateAll();
+            // 任务状态表随备份一并恢复，重新载入内存
+            TaskStateStore.reload();
+            // 恢复时 oci_kv 被整表替换，重建系统配置快照
+            kvService.refreshCfgSnapshot();
             virtualExecutor.execute(() -> {
                 initGenMfaPng();
                 cleanAndRestartTask();
@@ -690,6 +708,12 @@ public class SysServiceImpl implements ISysService {
                     log.warn("删除临时目录失败", e);
                 }
             }
+            // 配置可能整体被替换，丢弃已缓存的 OCI 客户端会话
+            OciClientPool.invalidateAll();
+            // 任务状态表随备份一并恢复，重新载入内存
+            TaskStateStore.reload();
+            // 恢复时 oci_kv 被整表替换，重建系统配置快照
+            kvService.refreshCfgSnapshot();
             virtualExecutor.execute(() -> {
                 initGenMfaPng();
                 cleanAndRestartTask();
@@ -749,10 +773,7 @@ public class SysServiceImpl implements ISysService {
             return String.valueOf(uptimeMillis / (24 * 60 * 60 * 1000));
         }, virtualExecutor);
 
-        CompletableFuture<String> currentVersionFuture = CompletableFuture.supplyAsync(() -> kvService.getObj(new LambdaQueryWrapper<OciKv>()
-                .eq(OciKv::getCode, SysCfgEnum.SYS_INFO_VERSION.getCode())
-                .eq(OciKv::getType, SysCfgTypeEnum.SYS_INFO.getCode())
-                .select(OciKv::getValue), String::valueOf), virtualExecutor);
+        CompletableFuture<String> currentVersionFuture = CompletableFuture.completedFuture(kvService.getCfgValue(SysCfgEnum.SYS_INFO_VERSION));
 
         CompletableFuture.allOf(mapDataFuture, tasksFuture, regionsFuture, daysFuture, currentVersionFuture).join();
 
@@ -810,9 +831,8 @@ public class SysServiceImpl implements ISysService {
 
     @Override
     public void checkMfaCode(String mfaCode) {
-        OciKv mfa = kvService.getOne(new LambdaQueryWrapper<OciKv>()
-                .eq(OciKv::getCode, SysCfgEnum.SYS_MFA_SECRET.getCode()));
-        if (!CommonUtils.verifyMfaCode(mfa.getValue(), Integer.parseInt(mfaCode))) {
+        String mfa = kvService.getCfgValue(SysCfgEnum.SYS_MFA_SECRET);
+        if (!CommonUtils.verifyMfaCode(mfa, Integer.parseInt(mfaCode))) {
             throw new OciException(-1, "无效的验证码");
         }
     }
@@ -820,10 +840,7 @@ public class SysServiceImpl implements ISysService {
     @Override
     public void updateVersion() {
         String latestVersion = CommonUtils.getLatestVersion();
-        String currentVersion = kvService.getObj(new LambdaQueryWrapper<OciKv>()
-                .eq(OciKv::getCode, SysCfgEnum.SYS_INFO_VERSION.getCode())
-                .eq(OciKv::getType, SysCfgTypeEnum.SYS_INFO.getCode())
-                .select(OciKv::getValue), String::valueOf);
+        String currentVersion = kvService.getCfgValue(SysCfgEnum.SYS_INFO_VERSION);
         if (latestVersion.equals(currentVersion)) {
             throw new OciException(-1, "当前已是最新版本，请返回主页并刷新页面查看");
         }
@@ -1022,14 +1039,11 @@ public class SysServiceImpl implements ISysService {
             Map<String, Object> tokenPayload = new HashMap<>(2);
             tokenPayload.put("account", CommonUtils.getMD5(email));
             tokenPayload.put("googleUser", true);
-            String token = CommonUtils.genToken(tokenPayload, password);
+            String token = tokenVerifier.issue(tokenPayload);
 
             // Get version info
             String latestVersion = CommonUtils.getLatestVersion();
-            String currentVersion = kvService.getObj(new LambdaQueryWrapper<OciKv>()
-                    .eq(OciKv::getCode, SysCfgEnum.SYS_INFO_VERSION.getCode())
-                    .eq(OciKv::getType, SysCfgTypeEnum.SYS_INFO.getCode())
-                    .select(OciKv::getValue), String::valueOf);
+            String currentVersion = kvService.getCfgValue(SysCfgEnum.SYS_INFO_VERSION);
 
             sendMessage(String.format("Google用户 [%s] 从IP：%s 登录成功，时间：%s",
                     email, clientIp, LocalDateTime.now().format(CommonUtils.DATETIME_FMT_NORM)));
@@ -1091,9 +1105,38 @@ public class SysServiceImpl implements ISysService {
         }
     }
 
+    @Override
+    public LogStore.Result queryLogs(QueryLogsParams params) {
+        LogStore store = LogStore.get();
+        if (store == null) {
+            throw new OciException(-1, "日志存储未启用");
+        }
+        Long from = null;
+        Long to = null;
+        try {
+            if (StrUtil.isNotBlank(params.getBeginTime())) {
+                from = LocalDateTime.parse(params.getBeginTime(), CommonUtils.DATETIME_FMT_NORM)
+                        .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            }
+            if (StrUtil.isNotBlank(params.getEndTime())) {
+                to = LocalDateTime.parse(params.getEndTime(), CommonUtils.DATETIME_FMT_NORM)
+                        .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            }
+        } catch (Exception e) {
+            throw new OciException(-1, "时间格式错误，应为 yyyy-MM-dd HH:mm:ss");
+        }
+        // 任务ID、配置名称都出现在日志正文中，按关键字匹配
+        List<String> keywords = new ArrayList<>();
+        keywords.add(params.getTaskId());
+        keywords.add(params.getUsername());
+        keywords.add(params.getKeyword());
+        Level minLevel = StrUtil.isBlank(params.getLevel()) ? null : Level.toLevel(params.getLevel(), null);
+        return store.tail(new LogStore.Query(from, to, minLevel, keywords,
+                params.getLimit() == null ? 500 : params.getLimit()));
+    }
+
     private String getCfgValue(SysCfgEnum sysCfgEnum) {
-        OciKv cfg = kvService.getOne(new LambdaQueryWrapper<OciKv>().eq(OciKv::getCode, sysCfgEnum.getCode()));
-        return cfg == null ? null : cfg.getValue();
+        return kvService.getCfgValue(sysCfgEnum);
     }
 
     /**
@@ -1116,12 +1159,12 @@ public class SysServiceImpl implements ISysService {
     private void cleanAndRestartTask() {
         List<OciCreateTask> tasks = Optional.ofNullable(createTaskService.list())
                 .filter(CollectionUtil::isNotEmpty).orElseGet(Collections::emptyList);
-        // Stagger task restoration: each task is submitted 5 seconds after the previous one
+        // Stagger task restoration across one interval (at most 5 seconds apart)
         // to avoid a thundering-herd of API calls right after startup / backup restore.
         for (int i = 0; i < tasks.size(); i++) {
             OciCreateTask task = tasks.get(i);
-            final long delaySeconds = (long) i * 5;
-            CREATE_INSTANCE_POOL.schedule(() -> {
+            final long delayMillis = staggerDelayMillis(i, tasks.size(), task.getInterval());
+            TimerWheelScheduler.INSTANCE.schedule(TimerWheelScheduler.TaskType.SYSTEM, "restore-" + task.getId(), () -> {
                 if (task.getCreateNumbers() <= 0) {
                     createTaskService.removeById(task.getId());
                 } else if (task.getPaused() != null && task.getPaused() == 1) {
@@ -1148,20 +1191,20 @@ public class SysServiceImpl implements ISysService {
                             .createNumbers(task.getCreateNumbers())
                             .operationSystem(task.getOperationSystem())
                             .rootPassword(task.getRootPassword())
+                            .raceConcurrency(task.getRaceConcurrency())
                             .build();
                     stopTask(CommonUtils.CREATE_TASK_PREFIX + task.getId());
                     addTask(CommonUtils.CREATE_TASK_PREFIX + task.getId(), () ->
                                     execCreate(sysUserDTO, this, instanceService, createTaskService),
                             0, task.getInterval(), TimeUnit.SECONDS);
                 }
-            }, delaySeconds, TimeUnit.SECONDS);
+            }, delayMillis, TimeUnit.MILLISECONDS);
         }
     }
 
     private void initGenMfaPng() {
-        Optional.ofNullable(kvService.getOne(new LambdaQueryWrapper<OciKv>()
-                .eq(OciKv::getCode, SysCfgEnum.SYS_MFA_SECRET.getCode()))).ifPresent(mfa -> {
-            String qrCodeURL = CommonUtils.generateQRCodeURL(mfa.getValue(), account, "oci-helper");
+        Optional.ofNullable(kvService.getCfgValue(SysCfgEnum.SYS_MFA_SECRET)).ifPresent(mfa -> {
+            String qrCodeURL = CommonUtils.generateQRCodeURL(mfa, account, "oci-helper");
             CommonUtils.genQRPic(CommonUtils.MFA_QR_PNG_PATH, qrCodeURL);
         });
     }
@@ -1175,24 +1218,8 @@ public class SysServiceImpl implements ISysService {
                 "⚠\uFE0F 失效的API配置：\t\n- %s\n" +
                 "\uD83D\uDECE 正在执行的开机任务：\n" +
                 "%s\n";
-        List<String> ids = userService.listObjs(new LambdaQueryWrapper<OciUser>()
-                .isNotNull(OciUser::getId)
-                .select(OciUser::getId), String::valueOf);
-
-        CompletableFuture<List<String>> fails = CompletableFuture.supplyAsync(() -> {
-            if (ids.isEmpty()) {
-                return Collections.emptyList();
-            }
-            return ids.parallelStream().filter(id -> {
-                SysUserDTO ociUser = this.getOciUser(id);
-                try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(ociUser)) {
-                    fetcher.getAvailabilityDomains();
-                } catch (Exception e) {
-                    return true;
-                }
-                return false;
-            }).map(id -> this.getOciUser(id).getUsername()).collect(Collectors.toList());
-        });
+        // 测活结果来自测活表，后台已定时刷新
+        CompletableFuture<List<CfgHealthDTO>> healths = CompletableFuture.supplyAsync(() -> livenessService.check(false), virtualExecutor);
 
         CompletableFuture<String> task = CompletableFuture.supplyAsync(() -> {
             List<OciCreateTask> ociCreateTaskList = createTaskService.list();
@@ -1202,20 +1229,24 @@ public class SysServiceImpl implements ISysService {
             String template = "[%s] [%s] [%s] [%s核/%sGB/%sGB] [%s台] [%s] [%s次]";
             return ociCreateTaskList.parallelStream().map(x -> {
                 OciUser ociUser = userService.getById(x.getUserId());
-                Long counts = (Long) TEMP_MAP.get(CommonUtils.CREATE_COUNTS_PREFIX + x.getId());
+                long counts = TaskStateStore.attempts(TaskStateStore.Kind.CREATE, x.getId());
                 return String.format(template, ociUser.getUsername(), ociUser.getOciRegion(), x.getArchitecture(),
                         x.getOcpus().longValue(), x.getMemory().longValue(), x.getDisk(), x.getCreateNumbers(),
-                        CommonUtils.getTimeDifference(x.getCreateTime()), counts == null ? "0" : counts);
+                        CommonUtils.getTimeDifference(x.getCreateTime()), counts);
             }).collect(Collectors.joining("\n"));
-        });
+        }, virtualExecutor);
 
-        CompletableFuture.allOf(fails, task).join();
+        CompletableFuture.allOf(healths, task).join();
 
+        List<String> fails = healths.join().stream()
+                .filter(x -> !x.isAlive())
+                .map(CfgHealthDTO::getUsername)
+                .collect(Collectors.toList());
         this.sendMessage(String.format(message,
                 LocalDateTime.now().format(CommonUtils.DATETIME_FMT_NORM),
-                CollectionUtil.isEmpty(ids) ? 0 : ids.size(),
-                fails.join().size(),
-                String.join("\n- ", fails.join()),
+                healths.join().size(),
+                fails.size(),
+                String.join("\n- ", fails),
                 task.join()
         ));
     }
@@ -13,7 +13,6 @@ import com.oracle.bmc.identity.requests.ListRegionSubscriptionsRequest;
 import com.oracle.bmc.identity.requests.ListUsersRequest;
 import com.oracle.bmc.identitydomains.model.PasswordPolicy;
 import com.oracle.bmc.ospgateway.model.Subscription;
-import com.yohann.ocihelper.bean.constant.CacheConstant;
 import com.yohann.ocihelper.bean.dto.SysUserDTO;
 import com.yohann.ocihelper.bean.entity.OciUser;
 import com.yohann.ocihelper.bean.params.oci.tenant.GetTenantInfoParams;
@@ -28,8 +27,8 @@ import com.yohann.ocihelper.service.IOciUserService;
 import com.yohann.ocihelper.service.ISysService;
 import com.yohann.ocihelper.service.ITenantService;
 import com.yohann.ocihelper.utils.CommonUtils;
-import com.yohann.ocihelper.utils.CustomExpiryGuavaCache;
 import com.yohann.ocihelper.utils.OciUtils;
+import com.yohann.ocihelper.utils.TypedCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.stereotype.Service;
@@ -42,6 +41,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -54,21 +54,31 @@ import java.util.stream.Collectors;
 @Slf4j
 public class TenantServiceImpl implements ITenantService {
 
+    private static final TypedCache<String, TenantInfoRsp> TENANT_INFO_CACHE =
+            TypedCache.create("tenant_info", 10, TimeUnit.MINUTES, 1000);
+
     @Resource
     private ISysService sysService;
     @Resource
     private IOciUserService userService;
     @Resource
     private ExecutorService virtualExecutor;
-    @Resource
-    private CustomExpiryGuavaCache<String, Object> customCache;
 
     @Override
     public TenantInfoRsp tenantInfo(GetTenantInfoParams params) {
         if (params.isCleanReLaunch()) {
-            customCache.remove(CacheConstant.PREFIX_TENANT_INFO + params.getOciCfgId());
+            TENANT_INFO_CACHE.invalidate(params.getOciCfgId());
         }
 
+        TenantInfoRsp rsp = TENANT_INFO_CACHE.getOrLoad(params.getOciCfgId(), () -> loadTenantInfo(params));
+        if (StrUtil.isBlank(rsp.getCreatTime())) {
+            // 部分信息没取到时不留缓存，下次重新拉取
+            TENANT_INFO_CACHE.invalidate(params.getOciCfgId());
+        }
+        return rsp;
+    }
+
+    private TenantInfoRsp loadTenantInfo(GetTenantInfoParams params) {
         SysUserDTO sysUserDTO = sysService.getOciUser(params.getOciCfgId());
         if (StrUtil.isNotBlank(params.getRegion())) {
             SysUserDTO.OciCfg ociCfg = sysUserDTO.getOciCfg();
@@ -76,12 +86,6 @@ public class TenantServiceImpl implements ITenantService {
             sysUserDTO.setOciCfg(ociCfg);
         }
 
-        TenantInfoRsp tenantInfoInCache = (TenantInfoRsp) customCache.get(CacheConstant.PREFIX_TENANT_INFO + params.getOciCfgId());
-        if (tenantInfoInCache != null && StrUtil.isNotBlank(tenantInfoInCache.getCreatTime())) {
-            customCache.put(CacheConstant.PREFIX_TENANT_INFO + params.getOciCfgId(), tenantInfoInCache, 10 * 60 * 1000);
-            return tenantInfoInCache;
-        }
-
         TenantInfoRsp rsp = new TenantInfoRsp();
         try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
             IdentityClient identityClient = fetcher.getIdentityClient();
@@ -209,7 +213,6 @@ public class TenantServiceImpl implements ITenantService {
                 rsp.setSubscriptionInfo(info);
             }
 
-            customCache.put(CacheConstant.PREFIX_TENANT_INFO + params.getOciCfgId(), rsp, 10 * 60 * 1000);
             return rsp;
         } catch (Exception e) {
             log.error("获取租户信息失败", e);
@@ -1,14 +1,12 @@
 package com.yohann.ocihelper.service.impl;
 
 import cn.hutool.core.collection.CollectionUtil;
-import com.oracle.bmc.core.model.Instance;
 import com.oracle.bmc.core.model.Vnic;
-import com.oracle.bmc.identity.model.RegionSubscription;
 import com.oracle.bmc.monitoring.model.SummarizeMetricsDataDetails;
 import com.oracle.bmc.monitoring.requests.SummarizeMetricsDataRequest;
 import com.oracle.bmc.monitoring.responses.SummarizeMetricsDataResponse;
-import com.yohann.ocihelper.bean.Tuple2;
 import com.yohann.ocihelper.bean.constant.CacheConstant;
+import com.yohann.ocihelper.bean.dto.FleetInventoryDTO;
 import com.yohann.ocihelper.bean.dto.SysUserDTO;
 import com.yohann.ocihelper.bean.dto.ValueLabelDTO;
 import com.yohann.ocihelper.bean.params.oci.traffic.GetTrafficDataParams;
@@ -17,14 +15,21 @@ import com.yohann.ocihelper.bean.response.oci.traffic.GetConditionRsp;
 import com.yohann.ocihelper.bean.response.oci.traffic.GetTrafficDataRsp;
 import com.yohann.ocihelper.config.OracleInstanceFetcher;
 import com.yohann.ocihelper.exception.OciException;
+import com.yohann.ocihelper.service.IFleetInventoryService;
 import com.yohann.ocihelper.service.ISysService;
+import com.yohann.ocihelper.service.ITrafficStoreService;
 import com.yohann.ocihelper.service.ITrafficService;
 import com.yohann.ocihelper.utils.CommonUtils;
+import com.yohann.ocihelper.utils.TrafficAggregator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.Resource;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -38,11 +43,22 @@ import java.util.stream.Collectors;
 @Slf4j
 public class TrafficServiceImpl implements ITrafficService {
 
+    /** 页面生成的单 vnic 查询，如 VnicToNetworkBytes[60m]{resourceId = "ocid..."}.sum() */
+    private static final Pattern VNIC_QUERY = Pattern.compile("^Vnic(To|From)NetworkBytes\\[(\\d+)m]\\{resourceId = \"([^\"]+)\"}\\.sum\\(\\)$");
+
     @Resource
     private ISysService sysService;
+    @Resource
+    private IFleetInventoryService fleetInventoryService;
+    @Resource
+    private ITrafficStoreService trafficStoreService;
 
     @Override
     public GetTrafficDataRsp getData(GetTrafficDataParams params) {
+        GetTrafficDataRsp local = localData(params);
+        if (local != null) {
+            return local;
+        }
         SysUserDTO sysUserDTO = sysService.getOciUser(params.getOciCfgId());
         SysUserDTO.OciCfg ociCfg = sysUserDTO.getOciCfg();
         ociCfg.setRegion(params.getRegion());
@@ -69,32 +85,20 @@ public class TrafficServiceImpl implements ITrafficService {
 
     @Override
     public GetConditionRsp getCondition(String ociCfgId) {
-        SysUserDTO sysUserDTO = sysService.getOciUser(ociCfgId);
-        try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
+        try {
             GetConditionRsp rsp = new GetConditionRsp();
-            List<RegionSubscription> regionSubscriptionList = fetcher.listRegionSubscriptions();
-            rsp.setRegionOptions(Optional.ofNullable(regionSubscriptionList)
-                    .filter(CollectionUtil::isNotEmpty).orElseGet(Collections::emptyList).stream()
-                    .map(x -> new ValueLabelDTO(x.getRegionName(), x.getRegionName()))
+            List<String> regions = fleetInventoryService.listRegions(ociCfgId);
+            rsp.setRegionOptions(regions.stream()
+                    .map(x -> new ValueLabelDTO(x, x))
                     .collect(Collectors.toList()));
-            rsp.setInstanceOptions(Optional.ofNullable(regionSubscriptionList)
-                    .filter(CollectionUtil::isNotEmpty).orElseGet(Collections::emptyList).parallelStream()
-                    .map(x -> {
-                        SysUserDTO.OciCfg ociCfg = sysUserDTO.getOciCfg();
-                        ociCfg.setRegion(x.getRegionName());
-                        sysUserDTO.setOciCfg(ociCfg);
-                        try (OracleInstanceFetcher otherFetcher = new OracleInstanceFetcher(sysUserDTO)) {
-                            List<ValueLabelDTO> instances = Optional.ofNullable(otherFetcher.listInstances())
-                                    .filter(CollectionUtil::isNotEmpty).orElseGet(Collections::emptyList).parallelStream()
-                                    .map(y -> new ValueLabelDTO(y.getDisplayName(), y.getId()))
-                                    .collect(Collectors.toList());
-                            return Tuple2.of(x.getRegionName(), instances);
-                        } catch (Exception e) {
-                            log.error("获取区域实例失败", e);
-                            throw new OciException(-1, "获取区域实例失败：" + e.getMessage());
-                        }
-                    })
-                    .collect(Collectors.toMap(Tuple2::getFirst, Tuple2::getSecond)));
+            Map<String, List<ValueLabelDTO>> instanceOptions = new HashMap<>();
+            for (String region : regions) {
+                instanceOptions.put(region, inventoryItems(ociCfgId, region).stream()
+                        .map(FleetInventoryDTO.InstanceItem::getInstance)
+                        .map(y -> new ValueLabelDTO(y.getDisplayName(), y.getId()))
+                        .collect(Collectors.toList()));
+            }
+            rsp.setInstanceOptions(instanceOptions);
             return rsp;
         } catch (Exception e) {
             log.error("获取区域失败", e);
@@ -104,69 +108,123 @@ public class TrafficServiceImpl implements ITrafficService {
 
     @Override
     public FetchInstancesRsp fetchInstances(String ociCfgId, String region) {
-        SysUserDTO sysUserDTO = sysService.getOciUser(ociCfgId);
-        SysUserDTO.OciCfg ociCfg = sysUserDTO.getOciCfg();
-        ociCfg.setRegion(region);
-        sysUserDTO.setOciCfg(ociCfg);
-        try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
-            FetchInstancesRsp rsp = new FetchInstancesRsp();
-            List<Instance> instanceList = fetcher.listInstances();
-            rsp.setInstanceCount(instanceList.size());
-            rsp.setInboundTraffic(CommonUtils.formatBytes(Optional.ofNullable(instanceList)
-                    .filter(CollectionUtil::isNotEmpty).orElseGet(Collections::emptyList).parallelStream()
-                    .map(x -> fetcher.listVnicByInstanceId(x.getId()).parallelStream().map(y ->
-                                    getTrafficData(fetcher, CacheConstant.OCI_TRAFFIC_NAMESPACE,
-                                            String.format(CacheConstant.OCI_TRAFFIC_QUERY_IN, y.getId()),
-                                            CommonUtils.localDateTime2Date(CommonUtils.getMonthFirstDayFirstSecond()),
-                                            CommonUtils.localDateTime2Date(CommonUtils.getMonthLastDayLastSecond())))
-                            .flatMap(Collection::stream)
-                            .collect(Collectors.toList()))
-                    .flatMap(Collection::stream)
-                    .map(ValueLabelDTO::getValue)
-                    .filter(Objects::nonNull)
-                    .filter(v -> v.matches("\\d+"))
-                    .mapToLong(Long::parseLong)
-                    .sum()));
-            rsp.setOutboundTraffic(CommonUtils.formatBytes(Optional.ofNullable(instanceList)
-                    .filter(CollectionUtil::isNotEmpty).orElseGet(Collections::emptyList).parallelStream()
-                    .map(x -> fetcher.listVnicByInstanceId(x.getId()).parallelStream().map(y ->
-                                    getTrafficData(fetcher, CacheConstant.OCI_TRAFFIC_NAMESPACE,
-                                            String.format(CacheConstant.OCI_TRAFFIC_QUERY_OUT, y.getId()),
-                                            CommonUtils.localDateTime2Date(CommonUtils.getMonthFirstDayFirstSecond()),
-                                            CommonUtils.localDateTime2Date(CommonUtils.getMonthLastDayLastSecond())))
-                            .flatMap(Collection::stream)
-                            .collect(Collectors.toList()))
-                    .flatMap(Collection::stream)
-                    .map(ValueLabelDTO::getValue)
-                    .filter(Objects::nonNull)
-                    .filter(v -> v.matches("\\d+"))
-                    .mapToLong(Long::parseLong)
-                    .sum()));
-            return rsp;
-        } catch (Exception e) {
-            log.error("获取区域实例失败", e);
-            throw new OciException(-1, "获取区域实例失败：" + e.getMessage());
-        }
+        List<FleetInventoryDTO.InstanceItem> items = inventoryItems(ociCfgId, region);
+        TrafficAggregator.Totals totals = monthTotals(ociCfgId, region);
+        FetchInstancesRsp rsp = new FetchInstancesRsp();
+        rsp.setInstanceCount(items.size());
+        // 区域总量包含本月已删除的 vnic
+        rsp.setInboundTraffic(CommonUtils.formatBytes(totals.inbound()));
+        rsp.setOutboundTraffic(CommonUtils.formatBytes(totals.outbound()));
+        rsp.setInstances(items.stream()
+                .map(item -> {
+                    List<String> vnicIds = Optional.ofNullable(item.getVnics()).orElseGet(Collections::emptyList).stream()
+                            .map(Vnic::getId)
+                            .collect(Collectors.toList());
+                    FetchInstancesRsp.InstanceTraffic traffic = new FetchInstancesRsp.InstanceTraffic();
+                    traffic.setInstanceId(item.getInstance().getId());
+                    traffic.setInstanceName(item.getInstance().getDisplayName());
+                    traffic.setInboundTraffic(CommonUtils.formatBytes(totals.inbound(vnicIds)));
+                    traffic.setOutboundTraffic(CommonUtils.formatBytes(totals.outbound(vnicIds)));
+                    return traffic;
+                })
+                .collect(Collectors.toList()));
+        return rsp;
     }
 
     @Override
     public List<ValueLabelDTO> fetchVnics(String ociCfgId, String region, String instanceId) {
+        List<Vnic> vnicList = inventoryItems(ociCfgId, region).stream()
+                .filter(x -> instanceId.equals(x.getInstance().getId()))
+                .map(FleetInventoryDTO.InstanceItem::getVnics)
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+        if (vnicList == null) {
+            // 快照中还没有该实例（刚创建），直接查询
+            SysUserDTO sysUserDTO = sysService.getOciUser(ociCfgId);
+            SysUserDTO.OciCfg ociCfg = sysUserDTO.getOciCfg();
+            ociCfg.setRegion(region);
+            sysUserDTO.setOciCfg(ociCfg);
+            try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
+                vnicList = fetcher.listVnicByInstanceId(instanceId);
+            } catch (Exception e) {
+                log.error("获取区域实例vnic失败", e);
+                throw new OciException(-1, "获取区域实例vnic失败：" + e.getMessage());
+            }
+        }
+        return Optional.ofNullable(vnicList)
+                .filter(CollectionUtil::isNotEmpty).orElseGet(Collections::emptyList).stream()
+                .map(x -> new ValueLabelDTO(x.getDisplayName(), x.getId()))
+                .collect(Collectors.toList());
+    }
+
+    private List<FleetInventoryDTO.InstanceItem> inventoryItems(String ociCfgId, String region) {
+        return Optional.ofNullable(fleetInventoryService.get(ociCfgId, region, false))
+                .map(FleetInventoryDTO::getInstances)
+                .orElseGet(Collections::emptyList);
+    }
+
+    /**
+     * 本月流量优先读本地时序库，本地尚未同步时实时查询
+     */
+    private TrafficAggregator.Totals monthTotals(String ociCfgId, String region) {
+        TrafficAggregator.Totals local = trafficStoreService.monthTotals(ociCfgId, region);
+        if (local != null) {
+            return local;
+        }
         SysUserDTO sysUserDTO = sysService.getOciUser(ociCfgId);
         SysUserDTO.OciCfg ociCfg = sysUserDTO.getOciCfg();
         ociCfg.setRegion(region);
         sysUserDTO.setOciCfg(ociCfg);
+        // 与本地库按同一时区划分月份
+        ZonedDateTime monthStart = ZonedDateTime.now(ITrafficStoreService.ZONE).withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS);
         try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
-            List<Vnic> vnicList = fetcher.listVnicByInstanceId(instanceId);
-            return Optional.ofNullable(vnicList)
-                    .filter(CollectionUtil::isNotEmpty).orElseGet(Collections::emptyList).parallelStream()
-                    .map(x -> new ValueLabelDTO(x.getDisplayName(), x.getId()))
-                    .collect(Collectors.toList());
+            return TrafficAggregator.summarize(fetcher,
+                    Date.from(monthStart.toInstant()),
+                    Date.from(monthStart.plusMonths(1).minusSeconds(1).toInstant()));
         } catch (Exception e) {
-            log.error("获取区域实例vnic失败", e);
-            throw new OciException(-1, "获取区域实例vnic失败：" + e.getMessage());
+            log.error("获取区域实例失败", e);
+            throw new OciException(-1, "获取区域实例失败：" + e.getMessage());
         }
     }
 
+    /**
+     * 页面查询的是单个 vnic 的小时或天粒度流量时，从本地时序库读取；其它查询返回 null 走实时查询
+     */
+    private GetTrafficDataRsp localData(GetTrafficDataParams params) {
+        Matcher in = VNIC_QUERY.matcher(params.getInQuery());
+        Matcher out = VNIC_QUERY.matcher(params.getOutQuery());
+        if (!in.matches() || !out.matches() || !"To".equals(in.group(1)) || !"From".equals(out.group(1))
+                || !in.group(2).equals(out.group(2)) || !in.group(3).equals(out.group(3))) {
+            return null;
+        }
+        ITrafficStoreService.Granularity granularity = switch (in.group(2)) {
+            case "60" -> ITrafficStoreService.Granularity.HOUR;
+            case "1440" -> ITrafficStoreService.Granularity.DAY;
+            default -> null;
+        };
+        if (granularity == null) {
+            return null;
+        }
+        ITrafficStoreService.Series series = trafficStoreService.series(params.getOciCfgId(), params.getRegion(), in.group(3),
+                granularity, params.getBeginTime().getTime(), params.getEndTime().getTime());
+        if (series == null) {
+            return null;
+        }
+        List<String> time = new ArrayList<>(series.buckets().length);
+        List<String> inbound = new ArrayList<>(series.buckets().length);
+        List<String> outbound = new ArrayList<>(series.buckets().length);
+        for (int i = 0; i < series.buckets().length; i++) {
+            time.add(CommonUtils.dateFmt2String(new Date(series.buckets()[i])));
+            inbound.add(CommonUtils.formatBytes(series.toNetworkBytes()[i], "GB"));
+            outbound.add(CommonUtils.formatBytes(series.fromNetworkBytes()[i], "GB"));
+        }
+        GetTrafficDataRsp rsp = new GetTrafficDataRsp();
+        rsp.setTime(time);
+        rsp.setInbound(inbound);
+        rsp.setOutbound(outbound);
+        return rsp;
+    }
 
     private List<ValueLabelDTO> getTrafficData(OracleInstanceFetcher fetcher,
                                                String namespace,
@@ -183,9 +241,9 @@ public class TrafficServiceImpl implements ITrafficService {
                                 .build())
                         .build());
         return Optional.ofNullable(summarizeMetricsDataResponse.getItems())
-                .filter(CollectionUtil::isNotEmpty).orElseGet(Collections::emptyList).parallelStream()
+                .filter(CollectionUtil::isNotEmpty).orElseGet(Collections::emptyList).stream()
                 .map(x -> Optional.ofNullable(x.getAggregatedDatapoints())
-                        .filter(CollectionUtil::isNotEmpty).orElseGet(Collections::emptyList).parallelStream()
+                        .filter(CollectionUtil::isNotEmpty).orElseGet(Collections::emptyList).stream()
                         .map(y -> new ValueLabelDTO(CommonUtils.dateFmt2String(y.getTimestamp()),
                                 (y.getValue().longValue()) + ""))
                         .collect(Collectors.toList()))
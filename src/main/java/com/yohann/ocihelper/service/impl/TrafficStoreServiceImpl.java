@@ -0,0 +1,413 @@
+package com.yohann.ocihelper.service.impl;
+
+import cn.hutool.core.collection.CollectionUtil;
+import cn.hutool.core.date.DatePattern;
+import cn.hutool.core.util.IdUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.yohann.ocihelper.bean.dto.SysUserDTO;
+import com.yohann.ocihelper.bean.entity.OciKv;
+import com.yohann.ocihelper.bean.entity.OciTrafficPoint;
+import com.yohann.ocihelper.bean.entity.OciTrafficSync;
+import com.yohann.ocihelper.bean.entity.OciUser;
+import com.yohann.ocihelper.config.OracleInstanceFetcher;
+import com.yohann.ocihelper.enums.SysCfgTypeEnum;
+import com.yohann.ocihelper.mapper.OciTrafficPointMapper;
+import com.yohann.ocihelper.mapper.OciTrafficSyncMapper;
+import com.yohann.ocihelper.service.*;
+import com.yohann.ocihelper.utils.CommonUtils;
+import com.yohann.ocihelper.utils.OciFanOut;
+import com.yohann.ocihelper.utils.TimerWheelScheduler;
+import com.yohann.ocihelper.utils.TrafficAggregator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * <p>
+ * TrafficStoreServiceImpl
+ * </p >
+ * Local time series of VNIC traffic. Every hour each config and subscribed region is synced from
+ * the last synced hour on, with one grouped hourly query per direction (see {@link TrafficAggregator}),
+ * and the touched days and months are rolled up from the hourly rows. The first sync of a region
+ * backfills from the start of the previous month. Charts, the monthly summary and the Telegram
+ * statistics read these rows instead of OCI Monitoring as long as the data is fresh and covers the
+ * requested range; reads come back as columnar long arrays.
+ * <p>
+ * Days and months are cut in {@link ITrafficStoreService#ZONE} (UTC), the same as the {@code [1440m]}
+ * aggregation of the live queries, so both paths show the same buckets.
+ * <p>
+ * After each sync the month's VnicToNetworkBytes (the billed egress direction) of a config is checked
+ * against the free quota and a notification is sent once per month and alert level.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+@Slf4j
+@Service
+public class TrafficStoreServiceImpl implements ITrafficStoreService {
+
+    private static final DateTimeFormatter MONTH_FMT = DateTimeFormatter.ofPattern(DatePattern.SIMPLE_MONTH_PATTERN);
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long SYNC_INTERVAL_MINUTES = 60;
+    /** 单次查询的时间跨度 */
+    private static final long CHUNK_MILLIS = TimeUnit.DAYS.toMillis(7);
+    private static final long HOUR_RETENTION_MILLIS = TimeUnit.DAYS.toMillis(62);
+    private static final long DAY_RETENTION_MILLIS = TimeUnit.DAYS.toMillis(400);
+    /** 本地数据落后超过该时长时，读取回退为实时查询 */
+    private static final long MAX_LAG_MILLIS = TimeUnit.HOURS.toMillis(3);
+    private static final int UPSERT_BATCH_SIZE = 200;
+    private static final long TB = 1L << 40;
+    private static final int[] ALERT_PERCENTS = {80, 100};
+
+    @Resource
+    private IOciUserService userService;
+    @Resource
+    private ISysService sysService;
+    @Resource
+    private IOciKvService kvService;
+    @Resource
+    private IFleetInventoryService fleetInventoryService;
+    // 流量数据可从 OCI 重新同步，只用 mapper 不注册 IService，避免被整库 JSON 备份导出
+    @Resource
+    private OciTrafficPointMapper pointMapper;
+    @Resource
+    private OciTrafficSyncMapper syncMapper;
+
+    @Value("${oci-cfg.traffic-quota-tb:10}")
+    private long quotaTb;
+
+    private final AtomicBoolean syncing = new AtomicBoolean();
+    private final AtomicLong rounds = new AtomicLong();
+    private final AtomicLong writtenPoints = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile long lastRoundAt;
+    private volatile long lastRoundCostMillis;
+
+    private record PointKey(String vnicId, long bucket) {
+    }
+
+    @PostConstruct
+    public void start() {
+        TimerWheelScheduler.INSTANCE.scheduleWithFixedDelay(TimerWheelScheduler.TaskType.SYSTEM, "traffic-sync",
+                this::sync, 3, SYNC_INTERVAL_MINUTES, TimeUnit.MINUTES, TimeUnit.MINUTES.toMillis(5));
+    }
+
+    @Override
+    public void sync() {
+        if (!syncing.compareAndSet(false, true)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            List<OciUser> users = userService.list();
+            cleanup(users, start);
+            // 每个配置内部自行捕获异常，单个配置失败不影响其它配置
+            OciFanOut.forEach("traffic-sync", "trafficSync", users, this::syncCfg, 30, TimeUnit.MINUTES);
+            rounds.incrementAndGet();
+        } catch (Exception e) {
+            log.error("【流量同步】同步失败：{}", e.getLocalizedMessage());
+        } finally {
+            lastRoundAt = start;
+            lastRoundCostMillis = System.currentTimeMillis() - start;
+            syncing.set(false);
+        }
+    }
+
+    @Override
+    public Series series(String cfgId, String region, String vnicId, Granularity granularity, long beginTime, long endTime) {
+        if (!covers(syncMapper.selectById(syncId(cfgId, region)), granularity, beginTime)) {
+            return null;
+        }
+        List<OciTrafficPoint> rows = pointMapper.selectList(new LambdaQueryWrapper<OciTrafficPoint>()
+                .eq(OciTrafficPoint::getVnicId, vnicId)
+                .eq(OciTrafficPoint::getGranularity, granularity.name())
+                .ge(OciTrafficPoint::getBucket, bucketOf(beginTime, granularity))
+                .le(OciTrafficPoint::getBucket, endTime)
+                .orderByAsc(OciTrafficPoint::getBucket));
+        long[] buckets = new long[rows.size()];
+        long[] toNetworkBytes = new long[rows.size()];
+        long[] fromNetworkBytes = new long[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            OciTrafficPoint row = rows.get(i);
+            buckets[i] = row.getBucket();
+            toNetworkBytes[i] = Optional.ofNullable(row.getToNetworkBytes()).orElse(0L);
+            fromNetworkBytes[i] = Optional.ofNullable(row.getFromNetworkBytes()).orElse(0L);
+        }
+        return new Series(buckets, toNetworkBytes, fromNetworkBytes);
+    }
+
+    @Override
+    public TrafficAggregator.Totals monthTotals(String cfgId, String region) {
+        long monthStart = bucketOf(System.currentTimeMillis(), Granularity.MONTH);
+        if (!covers(syncMapper.selectById(syncId(cfgId, region)), Granularity.MONTH, monthStart)) {
+            return null;
+        }
+        Map<String, long[]> byResource = new HashMap<>();
+        long inbound = 0;
+        long outbound = 0;
+        for (OciTrafficPoint row : pointMapper.selectList(new LambdaQueryWrapper<OciTrafficPoint>()
+                .eq(OciTrafficPoint::getCfgId, cfgId)
+                .eq(OciTrafficPoint::getRegion, region)
+                .eq(OciTrafficPoint::getGranularity, Granularity.MONTH.name())
+                .eq(OciTrafficPoint::getBucket, monthStart))) {
+            long to = Optional.ofNullable(row.getToNetworkBytes()).orElse(0L);
+            long from = Optional.ofNullable(row.getFromNetworkBytes()).orElse(0L);
+            byResource.put(row.getVnicId(), new long[]{to, from});
+            inbound += to;
+            outbound += from;
+        }
+        return new TrafficAggregator.Totals(inbound, outbound, byResource);
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> rows = new LinkedHashMap<>();
+        for (Granularity granularity : Granularity.values()) {
+            rows.put(granularity.name(), pointMapper.selectCount(new LambdaQueryWrapper<OciTrafficPoint>()
+                    .eq(OciTrafficPoint::getGranularity, granularity.name())));
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("syncing", syncing.get());
+        stats.put("rounds", rounds.get());
+        stats.put("writtenPoints", writtenPoints.get());
+        stats.put("failures", failures.get());
+        stats.put("lastRoundAt", lastRoundAt);
+        stats.put("lastRoundCostMillis", lastRoundCostMillis);
+        stats.put("regions", syncMapper.selectCount(null));
+        stats.put("rows", rows);
+        stats.put("quotaTb", quotaTb);
+        return stats;
+    }
+
+    private void syncCfg(OciUser user) {
+        List<String> regions;
+        try {
+            regions = fleetInventoryService.listRegions(user.getId());
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            log.warn("【流量同步】配置：[{}] 获取订阅区域失败，跳过：{}", user.getUsername(), e.getLocalizedMessage());
+            return;
+        }
+        for (String region : regions) {
+            try {
+                syncRegion(user, region);
+            } catch (Exception e) {
+                failures.incrementAndGet();
+                log.warn("【流量同步】配置：[{}] 区域：[{}] 同步失败：{}", user.getUsername(), region, e.getLocalizedMessage());
+            }
+        }
+        try {
+            checkQuota(user);
+        } catch (Exception e) {
+            log.warn("【流量同步】配置：[{}] 流量额度检查失败：{}", user.getUsername(), e.getLocalizedMessage());
+        }
+    }
+
+    private void syncRegion(OciUser user, String region) {
+        OciTrafficSync state = syncMapper.selectById(syncId(user.getId(), region));
+        long now = System.currentTimeMillis();
+        long to = bucketOf(now, Granularity.HOUR) + HOUR_MILLIS;
+        // 上次同步时最后一个小时可能还不完整，重新拉取
+        long from = state == null || state.getSyncedTo() == null
+                ? bucketOf(bucketOf(now, Granularity.MONTH) - 1, Granularity.MONTH)
+                : bucketOf(state.getSyncedTo(), Granularity.HOUR) - HOUR_MILLIS;
+
+        SysUserDTO sysUserDTO = sysService.getOciUser(user.getId());
+        SysUserDTO.OciCfg ociCfg = sysUserDTO.getOciCfg();
+        ociCfg.setRegion(region);
+        sysUserDTO.setOciCfg(ociCfg);
+        Map<PointKey, long[]> hourly = new HashMap<>();
+        try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
+            for (long chunk = from; chunk < to; chunk += CHUNK_MILLIS) {
+                TrafficAggregator.forEachHourlyPoint(fetcher, new Date(chunk), new Date(Math.min(chunk + CHUNK_MILLIS, to)),
+                        (direction, vnicId, timestamp, bytes) -> hourly.computeIfAbsent(
+                                new PointKey(vnicId, bucketOf(timestamp, Granularity.HOUR)), k -> new long[2])[direction] = bytes);
+            }
+        }
+
+        upsert(user.getId(), region, Granularity.HOUR, hourly);
+        rollup(user.getId(), region, Granularity.HOUR, Granularity.DAY, bucketOf(from, Granularity.DAY));
+        rollup(user.getId(), region, Granularity.DAY, Granularity.MONTH, bucketOf(from, Granularity.MONTH));
+
+        OciTrafficSync synced = OciTrafficSync.builder()
+                .id(syncId(user.getId(), region))
+                .cfgId(user.getId())
+                .region(region)
+                .coveredFrom(state == null || state.getCoveredFrom() == null ? from : state.getCoveredFrom())
+                .syncedTo(now)
+                .build();
+        if (state == null) {
+            syncMapper.insert(synced);
+        } else {
+            syncMapper.updateById(synced);
+        }
+    }
+
+    /**
+     * Recompute the {@code target} buckets from {@code fromBucket} on out of the {@code source} rows.
+     */
+    private void rollup(String cfgId, String region, Granularity source, Granularity target, long fromBucket) {
+        Map<PointKey, long[]> sums = new HashMap<>();
+        pointMapper.selectList(new LambdaQueryWrapper<OciTrafficPoint>()
+                        .eq(OciTrafficPoint::getCfgId, cfgId)
+                        .eq(OciTrafficPoint::getRegion, region)
+                        .eq(OciTrafficPoint::getGranularity, source.name())
+                        .ge(OciTrafficPoint::getBucket, fromBucket))
+                .forEach(row -> {
+                    long[] counters = sums.computeIfAbsent(new PointKey(row.getVnicId(), bucketOf(row.getBucket(), target)), k -> new long[2]);
+                    counters[TrafficAggregator.INBOUND] += Optional.ofNullable(row.getToNetworkBytes()).orElse(0L);
+                    counters[TrafficAggregator.OUTBOUND] += Optional.ofNullable(row.getFromNetworkBytes()).orElse(0L);
+                });
+        upsert(cfgId, region, target, sums);
+    }
+
+    private void upsert(String cfgId, String region, Granularity granularity, Map<PointKey, long[]> points) {
+        if (points.isEmpty()) {
+            return;
+        }
+        List<OciTrafficPoint> rows = points.entrySet().stream()
+                .map(x -> OciTrafficPoint.builder()
+                        .id(x.getKey().vnicId() + "_" + granularity.name() + "_" + x.getKey().bucket())
+                        .cfgId(cfgId)
+                        .region(region)
+                        .vnicId(x.getKey().vnicId())
+                        .granularity(granularity.name())
+                        .bucket(x.getKey().bucket())
+                        .toNetworkBytes(x.getValue()[TrafficAggregator.INBOUND])
+                        .fromNetworkBytes(x.getValue()[TrafficAggregator.OUTBOUND])
+                        .build())
+                .collect(Collectors.toList());
+        CollectionUtil.split(rows, UPSERT_BATCH_SIZE).forEach(pointMapper::upsertBatch);
+        writtenPoints.addAndGet(rows.size());
+    }
+
+    private void checkQuota(OciUser user) {
+        if (quotaTb <= 0) {
+            return;
+        }
+        long monthStart = bucketOf(System.currentTimeMillis(), Granularity.MONTH);
+        long egress = pointMapper.selectList(new LambdaQueryWrapper<OciTrafficPoint>()
+                        .eq(OciTrafficPoint::getCfgId, user.getId())
+                        .eq(OciTrafficPoint::getGranularity, Granularity.MONTH.name())
+                        .eq(OciTrafficPoint::getBucket, monthStart))
+                .stream()
+                .mapToLong(x -> Optional.ofNullable(x.getToNetworkBytes()).orElse(0L))
+                .sum();
+        long percent = egress * 100 / (quotaTb * TB);
+        int level = 0;
+        for (int alertPercent : ALERT_PERCENTS) {
+            if (percent >= alertPercent) {
+                level = alertPercent;
+            }
+        }
+        if (level == 0) {
+            return;
+        }
+
+        String month = Instant.ofEpochMilli(monthStart).atZone(ZONE).format(MONTH_FMT);
+        OciKv record = kvService.getOne(new LambdaQueryWrapper<OciKv>()
+                .eq(OciKv::getCode, user.getId())
+                .eq(OciKv::getType, SysCfgTypeEnum.TRAFFIC_ALERT.getCode()));
+        if (record != null && alertedLevel(record.getValue(), month) >= level) {
+            return;
+        }
+        sysService.sendMessage(String.format("【流量告警】\n\n" +
+                        "🕘 时间：%s\n" +
+                        "🔑 配置名：【%s】\n" +
+                        "⚠️ 本月出网流量（VnicToNetworkBytes）：%s\n" +
+                        "📊 已达每月 %s TB 免费额度的 %s%%",
+                LocalDateTime.now().format(CommonUtils.DATETIME_FMT_NORM),
+                user.getUsername(),
+                CommonUtils.formatBytes(egress),
+                quotaTb,
+                percent));
+        String value = month + ":" + level;
+        if (record == null) {
+            kvService.save(OciKv.builder()
+                    .id(IdUtil.getSnowflake().nextIdStr())
+                    .code(user.getId())
+                    .type(SysCfgTypeEnum.TRAFFIC_ALERT.getCode())
+                    .value(value)
+                    .build());
+        } else {
+            record.setValue(value);
+            kvService.updateById(record);
+        }
+    }
+
+    private static int alertedLevel(String value, String month) {
+        if (value == null || !value.startsWith(month + ":")) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value.substring(month.length() + 1));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Drop rows past their retention and everything of configs that no longer exist.
+     */
+    private void cleanup(List<OciUser> users, long now) {
+        pointMapper.delete(new LambdaQueryWrapper<OciTrafficPoint>()
+                .eq(OciTrafficPoint::getGranularity, Granularity.HOUR.name())
+                .lt(OciTrafficPoint::getBucket, now - HOUR_RETENTION_MILLIS));
+        pointMapper.delete(new LambdaQueryWrapper<OciTrafficPoint>()
+                .eq(OciTrafficPoint::getGranularity, Granularity.DAY.name())
+                .lt(OciTrafficPoint::getBucket, now - DAY_RETENTION_MILLIS));
+        Set<String> ids = users.stream().map(OciUser::getId).collect(Collectors.toSet());
+        Set<String> stale = syncMapper.selectList(null).stream()
+                .map(OciTrafficSync::getCfgId)
+                .filter(x -> !ids.contains(x))
+                .collect(Collectors.toSet());
+        if (!stale.isEmpty()) {
+            pointMapper.delete(new LambdaQueryWrapper<OciTrafficPoint>().in(OciTrafficPoint::getCfgId, stale));
+            syncMapper.delete(new LambdaQueryWrapper<OciTrafficSync>().in(OciTrafficSync::getCfgId, stale));
+            kvService.remove(new LambdaQueryWrapper<OciKv>()
+                    .in(OciKv::getCode, stale)
+                    .eq(OciKv::getType, SysCfgTypeEnum.TRAFFIC_ALERT.getCode()));
+        }
+    }
+
+    private static boolean covers(OciTrafficSync state, Granularity granularity, long beginTime) {
+        if (state == null || state.getCoveredFrom() == null || state.getSyncedTo() == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if (state.getSyncedTo() < now - MAX_LAG_MILLIS || bucketOf(beginTime, granularity) < state.getCoveredFrom()) {
+            return false;
+        }
+        return switch (granularity) {
+            case HOUR -> beginTime >= now - HOUR_RETENTION_MILLIS;
+            case DAY -> beginTime >= now - DAY_RETENTION_MILLIS;
+            case MONTH -> true;
+        };
+    }
+
+    private static long bucketOf(long millis, Granularity granularity) {
+        ZonedDateTime time = Instant.ofEpochMilli(millis).atZone(ZONE);
+        return switch (granularity) {
+            case HOUR -> time.truncatedTo(ChronoUnit.HOURS).toInstant().toEpochMilli();
+            case DAY -> time.truncatedTo(ChronoUnit.DAYS).toInstant().toEpochMilli();
+            case MONTH -> time.toLocalDate().withDayOfMonth(1).atStartOfDay(ZONE).toInstant().toEpochMilli();
+        };
+    }
+
+    private static String syncId(String cfgId, String region) {
+        return cfgId + "_" + region;
+    }
+}
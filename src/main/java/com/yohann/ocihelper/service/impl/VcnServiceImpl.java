@@ -1,10 +1,8 @@
 package com.yohann.ocihelper.service.impl;
 
 import cn.hutool.core.date.DateUtil;
-import cn.hutool.core.util.ObjUtil;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.oracle.bmc.core.model.Subnet;
-import com.yohann.ocihelper.bean.constant.CacheConstant;
 import com.yohann.ocihelper.bean.dto.SysUserDTO;
 import com.yohann.ocihelper.bean.params.oci.vcn.RemoveVcnParams;
 import com.yohann.ocihelper.bean.params.oci.vcn.VcnPageParams;
@@ -14,12 +12,15 @@ import com.yohann.ocihelper.exception.OciException;
 import com.yohann.ocihelper.service.ISysService;
 import com.yohann.ocihelper.service.IVcnService;
 import com.yohann.ocihelper.utils.CommonUtils;
-import com.yohann.ocihelper.utils.CustomExpiryGuavaCache;
+import com.yohann.ocihelper.utils.OciFanOut;
+import com.yohann.ocihelper.utils.TypedCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.Resource;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -33,55 +34,62 @@ import java.util.stream.Collectors;
 @Slf4j
 public class VcnServiceImpl implements IVcnService {
 
+    /**
+     * 每个配置的 VCN 列表，按 VCN 个数计重；过期后半小时内先返回旧列表，后台刷新
+     */
+    private static final TypedCache<String, List<VcnPageRsp.VcnInfo>> VCN_PAGE_CACHE =
+            TypedCache.<String, List<VcnPageRsp.VcnInfo>>create("vcn_page", 10, TimeUnit.MINUTES, 20000, List::size)
+                    .staleWhileRevalidate(30, TimeUnit.MINUTES);
+
     @Resource
     private ISysService sysService;
-    @Resource
-    private CustomExpiryGuavaCache<String, Object> customCache;
 
     @Override
     public Page<VcnPageRsp.VcnInfo> page(VcnPageParams params) {
-        if (params.isCleanReLaunch()) {
-            customCache.remove(CacheConstant.PREFIX_VCN_PAGE + params.getOciCfgId());
-        }
-
-        List<VcnPageRsp.VcnInfo> vcnList = (List<VcnPageRsp.VcnInfo>) customCache.get(CacheConstant.PREFIX_VCN_PAGE + params.getOciCfgId());
-        SysUserDTO sysUserDTO = sysService.getOciUser(params.getOciCfgId());
-        if (ObjUtil.isEmpty(vcnList)) {
-            try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
-                vcnList = fetcher.listVcn().parallelStream().map(vcn -> {
-                    VcnPageRsp.VcnInfo vcnInfo = new VcnPageRsp.VcnInfo();
-                    vcnInfo.setId(vcn.getId());
-                    vcnInfo.setDisplayName(vcn.getDisplayName());
-                    vcnInfo.setStatus(vcn.getLifecycleState().getValue());
-                    vcnInfo.setVisibility(fetcher.checkVcnIsPublic(vcn));
-                    vcnInfo.setCreateTime(DateUtil.format(vcn.getTimeCreated(), CommonUtils.DATETIME_FMT_NORM));
-                    return vcnInfo;
-                }).collect(Collectors.toList());
-            } catch (Exception e) {
-                log.error("获取VCN列表失败", e);
-                throw new OciException(-1, "获取VCN列表失败");
-            }
-        }
+        // 强制刷新只替换缓存，不清空，其他人在刷新期间仍能拿到旧列表
+        Supplier<List<VcnPageRsp.VcnInfo>> loader = () -> loadVcnList(params.getOciCfgId());
+        TypedCache.Snapshot<List<VcnPageRsp.VcnInfo>> snapshot = params.isCleanReLaunch()
+                ? VCN_PAGE_CACHE.refresh(params.getOciCfgId(), loader)
+                : VCN_PAGE_CACHE.getSnapshot(params.getOciCfgId(), loader);
 
-        customCache.put(CacheConstant.PREFIX_VCN_PAGE + params.getOciCfgId(), vcnList, 10 * 60 * 1000);
-        List<VcnPageRsp.VcnInfo> resList = vcnList.parallelStream()
+        List<VcnPageRsp.VcnInfo> resList = snapshot.value().stream()
                 .filter(x -> CommonUtils.contains(x.getDisplayName(), params.getKeyword(), true))
                 .collect(Collectors.toList());
         List<VcnPageRsp.VcnInfo> vcnInfoList = CommonUtils.getPage(resList, params.getCurrentPage(), params.getPageSize());
-        return VcnPageRsp.buildPage(vcnInfoList, params.getPageSize(), params.getCurrentPage(), vcnInfoList.size());
+        return VcnPageRsp.buildPage(vcnInfoList, params.getPageSize(), params.getCurrentPage(), vcnInfoList.size(),
+                snapshot.ageMillis());
+    }
+
+    private List<VcnPageRsp.VcnInfo> loadVcnList(String ociCfgId) {
+        SysUserDTO sysUserDTO = sysService.getOciUser(ociCfgId);
+        try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
+            return OciFanOut.map(sysUserDTO.getOciCfg().getTenantId(), "checkVcnIsPublic", fetcher.listVcn(), vcn -> {
+                VcnPageRsp.VcnInfo vcnInfo = new VcnPageRsp.VcnInfo();
+                vcnInfo.setId(vcn.getId());
+                vcnInfo.setDisplayName(vcn.getDisplayName());
+                vcnInfo.setStatus(vcn.getLifecycleState().getValue());
+                vcnInfo.setVisibility(fetcher.checkVcnIsPublic(vcn));
+                vcnInfo.setCreateTime(DateUtil.format(vcn.getTimeCreated(), CommonUtils.DATETIME_FMT_NORM));
+                return vcnInfo;
+            });
+        } catch (Exception e) {
+            log.error("获取VCN列表失败", e);
+            throw new OciException(-1, "获取VCN列表失败");
+        }
     }
 
     @Override
     public void remove(RemoveVcnParams params) {
         SysUserDTO sysUserDTO = sysService.getOciUser(params.getOciCfgId());
-        params.getVcnIds().parallelStream().forEach(vcnId -> {
-            String vcnName = null;
-            try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
-                fetcher.deleteVcnById(vcnId);
-            } catch (Exception e) {
-                log.error("删除VCN：失败", vcnName, e);
-                throw new OciException(-1, "删除 VCN 失败");
-            }
-        });
+        try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
+            // 删除 VCN 需要依次清理子网、网关和安全组，给足时间
+            OciFanOut.forEach(sysUserDTO.getOciCfg().getTenantId(), "deleteVcn", params.getVcnIds(),
+                    fetcher::deleteVcnById, 10, TimeUnit.MINUTES);
+        } catch (Exception e) {
+            log.error("删除VCN：失败", e);
+            throw new OciException(-1, "删除 VCN 失败");
+        } finally {
+            VCN_PAGE_CACHE.invalidate(params.getOciCfgId());
+        }
     }
 }
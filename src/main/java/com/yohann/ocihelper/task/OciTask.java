@@ -1,7 +1,6 @@
 package com.yohann.ocihelper.task;
 
 import cn.hutool.core.collection.CollectionUtil;
-import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.http.HttpUtil;
@@ -12,6 +11,7 @@ import com.oracle.bmc.Region;
 import com.oracle.bmc.identity.model.Tenancy;
 import com.oracle.bmc.identity.requests.GetTenancyRequest;
 import com.yohann.ocihelper.bean.constant.CacheConstant;
+import com.yohann.ocihelper.bean.dto.CfgHealthDTO;
 import com.yohann.ocihelper.bean.dto.SysUserDTO;
 import com.yohann.ocihelper.bean.entity.IpData;
 import com.yohann.ocihelper.bean.entity.OciCreateTask;
@@ -26,6 +26,9 @@ import com.yohann.ocihelper.service.*;
 import com.yohann.ocihelper.telegram.TgBot;
 import com.yohann.ocihelper.utils.CommonUtils;
 import com.yohann.ocihelper.utils.SQLiteHelper;
+import com.yohann.ocihelper.utils.SQLiteWriteQueue;
+import com.yohann.ocihelper.utils.TimerWheelScheduler;
+import com.yohann.ocihelper.utils.TaskStateStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationArguments;
@@ -72,10 +75,14 @@ public class OciTask implements ApplicationRunner {
     @Resource
     private IOciCreateTaskService createTaskService;
     @Resource
+    private ILivenessService livenessService;
+    @Resource
     private TaskScheduler taskScheduler;
     @Resource
     private SQLiteHelper sqLiteHelper;
     @Resource
+    private SQLiteWriteQueue writeQueue;
+    @Resource
     private ExecutorService virtualExecutor;
 
     private static volatile boolean isPushedLatestVersion = false;
@@ -83,15 +90,12 @@ public class OciTask implements ApplicationRunner {
 
     @Value("${web.account}")
     private String account;
-    @Value("${web.password}")
-    private String password;
 
     @Override
     public void run(ApplicationArguments args) throws Exception {
-        TEMP_MAP.put("password", password);
         startTgBog();
         updateUserInDb();
-        cleanLogTask();
+        TaskStateStore.load();
         cleanAndRestartTask();
         initGenMfaPng();
         saveVersion();
@@ -104,15 +108,11 @@ public class OciTask implements ApplicationRunner {
 
         private void startTgBog() {
         virtualExecutor.execute(() -> {
-            OciKv tgToken = kvService.getOne(new LambdaQueryWrapper<OciKv>().eq(OciKv::getCode, SysCfgEnum.SYS_TG_BOT_TOKEN.getCode()));
-            OciKv tgChatId = kvService.getOne(new LambdaQueryWrapper<OciKv>().eq(OciKv::getCode, SysCfgEnum.SYS_TG_CHAT_ID.getCode()));
-            if (null == tgToken || null == tgChatId) {
-                return;
-            }
-            if (StrUtil.isNotBlank(tgToken.getValue()) && StrUtil.isNotBlank(tgChatId.getValue())) {
+            String tgToken = kvService.getCfgValue(SysCfgEnum.SYS_TG_BOT_TOKEN);
+            String tgChatId = kvService.getCfgValue(SysCfgEnum.SYS_TG_CHAT_ID);
+            if (StrUtil.isNotBlank(tgToken) && StrUtil.isNotBlank(tgChatId)) {
                 // 获取全局代理配置
-                OciKv proxyKv = kvService.getOne(new LambdaQueryWrapper<OciKv>().eq(OciKv::getCode, SysCfgEnum.SYS_PROXY.getCode()));
-                String globalProxy = proxyKv != null ? proxyKv.getValue() : null;
+                String globalProxy = kvService.getCfgValue(SysCfgEnum.SYS_PROXY);
                 // 将带代理的 OkHttpClient 传入 TelegramBotsLongPollingApplication，
                 // 使得 deleteWebhook 和长轮询请求同样走代理，而不是直连。
                 okhttp3.OkHttpClient okHttpClient = TgBot.buildOkHttpClient(globalProxy);
@@ -120,7 +120,7 @@ public class OciTask implements ApplicationRunner {
                         ? new TelegramBotsLongPollingApplication(com.fasterxml.jackson.databind.ObjectMapper::new, () -> okHttpClient)
                         : new TelegramBotsLongPollingApplication();
                 try {
-                    botsApplication.registerBot(tgToken.getValue(), new TgBot(tgToken.getValue(), tgChatId.getValue(), globalProxy));
+                    botsApplication.registerBot(tgToken, new TgBot(tgToken, tgChatId, globalProxy));
                     Thread.currentThread().join();
                 } catch (Exception e) {
                     throw new RuntimeException(e);
@@ -130,13 +130,6 @@ public class OciTask implements ApplicationRunner {
         });
     }
 
-    private void cleanLogTask() {
-        addAtFixedRateTask(account, () -> {
-            FileUtil.writeUtf8String("", CommonUtils.LOG_FILE_PATH);
-            log.info("【日志清理任务】日志文件：{} 已清空", CommonUtils.LOG_FILE_PATH);
-        }, 8, 8, TimeUnit.HOURS);
-    }
-
     private void updateUserInDb() {
         sqLiteHelper.addColumnIfNotExists("oci_user", "tenant_name", "VARCHAR(64) NULL");
         sqLiteHelper.addColumnIfNotExists("oci_create_task", "oci_region", "VARCHAR(64) NULL");
@@ -144,6 +137,7 @@ public class OciTask implements ApplicationRunner {
         sqLiteHelper.addColumnIfNotExists("oci_user", "plan_type", "VARCHAR(32) NULL");
         sqLiteHelper.addColumnIfNotExists("oci_create_task", "paused", "INTEGER DEFAULT 0");
         sqLiteHelper.addColumnIfNotExists("oci_user", "proxy", "VARCHAR(256) NULL");
+        sqLiteHelper.addColumnIfNotExists("oci_create_task", "race_concurrency", "INTEGER DEFAULT 0");
         virtualExecutor.execute(() -> {
             List<OciUser> ociUsers = userService.list(new LambdaQueryWrapper<OciUser>()
                     .isNull(OciUser::getTenantCreateTime)
@@ -153,7 +147,7 @@ public class OciTask implements ApplicationRunner {
                     .eq(OciUser::getTenantName, "")
             );
             if (CollectionUtil.isNotEmpty(ociUsers)) {
-                userService.updateBatchById(ociUsers.parallelStream().peek(x -> {
+                List<OciUser> updated = ociUsers.parallelStream().peek(x -> {
                     SysUserDTO sysUserDTO = sysService.getOciUser(x.getId());
                     try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
                         Tenancy tenancy = fetcher.getIdentityClient().getTenancy(GetTenancyRequest.builder()
@@ -164,7 +158,8 @@ public class OciTask implements ApplicationRunner {
                     } catch (Exception e) {
                         log.error("更新配置：{} 失败", x.getUsername());
                     }
-                }).collect(Collectors.toList()));
+                }).collect(Collectors.toList());
+                writeQueue.submit(() -> userService.updateBatchById(updated));
             }
         });
         // Back-fill plan_type for existing rows that have never been filled
@@ -174,7 +169,7 @@ public class OciTask implements ApplicationRunner {
             if (CollectionUtil.isEmpty(needPlanType)) {
                 return;
             }
-            userService.updateBatchById(needPlanType.parallelStream().peek(x -> {
+            List<OciUser> updated = needPlanType.parallelStream().peek(x -> {
                 SysUserDTO sysUserDTO = sysService.getOciUser(x.getId());
                 try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(sysUserDTO)) {
                     com.oracle.bmc.ospgateway.model.Subscription sub = fetcher.getSubscriptionInfo();
@@ -185,7 +180,8 @@ public class OciTask implements ApplicationRunner {
                 } catch (Exception e) {
                     log.warn("回填配置:[{}] plan_type 失败: {}", x.getUsername(), e.getMessage());
                 }
-            }).collect(Collectors.toList()));
+            }).collect(Collectors.toList());
+            writeQueue.submit(() -> userService.updateBatchById(updated));
         });
     }
 
@@ -193,12 +189,12 @@ public class OciTask implements ApplicationRunner {
         virtualExecutor.execute(() -> {
             List<OciCreateTask> tasks = Optional.ofNullable(createTaskService.list())
                     .filter(CollectionUtil::isNotEmpty).orElseGet(Collections::emptyList);
-            // Stagger task restoration: each task is submitted 5 seconds after the previous one
+            // Stagger task restoration across one interval (at most 5 seconds apart)
             // to avoid a thundering-herd of API calls right after startup / backup restore.
             for (int i = 0; i < tasks.size(); i++) {
                 OciCreateTask task = tasks.get(i);
-                final long delaySeconds = (long) i * 5;
-                CREATE_INSTANCE_POOL.schedule(() -> {
+                final long delayMillis = staggerDelayMillis(i, tasks.size(), task.getInterval());
+                TimerWheelScheduler.INSTANCE.schedule(TimerWheelScheduler.TaskType.SYSTEM, "restore-" + task.getId(), () -> {
                     if (task.getCreateNumbers() <= 0) {
                         createTaskService.removeById(task.getId());
                     } else if (task.getPaused() != null && task.getPaused() == 1) {
@@ -219,20 +215,20 @@ public class OciTask implements ApplicationRunner {
                         sysUserDTO.setCreateNumbers(task.getCreateNumbers());
                         sysUserDTO.setOperationSystem(task.getOperationSystem());
                         sysUserDTO.setRootPassword(task.getRootPassword());
+                        sysUserDTO.setRaceConcurrency(task.getRaceConcurrency());
                         addTask(CommonUtils.CREATE_TASK_PREFIX + task.getId(), () ->
                                         execCreate(sysUserDTO, sysService, instanceService, createTaskService),
                                 0, task.getInterval(), TimeUnit.SECONDS);
                     }
-                }, delaySeconds, TimeUnit.SECONDS);
+                }, delayMillis, TimeUnit.MILLISECONDS);
             }
         });
     }
 
     private void initGenMfaPng() {
         virtualExecutor.execute(() -> {
-            Optional.ofNullable(kvService.getOne(new LambdaQueryWrapper<OciKv>()
-                    .eq(OciKv::getCode, SysCfgEnum.SYS_MFA_SECRET.getCode()))).ifPresent(mfa -> {
-                String qrCodeURL = CommonUtils.generateQRCodeURL(mfa.getValue(), account, "oci-helper");
+            Optional.ofNullable(kvService.getCfgValue(SysCfgEnum.SYS_MFA_SECRET)).ifPresent(mfa -> {
+                String qrCodeURL = CommonUtils.generateQRCodeURL(mfa, account, "oci-helper");
                 CommonUtils.genQRPic(CommonUtils.MFA_QR_PNG_PATH, qrCodeURL);
             });
         });
@@ -258,10 +254,7 @@ public class OciTask implements ApplicationRunner {
 
     private void startInform() {
         String latestVersion = CommonUtils.getLatestVersion();
-        String nowVersion = kvService.getObj(new LambdaQueryWrapper<OciKv>()
-                .eq(OciKv::getCode, SysCfgEnum.SYS_INFO_VERSION.getCode())
-                .eq(OciKv::getType, SysCfgTypeEnum.SYS_INFO.getCode())
-                .select(OciKv::getValue), String::valueOf);
+        String nowVersion = kvService.getCfgValue(SysCfgEnum.SYS_INFO_VERSION);
         log.info(String.format("【oci-helper】服务启动成功~ 当前版本：%s 最新版本：%s", nowVersion, latestVersion));
         sysService.sendMessage(String.format("【oci-helper】服务启动成功🎉🎉\n\n当前版本：%s\n最新版本：%s\n发送 /start 操作机器人🤖\n放货通知频道：https://t.me/oci_helper", nowVersion, latestVersion));
     }
@@ -270,20 +263,15 @@ public class OciTask implements ApplicationRunner {
         String taskId = CacheConstant.PREFIX_PUSH_VERSION_UPDATE_MSG;
 
         addTask(taskId, () -> {
-            OciKv evun = kvService.getOne(new LambdaQueryWrapper<OciKv>()
-                    .eq(OciKv::getCode, SysCfgEnum.ENABLED_VERSION_UPDATE_NOTIFICATIONS.getCode()));
-            if (null != evun && evun.getValue().equals(EnableEnum.OFF.getCode())) {
+            if (EnableEnum.OFF.getCode().equals(kvService.getCfgValue(SysCfgEnum.ENABLED_VERSION_UPDATE_NOTIFICATIONS))) {
                 return;
             }
             String latest = CommonUtils.getLatestVersion();
-            String now = kvService.getObj(new LambdaQueryWrapper<OciKv>()
-                    .eq(OciKv::getCode, SysCfgEnum.SYS_INFO_VERSION.getCode())
-                    .eq(OciKv::getType, SysCfgTypeEnum.SYS_INFO.getCode())
-                    .select(OciKv::getValue), String::valueOf);
+            String now = kvService.getCfgValue(SysCfgEnum.SYS_INFO_VERSION);
             if (StrUtil.isBlank(latest)) {
                 return;
             }
-            if (!now.equals(latest)) {
+            if (!latest.equals(now)) {
                 log.warn(String.format("【oci-helper】版本更新啦！！！当前版本：%s 最新版本：%s", now, latest));
                 if (!isPushedLatestVersion) {
                     sysService.sendMessage(String.format("🔔【oci-helper】版本更新啦！！！\n\n当前版本：%s\n最新版本：%s\n一键脚本：%s\n\n更新内容：\n%s",
@@ -296,9 +284,7 @@ public class OciTask implements ApplicationRunner {
         }, 0, 1, TimeUnit.DAYS);
 
         addTask(taskId + "_push", () -> {
-            OciKv evun = kvService.getOne(new LambdaQueryWrapper<OciKv>()
-                    .eq(OciKv::getCode, SysCfgEnum.ENABLED_VERSION_UPDATE_NOTIFICATIONS.getCode()));
-            if (null != evun && evun.getValue().equals(EnableEnum.OFF.getCode())) {
+            if (EnableEnum.OFF.getCode().equals(kvService.getCfgValue(SysCfgEnum.ENABLED_VERSION_UPDATE_NOTIFICATIONS))) {
                 return;
             }
             isPushedLatestVersion = false;
@@ -306,11 +292,8 @@ public class OciTask implements ApplicationRunner {
     }
 
     private void dailyBroadcastTask() {
-        OciKv edb = kvService.getOne(new LambdaQueryWrapper<OciKv>()
-                .eq(OciKv::getCode, SysCfgEnum.ENABLE_DAILY_BROADCAST.getCode()));
-        OciKv dbc = kvService.getOne(new LambdaQueryWrapper<OciKv>()
-                .eq(OciKv::getCode, SysCfgEnum.DAILY_BROADCAST_CRON.getCode()));
-        if (null != edb && edb.getValue().equals(EnableEnum.OFF.getCode())) {
+        String dbc = kvService.getCfgValue(SysCfgEnum.DAILY_BROADCAST_CRON);
+        if (EnableEnum.OFF.getCode().equals(kvService.getCfgValue(SysCfgEnum.ENABLE_DAILY_BROADCAST))) {
             return;
         }
 
@@ -323,24 +306,8 @@ public class OciTask implements ApplicationRunner {
                     "⚠\uFE0F 失效的API配置：\t\n- %s\n" +
                     "\uD83D\uDECE 正在执行的开机任务：\n" +
                     "%s\n";
-            List<String> ids = userService.listObjs(new LambdaQueryWrapper<OciUser>()
-                    .isNotNull(OciUser::getId)
-                    .select(OciUser::getId), String::valueOf);
-
-            CompletableFuture<List<String>> fails = CompletableFuture.supplyAsync(() -> {
-                if (ids.isEmpty()) {
-                    return Collections.emptyList();
-                }
-                return ids.parallelStream().filter(id -> {
-                    SysUserDTO ociUser = sysService.getOciUser(id);
-                    try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(ociUser)) {
-                        fetcher.getAvailabilityDomains();
-                    } catch (Exception e) {
-                        return true;
-                    }
-                    return false;
-                }).map(id -> sysService.getOciUser(id).getUsername()).collect(Collectors.toList());
-            }, virtualExecutor);
+            // 测活结果来自测活表，后台已定时刷新
+            CompletableFuture<List<CfgHealthDTO>> healths = CompletableFuture.supplyAsync(() -> livenessService.check(false), virtualExecutor);
 
             CompletableFuture<String> task = CompletableFuture.supplyAsync(() -> {
                 List<OciCreateTask> ociCreateTaskList = createTaskService.list();
@@ -350,23 +317,27 @@ public class OciTask implements ApplicationRunner {
                 String template = "[%s] [%s] [%s] [%s核/%sGB/%sGB] [%s台] [%s] [%s次]";
                 return ociCreateTaskList.parallelStream().map(x -> {
                     OciUser ociUser = userService.getById(x.getUserId());
-                    Long counts = (Long) TEMP_MAP.get(CommonUtils.CREATE_COUNTS_PREFIX + x.getId());
+                    long counts = TaskStateStore.attempts(TaskStateStore.Kind.CREATE, x.getId());
                     return String.format(template, ociUser.getUsername(), ociUser.getOciRegion(), x.getArchitecture(),
                             x.getOcpus().longValue(), x.getMemory().longValue(), x.getDisk(), x.getCreateNumbers(),
-                            CommonUtils.getTimeDifference(x.getCreateTime()), counts == null ? "0" : counts);
+                            CommonUtils.getTimeDifference(x.getCreateTime()), counts);
                 }).collect(Collectors.joining("\n"));
             }, virtualExecutor);
 
-            CompletableFuture.allOf(fails, task).join();
+            CompletableFuture.allOf(healths, task).join();
 
+            List<String> fails = healths.join().stream()
+                    .filter(x -> !x.isAlive())
+                    .map(CfgHealthDTO::getUsername)
+                    .collect(Collectors.toList());
             sysService.sendMessage(String.format(message,
                     LocalDateTime.now().format(CommonUtils.DATETIME_FMT_NORM),
-                    CollectionUtil.isEmpty(ids) ? 0 : ids.size(),
-                    fails.join().size(),
-                    String.join("\n- ", fails.join()),
+                    healths.join().size(),
+                    fails.size(),
+                    String.join("\n- ", fails),
                     task.join()
             ));
-        }, new CronTrigger(null == dbc ? CacheConstant.TASK_CRON : dbc.getValue()));
+        }, new CronTrigger(null == dbc ? CacheConstant.TASK_CRON : dbc));
 
         TASK_MAP.put(CacheConstant.DAILY_BROADCAST_TASK_ID, scheduled);
     }
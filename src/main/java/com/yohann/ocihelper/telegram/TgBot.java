@@ -1118,6 +1118,24 @@ public class TgBot implements LongPollingSingleThreadUpdateConsumer {
         try {
             ipRange = ipRange.trim();
 
+            // Several entries at once: bulk import
+            if (ipRange.matches("(?s).*[\\s,;].*")) {
+                int imported = ipSecurityService.importBlacklist(ipRange);
+                sendMessage(chatId,
+                        String.format(
+                                "✅ *批量导入完成*\n\n" +
+                                        "新增：%d 条\n" +
+                                        "黑名单总数：%d 条\n\n" +
+                                        "💡 格式错误或已存在的条目已跳过",
+                                imported, ipSecurityService.getAllBlacklistEntries().size()
+                        ),
+                        true
+                );
+                log.info("IP ranges imported to blacklist: chatId={}, count={}", chatId, imported);
+                configStorage.clearSession(chatId);
+                return;
+            }
+
             // Add to blacklist
             boolean success = ipSecurityService.addToBlacklist(ipRange);
 
@@ -30,14 +30,18 @@ public class CheckAliveHandler extends AbstractCallbackHandler {
         // Show confirmation dialog
         return buildEditMessage(
                 callbackQuery,
-                "⚠️ 确认执行一键测活操作？\n\n此操作将测试所有OCI配置的有效性。",
+                "⚠️ 确认执行一键测活操作？\n\n此操作将测试所有OCI配置的有效性。\n查看结果：使用后台定时测活的结果（20分钟内）\n重新测活：立即重新测试所有配置",
                 InlineKeyboardMarkup.builder()
                         .keyboard(Arrays.asList(
                                 new InlineKeyboardRow(
                                         InlineKeyboardButton.builder()
-                                                .text("✅ 确认执行")
+                                                .text("✅ 查看结果")
                                                 .callbackData("check_alive_confirm")
                                                 .build(),
+                                        InlineKeyboardButton.builder()
+                                                .text("🔄 重新测活")
+                                                .callbackData("check_alive_confirm_force")
+                                                .build(),
                                         InlineKeyboardButton.builder()
                                                 .text("❌ 取消")
                                                 .callbackData("back_to_main")
@@ -52,6 +56,12 @@ public class CheckAliveHandler extends AbstractCallbackHandler {
     public String getCallbackPattern() {
         return "check_alive";
     }
+    
+    @Override
+    public boolean canHandle(String callbackData) {
+        // Exact match to avoid conflicts with check_alive_confirm
+        return "check_alive".equals(callbackData);
+    }
 }
 
 /**
@@ -66,7 +76,7 @@ class CheckAliveConfirmHandler extends AbstractCallbackHandler {
     @Override
     public BotApiMethod<? extends Serializable> handle(CallbackQuery callbackQuery, TelegramClient telegramClient) {
         TelegramBotService botService = SpringUtil.getBean(TelegramBotService.class);
-        String result = botService.checkAlive();
+        String result = botService.checkAlive("check_alive_confirm_force".equals(callbackQuery.getData()));
         
         return buildEditMessage(
                 callbackQuery,
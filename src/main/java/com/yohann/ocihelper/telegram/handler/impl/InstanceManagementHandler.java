@@ -4,7 +4,6 @@ import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.extra.spring.SpringUtil;
 import com.yohann.ocihelper.bean.dto.SysUserDTO;
 import com.yohann.ocihelper.service.IInstanceService;
-import com.yohann.ocihelper.service.ISysService;
 import com.yohann.ocihelper.telegram.builder.KeyboardBuilder;
 import com.yohann.ocihelper.telegram.handler.AbstractCallbackHandler;
 import com.yohann.ocihelper.telegram.storage.InstanceSelectionStorage;
@@ -43,12 +42,10 @@ public class InstanceManagementHandler extends AbstractCallbackHandler {
         storage.clearSelection(chatId); // Clear previous selections
         
         // Get running instances
-        ISysService sysService = SpringUtil.getBean(ISysService.class);
         IInstanceService instanceService = SpringUtil.getBean(IInstanceService.class);
         
         try {
-            SysUserDTO sysUserDTO = sysService.getOciUser(ociCfgId);
-            List<SysUserDTO.CloudInstance> instances = instanceService.listRunningInstances(sysUserDTO);
+            List<SysUserDTO.CloudInstance> instances = instanceService.listRunningInstances(ociCfgId);
             
             if (CollectionUtil.isEmpty(instances)) {
                 return buildEditMessage(
@@ -483,12 +480,10 @@ class RefreshInstancesHandler extends AbstractCallbackHandler {
         }
         
         // Get running instances
-        ISysService sysService = SpringUtil.getBean(ISysService.class);
         IInstanceService instanceService = SpringUtil.getBean(IInstanceService.class);
         
         try {
-            SysUserDTO sysUserDTO = sysService.getOciUser(ociCfgId);
-            List<SysUserDTO.CloudInstance> instances = instanceService.listRunningInstances(sysUserDTO);
+            List<SysUserDTO.CloudInstance> instances = instanceService.listRunningInstances(ociCfgId);
             
             if (CollectionUtil.isEmpty(instances)) {
                 return buildEditMessage(
@@ -36,7 +36,9 @@ public class IpBlacklistAddRangeHandler extends AbstractCallbackHandler {
                      "📝 *格式示例：*\n" +
                      "• 192.168.1.0/24 （256个IP）\n" +
                      "• 10.0.0.0/16 （6.5万个IP）\n" +
-                     "• 172.16.0.0/12\n\n" +
+                     "• 172.16.0.0/12\n" +
+                     "• 2001:db8::/32 （IPv6）\n" +
+                     "• 多个IP段可换行或用逗号分隔，一次批量导入\n\n" +
                      "⚠️ *注意：*\n" +
                      "• 请确保CIDR格式正确\n" +
                      "• 添加后整个IP段无法访问\n" +
@@ -1,24 +1,30 @@
 package com.yohann.ocihelper.telegram.handler.impl;
 
+import ch.qos.logback.classic.Level;
+import com.yohann.ocihelper.telegram.builder.KeyboardBuilder;
 import com.yohann.ocihelper.telegram.handler.AbstractCallbackHandler;
+import com.yohann.ocihelper.utils.LogStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.meta.api.methods.botapimethods.BotApiMethod;
 import org.telegram.telegrambots.meta.api.methods.send.SendDocument;
 import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
 import org.telegram.telegrambots.meta.api.objects.InputFile;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardRow;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.meta.generics.TelegramClient;
 
-import java.io.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.LinkedList;
+import java.util.List;
 
 /**
  * Log query callback handler
- * Query the latest 100 log entries and send as a file
+ * Query the latest log entries (optionally only WARN/ERROR) from the log store and send as a file
  *
  * @author yohann
  */
@@ -26,39 +32,35 @@ import java.util.LinkedList;
 @Component
 public class LogQueryHandler extends AbstractCallbackHandler {
 
-    private static final String LOG_FILE_PATH = "/var/log/oci-helper.log";
+    private static final String PATTERN = "log_query";
     private static final int MAX_LINES = 300;
 
     @Override
     public BotApiMethod<?> handle(CallbackQuery callbackQuery, TelegramClient telegramClient) {
         long chatId = callbackQuery.getMessage().getChatId();
+        // log_query 为全部日志，log_query:WARN / log_query:ERROR 只看对应级别及以上
+        String data = callbackQuery.getData();
+        Level minLevel = data.startsWith(PATTERN + ":") ? Level.toLevel(data.substring(PATTERN.length() + 1), null) : null;
+        String scope = minLevel == null ? "" : (minLevel == Level.ERROR ? "错误" : "告警及错误");
 
         try {
+            LogStore store = LogStore.get();
+            if (store == null) {
+                return buildEditMessage(
+                        callbackQuery,
+                        "❌ 日志存储未启用",
+                        new InlineKeyboardMarkup(KeyboardBuilder.withNavigation(List.of()))
+                );
+            }
+
             // Send loading message
             telegramClient.execute(buildEditMessage(
                     callbackQuery,
                     "📋 正在获取日志文件，请稍候..."
             ));
 
-            // Read last 100 lines from log file
-            File logFile = new File(LOG_FILE_PATH);
-
-            if (!logFile.exists()) {
-                return buildEditMessage(
-                        callbackQuery,
-                        "❌ 日志文件不存在: " + LOG_FILE_PATH
-                );
-            }
-
-            // Read last 100 lines as bytes with UTF-8 encoding
-            byte[] logContent = readLastLinesAsBytes(logFile);
-
-            if (logContent == null) {
-                return buildEditMessage(
-                        callbackQuery,
-                        "❌ 读取日志文件失败"
-                );
-            }
+            LogStore.Result result = store.tail(new LogStore.Query(null, null, minLevel, List.of(), MAX_LINES));
+            byte[] logContent = toBytes(result.entries());
 
             // Send file to user using ByteArrayInputStream to preserve UTF-8 encoding
             String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
@@ -67,16 +69,23 @@ public class LogQueryHandler extends AbstractCallbackHandler {
             SendDocument sendDocument = SendDocument.builder()
                     .chatId(chatId)
                     .document(new InputFile(new ByteArrayInputStream(logContent), fileName))
-                    .caption("📋 最近 " + MAX_LINES + " 条日志记录\n"
+                    .caption("📋 最近 " + result.entries().size() + " 条" + scope + "日志记录\n"
                             + "⏰ 生成时间: " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")))
                     .build();
 
             telegramClient.execute(sendDocument);
 
-                log.info("日志文件发送成功: {}", fileName);
+            log.info("日志文件发送成功: {}", fileName);
 
-            // Return null since we already sent the document
-            return null;
+            return buildEditMessage(
+                    callbackQuery,
+                    "✅ 日志已发送，可按级别筛选后重新获取",
+                    new InlineKeyboardMarkup(KeyboardBuilder.withNavigation(List.of(new InlineKeyboardRow(
+                            KeyboardBuilder.button("📋 全部", PATTERN),
+                            KeyboardBuilder.button("⚠️ 告警及错误", PATTERN + ":WARN"),
+                            KeyboardBuilder.button("❌ 仅错误", PATTERN + ":ERROR")
+                    ))))
+            );
 
         } catch (TelegramApiException e) {
             log.error("发送日志文件失败", e);
@@ -94,56 +103,28 @@ public class LogQueryHandler extends AbstractCallbackHandler {
     }
 
     /**
-     * Read last N lines from log file as bytes with UTF-8 encoding
+     * Log entries as bytes with UTF-8 encoding
      *
-     * @param logFile source log file
-     * @return byte array of last N lines in UTF-8 encoding with BOM
+     * @param entries log entries, oldest first
+     * @return byte array in UTF-8 encoding with BOM
      */
-    private byte[] readLastLinesAsBytes(File logFile) {
-        try {
-            LinkedList<String> lastLines = new LinkedList<>();
-
-            // Read file and keep last 100 lines
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(new FileInputStream(logFile), StandardCharsets.UTF_8))) {
-
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    lastLines.add(line);
-                    if (lastLines.size() > MAX_LINES) {
-                        lastLines.removeFirst();
-                    }
-                }
-            }
-
-            // Convert to bytes with UTF-8 BOM encoding
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            
-            // Add UTF-8 BOM (EF BB BF) to help text editors recognize the encoding
-            baos.write(0xEF);
-            baos.write(0xBB);
-            baos.write(0xBF);
-            
-            try (BufferedWriter writer = new BufferedWriter(
-                    new OutputStreamWriter(baos, StandardCharsets.UTF_8))) {
-
-                for (String line : lastLines) {
-                    writer.write(line);
-                    writer.newLine();
-                }
-                writer.flush();
-            }
+    private byte[] toBytes(List<LogStore.Entry> entries) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
 
-            return baos.toByteArray();
+        // Add UTF-8 BOM (EF BB BF) to help text editors recognize the encoding
+        baos.write(0xEF);
+        baos.write(0xBB);
+        baos.write(0xBF);
 
-        } catch (IOException e) {
-            log.error("读取日志文件失败", e);
-            return null;
+        for (LogStore.Entry entry : entries) {
+            baos.writeBytes(entry.text().getBytes(StandardCharsets.UTF_8));
+            baos.write('\n');
         }
+        return baos.toByteArray();
     }
 
     @Override
     public String getCallbackPattern() {
-        return "log_query";
+        return PATTERN;
     }
 }
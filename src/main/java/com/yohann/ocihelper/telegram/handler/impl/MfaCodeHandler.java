@@ -1,8 +1,6 @@
 package com.yohann.ocihelper.telegram.handler.impl;
 
 import cn.hutool.extra.spring.SpringUtil;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.yohann.ocihelper.bean.entity.OciKv;
 import com.yohann.ocihelper.enums.SysCfgEnum;
 import com.yohann.ocihelper.service.IOciKvService;
 import com.yohann.ocihelper.telegram.builder.KeyboardBuilder;
@@ -35,16 +33,15 @@ public class MfaCodeHandler extends AbstractCallbackHandler {
         try {
             IOciKvService kvService = SpringUtil.getBean(IOciKvService.class);
             
-            // Get MFA secret from database
-            OciKv mfa = kvService.getOne(new LambdaQueryWrapper<OciKv>()
-                    .eq(OciKv::getCode, SysCfgEnum.SYS_MFA_SECRET.getCode()));
+            // Get MFA secret from the config snapshot
+            String mfa = kvService.getCfgValue(SysCfgEnum.SYS_MFA_SECRET);
             
-            if (mfa == null || mfa.getValue() == null) {
+            if (mfa == null) {
                 return buildMfaNotEnabledMessage(callbackQuery);
             }
             
             // Generate current MFA code
-            int mfaCode = CommonUtils.generateMfaCode(mfa.getValue());
+            int mfaCode = CommonUtils.generateMfaCode(mfa);
             
             // Format code with leading zeros if needed
             String formattedCode = String.format("%06d", mfaCode);
@@ -1,7 +1,9 @@
 package com.yohann.ocihelper.telegram.handler.impl;
 
+import cn.hutool.extra.spring.SpringUtil;
 import com.yohann.ocihelper.telegram.builder.KeyboardBuilder;
 import com.yohann.ocihelper.telegram.handler.AbstractCallbackHandler;
+import com.yohann.ocihelper.utils.HostMetricsSampler;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.meta.api.methods.botapimethods.BotApiMethod;
@@ -9,17 +11,12 @@ import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardRow;
 import org.telegram.telegrambots.meta.generics.TelegramClient;
-import oshi.SystemInfo;
-import oshi.hardware.*;
-import oshi.software.os.FileSystem;
-import oshi.software.os.OperatingSystem;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -79,35 +76,39 @@ public class SystemMetricsHandler extends AbstractCallbackHandler {
      * @return formatted metrics string
      */
     private String collectSystemMetrics() {
-        SystemInfo systemInfo = new SystemInfo();
-        HardwareAbstractionLayer hardware = systemInfo.getHardware();
-        OperatingSystem os = systemInfo.getOperatingSystem();
+        // 读取共享采样器的最新数据，不再自行创建 SystemInfo 或等待采样
+        HostMetricsSampler sampler = SpringUtil.getBean(HostMetricsSampler.class);
+        HostMetricsSampler.Point point = sampler.latest();
+        HostMetricsSampler.HostInfo host = sampler.hostInfo();
+        if (point == null || host == null) {
+            throw new IllegalStateException("监控数据采集中，请稍后重试");
+        }
         
         StringBuilder sb = new StringBuilder();
         sb.append("📊 系统资源监控\n\n");
         
         // System Info
-        sb.append(getSystemInfo(os, hardware));
+        sb.append(getSystemInfo(host));
         sb.append("\n");
         
         // CPU Info
-        sb.append(getCpuInfo(hardware.getProcessor()));
+        sb.append(getCpuInfo(host, point));
         sb.append("\n");
         
         // Memory Info
-        sb.append(getMemoryInfo(hardware.getMemory()));
+        sb.append(getMemoryInfo(host, point));
         sb.append("\n");
         
         // Disk Info
-        sb.append(getDiskInfo(os.getFileSystem()));
+        sb.append(getDiskInfo(host, point));
         sb.append("\n");
         
         // Network Info
-        sb.append(getNetworkInfo(hardware.getNetworkIFs()));
+        sb.append(getNetworkInfo(host, point, sampler.publicIp()));
         sb.append("\n");
         
         // Uptime
-        sb.append(getUptimeInfo(os));
+        sb.append(getUptimeInfo(host));
         
         sb.append("\n");
         sb.append("⏰ 更新时间: ");
@@ -119,7 +120,7 @@ public class SystemMetricsHandler extends AbstractCallbackHandler {
     /**
      * Get system basic information
      */
-    private String getSystemInfo(OperatingSystem os, HardwareAbstractionLayer hardware) {
+    private String getSystemInfo(HostMetricsSampler.HostInfo host) {
         StringBuilder sb = new StringBuilder();
         sb.append("🖥️ 系统信息\n");
         
@@ -135,9 +136,9 @@ public class SystemMetricsHandler extends AbstractCallbackHandler {
             }
         }
         
-        sb.append("  容器OS: ").append(os.getFamily()).append(" ").append(os.getVersionInfo().getVersion()).append("\n");
+        sb.append("  容器OS: ").append(host.osFamily()).append(" ").append(host.osVersion()).append("\n");
         sb.append("  架构: ").append(System.getProperty("os.arch")).append("\n");
-        sb.append("  处理器: ").append(hardware.getProcessor().getProcessorIdentifier().getName()).append("\n");
+        sb.append("  处理器: ").append(host.processorName()).append("\n");
         return sb.toString();
     }
     
@@ -213,20 +214,13 @@ public class SystemMetricsHandler extends AbstractCallbackHandler {
     /**
      * Get CPU usage information
      */
-    private String getCpuInfo(CentralProcessor processor) {
+    private String getCpuInfo(HostMetricsSampler.HostInfo host, HostMetricsSampler.Point point) {
         StringBuilder sb = new StringBuilder();
         sb.append("💻 服务器 CPU 使用率\n");
         
-        // Get CPU usage
-        long[] prevTicks = processor.getSystemCpuLoadTicks();
-        try {
-            Thread.sleep(1000); // Wait 1 second to calculate usage
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-        double cpuUsage = processor.getSystemCpuLoadBetweenTicks(prevTicks) * 100;
+        double cpuUsage = point.cpuUsage();
         
-        sb.append("  核心数: ").append(processor.getLogicalProcessorCount()).append("\n");
+        sb.append("  核心数: ").append(host.logicalProcessors()).append("\n");
         sb.append("  使用率: ").append(String.format("%.2f", cpuUsage)).append("%\n");
         sb.append("  空闲率: ").append(String.format("%.2f", 100 - cpuUsage)).append("%\n");
         
@@ -239,14 +233,14 @@ public class SystemMetricsHandler extends AbstractCallbackHandler {
     /**
      * Get memory usage information
      */
-    private String getMemoryInfo(GlobalMemory memory) {
+    private String getMemoryInfo(HostMetricsSampler.HostInfo host, HostMetricsSampler.Point point) {
         StringBuilder sb = new StringBuilder();
         sb.append("💾 服务器内存使用\n");
         
-        long totalMemory = memory.getTotal();
-        long availableMemory = memory.getAvailable();
+        long totalMemory = host.memoryTotal();
+        long availableMemory = host.memoryAvailable();
         long usedMemory = totalMemory - availableMemory;
-        double usedPercentage = ((double) usedMemory / totalMemory) * 100;
+        double usedPercentage = point.memoryUsage();
         
         sb.append("  总容量: ").append(formatBytes(totalMemory)).append("\n");
         sb.append("  已使用: ").append(formatBytes(usedMemory)).append("\n");
@@ -260,21 +254,13 @@ public class SystemMetricsHandler extends AbstractCallbackHandler {
     /**
      * Get disk usage information
      */
-    private String getDiskInfo(FileSystem fileSystem) {
+    private String getDiskInfo(HostMetricsSampler.HostInfo host, HostMetricsSampler.Point point) {
         StringBuilder sb = new StringBuilder();
         sb.append("💿 磁盘使用\n");
         
         // Only monitor root directory
-        File rootDir = new File("/");
-        
-        if (!rootDir.exists()) {
-            sb.append("  ⚠️ 根目录不存在\n");
-            return sb.toString();
-        }
-        
-        // Get disk usage for root path
-        long total = rootDir.getTotalSpace();
-        long usable = rootDir.getUsableSpace();
+        long total = host.diskTotal();
+        long usable = host.diskUsable();
         long used = total - usable;
         
         if (total == 0) {
@@ -282,7 +268,7 @@ public class SystemMetricsHandler extends AbstractCallbackHandler {
             return sb.toString();
         }
         
-        double usedPercentage = ((double) used / total) * 100;
+        double usedPercentage = point.diskUsage();
         
         sb.append("  总容量: ").append(formatBytes(total)).append("\n");
         sb.append("  已使用: ").append(formatBytes(used)).append("\n");
@@ -296,41 +282,32 @@ public class SystemMetricsHandler extends AbstractCallbackHandler {
     /**
      * Get network interface information
      */
-    private String getNetworkInfo(List<NetworkIF> networkIFs) {
+    private String getNetworkInfo(HostMetricsSampler.HostInfo host, HostMetricsSampler.Point point, String publicIp) {
         StringBuilder sb = new StringBuilder();
         sb.append("🌐 网络信息\n");
         
-        // Get public IP address
-        String publicIp = getPublicIpAddress();
         if (publicIp != null) {
             sb.append("  公网IP: ").append(publicIp).append("\n");
         }
         
-        // Find primary network interface
-        NetworkIF primaryIF = networkIFs.stream()
-                .filter(NetworkIF::isConnectorPresent)
-                .filter(iface -> !Arrays.asList(iface.getIPv4addr()).isEmpty() || !Arrays.asList(iface.getIPv6addr()).isEmpty())
-                .findFirst()
-                .orElse(null);
-        
-        if (primaryIF != null) {
-            primaryIF.updateAttributes();
-            
-            sb.append("  接口名称: ").append(primaryIF.getDisplayName()).append("\n");
+        if (host.nicName() != null) {
+            sb.append("  接口名称: ").append(host.nicName()).append("\n");
             
-            String[] ipv4 = primaryIF.getIPv4addr();
+            String[] ipv4 = host.nicIpv4();
             if (ipv4.length > 0) {
                 sb.append("  内网IP: ").append(String.join(", ", ipv4)).append("\n");
             }
             
-            sb.append("  接收: ").append(formatBytes(primaryIF.getBytesRecv())).append("\n");
-            sb.append("  发送: ").append(formatBytes(primaryIF.getBytesSent())).append("\n");
-            sb.append("  收包: ").append(primaryIF.getPacketsRecv()).append("\n");
-            sb.append("  发包: ").append(primaryIF.getPacketsSent()).append("\n");
+            sb.append("  接收: ").append(formatBytes(host.bytesRecv()))
+              .append("（").append(point.rxRate()).append(" KB/s）\n");
+            sb.append("  发送: ").append(formatBytes(host.bytesSent()))
+              .append("（").append(point.txRate()).append(" KB/s）\n");
+            sb.append("  收包: ").append(host.packetsRecv()).append("\n");
+            sb.append("  发包: ").append(host.packetsSent()).append("\n");
             
-            if (primaryIF.getInErrors() > 0 || primaryIF.getOutErrors() > 0) {
-                sb.append("  错误: ").append("入=").append(primaryIF.getInErrors())
-                  .append(" 出=").append(primaryIF.getOutErrors()).append("\n");
+            if (host.inErrors() > 0 || host.outErrors() > 0) {
+                sb.append("  错误: ").append("入=").append(host.inErrors())
+                  .append(" 出=").append(host.outErrors()).append("\n");
             }
         } else {
             sb.append("  ⚠️ 未检测到活动网络接口\n");
@@ -339,54 +316,14 @@ public class SystemMetricsHandler extends AbstractCallbackHandler {
         return sb.toString();
     }
     
-    /**
-     * Get public IP address from external service
-     * 
-     * @return public IP address or null if failed
-     */
-    private String getPublicIpAddress() {
-        try {
-            // Try multiple services in case one is down
-            String[] services = {
-                "https://api.ipify.org",
-                "https://ifconfig.me/ip",
-                "https://icanhazip.com"
-            };
-            
-            for (String service : services) {
-                try {
-                    java.net.URL url = new java.net.URL(service);
-                    java.net.HttpURLConnection conn = (java.net.HttpURLConnection) url.openConnection();
-                    conn.setRequestMethod("GET");
-                    conn.setConnectTimeout(3000);
-                    conn.setReadTimeout(3000);
-                    
-                    try (BufferedReader reader = new BufferedReader(
-                            new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-                        String ip = reader.readLine();
-                        if (ip != null && !ip.isEmpty()) {
-                            return ip.trim();
-                        }
-                    }
-                } catch (Exception e) {
-                    // Try next service
-                    continue;
-                }
-            }
-        } catch (Exception e) {
-            log.warn("获取公网IP失败", e);
-        }
-        return null;
-    }
-    
     /**
      * Get system uptime information
      */
-    private String getUptimeInfo(OperatingSystem os) {
+    private String getUptimeInfo(HostMetricsSampler.HostInfo host) {
         StringBuilder sb = new StringBuilder();
         sb.append("⏱️ 系统运行时间\n");
         
-        long uptimeSeconds = os.getSystemUptime();
+        long uptimeSeconds = host.uptimeSeconds();
         long days = uptimeSeconds / 86400;
         long hours = (uptimeSeconds % 86400) / 3600;
         long minutes = (uptimeSeconds % 3600) / 60;
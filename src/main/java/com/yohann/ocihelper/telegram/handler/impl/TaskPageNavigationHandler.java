@@ -11,6 +11,7 @@ import com.yohann.ocihelper.telegram.handler.AbstractCallbackHandler;
 import com.yohann.ocihelper.telegram.storage.PaginationStorage;
 import com.yohann.ocihelper.telegram.storage.TaskSelectionStorage;
 import com.yohann.ocihelper.utils.CommonUtils;
+import com.yohann.ocihelper.utils.TaskStateStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.meta.api.methods.botapimethods.BotApiMethod;
@@ -25,8 +26,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-import static com.yohann.ocihelper.service.impl.OciServiceImpl.TEMP_MAP;
-
 /**
  * 任务管理分页导航处理器
  * 
@@ -110,7 +109,7 @@ public class TaskPageNavigationHandler extends AbstractCallbackHandler {
                 continue;
             }
             
-            Long counts = (Long) TEMP_MAP.get(CommonUtils.CREATE_COUNTS_PREFIX + task.getId());
+            long counts = TaskStateStore.attempts(TaskStateStore.Kind.CREATE, task.getId());
             boolean isSelected = selectionStorage.isSelected(chatId, task.getId());
             int taskNumber = startIndex + i + 1; // 全局任务编号
             
@@ -128,7 +127,7 @@ public class TaskPageNavigationHandler extends AbstractCallbackHandler {
                     task.getDisk(),
                     task.getCreateNumbers(),
                     CommonUtils.getTimeDifference(task.getCreateTime()),
-                    counts == null ? "0" : counts
+                    counts
             ));
             
             // 添加任务按钮（每行2个）
@@ -13,6 +13,7 @@ import com.yohann.ocihelper.telegram.handler.AbstractCallbackHandler;
 import com.yohann.ocihelper.telegram.storage.PaginationStorage;
 import com.yohann.ocihelper.telegram.storage.TaskSelectionStorage;
 import com.yohann.ocihelper.utils.CommonUtils;
+import com.yohann.ocihelper.utils.TaskStateStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
@@ -30,8 +31,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import static com.yohann.ocihelper.service.impl.OciServiceImpl.TEMP_MAP;
-
 /**
  * 切换任务选择处理器
  * 
@@ -135,7 +134,7 @@ public class ToggleTaskHandler extends AbstractCallbackHandler {
                 continue;
             }
             
-            Long counts = (Long) TEMP_MAP.get(CommonUtils.CREATE_COUNTS_PREFIX + task.getId());
+            long counts = TaskStateStore.attempts(TaskStateStore.Kind.CREATE, task.getId());
             boolean isSelected = selectionStorage.isSelected(chatId, task.getId());
             int taskNumber = startIndex + i + 1; // 全局任务编号
             
@@ -153,7 +152,7 @@ public class ToggleTaskHandler extends AbstractCallbackHandler {
                     task.getDisk(),
                     task.getCreateNumbers(),
                     CommonUtils.getTimeDifference(task.getCreateTime()),
-                    counts == null ? "0" : counts
+                    counts
             ));
             
             // 添加任务按钮（每行2个）
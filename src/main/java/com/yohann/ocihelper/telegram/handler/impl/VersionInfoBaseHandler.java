@@ -1,10 +1,7 @@
 package com.yohann.ocihelper.telegram.handler.impl;
 
 import cn.hutool.extra.spring.SpringUtil;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.yohann.ocihelper.bean.entity.OciKv;
 import com.yohann.ocihelper.enums.SysCfgEnum;
-import com.yohann.ocihelper.enums.SysCfgTypeEnum;
 import com.yohann.ocihelper.service.IOciKvService;
 import com.yohann.ocihelper.telegram.builder.KeyboardBuilder;
 import com.yohann.ocihelper.telegram.handler.AbstractCallbackHandler;
@@ -33,10 +30,7 @@ public abstract class VersionInfoBaseHandler extends AbstractCallbackHandler {
         String content = "【版本信息】\n\n当前版本：%s\n最新版本：%s\n";
         IOciKvService kvService = SpringUtil.getBean(IOciKvService.class);
         String latest = CommonUtils.getLatestVersion();
-        String now = kvService.getObj(new LambdaQueryWrapper<OciKv>()
-                .eq(OciKv::getCode, SysCfgEnum.SYS_INFO_VERSION.getCode())
-                .eq(OciKv::getType, SysCfgTypeEnum.SYS_INFO.getCode())
-                .select(OciKv::getValue), String::valueOf);
+        String now = kvService.getCfgValue(SysCfgEnum.SYS_INFO_VERSION);
         String common = String.format(content, now, latest);
         
         List<InlineKeyboardRow> keyboard = new ArrayList<>();
@@ -3,17 +3,16 @@ package com.yohann.ocihelper.telegram.service;
 import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.extra.spring.SpringUtil;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.yohann.ocihelper.bean.dto.SysUserDTO;
+import com.yohann.ocihelper.bean.dto.CfgHealthDTO;
 import com.yohann.ocihelper.bean.entity.OciCreateTask;
 import com.yohann.ocihelper.bean.entity.OciUser;
 import com.yohann.ocihelper.bean.response.oci.traffic.FetchInstancesRsp;
-import com.yohann.ocihelper.config.OracleInstanceFetcher;
+import com.yohann.ocihelper.service.ILivenessService;
 import com.yohann.ocihelper.service.IOciCreateTaskService;
 import com.yohann.ocihelper.service.IOciUserService;
-import com.yohann.ocihelper.service.ISysService;
 import com.yohann.ocihelper.service.ITrafficService;
 import com.yohann.ocihelper.utils.CommonUtils;
+import com.yohann.ocihelper.utils.TaskStateStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -25,7 +24,6 @@ import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import static com.yohann.ocihelper.config.VirtualThreadConfig.VIRTUAL_EXECUTOR;
-import static com.yohann.ocihelper.service.impl.OciServiceImpl.TEMP_MAP;
 
 /**
  * Telegram Bot 业务逻辑服务
@@ -39,29 +37,22 @@ public class TelegramBotService {
     /**
      * 检查所有 OCI 配置的 API 测活
      * 
+     * @param forceRefresh 是否重新测活，否则使用测活表中未过期的结果
      * @return 结果消息
      */
-    public String checkAlive() {
-        ISysService sysService = SpringUtil.getBean(ISysService.class);
-        IOciUserService userService = SpringUtil.getBean(IOciUserService.class);
+    public String checkAlive(boolean forceRefresh) {
+        ILivenessService livenessService = SpringUtil.getBean(ILivenessService.class);
         
-        List<String> ids = userService.listObjs(new LambdaQueryWrapper<OciUser>()
-                .isNotNull(OciUser::getId)
-                .select(OciUser::getId), String::valueOf);
+        List<CfgHealthDTO> healths = livenessService.check(forceRefresh);
         
-        if (CollectionUtil.isEmpty(ids)) {
+        if (CollectionUtil.isEmpty(healths)) {
             return "暂无配置";
         }
         
-        List<String> failNames = ids.parallelStream().filter(id -> {
-            SysUserDTO ociUser = sysService.getOciUser(id);
-            try (OracleInstanceFetcher fetcher = new OracleInstanceFetcher(ociUser)) {
-                fetcher.getAvailabilityDomains();
-            } catch (Exception e) {
-                return true;
-            }
-            return false;
-        }).map(id -> sysService.getOciUser(id).getUsername()).collect(Collectors.toList());
+        List<String> failNames = healths.stream()
+                .filter(x -> !x.isAlive())
+                .map(CfgHealthDTO::getUsername)
+                .collect(Collectors.toList());
         
         return String.format(
                 "【API测活结果】\n\n" +
@@ -69,9 +60,9 @@ public class TelegramBotService {
                 "❌ 失效配置数：%s\n" +
                 "\uD83D\uDD11 总配置数：%s\n" +
                 "⚠\uFE0F 失效配置：\n%s",
-                ids.size() - failNames.size(),
+                healths.size() - failNames.size(),
                 failNames.size(),
-                ids.size(),
+                healths.size(),
                 CollectionUtil.isEmpty(failNames) ? "无" : String.join("\n", failNames)
         );
     }
@@ -98,7 +89,7 @@ public class TelegramBotService {
             String template = "[%s] [%s] [%s] [%s核/%sGB/%sGB] [%s台] [%s] [%s次]";
             return ociCreateTaskList.parallelStream().map(x -> {
                 OciUser ociUser = userService.getById(x.getUserId());
-                Long counts = (Long) TEMP_MAP.get(CommonUtils.CREATE_COUNTS_PREFIX + x.getId());
+                long counts = TaskStateStore.attempts(TaskStateStore.Kind.CREATE, x.getId());
                 return String.format(
                         template,
                         ociUser.getUsername(),
@@ -109,7 +100,7 @@ public class TelegramBotService {
                         x.getDisk(),
                         x.getCreateNumbers(),
                         CommonUtils.getTimeDifference(x.getCreateTime()),
-                        counts == null ? "0" : counts
+                        counts
                 );
             }).collect(Collectors.joining("\n"));
         }, VIRTUAL_EXECUTOR);
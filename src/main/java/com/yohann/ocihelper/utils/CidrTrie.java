@@ -0,0 +1,323 @@
+package com.yohann.ocihelper.utils;
+
+import java.net.InetAddress;
+import java.util.Collection;
+import java.util.regex.Pattern;
+
+/**
+ * <p>
+ * CidrTrie
+ * </p >
+ * Immutable binary prefix trie over IPv4 and IPv6 networks. A lookup walks at most 32 (IPv4) or 128
+ * (IPv6) bits and stops at the first network that covers the address, so its cost does not depend on
+ * how many ranges are loaded. {@link #with} and {@link #without} copy only the path they change and
+ * share the rest, so readers can use a snapshot published through a volatile field without locking
+ * while writers build the next one. IPv4-mapped IPv6 addresses ({@code ::ffff:a.b.c.d}) are matched as
+ * IPv4. Every network is a single node, so callers that track entries should key them by
+ * {@link #canonical(String)}: different spellings of one network share that node.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+public final class CidrTrie {
+
+    private static final Pattern IPV6_CHARS = Pattern.compile("^[0-9a-fA-F:.]+$");
+    private static final CidrTrie EMPTY = new CidrTrie(null, null, 0);
+
+    private final Node v4;
+    private final Node v6;
+    private final int size;
+
+    private record Node(Node zero, Node one, boolean terminal) {
+    }
+
+    /**
+     * A parsed network: address bytes (4 or 16) and prefix length.
+     */
+    public record Cidr(byte[] address, int prefix) {
+    }
+
+    private CidrTrie(Node v4, Node v6, int size) {
+        this.v4 = v4;
+        this.v6 = v6;
+        this.size = size;
+    }
+
+    public static CidrTrie empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Build a trie from IPs and CIDR ranges; entries that do not parse are skipped.
+     */
+    public static CidrTrie of(Collection<String> entries) {
+        CidrTrie trie = EMPTY;
+        for (String entry : entries) {
+            trie = trie.with(entry);
+        }
+        return trie;
+    }
+
+    /**
+     * Number of networks added (entries covered by a wider one still count).
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return a trie that also contains {@code entry}, or this one if it does not parse or is present
+     */
+    public CidrTrie with(String entry) {
+        Cidr cidr = parseCidr(entry);
+        if (cidr == null) {
+            return this;
+        }
+        boolean v4Entry = cidr.address().length == 4;
+        Node root = v4Entry ? v4 : v6;
+        if (containsExactly(root, cidr)) {
+            return this;
+        }
+        Node next = insert(root, cidr.address(), cidr.prefix(), 0);
+        return v4Entry ? new CidrTrie(next, v6, size + 1) : new CidrTrie(v4, next, size + 1);
+    }
+
+    /**
+     * @return a trie without the exact network {@code entry}, or this one if it is not present
+     */
+    public CidrTrie without(String entry) {
+        Cidr cidr = parseCidr(entry);
+        if (cidr == null) {
+            return this;
+        }
+        boolean v4Entry = cidr.address().length == 4;
+        Node root = v4Entry ? v4 : v6;
+        if (!containsExactly(root, cidr)) {
+            return this;
+        }
+        Node next = remove(root, cidr.address(), cidr.prefix(), 0);
+        return v4Entry ? new CidrTrie(next, v6, size - 1) : new CidrTrie(v4, next, size - 1);
+    }
+
+    /**
+     * @return true if {@code ip} is inside any network of the trie
+     */
+    public boolean contains(String ip) {
+        byte[] address = parseAddress(ip);
+        return address != null && contains(address);
+    }
+
+    public boolean contains(byte[] address) {
+        Node node = address.length == 4 ? v4 : v6;
+        int bits = address.length * 8;
+        for (int i = 0; node != null; i++) {
+            if (node.terminal()) {
+                return true;
+            }
+            if (i == bits) {
+                return false;
+            }
+            node = bit(address, i) ? node.one() : node.zero();
+        }
+        return false;
+    }
+
+    /**
+     * Parse {@code a.b.c.d}, an IPv6 literal, or either with {@code /prefix}. A host address gets the
+     * full prefix; host bits below the prefix are ignored.
+     *
+     * @return the network, or null if the text is not an IP literal or CIDR range
+     */
+    public static Cidr parseCidr(String text) {
+        if (text == null) {
+            return null;
+        }
+        text = text.trim();
+        int slash = text.indexOf('/');
+        byte[] address = parseAddress(slash < 0 ? text : text.substring(0, slash));
+        if (address == null) {
+            return null;
+        }
+        int max = address.length * 8;
+        int prefix = max;
+        if (slash >= 0) {
+            try {
+                prefix = Integer.parseInt(text.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            // ::ffff:a.b.c.d/104 等映射地址的前缀换算为 IPv4 前缀；不超过 /96 的会覆盖整个 IPv4 甚至 IPv6 空间，不接受
+            if (address.length == 4 && text.indexOf(':') >= 0) {
+                if (prefix <= 96) {
+                    return null;
+                }
+                prefix -= 96;
+            }
+            if (prefix < 0 || prefix > max) {
+                return null;
+            }
+        }
+        return new Cidr(address, prefix);
+    }
+
+    /**
+     * Normal form of an IP or CIDR range: host bits cleared, IPv4-mapped IPv6 written as IPv4, IPv6
+     * compressed, and no prefix for a single host. Spellings of the same network get the same string,
+     * e.g. {@code 10.0.0.7/24} and {@code 10.0.0.0/24}, or {@code ::ffff:1.2.3.4} and {@code 1.2.3.4/32}.
+     *
+     * @return the normal form, or null if the text is not an IP literal or CIDR range
+     */
+    public static String canonical(String text) {
+        Cidr cidr = parseCidr(text);
+        return cidr == null ? null : canonical(cidr);
+    }
+
+    public static String canonical(Cidr cidr) {
+        byte[] network = cidr.address().clone();
+        int bits = network.length * 8;
+        for (int i = cidr.prefix(); i < bits; i++) {
+            network[i >>> 3] &= (byte) ~(0x80 >>> (i & 7));
+        }
+        String address = network.length == 4 ? formatIpv4(network) : formatIpv6(network);
+        return cidr.prefix() == bits ? address : address + "/" + cidr.prefix();
+    }
+
+    /**
+     * Parse an IPv4 or IPv6 literal without any DNS lookup; IPv4-mapped IPv6 becomes 4 bytes.
+     *
+     * @return 4 or 16 bytes, or null if the text is not an IP literal
+     */
+    public static byte[] parseAddress(String text) {
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        if (text.indexOf(':') < 0) {
+            return parseIpv4(text);
+        }
+        int zone = text.indexOf('%');
+        if (zone >= 0) {
+            text = text.substring(0, zone);
+        }
+        if (text.startsWith("[") && text.endsWith("]")) {
+            text = text.substring(1, text.length() - 1);
+        }
+        // 只含十六进制、冒号和点时 InetAddress 按字面量解析，不会触发 DNS 查询
+        if (!IPV6_CHARS.matcher(text).matches()) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(text).getAddress();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static byte[] parseIpv4(String text) {
+        byte[] address = new byte[4];
+        int part = 0;
+        int value = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i == text.length() ? '.' : text.charAt(i);
+            if (c == '.') {
+                if (value < 0 || part == 4) {
+                    return null;
+                }
+                address[part++] = (byte) value;
+                value = -1;
+            } else if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value > 255) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+        }
+        return part == 4 ? address : null;
+    }
+
+    private static String formatIpv4(byte[] address) {
+        return (address[0] & 0xFF) + "." + (address[1] & 0xFF) + "." + (address[2] & 0xFF) + "." + (address[3] & 0xFF);
+    }
+
+    private static String formatIpv6(byte[] address) {
+        int[] groups = new int[8];
+        for (int i = 0; i < 8; i++) {
+            groups[i] = (address[2 * i] & 0xFF) << 8 | (address[2 * i + 1] & 0xFF);
+        }
+        // 最长的一段连续零组（至少两组）写成 ::
+        int zeroStart = -1;
+        int zeroLength = 1;
+        for (int i = 0; i < 8; ) {
+            int j = i;
+            while (j < 8 && groups[j] == 0) {
+                j++;
+            }
+            if (j - i > zeroLength) {
+                zeroStart = i;
+                zeroLength = j - i;
+            }
+            i = Math.max(j, i + 1);
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            if (i == zeroStart) {
+                text.append("::");
+                i += zeroLength - 1;
+                continue;
+            }
+            if (!text.isEmpty() && text.charAt(text.length() - 1) != ':') {
+                text.append(':');
+            }
+            text.append(Integer.toHexString(groups[i]));
+        }
+        return text.toString();
+    }
+
+    private static boolean containsExactly(Node node, Cidr cidr) {
+        for (int i = 0; node != null; i++) {
+            if (i == cidr.prefix()) {
+                return node.terminal();
+            }
+            node = bit(cidr.address(), i) ? node.one() : node.zero();
+        }
+        return false;
+    }
+
+    private static Node insert(Node node, byte[] address, int prefix, int depth) {
+        if (depth == prefix) {
+            return new Node(node == null ? null : node.zero(), node == null ? null : node.one(), true);
+        }
+        Node zero = node == null ? null : node.zero();
+        Node one = node == null ? null : node.one();
+        boolean terminal = node != null && node.terminal();
+        if (bit(address, depth)) {
+            one = insert(one, address, prefix, depth + 1);
+        } else {
+            zero = insert(zero, address, prefix, depth + 1);
+        }
+        return new Node(zero, one, terminal);
+    }
+
+    private static Node remove(Node node, byte[] address, int prefix, int depth) {
+        if (node == null) {
+            return null;
+        }
+        Node zero = node.zero();
+        Node one = node.one();
+        boolean terminal = node.terminal();
+        if (depth == prefix) {
+            terminal = false;
+        } else if (bit(address, depth)) {
+            one = remove(one, address, prefix, depth + 1);
+        } else {
+            zero = remove(zero, address, prefix, depth + 1);
+        }
+        // 没有子节点的非终结节点直接剪掉
+        return zero == null && one == null && !terminal ? null : new Node(zero, one, terminal);
+    }
+
+    private static boolean bit(byte[] address, int index) {
+        return (address[index >>> 3] & (0x80 >>> (index & 7))) != 0;
+    }
+}
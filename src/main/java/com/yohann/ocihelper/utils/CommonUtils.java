@@ -33,7 +33,6 @@ import java.nio.file.Files;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
@@ -58,10 +57,7 @@ public class CommonUtils {
 
     public static final String CREATE_TASK_PREFIX = "CREATE_TASK_PREFIX_";
     public static final String CHANGE_IP_TASK_PREFIX = "CREATE_TASK_PREFIX_";
-    public static final String CREATE_COUNTS_PREFIX = "CREATE_COUNTS_PREFIX_";
-    public static final String CHANGE_IP_ERROR_COUNTS_PREFIX = "CHANGE_IP_ERROR_COUNTS_PREFIX_";
     public static final String TERMINATE_INSTANCE_PREFIX = "TERMINATE_INSTANCE_PREFIX_";
-    public static final String LOG_FILE_PATH = "/var/log/oci-helper.log";
     public static final String MFA_QR_PNG_PATH = System.getProperty("user.dir") + File.separator + "mfa.png";
     private static final String CIDR_REGEX =
             "^([0-9]{1,3}\\.){3}[0-9]{1,3}/([0-9]|[1-2][0-9]|3[0-2])$";
@@ -371,8 +367,8 @@ public class CommonUtils {
     }
 
     public static String dateFmt2String(Date date) {
-        SimpleDateFormat formatter = new SimpleDateFormat(DatePattern.NORM_DATETIME_PATTERN);
-        return formatter.format(date);
+        // DateTimeFormatter 线程安全，无需每次新建 SimpleDateFormat
+        return DATETIME_FMT_NORM.format(date.toInstant().atZone(ZoneId.systemDefault()));
     }
 
     public static Date localDateTime2Date(LocalDateTime localDateTime) {
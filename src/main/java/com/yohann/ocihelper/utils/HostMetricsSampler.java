@@ -0,0 +1,322 @@
+package com.yohann.ocihelper.utils;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import oshi.SystemInfo;
+import oshi.hardware.CentralProcessor;
+import oshi.hardware.GlobalMemory;
+import oshi.hardware.HardwareAbstractionLayer;
+import oshi.hardware.NetworkIF;
+import oshi.software.os.OperatingSystem;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static com.yohann.ocihelper.config.VirtualThreadConfig.VIRTUAL_EXECUTOR;
+
+/**
+ * <p>
+ * HostMetricsSampler
+ * </p >
+ * The only place that reads host metrics. One OSHI handle is sampled every
+ * {@code host-metrics.interval-seconds}; CPU, memory and disk usage and the receive/send rate of the
+ * primary NIC go into fixed-size primitive ring buffers holding {@code host-metrics.history-size}
+ * samples. Listeners (the dashboard websocket) are called after each sample, and the Telegram handler
+ * and the REST endpoint read the latest sample and the history without touching OSHI themselves.
+ * The public IP is looked up in the background and cached.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+@Slf4j
+@Component
+public class HostMetricsSampler {
+
+    private static final long PUBLIC_IP_TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final String[] PUBLIC_IP_SERVICES = {
+            "https://api.ipify.org",
+            "https://ifconfig.me/ip",
+            "https://icanhazip.com"
+    };
+
+    @Value("${host-metrics.interval-seconds:5}")
+    private int intervalSeconds;
+    @Value("${host-metrics.history-size:720}")
+    private int historySize;
+
+    /**
+     * One sample; rates are in KB/s, usages in percent.
+     */
+    public record Point(long time, double cpuUsage, double memoryUsage, double diskUsage, double rxRate, double txRate) {
+    }
+
+    /**
+     * Samples oldest first, one array per metric.
+     */
+    public record History(long[] time, double[] cpuUsage, double[] memoryUsage, double[] diskUsage, double[] rxRate, double[] txRate) {
+    }
+
+    /**
+     * Absolute values of the latest sample plus host facts that do not change.
+     */
+    public record HostInfo(String osFamily, String osVersion, String processorName, int logicalProcessors,
+                           long memoryTotal, long memoryAvailable, long diskTotal, long diskUsable,
+                           String nicName, String[] nicIpv4, long bytesRecv, long bytesSent,
+                           long packetsRecv, long packetsSent, long inErrors, long outErrors, long uptimeSeconds) {
+    }
+
+    private final List<Consumer<Point>> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean resolvingIp = new AtomicBoolean();
+    private volatile String publicIp;
+    private volatile long publicIpAt;
+    private volatile HostInfo hostInfo;
+
+    // 以下字段只由采样线程写入，读取时对 this 加锁
+    private long[] times;
+    private double[] cpu;
+    private double[] memory;
+    private double[] disk;
+    private double[] rx;
+    private double[] tx;
+    private int head;
+    private int count;
+
+    private OperatingSystem os;
+    private HardwareAbstractionLayer hardware;
+    private CentralProcessor processor;
+    private NetworkIF nic;
+    private long[] prevTicks;
+    private long prevRxBytes;
+    private long prevTxBytes;
+    private long prevSampleNanos;
+
+    @PostConstruct
+    public void start() {
+        historySize = Math.max(2, historySize);
+        intervalSeconds = Math.max(1, intervalSeconds);
+        times = new long[historySize];
+        cpu = new double[historySize];
+        memory = new double[historySize];
+        disk = new double[historySize];
+        rx = new double[historySize];
+        tx = new double[historySize];
+        try {
+            SystemInfo systemInfo = new SystemInfo();
+            os = systemInfo.getOperatingSystem();
+            hardware = systemInfo.getHardware();
+            processor = hardware.getProcessor();
+            prevTicks = processor.getSystemCpuLoadTicks();
+            nic = primaryNic(hardware.getNetworkIFs());
+            if (nic != null) {
+                nic.updateAttributes();
+                prevRxBytes = nic.getBytesRecv();
+                prevTxBytes = nic.getBytesSent();
+            }
+            prevSampleNanos = System.nanoTime();
+        } catch (Throwable e) {
+            log.error("【主机监控】初始化失败，主机监控不可用：{}", e.getLocalizedMessage());
+            return;
+        }
+        TimerWheelScheduler.INSTANCE.scheduleWithFixedDelay(TimerWheelScheduler.TaskType.SYSTEM, "host-metrics",
+                this::sample, intervalSeconds, intervalSeconds, TimeUnit.SECONDS, 0);
+        refreshPublicIp();
+    }
+
+    public void addListener(Consumer<Point> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<Point> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return the latest sample, or null before the first one
+     */
+    public synchronized Point latest() {
+        if (count == 0) {
+            return null;
+        }
+        int i = Math.floorMod(head - 1, historySize);
+        return new Point(times[i], cpu[i], memory[i], disk[i], rx[i], tx[i]);
+    }
+
+    /**
+     * The last {@code limit} samples (all retained ones if limit <= 0).
+     */
+    public synchronized History history(int limit) {
+        int n = limit <= 0 ? count : Math.min(limit, count);
+        History history = new History(new long[n], new double[n], new double[n], new double[n], new double[n], new double[n]);
+        int start = Math.floorMod(head - n, historySize);
+        for (int k = 0; k < n; k++) {
+            int i = (start + k) % historySize;
+            history.time()[k] = times[i];
+            history.cpuUsage()[k] = cpu[i];
+            history.memoryUsage()[k] = memory[i];
+            history.diskUsage()[k] = disk[i];
+            history.rxRate()[k] = rx[i];
+            history.txRate()[k] = tx[i];
+        }
+        return history;
+    }
+
+    /**
+     * @return host facts and absolute values of the latest sample, or null before the first one
+     */
+    public HostInfo hostInfo() {
+        return hostInfo;
+    }
+
+    /**
+     * Latest sample, host facts and the last {@code limit} samples, for the REST endpoint.
+     */
+    public Map<String, Object> snapshot(int limit) {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("intervalSeconds", intervalSeconds);
+        snapshot.put("historySize", historySize);
+        snapshot.put("latest", latest());
+        snapshot.put("host", hostInfo);
+        snapshot.put("history", history(limit));
+        return snapshot;
+    }
+
+    /**
+     * Cached public IP; a stale value triggers a background refresh and is returned meanwhile.
+     */
+    public String publicIp() {
+        if (System.currentTimeMillis() - publicIpAt > PUBLIC_IP_TTL_MILLIS) {
+            refreshPublicIp();
+        }
+        return publicIp;
+    }
+
+    private void sample() {
+        long nowNanos = System.nanoTime();
+        double seconds = Math.max(1e-3, (nowNanos - prevSampleNanos) / 1e9);
+        prevSampleNanos = nowNanos;
+
+        double cpuUsage = processor.getSystemCpuLoadBetweenTicks(prevTicks) * 100;
+        prevTicks = processor.getSystemCpuLoadTicks();
+
+        GlobalMemory globalMemory = hardware.getMemory();
+        long memoryTotal = globalMemory.getTotal();
+        long memoryAvailable = globalMemory.getAvailable();
+
+        File root = new File("/");
+        long diskTotal = root.getTotalSpace();
+        long diskUsable = root.getUsableSpace();
+
+        double rxRate = 0;
+        double txRate = 0;
+        if (nic != null) {
+            nic.updateAttributes();
+            long rxBytes = nic.getBytesRecv();
+            long txBytes = nic.getBytesSent();
+            // 计数器回绕或网卡重置时按 0 处理
+            rxRate = Math.max(0, rxBytes - prevRxBytes) / seconds / 1024.0;
+            txRate = Math.max(0, txBytes - prevTxBytes) / seconds / 1024.0;
+            prevRxBytes = rxBytes;
+            prevTxBytes = txBytes;
+        }
+
+        Point point = new Point(System.currentTimeMillis(),
+                round2(cpuUsage),
+                memoryTotal == 0 ? 0 : round2((memoryTotal - memoryAvailable) * 100.0 / memoryTotal),
+                diskTotal == 0 ? 0 : round2((diskTotal - diskUsable) * 100.0 / diskTotal),
+                round2(rxRate),
+                round2(txRate));
+        append(point);
+        hostInfo = new HostInfo(os.getFamily(), os.getVersionInfo().getVersion(),
+                processor.getProcessorIdentifier().getName(), processor.getLogicalProcessorCount(),
+                memoryTotal, memoryAvailable, diskTotal, diskUsable,
+                nic == null ? null : nic.getDisplayName(), nic == null ? new String[0] : nic.getIPv4addr(),
+                nic == null ? 0 : prevRxBytes, nic == null ? 0 : prevTxBytes,
+                nic == null ? 0 : nic.getPacketsRecv(), nic == null ? 0 : nic.getPacketsSent(),
+                nic == null ? 0 : nic.getInErrors(), nic == null ? 0 : nic.getOutErrors(),
+                os.getSystemUptime());
+
+        for (Consumer<Point> listener : listeners) {
+            try {
+                listener.accept(point);
+            } catch (Exception e) {
+                log.warn("【主机监控】推送监控数据失败：{}", e.getLocalizedMessage());
+            }
+        }
+    }
+
+    private synchronized void append(Point point) {
+        times[head] = point.time();
+        cpu[head] = point.cpuUsage();
+        memory[head] = point.memoryUsage();
+        disk[head] = point.diskUsage();
+        rx[head] = point.rxRate();
+        tx[head] = point.txRate();
+        head = (head + 1) % historySize;
+        count = Math.min(count + 1, historySize);
+    }
+
+    private void refreshPublicIp() {
+        if (!resolvingIp.compareAndSet(false, true)) {
+            return;
+        }
+        VIRTUAL_EXECUTOR.execute(() -> {
+            try {
+                for (String service : PUBLIC_IP_SERVICES) {
+                    String ip = fetchPublicIp(service);
+                    if (ip != null) {
+                        publicIp = ip;
+                        break;
+                    }
+                }
+            } finally {
+                // 失败时也记录时间，避免每次读取都重新请求
+                publicIpAt = System.currentTimeMillis();
+                resolvingIp.set(false);
+            }
+        });
+    }
+
+    private static String fetchPublicIp(String service) {
+        try {
+            HttpURLConnection conn = (HttpURLConnection) URI.create(service).toURL().openConnection();
+            conn.setRequestMethod("GET");
+            conn.setConnectTimeout(3000);
+            conn.setReadTimeout(3000);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
+                String ip = reader.readLine();
+                return ip == null || ip.isBlank() ? null : ip.trim();
+            }
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Fastest connected ethernet-like interface with an address, else any connected one with an address.
+     */
+    private static NetworkIF primaryNic(List<NetworkIF> networkIFs) {
+        List<NetworkIF> candidates = networkIFs.stream()
+                .filter(NetworkIF::isConnectorPresent)
+                .filter(iface -> iface.getIPv4addr().length > 0 || iface.getIPv6addr().length > 0)
+                .toList();
+        return candidates.stream()
+                .filter(iface -> iface.getName().startsWith("e"))
+                .max(Comparator.comparingLong(NetworkIF::getSpeed))
+                .orElse(candidates.isEmpty() ? null : candidates.get(0));
+    }
+
+    private static double round2(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
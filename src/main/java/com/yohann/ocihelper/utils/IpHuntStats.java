@@ -0,0 +1,95 @@
+package com.yohann.ocihelper.utils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * IpHuntStats
+ * </p >
+ * Hit-rate statistics of change-IP tasks that rotate a VNIC's ephemeral IP until it lands in a target
+ * CIDR set, kept per region and target set. From the observed hit rate and the tick interval it
+ * estimates how many rotations, and how long, a new task on the same range is expected to take.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+public final class IpHuntStats {
+
+    private static final Map<String, Range> RANGES = new ConcurrentHashMap<>();
+
+    private IpHuntStats() {
+    }
+
+    private static final class Range {
+
+        private final String region;
+        private final String targets;
+        private final LongAdder rotations = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder rotationMillis = new LongAdder();
+        private volatile long tickSeconds;
+        private volatile long lastHitAt;
+
+        Range(String region, String targets) {
+            this.region = region;
+            this.targets = targets;
+        }
+    }
+
+    /**
+     * One rotation that produced a new IP.
+     *
+     * @param tickSeconds interval between two rotations of the same VNIC
+     */
+    public static void record(String region, Collection<String> cidrList, boolean hit, long costMillis, long tickSeconds) {
+        Range range = range(region, cidrList);
+        range.rotations.increment();
+        range.rotationMillis.add(costMillis);
+        range.tickSeconds = tickSeconds;
+        if (hit) {
+            range.hits.increment();
+            range.lastHitAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * One rotation that did not produce an IP (API error, rate limit...).
+     */
+    public static void recordFailure(String region, Collection<String> cidrList) {
+        range(region, cidrList).failures.increment();
+    }
+
+    public static List<Map<String, Object>> stats() {
+        List<Map<String, Object>> list = new ArrayList<>();
+        RANGES.values().forEach(range -> {
+            long rotations = range.rotations.sum();
+            long hits = range.hits.sum();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("region", range.region);
+            item.put("targets", range.targets);
+            item.put("rotations", rotations);
+            item.put("hits", hits);
+            item.put("failures", range.failures.sum());
+            item.put("hitRate", rotations == 0 ? 0D : (double) hits / rotations);
+            item.put("avgRotationMillis", rotations == 0 ? 0 : range.rotationMillis.sum() / rotations);
+            // 还没有命中过时无法估算，按已尝试次数给出下限
+            double expectedRotations = hits == 0 ? rotations + 1 : (double) rotations / hits;
+            item.put("expectedRotations", Math.round(expectedRotations));
+            item.put("expectedMinutes", Math.round(expectedRotations * range.tickSeconds / 60D));
+            item.put("estimateIsLowerBound", hits == 0);
+            item.put("lastHitAt", range.lastHitAt == 0 ? null : range.lastHitAt);
+            list.add(item);
+        });
+        list.sort(Comparator.comparing((Map<String, Object> x) -> String.valueOf(x.get("region")))
+                .thenComparing(x -> String.valueOf(x.get("targets"))));
+        return list;
+    }
+
+    private static Range range(String region, Collection<String> cidrList) {
+        String targets = cidrList == null ? "" : String.join(",", new TreeSet<>(cidrList.stream().map(String::trim).toList()));
+        return RANGES.computeIfAbsent(region + "|" + targets, k -> new Range(region, targets));
+    }
+}
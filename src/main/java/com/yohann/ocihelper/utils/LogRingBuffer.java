@@ -0,0 +1,106 @@
+package com.yohann.ocihelper.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>
+ * LogRingBuffer
+ * </p >
+ * Bounded, lock-free buffer of the latest log events, filled by {@code LogRingAppender}. Every event
+ * gets a sequence number; writers claim a number with one atomic increment and publish into its slot,
+ * overwriting the event {@link #CAPACITY} numbers older. Readers keep their own cursor and never block
+ * writers: a reader that falls more than {@link #CAPACITY} events behind skips to the oldest event
+ * still held and is told how many it missed.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+public final class LogRingBuffer {
+
+    public static final int CAPACITY = 4096;
+    private static final int MASK = CAPACITY - 1;
+
+    private static final AtomicReferenceArray<Entry> SLOTS = new AtomicReferenceArray<>(CAPACITY);
+    private static final AtomicLong NEXT_SEQ = new AtomicLong();
+
+    private LogRingBuffer() {
+    }
+
+    private record Entry(long seq, String text) {
+    }
+
+    /**
+     * Events read from a cursor.
+     *
+     * @param from    sequence number of the first event in {@code texts}
+     * @param next    cursor to continue from
+     * @param dropped events between the requested cursor and {@code from} that were already overwritten
+     */
+    public record Batch(long from, long next, long dropped, List<String> texts) {
+    }
+
+    public static void publish(String text) {
+        long seq = NEXT_SEQ.getAndIncrement();
+        SLOTS.set((int) (seq & MASK), new Entry(seq, text));
+    }
+
+    /**
+     * Sequence number the next event will get.
+     */
+    public static long nextSeq() {
+        return NEXT_SEQ.get();
+    }
+
+    /**
+     * Cursor positioned {@code count} events before the newest one.
+     */
+    public static long tail(int count) {
+        return Math.max(0, NEXT_SEQ.get() - count);
+    }
+
+    /**
+     * Read up to {@code max} published events starting at {@code cursor}.
+     */
+    public static Batch read(long cursor, int max) {
+        long head = NEXT_SEQ.get();
+        long seq = Math.max(cursor, Math.max(0, head - CAPACITY));
+        long dropped = seq - cursor;
+        long from = seq;
+        List<String> texts = new ArrayList<>(Math.min(max, (int) Math.max(0, Math.min(head - seq, CAPACITY))));
+        while (seq < head && texts.size() < max) {
+            Entry entry = SLOTS.get((int) (seq & MASK));
+            if (entry == null || entry.seq() < seq) {
+                // 序号已被占用但还没写入，下次再读
+                break;
+            }
+            if (entry.seq() > seq) {
+                // 读取过程中被覆盖，跳到当前最旧的一条
+                long oldest = NEXT_SEQ.get() - CAPACITY;
+                if (texts.isEmpty()) {
+                    from = oldest;
+                } else {
+                    // 一批内的序号必须连续，先返回已读到的部分
+                    break;
+                }
+                dropped += oldest - seq;
+                seq = oldest;
+                continue;
+            }
+            texts.add(entry.text());
+            seq++;
+        }
+        return new Batch(from, seq, dropped, texts);
+    }
+
+    public static Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("capacity", CAPACITY);
+        stats.put("nextSeq", NEXT_SEQ.get());
+        return stats;
+    }
+}
@@ -0,0 +1,644 @@
+package com.yohann.ocihelper.utils;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.core.spi.ContextAware;
+import cn.hutool.core.util.StrUtil;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <p>
+ * LogStore
+ * </p >
+ * Rolling on-disk log history, filled by {@code LogStoreAppender}. Records are appended to
+ * {@code active.log} as {@code yyyy-MM-dd HH:mm:ss.SSS LEVEL message} (stack traces follow on their own
+ * lines). The active segment is rolled when it reaches {@code segmentBytes} or spans
+ * {@code segmentMillis}; closed segments are compressed in the background into
+ * {@code seg-<first>-<last>.log.gz}, written as one gzip member per ~64 KB block of whole records (the
+ * file still reads with plain {@code zcat}), next to a {@code .idx} holding the first timestamp, offset
+ * and length of every block. Retention drops the oldest segments beyond {@code maxTotalBytes} or
+ * {@code maxAgeMillis}. The active segment is written through one buffered stream that stays open until
+ * the segment rolls; it is flushed at most every second, on every WARN/ERROR record and before a query
+ * reads the active file. Failures are reported to the logback status manager of the owning appender.
+ * <p>
+ * Queries walk segments and blocks newest first, skip them by the indexed timestamps and decode one
+ * block at a time, so memory stays bounded by the block size and the result limit whatever the size of
+ * the history; a scan budget keeps a filter that matches nothing from reading gigabytes.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+public final class LogStore {
+
+    private static final int BLOCK_BYTES = 64 * 1024;
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final long FLUSH_MILLIS = 1000;
+    private static final int MAX_LIMIT = 5000;
+    private static final long MAX_SCAN_BYTES = 256L * 1024 * 1024;
+    private static final int HEADER_LENGTH = 23;
+    private static final String ACTIVE_NAME = "active.log";
+    private static final DateTimeFormatter TIME_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final int[] HEADER_DIGITS = {0, 1, 2, 3, 5, 6, 8, 9, 11, 12, 14, 15, 17, 18, 20, 21, 22};
+
+    private static volatile LogStore instance;
+
+    /**
+     * Filter for {@link #tail}; null or empty fields do not filter.
+     *
+     * @param from     earliest record time, epoch millis
+     * @param to       latest record time, epoch millis
+     * @param minLevel lowest level to return
+     * @param keywords strings every returned record must contain (case-insensitive), e.g. a task id or
+     *                 a config name
+     * @param limit    maximum records, newest ones win
+     */
+    public record Query(Long from, Long to, Level minLevel, List<String> keywords, int limit) {
+    }
+
+    public record Entry(long time, String level, String text) {
+    }
+
+    /**
+     * @param entries      matching records, oldest first
+     * @param complete     false if the scan budget ran out before the history or the limit was reached
+     * @param scannedBytes uncompressed bytes read
+     */
+    public record Result(List<Entry> entries, boolean complete, long scannedBytes) {
+    }
+
+    /**
+     * Blocks of one segment. Block i covers bytes [offsets[i], offsets[i] + lengths[i]) of the file, each
+     * a gzip member when compressed; firstTimes[i] is the time of its first record.
+     */
+    private record Segment(long first, long last, File file, boolean compressed,
+                           long[] firstTimes, long[] offsets, int[] lengths) {
+    }
+
+    private final File dir;
+    private final ContextAware status;
+    private final long segmentBytes;
+    private final long segmentMillis;
+    private final long maxTotalBytes;
+    private final long maxAgeMillis;
+    private final ExecutorService compressor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "log-store-compress");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Closed segments, oldest first; replaced as a whole on every change.
+     */
+    private volatile List<Segment> segments = List.of();
+
+    // 以下字段为当前写入段的状态，均在 this 上加锁访问
+    private final File activeFile;
+    private OutputStream out;
+    private long activeBytes;
+    private long activeFirst = -1;
+    private long activeLast = -1;
+    private long lastFlushAt;
+    private long[] checkpointTimes = new long[64];
+    private long[] checkpointOffsets = new long[64];
+    private int checkpoints;
+
+    private LogStore(File dir, ContextAware status, long segmentBytes, long segmentMillis, long maxTotalBytes, long maxAgeMillis) {
+        this.dir = dir;
+        this.status = status;
+        this.segmentBytes = segmentBytes;
+        this.segmentMillis = segmentMillis;
+        this.maxTotalBytes = maxTotalBytes;
+        this.maxAgeMillis = maxAgeMillis;
+        this.activeFile = new File(dir, ACTIVE_NAME);
+    }
+
+    /**
+     * @return the running store, or null if it is not configured or failed to start
+     */
+    public static LogStore get() {
+        return instance;
+    }
+
+    /**
+     * @param status where write and compression failures are reported, normally the appender
+     */
+    public static synchronized LogStore start(File dir, ContextAware status, long segmentBytes, long segmentMillis,
+                                              long maxTotalBytes, long maxAgeMillis) throws IOException {
+        if (instance != null) {
+            instance.close();
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("无法创建日志目录：" + dir.getAbsolutePath());
+        }
+        LogStore store = new LogStore(dir, status, segmentBytes, segmentMillis, maxTotalBytes, maxAgeMillis);
+        store.load();
+        instance = store;
+        return store;
+    }
+
+    public synchronized void close() {
+        try {
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+        } catch (IOException ignored) {
+        }
+        compressor.shutdown();
+        if (instance == this) {
+            instance = null;
+        }
+    }
+
+    public void append(long time, String level, String text) throws IOException {
+        byte[] bytes = (TIME_FMT.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZONE))
+                + ' ' + StrUtil.padAfter(level, 5, ' ') + ' ' + text + '\n').getBytes(StandardCharsets.UTF_8);
+        synchronized (this) {
+            if (out == null) {
+                return;
+            }
+            if (activeBytes > 0 && (activeBytes + bytes.length > segmentBytes || time - activeFirst >= segmentMillis)) {
+                roll();
+            }
+            if (checkpoints == 0 || activeBytes - checkpointOffsets[checkpoints - 1] >= BLOCK_BYTES) {
+                if (checkpoints == checkpointTimes.length) {
+                    checkpointTimes = Arrays.copyOf(checkpointTimes, checkpoints * 2);
+                    checkpointOffsets = Arrays.copyOf(checkpointOffsets, checkpoints * 2);
+                }
+                checkpointTimes[checkpoints] = time;
+                checkpointOffsets[checkpoints] = activeBytes;
+                checkpoints++;
+            }
+            out.write(bytes);
+            activeBytes += bytes.length;
+            if (activeFirst < 0) {
+                activeFirst = time;
+            }
+            activeLast = Math.max(activeLast, time);
+            if (time - lastFlushAt >= FLUSH_MILLIS || "WARN".equals(level) || "ERROR".equals(level)) {
+                out.flush();
+                lastFlushAt = time;
+            }
+        }
+    }
+
+    /**
+     * The newest {@code query.limit()} records matching the query, oldest first.
+     */
+    public Result tail(Query query) {
+        int limit = Math.max(1, Math.min(query.limit() <= 0 ? 100 : query.limit(), MAX_LIMIT));
+        long from = query.from() == null ? Long.MIN_VALUE : query.from();
+        long to = query.to() == null ? Long.MAX_VALUE : query.to();
+        List<String> keywords = query.keywords() == null ? List.of()
+                : query.keywords().stream().filter(StrUtil::isNotBlank).toList();
+        ArrayDeque<Entry> found = new ArrayDeque<>(Math.min(limit, 1024));
+        long scanned = 0;
+
+        List<Segment> all = new ArrayList<>(segments);
+        RandomAccessFile activeRaf = null;
+        synchronized (this) {
+            if (activeBytes > 0) {
+                try {
+                    out.flush();
+                    // 在锁内打开，之后即使滚动改名也仍读取同一个文件
+                    activeRaf = new RandomAccessFile(activeFile, "r");
+                    all.add(activeSegment());
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        try {
+            for (int s = all.size() - 1; s >= 0; s--) {
+                Segment segment = all.get(s);
+                if (!segment.compressed() && segment != all.get(all.size() - 1) && !segment.file().exists()) {
+                    segment = compressedReplacement(segment);
+                    if (segment == null) {
+                        continue;
+                    }
+                }
+                if (segment.first() > to) {
+                    continue;
+                }
+                if (segment.last() < from) {
+                    break;
+                }
+                RandomAccessFile raf = s == all.size() - 1 && activeRaf != null ? activeRaf : null;
+                boolean own = raf == null;
+                try {
+                    if (own) {
+                        raf = openSegment(segment);
+                        if (raf == null) {
+                            continue;
+                        }
+                    }
+                    for (int b = segment.offsets().length - 1; b >= 0; b--) {
+                        if (segment.firstTimes()[b] > to) {
+                            continue;
+                        }
+                        String block = readBlock(raf, segment, b);
+                        scanned += block.length();
+                        List<Entry> entries = parse(block, segment.firstTimes()[b]);
+                        for (int i = entries.size() - 1; i >= 0; i--) {
+                            Entry entry = entries.get(i);
+                            if (entry.time() > to || !matches(entry, query.minLevel(), keywords)) {
+                                continue;
+                            }
+                            if (entry.time() < from) {
+                                break;
+                            }
+                            found.addFirst(entry);
+                            if (found.size() >= limit) {
+                                return new Result(new ArrayList<>(found), true, scanned);
+                            }
+                        }
+                        if (segment.firstTimes()[b] < from) {
+                            return new Result(new ArrayList<>(found), true, scanned);
+                        }
+                        if (scanned >= MAX_SCAN_BYTES) {
+                            return new Result(new ArrayList<>(found), false, scanned);
+                        }
+                    }
+                } catch (IOException ignored) {
+                    // 段在读取期间被压缩替换或被清理，跳过
+                } finally {
+                    if (own && raf != null) {
+                        try {
+                            raf.close();
+                        } catch (IOException ignored) {
+                        }
+                    }
+                }
+            }
+        } finally {
+            if (activeRaf != null) {
+                try {
+                    activeRaf.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        return new Result(new ArrayList<>(found), true, scanned);
+    }
+
+    public Map<String, Object> stats() {
+        List<Segment> closed = segments;
+        long compressedBytes = 0;
+        for (Segment segment : closed) {
+            compressedBytes += segment.file().length();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("dir", dir.getAbsolutePath());
+        stats.put("segments", closed.size());
+        stats.put("segmentBytes", compressedBytes);
+        synchronized (this) {
+            stats.put("activeBytes", activeBytes);
+        }
+        stats.put("oldest", closed.isEmpty() ? null
+                : TIME_FMT.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(closed.get(0).first()), ZONE)));
+        stats.put("maxTotalBytes", maxTotalBytes);
+        return stats;
+    }
+
+    private void load() throws IOException {
+        List<Segment> loaded = new ArrayList<>();
+        File[] files = dir.listFiles();
+        List<File> pending = new ArrayList<>();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.startsWith("seg-") && name.endsWith(".log.gz")) {
+                    Segment segment = readIndex(file);
+                    if (segment != null) {
+                        loaded.add(segment);
+                    }
+                } else if (name.equals(ACTIVE_NAME) || (name.startsWith("roll-") && name.endsWith(".log"))) {
+                    pending.add(file);
+                } else if (name.endsWith(".tmp")) {
+                    file.delete();
+                }
+            }
+        }
+        loaded.sort(Comparator.comparingLong(Segment::first));
+        segments = List.copyOf(loaded);
+
+        // 上次运行遗留的未压缩文件：先改名，再在后台压缩
+        for (File file : pending) {
+            File rolled = new File(dir, "roll-" + System.nanoTime() + ".log");
+            File target = file.getName().equals(ACTIVE_NAME) ? rolled : file;
+            if (target != file && !file.renameTo(target)) {
+                continue;
+            }
+            compressor.execute(() -> compress(target, null));
+        }
+        out = openActive(false);
+    }
+
+    private OutputStream openActive(boolean append) throws IOException {
+        return new BufferedOutputStream(new FileOutputStream(activeFile, append), BUFFER_BYTES);
+    }
+
+    private void roll() throws IOException {
+        out.close();
+        File rolled = new File(dir, "roll-" + activeFirst + ".log");
+        if (!activeFile.renameTo(rolled)) {
+            // 改名失败时继续写入当前文件，下次再试
+            out = openActive(true);
+            return;
+        }
+        Segment pending = activeSegment(rolled);
+        List<Segment> next = new ArrayList<>(segments);
+        next.add(pending);
+        segments = List.copyOf(next);
+
+        out = openActive(false);
+        activeBytes = 0;
+        activeFirst = -1;
+        activeLast = -1;
+        checkpoints = 0;
+        compressor.execute(() -> compress(rolled, pending));
+    }
+
+    private Segment activeSegment() {
+        return activeSegment(activeFile);
+    }
+
+    private Segment activeSegment(File file) {
+        long[] offsets = Arrays.copyOf(checkpointOffsets, checkpoints);
+        int[] lengths = new int[checkpoints];
+        for (int i = 0; i < checkpoints; i++) {
+            long end = i + 1 < checkpoints ? offsets[i + 1] : activeBytes;
+            lengths[i] = (int) (end - offsets[i]);
+        }
+        return new Segment(activeFirst, activeLast, file, false, Arrays.copyOf(checkpointTimes, checkpoints), offsets, lengths);
+    }
+
+    /**
+     * Compress a rolled plain segment into gzip blocks plus index, then swap it in for {@code pending}.
+     */
+    private void compress(File plain, Segment pending) {
+        File gzTmp = new File(dir, plain.getName() + ".gz.tmp");
+        File idxTmp = new File(dir, plain.getName() + ".idx.tmp");
+        long first = -1;
+        long last = -1;
+        List<long[]> blocks = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(plain), StandardCharsets.UTF_8));
+             FileOutputStream gzOut = new FileOutputStream(gzTmp)) {
+            ByteArrayOutputStream block = new ByteArrayOutputStream(BLOCK_BYTES + 4096);
+            long blockTime = -1;
+            long offset = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                long time = headerTime(line);
+                if (time >= 0) {
+                    if (block.size() >= BLOCK_BYTES) {
+                        offset += writeBlock(gzOut, block, blockTime, offset, blocks);
+                        blockTime = -1;
+                    }
+                    if (blockTime < 0) {
+                        blockTime = time;
+                    }
+                    if (first < 0) {
+                        first = time;
+                    }
+                    last = Math.max(last, time);
+                }
+                block.write(line.getBytes(StandardCharsets.UTF_8));
+                block.write('\n');
+            }
+            if (block.size() > 0) {
+                writeBlock(gzOut, block, blockTime < 0 ? Math.max(first, 0) : blockTime, offset, blocks);
+            }
+        } catch (IOException e) {
+            gzTmp.delete();
+            status.addError("【日志存储】压缩日志段失败：" + plain.getName(), e);
+            return;
+        }
+        if (first < 0) {
+            first = last = plain.lastModified();
+        }
+
+        String base = "seg-" + first + "-" + last;
+        File gzFile = new File(dir, base + ".log.gz");
+        File idxFile = new File(dir, base + ".idx");
+        try (DataOutputStream idx = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(idxTmp)))) {
+            for (long[] b : blocks) {
+                idx.writeLong(b[0]);
+                idx.writeLong(b[1]);
+                idx.writeInt((int) b[2]);
+            }
+        } catch (IOException e) {
+            gzTmp.delete();
+            idxTmp.delete();
+            status.addError("【日志存储】写入日志段索引失败：" + plain.getName(), e);
+            return;
+        }
+        if (!gzTmp.renameTo(gzFile) || !idxTmp.renameTo(idxFile)) {
+            gzTmp.delete();
+            idxTmp.delete();
+            status.addError("【日志存储】日志段改名失败：" + plain.getName());
+            return;
+        }
+
+        long[] firstTimes = new long[blocks.size()];
+        long[] offsets = new long[blocks.size()];
+        int[] lengths = new int[blocks.size()];
+        for (int i = 0; i < blocks.size(); i++) {
+            firstTimes[i] = blocks.get(i)[0];
+            offsets[i] = blocks.get(i)[1];
+            lengths[i] = (int) blocks.get(i)[2];
+        }
+        Segment compressed = new Segment(first, last, gzFile, true, firstTimes, offsets, lengths);
+        synchronized (this) {
+            List<Segment> next = new ArrayList<>(segments);
+            if (pending != null) {
+                next.remove(pending);
+            }
+            next.add(compressed);
+            next.sort(Comparator.comparingLong(Segment::first));
+            segments = List.copyOf(next);
+        }
+        plain.delete();
+        enforceRetention();
+    }
+
+    private static long writeBlock(OutputStream out, ByteArrayOutputStream block, long blockTime,
+                                   long offset, List<long[]> blocks) throws IOException {
+        ByteArrayOutputStream member = new ByteArrayOutputStream(block.size() / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(member)) {
+            block.writeTo(gzip);
+        }
+        member.writeTo(out);
+        blocks.add(new long[]{blockTime, offset, member.size()});
+        block.reset();
+        return member.size();
+    }
+
+    private void enforceRetention() {
+        long expireBefore = System.currentTimeMillis() - maxAgeMillis;
+        synchronized (this) {
+            List<Segment> next = new ArrayList<>(segments);
+            long total = 0;
+            for (Segment segment : next) {
+                // 待压缩的段压缩完成后再计入
+                if (segment.compressed()) {
+                    total += segment.file().length();
+                }
+            }
+            Iterator<Segment> iterator = next.iterator();
+            while (iterator.hasNext()) {
+                Segment segment = iterator.next();
+                if (!segment.compressed() || (total <= maxTotalBytes && segment.last() >= expireBefore)) {
+                    break;
+                }
+                total -= segment.file().length();
+                segment.file().delete();
+                indexFile(segment.file()).delete();
+                iterator.remove();
+            }
+            segments = List.copyOf(next);
+        }
+    }
+
+    private Segment readIndex(File gzFile) {
+        String base = gzFile.getName().substring(0, gzFile.getName().length() - ".log.gz".length());
+        String[] parts = base.split("-");
+        File idxFile = indexFile(gzFile);
+        if (parts.length != 3 || !idxFile.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(idxFile)))) {
+            int n = (int) (idxFile.length() / 20);
+            long[] firstTimes = new long[n];
+            long[] offsets = new long[n];
+            int[] lengths = new int[n];
+            for (int i = 0; i < n; i++) {
+                firstTimes[i] = in.readLong();
+                offsets[i] = in.readLong();
+                lengths[i] = in.readInt();
+            }
+            return new Segment(Long.parseLong(parts[1]), Long.parseLong(parts[2]), gzFile, true, firstTimes, offsets, lengths);
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static File indexFile(File gzFile) {
+        String name = gzFile.getName();
+        return new File(gzFile.getParentFile(), name.substring(0, name.length() - ".log.gz".length()) + ".idx");
+    }
+
+    private static RandomAccessFile openSegment(Segment segment) throws IOException {
+        try {
+            return new RandomAccessFile(segment.file(), "r");
+        } catch (FileNotFoundException e) {
+            // 段在查询期间被压缩替换或被清理
+            return null;
+        }
+    }
+
+    /**
+     * The compressed segment that replaced a rolled plain one, or null.
+     */
+    private Segment compressedReplacement(Segment plain) {
+        for (Segment current : segments) {
+            if (current.compressed() && current.first() == plain.first()) {
+                return current;
+            }
+        }
+        return null;
+    }
+
+    private static String readBlock(RandomAccessFile raf, Segment segment, int block) throws IOException {
+        byte[] bytes = new byte[segment.lengths()[block]];
+        raf.seek(segment.offsets()[block]);
+        raf.readFully(bytes);
+        if (segment.compressed()) {
+            try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+                bytes = gzip.readAllBytes();
+            }
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<Entry> parse(String block, long blockTime) {
+        List<Entry> entries = new ArrayList<>();
+        int start = 0;
+        long time = blockTime;
+        String level = "";
+        int recordStart = 0;
+        boolean open = false;
+        while (start < block.length()) {
+            int end = block.indexOf('\n', start);
+            if (end < 0) {
+                end = block.length();
+            }
+            long headerTime = headerTime(block, start, end);
+            if (headerTime >= 0) {
+                if (open) {
+                    entries.add(new Entry(time, level, block.substring(recordStart, Math.max(recordStart, start - 1))));
+                }
+                time = headerTime;
+                int levelEnd = block.indexOf(' ', start + HEADER_LENGTH + 1);
+                level = levelEnd < 0 || levelEnd > end ? "" : block.substring(start + HEADER_LENGTH + 1, levelEnd);
+                recordStart = start;
+                open = true;
+            } else if (!open) {
+                recordStart = start;
+                open = true;
+            }
+            start = end + 1;
+        }
+        if (open) {
+            int end = block.endsWith("\n") ? block.length() - 1 : block.length();
+            entries.add(new Entry(time, level, block.substring(recordStart, Math.max(recordStart, end))));
+        }
+        return entries;
+    }
+
+    private static boolean matches(Entry entry, Level minLevel, List<String> keywords) {
+        if (minLevel != null && !Level.toLevel(entry.level(), Level.INFO).isGreaterOrEqual(minLevel)) {
+            return false;
+        }
+        for (String keyword : keywords) {
+            if (!StrUtil.containsIgnoreCase(entry.text(), keyword)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long headerTime(String line) {
+        return headerTime(line, 0, line.length());
+    }
+
+    /**
+     * Epoch millis of a record header ({@code yyyy-MM-dd HH:mm:ss.SSS }) at {@code start}, or -1.
+     */
+    private static long headerTime(String text, int start, int end) {
+        if (end - start <= HEADER_LENGTH || text.charAt(start + 4) != '-' || text.charAt(start + 10) != ' '
+                || text.charAt(start + 19) != '.' || text.charAt(start + HEADER_LENGTH) != ' ') {
+            return -1;
+        }
+        for (int i : HEADER_DIGITS) {
+            if (!Character.isDigit(text.charAt(start + i))) {
+                return -1;
+            }
+        }
+        try {
+            return LocalDateTime.parse(text.substring(start, start + HEADER_LENGTH), TIME_FMT).atZone(ZONE).toInstant().toEpochMilli();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.yohann.ocihelper.utils;
+
+import com.yohann.ocihelper.enums.MessageTypeEnum;
+import com.yohann.ocihelper.exception.MessageRateLimitException;
+import com.yohann.ocihelper.service.IMessageService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * NotificationDispatcher
+ * </p >
+ * Outgoing notifications for every {@link MessageTypeEnum} channel. Each channel has a bounded queue
+ * and one sender thread: messages that arrive within a short window are coalesced into one
+ * (identical lines collapsed with a count), split to the channel's length limit, and sent no faster
+ * than the channel's minimum interval. A rate-limit reply pauses the channel for the requested
+ * time; when a queue overflows, the oldest message is dropped.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+@Slf4j
+@Component
+public class NotificationDispatcher {
+
+    private static final int QUEUE_CAPACITY = 1000;
+    private static final long COALESCE_WINDOW_MILLIS = 2000;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_BACKOFF_MILLIS = 2000;
+    private static final long MAX_RETRY_AFTER_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    private static final String SEPARATOR = "\n\n————————\n\n";
+
+    @Resource
+    private MessageServiceFactory messageServiceFactory;
+
+    private final Map<MessageTypeEnum, Channel> channels = new EnumMap<>(MessageTypeEnum.class);
+    private volatile boolean running = true;
+
+    @PostConstruct
+    public void start() {
+        for (MessageTypeEnum type : MessageTypeEnum.values()) {
+            Channel channel = new Channel(type, messageServiceFactory.getMessageService(type));
+            channels.put(type, channel);
+            channel.thread = Thread.ofVirtual().name("notify-" + type.getType()).start(channel::run);
+        }
+    }
+
+    /**
+     * Queue a message on every channel; returns immediately.
+     */
+    public void dispatch(String message) {
+        channels.values().forEach(channel -> channel.offer(message));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        channels.forEach((type, channel) -> stats.put(type.getType(), channel.stats()));
+        return stats;
+    }
+
+    /**
+     * Give the senders a few seconds to push out what is still queued, skipping the coalescing window.
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        for (Channel channel : channels.values()) {
+            try {
+                channel.thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        channels.values().forEach(channel -> channel.thread.interrupt());
+    }
+
+    private final class Channel {
+
+        private final MessageTypeEnum type;
+        private final IMessageService service;
+        private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final AtomicLong enqueued = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong batches = new AtomicLong();
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong rateLimited = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private volatile long lastSentAt;
+        private volatile long pausedUntil;
+        private volatile long lastLatencyMillis;
+        private volatile String lastError;
+        private Thread thread;
+
+        Channel(MessageTypeEnum type, IMessageService service) {
+            this.type = type;
+            this.service = service;
+        }
+
+        void offer(String message) {
+            enqueued.incrementAndGet();
+            while (!queue.offer(message)) {
+                if (queue.poll() != null) {
+                    dropped.incrementAndGet();
+                }
+            }
+        }
+
+        void run() {
+            List<String> batch = new ArrayList<>();
+            while (running || !queue.isEmpty()) {
+                try {
+                    String first = running ? queue.take() : queue.poll();
+                    if (first == null) {
+                        break;
+                    }
+                    batch.add(first);
+                    collect(batch);
+                    batches.incrementAndGet();
+                    for (String chunk : split(coalesce(batch))) {
+                        send(chunk);
+                    }
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        break;
+                    }
+                } catch (Throwable e) {
+                    log.error("【消息通知】[{}] 发送线程异常", type.getDesc(), e);
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+
+        /**
+         * Keep taking messages until the window closes or the batch no longer fits into one message.
+         */
+        private void collect(List<String> batch) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + COALESCE_WINDOW_MILLIS;
+            int length = batch.get(0).length();
+            long wait;
+            while (running && length < service.maxMessageLength() && (wait = deadline - System.currentTimeMillis()) > 0) {
+                String next = queue.poll(wait, TimeUnit.MILLISECONDS);
+                if (next == null) {
+                    break;
+                }
+                batch.add(next);
+                length += next.length() + SEPARATOR.length();
+            }
+        }
+
+        private void send(String text) throws InterruptedException {
+            for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+                sleepUntil(Math.max(pausedUntil, lastSentAt + service.minIntervalMillis()));
+                long start = System.currentTimeMillis();
+                try {
+                    boolean sent = service.sendMessage(text);
+                    lastSentAt = System.currentTimeMillis();
+                    if (sent) {
+                        lastLatencyMillis = lastSentAt - start;
+                        delivered.incrementAndGet();
+                    } else {
+                        // 渠道未配置
+                        skipped.incrementAndGet();
+                    }
+                    return;
+                } catch (MessageRateLimitException e) {
+                    rateLimited.incrementAndGet();
+                    lastSentAt = System.currentTimeMillis();
+                    pausedUntil = lastSentAt + Math.min(e.getRetryAfterMillis(), MAX_RETRY_AFTER_MILLIS);
+                    lastError = e.getMessage();
+                    log.warn("【消息通知】[{}] 被限流，暂停 [{}] ms", type.getDesc(), pausedUntil - lastSentAt);
+                } catch (Exception e) {
+                    lastSentAt = System.currentTimeMillis();
+                    pausedUntil = lastSentAt + RETRY_BACKOFF_MILLIS * attempt;
+                    lastError = e.getLocalizedMessage();
+                    log.warn("【消息通知】[{}] 第 [{}] 次发送失败：{}", type.getDesc(), attempt, e.getLocalizedMessage());
+                }
+            }
+            failed.incrementAndGet();
+            log.error("【消息通知】[{}] 消息发送失败，已放弃", type.getDesc());
+        }
+
+        private void sleepUntil(long time) throws InterruptedException {
+            long wait = time - System.currentTimeMillis();
+            if (wait > 0) {
+                Thread.sleep(wait);
+            }
+        }
+
+        /**
+         * Merge a batch in arrival order; repeats of the same message are sent once with a count.
+         */
+        private String coalesce(List<String> batch) {
+            if (batch.size() == 1) {
+                return batch.get(0);
+            }
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            batch.forEach(message -> counts.merge(message, 1, Integer::sum));
+            StringJoiner joiner = new StringJoiner(SEPARATOR);
+            counts.forEach((message, count) -> joiner.add(count > 1 ? message + "\n（×" + count + "）" : message));
+            return joiner.toString();
+        }
+
+        private List<String> split(String text) {
+            int max = service.maxMessageLength();
+            if (text.length() <= max) {
+                return List.of(text);
+            }
+            List<String> chunks = new ArrayList<>();
+            int from = 0;
+            while (from < text.length()) {
+                int to = Math.min(text.length(), from + max);
+                int next = to;
+                if (to < text.length()) {
+                    // 尽量在分隔符或换行处切开
+                    int cut = text.lastIndexOf(SEPARATOR, to - SEPARATOR.length());
+                    if (cut > from) {
+                        to = cut;
+                        next = cut + SEPARATOR.length();
+                    } else if ((cut = text.lastIndexOf('\n', to - 1)) > from) {
+                        to = cut;
+                        next = cut + 1;
+                    }
+                }
+                String chunk = text.substring(from, to).strip();
+                if (!chunk.isEmpty()) {
+                    chunks.add(chunk);
+                }
+                from = next;
+            }
+            return chunks;
+        }
+
+        Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("queued", queue.size());
+            stats.put("enqueued", enqueued.get());
+            stats.put("dropped", dropped.get());
+            stats.put("batches", batches.get());
+            stats.put("delivered", delivered.get());
+            stats.put("skipped", skipped.get());
+            stats.put("failed", failed.get());
+            stats.put("rateLimited", rateLimited.get());
+            stats.put("lastSentAt", lastSentAt);
+            stats.put("lastLatencyMillis", lastLatencyMillis);
+            stats.put("pausedForMillis", Math.max(0, pausedUntil - System.currentTimeMillis()));
+            stats.put("lastError", lastError);
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.yohann.ocihelper.utils;
+
+import com.yohann.ocihelper.exception.OciException;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static com.yohann.ocihelper.config.VirtualThreadConfig.VIRTUAL_EXECUTOR;
+
+/**
+ * <p>
+ * OciFanOut
+ * </p >
+ * Shared fan-out for blocking OCI (and other cloud API) calls. Every item runs on a virtual thread,
+ * limited by a per-tenant and a per-API semaphore so one slow tenant or one hot API cannot take all
+ * capacity. A fan-out has an overall timeout; the first failure, the timeout or an interrupt of the
+ * caller cancels the calls still running or waiting, and the failure is rethrown to the caller.
+ * Results keep the order of the input.
+ * <p>
+ * A fan-out started from inside another fan-out's task runs under the permits its parent already
+ * holds, so nested fan-outs cannot deadlock on the limits.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+public final class OciFanOut {
+
+    public static final int TENANT_CONCURRENCY = 16;
+    public static final int API_CONCURRENCY = 64;
+    public static final long DEFAULT_TIMEOUT_SECONDS = 60;
+
+    private static final Map<String, Limiter> TENANTS = new ConcurrentHashMap<>();
+    private static final Map<String, ApiStats> APIS = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Boolean> IN_FAN_OUT = new ThreadLocal<>();
+
+    private OciFanOut() {
+    }
+
+    /**
+     * Apply {@code fn} to every item concurrently and return the results in input order.
+     *
+     * @param tenant tenant the calls are made for, e.g. the tenancy OCID
+     * @param api    name of the API being fanned out, used for limits and metrics
+     */
+    public static <T, R> List<R> map(String tenant, String api, Collection<? extends T> items, Function<? super T, ? extends R> fn) {
+        return map(tenant, api, items, fn, DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static <T, R> List<R> map(String tenant, String api, Collection<? extends T> items, Function<? super T, ? extends R> fn,
+                                     long timeout, TimeUnit unit) {
+        if (items == null || items.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<T> inputs = new ArrayList<>(items);
+        Object[] results = new Object[inputs.size()];
+        boolean nested = Boolean.TRUE.equals(IN_FAN_OUT.get());
+        Limiter tenantLimiter = TENANTS.computeIfAbsent(String.valueOf(tenant), k -> new Limiter(TENANT_CONCURRENCY));
+        ApiStats apiStats = APIS.computeIfAbsent(api, k -> new ApiStats());
+
+        AtomicBoolean aborted = new AtomicBoolean();
+        CompletionService<Void> completion = new ExecutorCompletionService<>(VIRTUAL_EXECUTOR);
+        List<Future<Void>> futures = new ArrayList<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            int index = i;
+            T input = inputs.get(i);
+            apiStats.submitted.incrementAndGet();
+            futures.add(completion.submit(() -> {
+                run(nested, tenantLimiter, apiStats, aborted, () -> results[index] = fn.apply(input));
+                return null;
+            }));
+        }
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        try {
+            for (int done = 0; done < futures.size(); done++) {
+                Future<Void> future = completion.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (future == null) {
+                    apiStats.timeouts.incrementAndGet();
+                    throw new OciException(-1, "请求超时：" + api);
+                }
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OciException(-1, "请求已取消：" + api);
+        } finally {
+            cancel(futures, apiStats, aborted);
+        }
+
+        List<R> list = new ArrayList<>(results.length);
+        for (Object result : results) {
+            @SuppressWarnings("unchecked")
+            R r = (R) result;
+            list.add(r);
+        }
+        return list;
+    }
+
+    /**
+     * Like {@link #map} for calls without a result.
+     */
+    public static <T> void forEach(String tenant, String api, Collection<? extends T> items, Consumer<? super T> fn) {
+        forEach(tenant, api, items, fn, DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static <T> void forEach(String tenant, String api, Collection<? extends T> items, Consumer<? super T> fn,
+                                   long timeout, TimeUnit unit) {
+        map(tenant, api, items, x -> {
+            fn.accept(x);
+            return null;
+        }, timeout, unit);
+    }
+
+    public static Map<String, Object> stats() {
+        Map<String, Object> apis = new TreeMap<>();
+        APIS.forEach((name, stats) -> apis.put(name, stats.toMap()));
+        Map<String, Object> tenants = new TreeMap<>();
+        TENANTS.forEach((tenant, limiter) -> {
+            if (limiter.running.get() > 0 || limiter.waiting.get() > 0) {
+                tenants.put(tenant, Map.of("running", limiter.running.get(), "waiting", limiter.waiting.get()));
+            }
+        });
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tenantConcurrency", TENANT_CONCURRENCY);
+        stats.put("apiConcurrency", API_CONCURRENCY);
+        stats.put("activeTenants", tenants);
+        stats.put("apis", apis);
+        return stats;
+    }
+
+    private static void run(boolean nested, Limiter tenantLimiter, ApiStats apiStats, AtomicBoolean aborted, Runnable call) throws InterruptedException {
+        if (nested) {
+            // 父任务已持有许可
+            IN_FAN_OUT.set(Boolean.TRUE);
+            try {
+                timed(apiStats, aborted, call);
+            } finally {
+                IN_FAN_OUT.remove();
+            }
+            return;
+        }
+        long queuedAt = System.nanoTime();
+        tenantLimiter.waiting.incrementAndGet();
+        apiStats.limiter.waiting.incrementAndGet();
+        try {
+            tenantLimiter.permits.acquire();
+            try {
+                apiStats.limiter.permits.acquire();
+            } catch (InterruptedException e) {
+                tenantLimiter.permits.release();
+                throw e;
+            }
+        } finally {
+            tenantLimiter.waiting.decrementAndGet();
+            apiStats.limiter.waiting.decrementAndGet();
+        }
+        apiStats.queueNanos.addAndGet(System.nanoTime() - queuedAt);
+        tenantLimiter.running.incrementAndGet();
+        IN_FAN_OUT.set(Boolean.TRUE);
+        try {
+            timed(apiStats, aborted, call);
+        } finally {
+            IN_FAN_OUT.remove();
+            tenantLimiter.running.decrementAndGet();
+            apiStats.limiter.permits.release();
+            tenantLimiter.permits.release();
+        }
+    }
+
+    private static void timed(ApiStats apiStats, AtomicBoolean aborted, Runnable call) {
+        long start = System.nanoTime();
+        apiStats.limiter.running.incrementAndGet();
+        try {
+            call.run();
+            apiStats.completed.incrementAndGet();
+        } catch (RuntimeException | Error e) {
+            // 被取消的调用不计为失败
+            if (!aborted.get()) {
+                apiStats.failed.incrementAndGet();
+            }
+            throw e;
+        } finally {
+            apiStats.limiter.running.decrementAndGet();
+            long nanos = System.nanoTime() - start;
+            apiStats.calls.incrementAndGet();
+            apiStats.latencyNanos.addAndGet(nanos);
+            apiStats.maxLatencyNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    private static void cancel(List<Future<Void>> futures, ApiStats apiStats, AtomicBoolean aborted) {
+        aborted.set(true);
+        for (Future<Void> future : futures) {
+            if (!future.isDone() && future.cancel(true)) {
+                apiStats.cancelled.incrementAndGet();
+            }
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException e) {
+            return e;
+        }
+        if (cause instanceof Error e) {
+            throw e;
+        }
+        return new OciException(-1, String.valueOf(cause.getLocalizedMessage()));
+    }
+
+    private static final class Limiter {
+
+        private final Semaphore permits;
+        private final AtomicLong running = new AtomicLong();
+        private final AtomicLong waiting = new AtomicLong();
+
+        Limiter(int concurrency) {
+            this.permits = new Semaphore(concurrency);
+        }
+    }
+
+    private static final class ApiStats {
+
+        private final Limiter limiter = new Limiter(API_CONCURRENCY);
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong cancelled = new AtomicLong();
+        private final AtomicLong timeouts = new AtomicLong();
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong queueNanos = new AtomicLong();
+        private final AtomicLong latencyNanos = new AtomicLong();
+        private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+        Map<String, Object> toMap() {
+            long finished = Math.max(1, calls.get());
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("running", limiter.running.get());
+            map.put("waiting", limiter.waiting.get());
+            map.put("submitted", submitted.get());
+            map.put("completed", completed.get());
+            map.put("failed", failed.get());
+            map.put("cancelled", cancelled.get());
+            map.put("timeouts", timeouts.get());
+            map.put("avgQueueMillis", TimeUnit.NANOSECONDS.toMillis(queueNanos.get() / finished));
+            map.put("avgLatencyMillis", TimeUnit.NANOSECONDS.toMillis(latencyNanos.get() / finished));
+            map.put("maxLatencyMillis", TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get()));
+            return map;
+        }
+    }
+}
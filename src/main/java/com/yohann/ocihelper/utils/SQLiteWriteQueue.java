@@ -0,0 +1,196 @@
+package com.yohann.ocihelper.utils;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * SQLiteWriteQueue
+ * </p >
+ * Single writer for high-frequency, fire-and-forget writes (task counters, remaining create numbers).
+ * Jobs are queued and a dedicated thread commits everything that queued up in one transaction
+ * (group commit), so a burst of create tasks costs one fsync instead of one per task. If a group fails,
+ * its jobs are retried one by one so a single bad write cannot drop the others.
+ * In WAL mode the queue also owns checkpointing: periodically, before a backup and on shutdown.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+@Slf4j
+@Component
+public class SQLiteWriteQueue {
+
+    private static final int MAX_BATCH = 256;
+    private static final int MAX_QUEUE = 10_000;
+    private static final long CHECKPOINT_MINUTES = 10;
+
+    @Resource
+    private PlatformTransactionManager transactionManager;
+    @Resource
+    private DataSource dataSource;
+
+    @Value("${sqlite.wal-enabled:false}")
+    private boolean walEnabled;
+
+    private final BlockingQueue<Job> queue = new LinkedBlockingQueue<>(MAX_QUEUE);
+    private final AtomicLong committedJobs = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong failedJobs = new AtomicLong();
+    private TransactionTemplate transactionTemplate;
+    private volatile boolean running = true;
+    private Thread writer;
+
+    private record Job(Runnable action, CompletableFuture<Void> future) {
+    }
+
+    @PostConstruct
+    public void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        writer = new Thread(this::runWriter, "sqlite-writer");
+        writer.setDaemon(true);
+        writer.start();
+        if (walEnabled) {
+            TimerWheelScheduler.INSTANCE.scheduleAtFixedRate(TimerWheelScheduler.TaskType.SYSTEM, "sqlite-checkpoint",
+                    () -> checkpoint("PASSIVE"), CHECKPOINT_MINUTES, CHECKPOINT_MINUTES, TimeUnit.MINUTES, 0);
+        }
+    }
+
+    /**
+     * Queue a write; the returned future completes once it has been committed.
+     * Falls back to running in the caller's thread when the queue is full or stopped.
+     */
+    public CompletableFuture<Void> submit(Runnable action) {
+        Job job = new Job(action, new CompletableFuture<>());
+        if (!running || !queue.offer(job)) {
+            runSingle(job);
+        }
+        return job.future();
+    }
+
+    /**
+     * Block until everything queued so far has been committed.
+     */
+    public void flush() {
+        try {
+            submit(() -> {
+            }).get(30, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("等待数据库写入队列清空失败：{}", e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Flush pending writes and, in WAL mode, fold the WAL back into the main database file,
+     * so that a copy of the .db file taken right after is self-contained.
+     */
+    public void checkpointForBackup() {
+        flush();
+        checkpoint("TRUNCATE");
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("walEnabled", walEnabled);
+        stats.put("queued", queue.size());
+        stats.put("committedJobs", committedJobs.get());
+        stats.put("commits", commits.get());
+        stats.put("failedJobs", failedJobs.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Job> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.forEach(this::runSingle);
+        checkpoint("TRUNCATE");
+    }
+
+    private void runWriter() {
+        List<Job> batch = new ArrayList<>(MAX_BATCH);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH - 1);
+                commitBatch(batch);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    break;
+                }
+            } catch (Throwable e) {
+                log.error("数据库写入队列执行异常", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commitBatch(List<Job> batch) {
+        if (batch.size() == 1) {
+            runSingle(batch.get(0));
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(job -> job.action().run()));
+            commits.incrementAndGet();
+            committedJobs.addAndGet(batch.size());
+            batch.forEach(job -> job.future().complete(null));
+        } catch (Exception e) {
+            log.warn("数据库批量写入失败，改为逐条写入：{}", e.getLocalizedMessage());
+            batch.forEach(this::runSingle);
+        }
+    }
+
+    private void runSingle(Job job) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> job.action().run());
+            commits.incrementAndGet();
+            committedJobs.incrementAndGet();
+            job.future().complete(null);
+        } catch (Exception e) {
+            failedJobs.incrementAndGet();
+            log.error("数据库写入失败：{}", e.getLocalizedMessage());
+            job.future().completeExceptionally(e);
+        }
+    }
+
+    private void checkpoint(String mode) {
+        if (!walEnabled) {
+            return;
+        }
+        // 非事务连接默认路由到写连接
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA wal_checkpoint(" + mode + ")")) {
+            if (rs.next() && rs.getInt(1) != 0) {
+                log.warn("SQLite WAL 检查点 [{}] 未完成，存在活跃的读事务", mode);
+            }
+        } catch (Exception e) {
+            log.warn("SQLite WAL 检查点 [{}] 执行失败：{}", mode, e.getLocalizedMessage());
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.yohann.ocihelper.utils;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * SlidingWindowCounter
+ * </p >
+ * Approximate per-key event counter over a sliding window, in a fixed-size table of atomics. The window
+ * is split into {@code buckets} sub-windows; every key owns one slot of a 4-way set and each slot holds
+ * one packed (sub-window, count) cell per bucket, updated by CAS, so concurrent increments for the same
+ * key are never lost and nothing takes a lock. Memory is fixed at construction: when a set is full the
+ * slot touched longest ago, and among those the one with the fewest events, is taken over, so a flood
+ * of one-off keys cannot push out a key that is being hammered. A slot being taken over is first tagged
+ * {@code CLAIMING} and its cells are zeroed before the new tag is published, so the new owner's
+ * increments can never be wiped by the takeover.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+public final class SlidingWindowCounter {
+
+    private static final int WAYS = 4;
+    private static final int COUNT_BITS = 20;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    /** 槽位被接管、单元格清零期间的标记，不会与任何指纹相同 */
+    private static final long CLAIMING = Long.MIN_VALUE;
+
+    private final int setMask;
+    private final int buckets;
+    private final long bucketMillis;
+    private final long seed = ThreadLocalRandom.current().nextLong();
+    private final AtomicLongArray tags;
+    private final AtomicLongArray cells;
+
+    /**
+     * @param slots        number of keys tracked at once, rounded up to a power of two
+     * @param windowMillis window length
+     * @param buckets      sub-windows per window; more is smoother, each costs 8 bytes per slot
+     */
+    public SlidingWindowCounter(int slots, long windowMillis, int buckets) {
+        int size = Integer.highestOneBit(Math.max(WAYS, slots - 1)) << 1;
+        this.setMask = size / WAYS - 1;
+        this.buckets = buckets;
+        this.bucketMillis = Math.max(1, windowMillis / buckets);
+        this.tags = new AtomicLongArray(size);
+        this.cells = new AtomicLongArray(size * buckets);
+    }
+
+    /**
+     * Count one event for {@code key}.
+     *
+     * @return events of {@code key} in the window, including this one
+     */
+    public int increment(String key, long now) {
+        long fp = fingerprint(key);
+        long bucket = now / bucketMillis;
+        while (true) {
+            int slot = slot(fp, bucket);
+            int cell = slot * buckets + (int) (bucket % buckets);
+            while (true) {
+                long current = cells.get(cell);
+                long next = current >>> COUNT_BITS == bucket
+                        ? (current & COUNT_MASK) == COUNT_MASK ? current : current + 1
+                        : bucket << COUNT_BITS | 1;
+                if (cells.compareAndSet(cell, current, next)) {
+                    break;
+                }
+            }
+            // 计数期间槽位被其他 key 接管或被重置，这次计数可能已被清掉，重新找槽位再计一次
+            if (tags.get(slot) == fp) {
+                return sum(slot, bucket);
+            }
+        }
+    }
+
+    /**
+     * @return events of {@code key} in the window
+     */
+    public int count(String key, long now) {
+        long fp = fingerprint(key);
+        int base = (int) (mix(fp) & setMask) * WAYS;
+        for (int i = 0; i < WAYS; i++) {
+            if (tags.get(base + i) == fp) {
+                return sum(base + i, now / bucketMillis);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Forget {@code key}.
+     */
+    public void reset(String key) {
+        long fp = fingerprint(key);
+        int base = (int) (mix(fp) & setMask) * WAYS;
+        for (int i = 0; i < WAYS; i++) {
+            if (tags.compareAndSet(base + i, fp, CLAIMING)) {
+                clear(base + i);
+                tags.set(base + i, 0);
+            }
+        }
+    }
+
+    /**
+     * Slot owned by {@code fp}, taking over an empty or the least valuable slot of its set.
+     */
+    private int slot(long fp, long bucket) {
+        int base = (int) (mix(fp) & setMask) * WAYS;
+        while (true) {
+            int victim = -1;
+            long victimTag = 0;
+            long victimAge = -1;
+            int victimCount = Integer.MAX_VALUE;
+            boolean claiming = false;
+            for (int i = 0; i < WAYS; i++) {
+                long tag = tags.get(base + i);
+                if (tag == fp) {
+                    return base + i;
+                }
+                if (tag == CLAIMING) {
+                    claiming = true;
+                    continue;
+                }
+                // 优先淘汰空槽和最久未更新的槽，同样久的淘汰计数最小的，保住正在被爆破的 key
+                long age = tag == 0 ? Long.MAX_VALUE : bucket - lastBucket(base + i);
+                int count = tag == 0 ? 0 : sum(base + i, bucket);
+                if (age > victimAge || (age == victimAge && count < victimCount)) {
+                    victim = base + i;
+                    victimTag = tag;
+                    victimAge = age;
+                    victimCount = count;
+                }
+            }
+            if (claiming) {
+                // 组内有槽位正在被接管，可能就是同一个 key，等它发布后重新查找，避免一个 key 占两个槽
+                Thread.onSpinWait();
+                continue;
+            }
+            if (tags.compareAndSet(victim, victimTag, CLAIMING)) {
+                // 先清零再发布新标签，新 key 的计数不会被清掉
+                clear(victim);
+                tags.set(victim, fp);
+                return victim;
+            }
+        }
+    }
+
+    private int sum(int slot, long bucket) {
+        long total = 0;
+        for (int i = 0; i < buckets; i++) {
+            long cell = cells.get(slot * buckets + i);
+            if (bucket - (cell >>> COUNT_BITS) < buckets) {
+                total += cell & COUNT_MASK;
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, total);
+    }
+
+    private long lastBucket(int slot) {
+        long last = 0;
+        for (int i = 0; i < buckets; i++) {
+            last = Math.max(last, cells.get(slot * buckets + i) >>> COUNT_BITS);
+        }
+        return last;
+    }
+
+    private void clear(int slot) {
+        for (int i = 0; i < buckets; i++) {
+            cells.set(slot * buckets + i, 0);
+        }
+    }
+
+    /**
+     * Seeded 64-bit FNV-1a, never 0 (0 marks an empty slot) nor {@link #CLAIMING}.
+     */
+    private long fingerprint(String key) {
+        long h = 0xcbf29ce484222325L ^ seed;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        h = mix(h);
+        return h == 0 || h == CLAIMING ? 1 : h;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
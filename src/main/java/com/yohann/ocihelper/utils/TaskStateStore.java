@@ -0,0 +1,392 @@
+package com.yohann.ocihelper.utils;
+
+import cn.hutool.core.collection.CollectionUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.extra.spring.SpringUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.yohann.ocihelper.bean.entity.OciTaskState;
+import com.yohann.ocihelper.service.IOciTaskStateService;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * <p>
+ * TaskStateStore
+ * </p >
+ * Typed runtime state of create and change-IP tasks: attempt counts, consecutive error counts and
+ * the last error. Reads and updates hit an in-memory table keyed by (kind, id); changed rows are
+ * upserted into {@code oci_task_state} in write-behind batches through {@link SQLiteWriteQueue}, so
+ * counts survive restarts without a database write per attempt. The table is bounded in size and idle entries expire after a TTL.
+ * Only clean entries are evicted, under the entry's lock; an update that raced with the eviction
+ * retries against the entry read back from the database, so no update is lost.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+@Slf4j
+public final class TaskStateStore {
+
+    public enum Kind {
+        CREATE, CHANGE_IP
+    }
+
+    public record Key(Kind kind, String id) {
+
+        String rowId() {
+            return kind.name() + "_" + id;
+        }
+    }
+
+    public record Snapshot(long attempts, long errors, String lastError, long lastErrorAt, long updatedAt) {
+    }
+
+    private static final long FLUSH_INTERVAL_SECONDS = 5;
+    private static final int MAX_ENTRIES = 10_000;
+    private static final long TTL_MILLIS = TimeUnit.DAYS.toMillis(30);
+    private static final int MAX_ERROR_LENGTH = 512;
+
+    private static final Map<Key, State> STATES = new ConcurrentHashMap<>();
+    private static final Set<String> PENDING_DELETES = ConcurrentHashMap.newKeySet();
+    private static final AtomicBoolean STARTED = new AtomicBoolean();
+    private static final Object FLUSH_LOCK = new Object();
+    private static volatile boolean loaded = false;
+    /** 内存表是否曾因容量上限丢弃过条目；否则未命中即表示库里也没有，无需回查 */
+    private static volatile boolean truncated = false;
+
+    private TaskStateStore() {
+    }
+
+    /**
+     * Load persisted state and start the write-behind flusher. Called once at startup.
+     */
+    public static void load() {
+        reload();
+        if (STARTED.compareAndSet(false, true)) {
+            TimerWheelScheduler.INSTANCE.scheduleAtFixedRate(TimerWheelScheduler.TaskType.SYSTEM, "task-state-flush",
+                    TaskStateStore::flush, FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS, 0);
+        }
+    }
+
+    /**
+     * Drop the in-memory table and read it back from the database, e.g. after a backup was restored.
+     */
+    public static void reload() {
+        synchronized (FLUSH_LOCK) {
+            STATES.clear();
+            PENDING_DELETES.clear();
+            try {
+                long expireBefore = System.currentTimeMillis() - TTL_MILLIS;
+                service().list(new LambdaQueryWrapper<OciTaskState>()
+                                .ge(OciTaskState::getUpdatedAt, expireBefore)
+                                .orderByDesc(OciTaskState::getUpdatedAt)
+                                .last("limit " + MAX_ENTRIES))
+                        .forEach(row -> STATES.put(new Key(Kind.valueOf(row.getKind()), row.getTaskId()), State.of(row)));
+                truncated = STATES.size() >= MAX_ENTRIES;
+                log.info("【任务状态】已加载 [{}] 条任务状态", STATES.size());
+            } catch (Exception e) {
+                log.error("【任务状态】加载任务状态失败：{}", e.getLocalizedMessage());
+            }
+            loaded = true;
+        }
+    }
+
+    public static long incrementAttempts(Kind kind, String id) {
+        return update(new Key(kind, id), State::incrementAttempts);
+    }
+
+    public static long incrementErrors(Kind kind, String id) {
+        return update(new Key(kind, id), State::incrementErrors);
+    }
+
+    public static void recordError(Kind kind, String id, String error) {
+        String lastError = StrUtil.maxLength(StrUtil.nullToEmpty(error), MAX_ERROR_LENGTH);
+        update(new Key(kind, id), state -> {
+            state.recordError(lastError);
+            return null;
+        });
+    }
+
+    public static void resetErrors(Kind kind, String id) {
+        Key key = new Key(kind, id);
+        while (true) {
+            State state = STATES.get(key);
+            if (state == null) {
+                state = loadOne(key);
+            }
+            if (state == null) {
+                return;
+            }
+            synchronized (state) {
+                if (!state.evicted) {
+                    state.resetErrors();
+                    return;
+                }
+            }
+        }
+    }
+
+    public static long attempts(Kind kind, String id) {
+        Snapshot snapshot = get(kind, id);
+        return snapshot == null ? 0 : snapshot.attempts();
+    }
+
+    /**
+     * @return the current state, or null if nothing was recorded for the task
+     */
+    public static Snapshot get(Kind kind, String id) {
+        State state = STATES.get(new Key(kind, id));
+        if (state == null) {
+            state = loadOne(new Key(kind, id));
+        }
+        return state == null ? null : state.snapshot();
+    }
+
+    /**
+     * All in-memory states of the given kind, keyed by task id.
+     */
+    public static Map<String, Snapshot> list(Kind kind) {
+        return STATES.entrySet().stream()
+                .filter(x -> x.getKey().kind() == kind)
+                .collect(Collectors.toMap(x -> x.getKey().id(), x -> x.getValue().snapshot()));
+    }
+
+    public static void remove(Kind kind, String id) {
+        Key key = new Key(kind, id);
+        STATES.remove(key);
+        PENDING_DELETES.add(key.rowId());
+    }
+
+    public static Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", STATES.size());
+        stats.put("dirty", STATES.values().stream().filter(State::isDirty).count());
+        stats.put("pendingDeletes", PENDING_DELETES.size());
+        return stats;
+    }
+
+    /**
+     * Write changed rows and pending deletes to the database, then apply TTL and size eviction.
+     */
+    public static void flush() {
+        if (!loaded) {
+            return;
+        }
+        synchronized (FLUSH_LOCK) {
+            try {
+                IOciTaskStateService service = service();
+                SQLiteWriteQueue writeQueue = SpringUtil.getBean(SQLiteWriteQueue.class);
+                List<OciTaskState> rows = new ArrayList<>();
+                STATES.forEach((key, state) -> {
+                    OciTaskState row = state.drain(key);
+                    if (row != null) {
+                        rows.add(row);
+                    }
+                });
+                try {
+                    if (!rows.isEmpty()) {
+                        writeQueue.submit(() -> service.upsertBatch(rows)).join();
+                    }
+                } catch (Exception e) {
+                    // 写入失败时保留脏标记，下一轮重试
+                    rows.forEach(row -> Optional.ofNullable(STATES.get(new Key(Kind.valueOf(row.getKind()), row.getTaskId())))
+                            .ifPresent(State::markDirty));
+                    throw e;
+                }
+
+                long expireBefore = System.currentTimeMillis() - TTL_MILLIS;
+                STATES.forEach((key, state) -> evict(key, state, expireBefore));
+                List<String> deletes = new ArrayList<>(PENDING_DELETES);
+                writeQueue.submit(() -> {
+                    if (CollectionUtil.isNotEmpty(deletes)) {
+                        service.removeByIds(deletes);
+                    }
+                    service.remove(new LambdaQueryWrapper<OciTaskState>().lt(OciTaskState::getUpdatedAt, expireBefore));
+                }).join();
+                deletes.forEach(PENDING_DELETES::remove);
+                evictOverflow();
+            } catch (Exception e) {
+                log.error("【任务状态】写入任务状态失败：{}", e.getLocalizedMessage());
+            }
+        }
+    }
+
+    /**
+     * Keep at most MAX_ENTRIES in memory; the least recently updated, already persisted entries go first
+     * and are read back from the database if the task shows up again.
+     */
+    private static void evictOverflow() {
+        int overflow = STATES.size() - MAX_ENTRIES;
+        if (overflow <= 0) {
+            return;
+        }
+        // 先标记，被淘汰的任务再次出现时会回库读取
+        truncated = true;
+        STATES.entrySet().stream()
+                .filter(x -> !x.getValue().isDirty())
+                .sorted(Comparator.comparingLong(x -> x.getValue().updatedAt()))
+                .limit(overflow)
+                .toList()
+                .forEach(x -> evict(x.getKey(), x.getValue(), Long.MAX_VALUE));
+    }
+
+    /**
+     * Evict the entry if it is still clean and was last updated before {@code updatedBefore}.
+     * Checking and removing happen under the entry's lock, so an update cannot slip in between.
+     */
+    private static void evict(Key key, State state, long updatedBefore) {
+        synchronized (state) {
+            if (state.dirty || state.evicted || state.updatedAt >= updatedBefore) {
+                return;
+            }
+            state.evicted = true;
+            STATES.remove(key, state);
+        }
+    }
+
+    /**
+     * Apply {@code op} to the entry of {@code key}; if the entry was evicted meanwhile, retry on the current one.
+     */
+    private static <T> T update(Key key, Function<State, T> op) {
+        while (true) {
+            State state = state(key);
+            synchronized (state) {
+                if (!state.evicted) {
+                    return op.apply(state);
+                }
+            }
+        }
+    }
+
+    private static State state(Key key) {
+        State state = STATES.get(key);
+        if (state != null) {
+            return state;
+        }
+        // 刚被删除的任务不再读回库里的旧值，直接从零开始
+        if (!PENDING_DELETES.remove(key.rowId())) {
+            state = loadOne(key);
+            if (state != null) {
+                return state;
+            }
+        }
+        State created = new State(0, 0, null, 0, System.currentTimeMillis());
+        State existing = STATES.putIfAbsent(key, created);
+        return existing == null ? created : existing;
+    }
+
+    private static State loadOne(Key key) {
+        if (!loaded || !truncated || PENDING_DELETES.contains(key.rowId())) {
+            return null;
+        }
+        OciTaskState row = service().getById(key.rowId());
+        if (row == null) {
+            return null;
+        }
+        State loadedState = State.of(row);
+        State existing = STATES.putIfAbsent(key, loadedState);
+        return existing == null ? loadedState : existing;
+    }
+
+    private static IOciTaskStateService service() {
+        return SpringUtil.getBean(IOciTaskStateService.class);
+    }
+
+    private static final class State {
+
+        private long attempts;
+        private long errors;
+        private String lastError;
+        private long lastErrorAt;
+        private long updatedAt;
+        private boolean dirty;
+        /** 已从内存表中淘汰，不能再修改 */
+        private boolean evicted;
+
+        private State(long attempts, long errors, String lastError, long lastErrorAt, long updatedAt) {
+            this.attempts = attempts;
+            this.errors = errors;
+            this.lastError = lastError;
+            this.lastErrorAt = lastErrorAt;
+            this.updatedAt = updatedAt;
+        }
+
+        static State of(OciTaskState row) {
+            return new State(
+                    Optional.ofNullable(row.getAttempts()).orElse(0L),
+                    Optional.ofNullable(row.getErrors()).orElse(0L),
+                    row.getLastError(),
+                    Optional.ofNullable(row.getLastErrorAt()).orElse(0L),
+                    Optional.ofNullable(row.getUpdatedAt()).orElse(System.currentTimeMillis()));
+        }
+
+        synchronized long incrementAttempts() {
+            touch();
+            return ++attempts;
+        }
+
+        synchronized long incrementErrors() {
+            touch();
+            return ++errors;
+        }
+
+        synchronized void recordError(String error) {
+            touch();
+            lastError = error;
+            lastErrorAt = updatedAt;
+        }
+
+        synchronized void resetErrors() {
+            if (errors != 0) {
+                touch();
+                errors = 0;
+            }
+        }
+
+        synchronized long updatedAt() {
+            return updatedAt;
+        }
+
+        synchronized boolean isDirty() {
+            return dirty;
+        }
+
+        synchronized Snapshot snapshot() {
+            return new Snapshot(attempts, errors, lastError, lastErrorAt, updatedAt);
+        }
+
+        /**
+         * @return a row to persist if the state changed since the last flush, clearing the dirty flag
+         */
+        synchronized OciTaskState drain(Key key) {
+            if (!dirty) {
+                return null;
+            }
+            dirty = false;
+            return OciTaskState.builder()
+                    .id(key.rowId())
+                    .kind(key.kind().name())
+                    .taskId(key.id())
+                    .attempts(attempts)
+                    .errors(errors)
+                    .lastError(lastError)
+                    .lastErrorAt(lastErrorAt)
+                    .updatedAt(updatedAt)
+                    .build();
+        }
+
+        synchronized void markDirty() {
+            dirty = true;
+        }
+
+        private void touch() {
+            updatedAt = System.currentTimeMillis();
+            dirty = true;
+        }
+    }
+}
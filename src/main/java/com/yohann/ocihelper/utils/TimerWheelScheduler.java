@@ -0,0 +1,331 @@
+package com.yohann.ocihelper.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.yohann.ocihelper.config.VirtualThreadConfig.VIRTUAL_EXECUTOR;
+
+/**
+ * <p>
+ * TimerWheelScheduler
+ * </p >
+ * Hashed timer wheel for the application's periodic tasks (create, change-IP, housekeeping).
+ * One daemon thread advances the wheel; due tasks are queued per {@link TaskType} and handed
+ * to virtual threads round-robin. The cap applies to dispatch, not to execution: each tick hands
+ * out at most {@link #MAX_DISPATCH_PER_TICK} tasks, of which one type gets at most three quarters,
+ * so one busy task type cannot starve the others, while tasks that block (waiting on a launch,
+ * a rate-limit slot...) only park their own virtual thread and never hold back the wheel.
+ * Handles support per-task jitter and pause/resume without being recreated, and the scheduler
+ * reports queue depth and per-task scheduling lag.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+@Slf4j
+public final class TimerWheelScheduler {
+
+    public enum TaskType {
+        CREATE, CHANGE_IP, SYSTEM
+    }
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int WHEEL_SIZE = 512;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    /** 每个 tick 最多派发的任务数，超出的留在就绪队列下个 tick 再派发 */
+    private static final int MAX_DISPATCH_PER_TICK = 256;
+    /** 单一任务类型每个 tick 最多派发的任务数，给其他类型留出余量 */
+    private static final int MAX_DISPATCH_PER_TYPE = MAX_DISPATCH_PER_TICK * 3 / 4;
+
+    public static final TimerWheelScheduler INSTANCE = new TimerWheelScheduler(VIRTUAL_EXECUTOR);
+
+    private final Executor executor;
+    private final List<ArrayDeque<WheelTask>> wheel = new ArrayList<>(WHEEL_SIZE);
+    private final Queue<WheelTask> incoming = new ConcurrentLinkedQueue<>();
+    private final Map<TaskType, Queue<WheelTask>> ready = new EnumMap<>(TaskType.class);
+    private final Map<TaskType, AtomicInteger> running = new EnumMap<>(TaskType.class);
+    private final Set<WheelTask> tasks = ConcurrentHashMap.newKeySet();
+    /** 仅由 wheel 线程读写 */
+    private int rotation = 0;
+    private final long startNanos = System.nanoTime();
+    /** 仅由 wheel 线程读写 */
+    private long tick = 0;
+
+    private TimerWheelScheduler(Executor executor) {
+        this.executor = executor;
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(new ArrayDeque<>());
+        }
+        for (TaskType type : TaskType.values()) {
+            ready.put(type, new ConcurrentLinkedQueue<>());
+            running.put(type, new AtomicInteger());
+        }
+        Thread worker = new Thread(this::runWheel, "timer-wheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public WheelTask schedule(TaskType type, String name, Runnable task, long delay, TimeUnit unit) {
+        return submit(new WheelTask(name, type, task, 0, false, 0), unit.toNanos(delay));
+    }
+
+    /**
+     * Run repeatedly, waiting {@code period} after each run completes (plus up to {@code jitterMillis}),
+     * so runs of the task never overlap.
+     */
+    public WheelTask scheduleWithFixedDelay(TaskType type, String name, Runnable task, long initialDelay, long period,
+                                            TimeUnit unit, long jitterMillis) {
+        return submit(new WheelTask(name, type, task, unit.toNanos(period), false, jitterMillis), unit.toNanos(initialDelay));
+    }
+
+    /**
+     * Run every {@code period} measured from the previous deadline (plus up to {@code jitterMillis}),
+     * regardless of how long runs take; a run that outlasts the period overlaps the next one.
+     */
+    public WheelTask scheduleAtFixedRate(TaskType type, String name, Runnable task, long initialDelay, long period,
+                                         TimeUnit unit, long jitterMillis) {
+        return submit(new WheelTask(name, type, task, unit.toNanos(period), true, jitterMillis), unit.toNanos(initialDelay));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tasks", tasks.size());
+        stats.put("inFlight", running.values().stream().mapToInt(AtomicInteger::get).sum());
+        Map<String, Integer> queueDepth = new LinkedHashMap<>();
+        Map<String, Integer> runningByType = new LinkedHashMap<>();
+        ready.forEach((type, queue) -> queueDepth.put(type.name(), queue.size()));
+        running.forEach((type, count) -> runningByType.put(type.name(), count.get()));
+        stats.put("queueDepth", queueDepth);
+        stats.put("running", runningByType);
+        List<Map<String, Object>> taskStats = new ArrayList<>();
+        tasks.stream().sorted(Comparator.comparing(x -> x.name)).forEach(x -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("name", x.name);
+            item.put("type", x.type.name());
+            item.put("paused", x.paused);
+            item.put("runs", x.runs);
+            item.put("lastLagMillis", TimeUnit.NANOSECONDS.toMillis(x.lastLagNanos));
+            item.put("maxLagMillis", TimeUnit.NANOSECONDS.toMillis(x.maxLagNanos));
+            item.put("nextRunInMillis", x.getDelay(TimeUnit.MILLISECONDS));
+            taskStats.add(item);
+        });
+        stats.put("taskStats", taskStats);
+        return stats;
+    }
+
+    private WheelTask submit(WheelTask task, long delayNanos) {
+        tasks.add(task);
+        task.deadlineNanos = System.nanoTime() + Math.max(0, delayNanos) + task.jitterNanos();
+        incoming.offer(task);
+        return task;
+    }
+
+    private void reschedule(WheelTask task, long deadlineNanos) {
+        task.deadlineNanos = deadlineNanos + task.jitterNanos();
+        incoming.offer(task);
+    }
+
+    private void runWheel() {
+        while (true) {
+            try {
+                long deadline = startNanos + (tick + 1) * TICK_NANOS;
+                long sleep;
+                while ((sleep = deadline - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(sleep);
+                }
+                transferIncoming();
+                ArrayDeque<WheelTask> bucket = wheel.get((int) (tick & WHEEL_MASK));
+                for (Iterator<WheelTask> it = bucket.iterator(); it.hasNext(); ) {
+                    WheelTask task = it.next();
+                    if (task.isCancelled()) {
+                        it.remove();
+                    } else if (task.remainingRounds > 0) {
+                        task.remainingRounds--;
+                    } else {
+                        it.remove();
+                        fire(task);
+                    }
+                }
+                tick++;
+                drain();
+            } catch (Throwable e) {
+                log.error("【任务调度】时间轮执行异常", e);
+            }
+        }
+    }
+
+    private void transferIncoming() {
+        WheelTask task;
+        while ((task = incoming.poll()) != null) {
+            if (task.isCancelled()) {
+                continue;
+            }
+            long ticks = Math.max(tick, (task.deadlineNanos - startNanos) / TICK_NANOS);
+            task.remainingRounds = (ticks - tick) / WHEEL_SIZE;
+            wheel.get((int) (ticks & WHEEL_MASK)).add(task);
+        }
+    }
+
+    private void fire(WheelTask task) {
+        if (task.paused) {
+            // 暂停中的任务停在原地，resume 时重新入轮；若 resume 恰好发生在此期间则照常执行
+            task.parked.set(true);
+            if (task.paused || !task.parked.compareAndSet(true, false)) {
+                return;
+            }
+        }
+        if (task.fixedRate) {
+            // 时间轮落后时不补跑错过的周期
+            reschedule(task, Math.max(task.deadlineNanos + task.periodNanos, System.nanoTime()));
+        }
+        ready.get(task.type).offer(task);
+    }
+
+    /**
+     * 按任务类型轮流派发就绪任务，只限制每个 tick 的派发数量，不限制同时执行的数量
+     */
+    private void drain() {
+        TaskType[] types = TaskType.values();
+        int[] dispatchedByType = new int[types.length];
+        int dispatched = 0;
+        boolean progress = true;
+        while (progress && dispatched < MAX_DISPATCH_PER_TICK) {
+            progress = false;
+            for (int i = 0; i < types.length && dispatched < MAX_DISPATCH_PER_TICK; i++) {
+                TaskType type = types[Math.floorMod(rotation++, types.length)];
+                if (dispatchedByType[type.ordinal()] >= MAX_DISPATCH_PER_TYPE) {
+                    continue;
+                }
+                WheelTask task = ready.get(type).poll();
+                if (task == null) {
+                    continue;
+                }
+                dispatchedByType[type.ordinal()]++;
+                dispatched++;
+                progress = true;
+                running.get(type).incrementAndGet();
+                try {
+                    executor.execute(() -> run(task));
+                } catch (RejectedExecutionException e) {
+                    running.get(type).decrementAndGet();
+                    log.error("【任务调度】任务 [{}] 提交失败", task.name, e);
+                }
+            }
+        }
+    }
+
+    private void run(WheelTask task) {
+        long lag = System.nanoTime() - task.deadlineNanos;
+        task.lastLagNanos = Math.max(0, lag);
+        task.maxLagNanos = Math.max(task.maxLagNanos, task.lastLagNanos);
+        task.runs++;
+        try {
+            if (!task.isCancelled()) {
+                task.runnable.run();
+            }
+        } catch (Throwable e) {
+            log.error("【任务调度】任务 [{}] 执行异常", task.name, e);
+        } finally {
+            running.get(task.type).decrementAndGet();
+            if (task.periodNanos <= 0) {
+                task.completion.complete(null);
+                tasks.remove(task);
+            } else if (!task.fixedRate && !task.isCancelled()) {
+                reschedule(task, System.nanoTime() + task.periodNanos);
+            }
+        }
+    }
+
+    /**
+     * Handle of a task in the wheel. Implements {@link ScheduledFuture} so it can live in
+     * {@code OciServiceImpl.TASK_MAP} next to Spring-scheduled futures.
+     */
+    public final class WheelTask implements ScheduledFuture<Object> {
+
+        private final String name;
+        private final TaskType type;
+        private final Runnable runnable;
+        private final long periodNanos;
+        private final boolean fixedRate;
+        private final long jitterMillis;
+        private final CompletableFuture<Object> completion = new CompletableFuture<>();
+        private final AtomicBoolean parked = new AtomicBoolean();
+        private volatile boolean paused = false;
+        private volatile long deadlineNanos;
+        private long remainingRounds;
+        private volatile long lastLagNanos;
+        private volatile long maxLagNanos;
+        private volatile long runs;
+
+        private WheelTask(String name, TaskType type, Runnable runnable, long periodNanos, boolean fixedRate, long jitterMillis) {
+            this.name = name;
+            this.type = type;
+            this.runnable = runnable;
+            this.periodNanos = periodNanos;
+            this.fixedRate = fixedRate;
+            this.jitterMillis = jitterMillis;
+        }
+
+        /**
+         * Stop firing without dropping the task; the pending slot is kept until {@link #resume()}.
+         */
+        public void pause() {
+            paused = true;
+        }
+
+        public void resume() {
+            paused = false;
+            if (parked.compareAndSet(true, false) && !isCancelled()) {
+                reschedule(this, System.nanoTime());
+            }
+        }
+
+        public boolean isPaused() {
+            return paused;
+        }
+
+        private long jitterNanos() {
+            return jitterMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(ThreadLocalRandom.current().nextLong(jitterMillis)) : 0;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), o.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            tasks.remove(this);
+            return completion.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return completion.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return completion.isDone();
+        }
+
+        @Override
+        public Object get() throws InterruptedException, ExecutionException {
+            return completion.get();
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return completion.get(timeout, unit);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.yohann.ocihelper.utils;
+
+import com.oracle.bmc.monitoring.model.AggregatedDatapoint;
+import com.oracle.bmc.monitoring.model.MetricData;
+import com.oracle.bmc.monitoring.model.SummarizeMetricsDataDetails;
+import com.oracle.bmc.monitoring.requests.SummarizeMetricsDataRequest;
+import com.yohann.ocihelper.bean.constant.CacheConstant;
+import com.yohann.ocihelper.config.OracleInstanceFetcher;
+
+import java.util.*;
+
+/**
+ * <p>
+ * TrafficAggregator
+ * </p >
+ * VNIC traffic of a whole compartment in one region from two Monitoring calls: one MQL query per
+ * direction, grouped by {@code resourceId}, so the number of calls no longer grows with the number of
+ * VNICs. Datapoints are summed into primitive long counters per VNIC and for the region.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+public final class TrafficAggregator {
+
+    public static final int INBOUND = 0;
+    public static final int OUTBOUND = 1;
+
+    private static final String RESOURCE_ID = "resourceId";
+
+    private TrafficAggregator() {
+    }
+
+    /**
+     * Traffic totals of one region.
+     *
+     * @param inbound    region inbound bytes, including VNICs that no longer exist
+     * @param outbound   region outbound bytes, including VNICs that no longer exist
+     * @param byResource VNIC id -> {inbound, outbound} bytes
+     */
+    public record Totals(long inbound, long outbound, Map<String, long[]> byResource) {
+
+        public long inbound(Collection<String> vnicIds) {
+            return sum(vnicIds, INBOUND);
+        }
+
+        public long outbound(Collection<String> vnicIds) {
+            return sum(vnicIds, OUTBOUND);
+        }
+
+        private long sum(Collection<String> vnicIds, int direction) {
+            long total = 0;
+            for (String vnicId : vnicIds) {
+                long[] counters = byResource.get(vnicId);
+                if (counters != null) {
+                    total += counters[direction];
+                }
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Receives one datapoint of a grouped traffic query.
+     */
+    @FunctionalInterface
+    public interface PointConsumer {
+
+        void accept(int direction, String resourceId, long timestamp, long bytes);
+    }
+
+    public static Totals summarize(OracleInstanceFetcher fetcher, Date beginTime, Date endTime) {
+        List<List<MetricData>> results = query(fetcher,
+                CacheConstant.OCI_TRAFFIC_QUERY_IN_GROUPED, CacheConstant.OCI_TRAFFIC_QUERY_OUT_GROUPED, beginTime, endTime);
+        Map<String, long[]> byResource = new HashMap<>();
+        long inbound = accumulate(results.get(INBOUND), INBOUND, byResource);
+        long outbound = accumulate(results.get(OUTBOUND), OUTBOUND, byResource);
+        return new Totals(inbound, outbound, byResource);
+    }
+
+    /**
+     * Hourly datapoints of every VNIC in the compartment, both directions.
+     */
+    public static void forEachHourlyPoint(OracleInstanceFetcher fetcher, Date beginTime, Date endTime, PointConsumer consumer) {
+        List<List<MetricData>> results = query(fetcher,
+                CacheConstant.OCI_TRAFFIC_QUERY_IN_HOURLY, CacheConstant.OCI_TRAFFIC_QUERY_OUT_HOURLY, beginTime, endTime);
+        for (int direction = INBOUND; direction <= OUTBOUND; direction++) {
+            List<MetricData> items = results.get(direction);
+            if (items == null) {
+                continue;
+            }
+            for (MetricData data : items) {
+                String resourceId = data.getDimensions() == null ? null : data.getDimensions().get(RESOURCE_ID);
+                if (resourceId == null || data.getAggregatedDatapoints() == null) {
+                    continue;
+                }
+                for (AggregatedDatapoint datapoint : data.getAggregatedDatapoints()) {
+                    if (datapoint.getValue() != null && datapoint.getTimestamp() != null) {
+                        consumer.accept(direction, resourceId, datapoint.getTimestamp().getTime(), datapoint.getValue().longValue());
+                    }
+                }
+            }
+        }
+    }
+
+    private static List<List<MetricData>> query(OracleInstanceFetcher fetcher, String inQuery, String outQuery,
+                                                Date beginTime, Date endTime) {
+        return OciFanOut.map(fetcher.getUser().getOciCfg().getTenantId(), "summarizeMetricsData", List.of(inQuery, outQuery),
+                query -> fetcher.getMonitoringClient().summarizeMetricsData(SummarizeMetricsDataRequest.builder()
+                        .compartmentId(fetcher.getCompartmentId())
+                        .summarizeMetricsDataDetails(SummarizeMetricsDataDetails.builder()
+                                .namespace(CacheConstant.OCI_TRAFFIC_NAMESPACE)
+                                .query(query)
+                                .startTime(beginTime)
+                                .endTime(endTime)
+                                .build())
+                        .build()).getItems());
+    }
+
+    private static long accumulate(List<MetricData> items, int direction, Map<String, long[]> byResource) {
+        if (items == null) {
+            return 0;
+        }
+        long total = 0;
+        for (MetricData data : items) {
+            long sum = 0;
+            List<AggregatedDatapoint> datapoints = data.getAggregatedDatapoints();
+            if (datapoints != null) {
+                for (AggregatedDatapoint datapoint : datapoints) {
+                    Double value = datapoint.getValue();
+                    if (value != null) {
+                        sum += value.longValue();
+                    }
+                }
+            }
+            total += sum;
+            String resourceId = data.getDimensions() == null ? null : data.getDimensions().get(RESOURCE_ID);
+            if (resourceId != null) {
+                byResource.computeIfAbsent(resourceId, k -> new long[2])[direction] += sum;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,394 @@
+package com.yohann.ocihelper.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import static com.yohann.ocihelper.config.VirtualThreadConfig.VIRTUAL_EXECUTOR;
+
+/**
+ * <p>
+ * TypedCache
+ * </p >
+ * A named, typed cache namespace with per-entry TTL, a weight bound and hit/miss/load statistics.
+ * Expiry is driven by a hashed timer wheel of one-second slots: each entry is filed under the slot of
+ * its deadline, and one shared task on {@link TimerWheelScheduler} drains only the slots that came due,
+ * so the cost of expiring is proportional to what expires rather than to the cache size. Reads check
+ * the deadline themselves, so a value is never served past its TTL even between wheel ticks. When the
+ * total weight exceeds the bound, entries closest to expiry are evicted first.
+ * <p>
+ * Loads are single-flight: concurrent misses on one key share a single loader call. A namespace can
+ * also keep entries for a while past their TTL ({@link #staleWhileRevalidate}); such a stale value is
+ * returned at once while one background load replaces it, and a forced {@link #refresh} swaps the
+ * value in place instead of emptying the entry for every other reader.
+ *
+ * @author yohann
+ * @since 2026/10/18
+ */
+@Slf4j
+public final class TypedCache<K, V> {
+
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_SIZE = 512;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final List<TypedCache<?, ?>> REGISTRY = new CopyOnWriteArrayList<>();
+    private static final AtomicBoolean DRIVER_STARTED = new AtomicBoolean();
+
+    private final String name;
+    private final long ttlMillis;
+    private final long maxWeight;
+    private final ToLongFunction<? super V> weigher;
+    private final Map<K, Node<K, V>> map = new ConcurrentHashMap<>();
+    private final Map<K, CompletableFuture<Snapshot<V>>> inFlight = new ConcurrentHashMap<>();
+    private final List<Queue<Node<K, V>>> wheel = new ArrayList<>(WHEEL_SIZE);
+    private final AtomicLong weight = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    /** 过期后仍可返回旧值的时长，0 表示不启用 */
+    private volatile long staleMillis;
+    /** 已处理到的时间槽，仅由 advance 推进 */
+    private volatile long cursorTick = System.currentTimeMillis() / TICK_MILLIS;
+
+    /**
+     * 按引用比较，覆盖写入后旧节点即使内容相同也不会被误删新值
+     */
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        final long loadedAt;
+        /** 到此时间后为旧值，需要后台刷新 */
+        final long staleAt;
+        /** 到此时间后彻底移除 */
+        final long expireAt;
+        final long weight;
+
+        Node(K key, V value, long loadedAt, long staleAt, long expireAt, long weight) {
+            this.key = key;
+            this.value = value;
+            this.loadedAt = loadedAt;
+            this.staleAt = staleAt;
+            this.expireAt = expireAt;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * A cached value and when it was loaded.
+     *
+     * @param stale true if the value is past its TTL and a background refresh was started
+     */
+    public record Snapshot<V>(V value, long loadedAt, boolean stale) {
+
+        public long ageMillis() {
+            return Math.max(0, System.currentTimeMillis() - loadedAt);
+        }
+    }
+
+    private TypedCache(String name, long ttlMillis, long maxWeight, ToLongFunction<? super V> weigher) {
+        this.name = name;
+        this.ttlMillis = ttlMillis;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(new ConcurrentLinkedQueue<>());
+        }
+        REGISTRY.add(this);
+        if (DRIVER_STARTED.compareAndSet(false, true)) {
+            TimerWheelScheduler.INSTANCE.scheduleWithFixedDelay(TimerWheelScheduler.TaskType.SYSTEM, "cache-expiry",
+                    TypedCache::advanceAll, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS, 0);
+        }
+    }
+
+    /**
+     * @param name      namespace shown in the statistics
+     * @param ttl       default time to live of an entry
+     * @param maxWeight upper bound of the summed entry weights
+     * @param weigher   weight of one value, at least 1 is used
+     */
+    public static <K, V> TypedCache<K, V> create(String name, long ttl, TimeUnit unit, long maxWeight,
+                                                 ToLongFunction<? super V> weigher) {
+        return new TypedCache<>(name, unit.toMillis(ttl), maxWeight, weigher);
+    }
+
+    /**
+     * Every entry weighs 1, so {@code maxSize} bounds the entry count.
+     */
+    public static <K, V> TypedCache<K, V> create(String name, long ttl, TimeUnit unit, long maxSize) {
+        return create(name, ttl, unit, maxSize, value -> 1);
+    }
+
+    /**
+     * Keep entries for {@code staleFor} after their TTL and serve them while they are reloaded in the
+     * background. Call once, right after {@code create}.
+     */
+    public TypedCache<K, V> staleWhileRevalidate(long staleFor, TimeUnit unit) {
+        this.staleMillis = unit.toMillis(staleFor);
+        return this;
+    }
+
+    /**
+     * @return statistics of every namespace
+     */
+    public static List<Map<String, Object>> statsAll() {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        REGISTRY.forEach(cache -> stats.add(cache.stats()));
+        return stats;
+    }
+
+    /**
+     * @return the cached value, stale ones included, or null if absent or expired; never loads
+     */
+    public V get(K key) {
+        Node<K, V> node = map.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        if (node.expireAt <= System.currentTimeMillis()) {
+            if (unlink(node)) {
+                expirations.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return node.value;
+    }
+
+    /**
+     * Return the live value of {@code key}, or run {@code loader} and cache its result. A null result is
+     * returned but not cached; an exception from the loader is propagated and nothing is cached.
+     */
+    public V getOrLoad(K key, Supplier<? extends V> loader) {
+        return getSnapshot(key, loader).value();
+    }
+
+    /**
+     * Like {@link #getOrLoad}, but also tells how old the value is. A stale value is returned as is and
+     * refreshed in the background; concurrent misses wait for the same load.
+     */
+    public Snapshot<V> getSnapshot(K key, Supplier<? extends V> loader) {
+        Node<K, V> node = map.get(key);
+        long now = System.currentTimeMillis();
+        if (node != null && node.expireAt > now) {
+            if (node.staleAt > now) {
+                hits.increment();
+                return new Snapshot<>(node.value, node.loadedAt, false);
+            }
+            staleHits.increment();
+            refreshInBackground(key, loader);
+            return new Snapshot<>(node.value, node.loadedAt, true);
+        }
+        misses.increment();
+        return load(key, loader);
+    }
+
+    /**
+     * Reload {@code key} now and wait for it. The old value stays visible to other readers until the new
+     * one replaces it; if a load is already running it is joined instead of starting another.
+     */
+    public Snapshot<V> refresh(K key, Supplier<? extends V> loader) {
+        return load(key, loader);
+    }
+
+    public void put(K key, V value) {
+        put(key, value, ttlMillis);
+    }
+
+    public void put(K key, V value, long ttlMillis) {
+        long nodeWeight = Math.max(1, weigher.applyAsLong(value));
+        if (nodeWeight > maxWeight) {
+            // 单个值就超过上限，放进来只会把其它条目全部挤掉
+            invalidate(key);
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Node<K, V> node = new Node<>(key, value, now, now + ttlMillis, now + ttlMillis + staleMillis, nodeWeight);
+        Node<K, V> old = map.put(key, node);
+        weight.addAndGet(nodeWeight - (old == null ? 0 : old.weight));
+        wheel.get(slot(node.expireAt)).offer(node);
+        if (weight.get() > maxWeight) {
+            evictOverflow();
+        }
+    }
+
+    public void invalidate(K key) {
+        Node<K, V> node = map.remove(key);
+        if (node != null) {
+            weight.addAndGet(-node.weight);
+        }
+    }
+
+    public void invalidateAll() {
+        map.keySet().forEach(this::invalidate);
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        long loadCount = loads.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", name);
+        stats.put("size", map.size());
+        stats.put("weight", weight.get());
+        stats.put("maxWeight", maxWeight);
+        stats.put("ttlSeconds", TimeUnit.MILLISECONDS.toSeconds(ttlMillis));
+        stats.put("staleSeconds", TimeUnit.MILLISECONDS.toSeconds(staleMillis));
+        stats.put("hits", hitCount);
+        stats.put("staleHits", staleHits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("hitRate", total == 0 ? 0 : Math.round(hitCount * 10000.0 / total) / 100.0);
+        stats.put("loads", loadCount);
+        stats.put("coalesced", coalesced.sum());
+        stats.put("inFlight", inFlight.size());
+        stats.put("loadFailures", loadFailures.sum());
+        stats.put("avgLoadMillis", loadCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(loadNanos.sum() / loadCount));
+        stats.put("expirations", expirations.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+
+    /**
+     * 同一个 key 同时只跑一次加载，其余调用等同一个结果
+     */
+    private Snapshot<V> load(K key, Supplier<? extends V> loader) {
+        CompletableFuture<Snapshot<V>> mine = new CompletableFuture<>();
+        CompletableFuture<Snapshot<V>> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        loads.increment();
+        long start = System.nanoTime();
+        try {
+            V value = loader.get();
+            if (value != null) {
+                put(key, value);
+            }
+            Snapshot<V> snapshot = new Snapshot<>(value, System.currentTimeMillis(), false);
+            mine.complete(snapshot);
+            return snapshot;
+        } catch (RuntimeException e) {
+            loadFailures.increment();
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadNanos.add(System.nanoTime() - start);
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private void refreshInBackground(K key, Supplier<? extends V> loader) {
+        if (inFlight.containsKey(key)) {
+            return;
+        }
+        VIRTUAL_EXECUTOR.execute(() -> {
+            try {
+                load(key, loader);
+            } catch (Exception e) {
+                // 刷新失败时旧值继续可用，直到彻底过期
+                log.warn("缓存 [{}] 后台刷新失败，key：{}，原因：{}", name, key, e.getLocalizedMessage());
+            }
+        });
+    }
+
+    private static void advanceAll() {
+        long now = System.currentTimeMillis();
+        REGISTRY.forEach(cache -> cache.advance(now));
+    }
+
+    /**
+     * 处理所有已到期的时间槽；还没到期的（TTL 超过一圈）放回原槽等下一圈
+     */
+    private void advance(long now) {
+        long target = now / TICK_MILLIS;
+        long tick = Math.max(cursorTick, target - WHEEL_SIZE);
+        while (tick < target) {
+            tick++;
+            Queue<Node<K, V>> queue = wheel.get((int) (tick & WHEEL_MASK));
+            for (int i = queue.size(); i > 0; i--) {
+                Node<K, V> node = queue.poll();
+                if (node == null) {
+                    break;
+                }
+                if (map.get(node.key) != node) {
+                    // 已被覆盖或移除，丢弃
+                    continue;
+                }
+                if (node.expireAt <= now) {
+                    if (unlink(node)) {
+                        expirations.increment();
+                    }
+                } else {
+                    queue.offer(node);
+                }
+            }
+            cursorTick = tick;
+        }
+    }
+
+    /**
+     * 超重时从最近要到期的槽开始淘汰，直到回到上限以内
+     */
+    private void evictOverflow() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long start = cursorTick + 1;
+            for (int i = 0; i < WHEEL_SIZE && weight.get() > maxWeight; i++) {
+                Iterator<Node<K, V>> it = wheel.get((int) ((start + i) & WHEEL_MASK)).iterator();
+                while (it.hasNext() && weight.get() > maxWeight) {
+                    if (unlink(it.next())) {
+                        evictions.increment();
+                    }
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private boolean unlink(Node<K, V> node) {
+        if (map.remove(node.key, node)) {
+            weight.addAndGet(-node.weight);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 放在截止时间向上取整的槽里，保证槽被处理时条目一定已到期
+     */
+    private static int slot(long expireAt) {
+        return (int) (((expireAt + TICK_MILLIS - 1) / TICK_MILLIS) & WHEEL_MASK);
+    }
+}
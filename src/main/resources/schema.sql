@@ -31,6 +31,7 @@ create table if not exists `oci_create_task`
     root_password    varchar(64),
     operation_system varchar(64) DEFAULT 'Ubuntu',
     paused           INTEGER     DEFAULT 0,
+    race_concurrency INTEGER     DEFAULT 0,
     create_time      datetime    default (datetime('now', 'localtime')) not null,
     primary key ("id")
 );
@@ -77,3 +78,71 @@ create table if not exists `ip_data`
     create_time datetime default (datetime('now', 'localtime')) not null,
     primary key ("id")
 );
+
+--任务运行状态表
+create table if not exists `oci_task_state`
+(
+    id            varchar(160)                                    not null,
+    kind          varchar(32)                                     not null,
+    task_id       varchar(128)                                    not null,
+    attempts      INTEGER  DEFAULT 0,
+    errors        INTEGER  DEFAULT 0,
+    last_error    text                                            null,
+    last_error_at INTEGER                                         null,
+    updated_at    INTEGER                                         null,
+    create_time   datetime default (datetime('now', 'localtime')) not null,
+    primary key ("id")
+);
+CREATE INDEX if not exists oci_task_state_kind ON oci_task_state (kind, task_id);
+CREATE INDEX if not exists oci_task_state_updated_at ON oci_task_state (updated_at DESC);
+
+--流量时序表（小时/天/月三级汇总）
+create table if not exists `oci_traffic_point`
+(
+    id                 varchar(320) not null,
+    cfg_id             varchar(64)  not null,
+    region             varchar(64)  not null,
+    vnic_id            varchar(255) not null,
+    granularity        varchar(8)   not null,
+    bucket             INTEGER      not null,
+    to_network_bytes   INTEGER DEFAULT 0,
+    from_network_bytes INTEGER DEFAULT 0,
+    primary key ("id")
+);
+CREATE INDEX if not exists oci_traffic_point_cfg ON oci_traffic_point (cfg_id, region, granularity, bucket);
+CREATE INDEX if not exists oci_traffic_point_vnic ON oci_traffic_point (vnic_id, granularity, bucket);
+
+--流量同步进度表
+create table if not exists `oci_traffic_sync`
+(
+    id           varchar(160) not null,
+    cfg_id       varchar(64)  not null,
+    region       varchar(64)  not null,
+    covered_from INTEGER      null,
+    synced_to    INTEGER      null,
+    primary key ("id")
+);
+
+--IP黑名单表
+create table if not exists `ip_blacklist`
+(
+    id          varchar(128)                                    not null,
+    source      varchar(16)                                     null,
+    expire_at   INTEGER                                         null,
+    strikes     INTEGER  DEFAULT 0,
+    create_time datetime default (datetime('now', 'localtime')) not null,
+    primary key ("id")
+);
+
+--API测活记录表
+create table if not exists `oci_cfg_health`
+(
+    id                   varchar(64)  not null,
+    alive                INTEGER DEFAULT 0,
+    latency_millis       INTEGER DEFAULT 0,
+    last_error           varchar(256) null,
+    checked_at           INTEGER DEFAULT 0,
+    last_alive_at        INTEGER DEFAULT 0,
+    consecutive_failures INTEGER DEFAULT 0,
+    primary key ("id")
+);
@@ -0,0 +1,104 @@
+package com.yohann.ocihelper.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CidrTrieTest {
+
+    @Test
+    void matchesIpv4RangesAndHosts() {
+        CidrTrie trie = CidrTrie.of(List.of("10.0.0.0/8", "192.168.1.5", "172.16.0.0/12"));
+        assertEquals(3, trie.size());
+        assertTrue(trie.contains("10.255.1.2"));
+        assertTrue(trie.contains("192.168.1.5"));
+        assertTrue(trie.contains("172.31.255.255"));
+        assertFalse(trie.contains("11.0.0.1"));
+        assertFalse(trie.contains("192.168.1.6"));
+        assertFalse(trie.contains("172.32.0.0"));
+    }
+
+    @Test
+    void matchesIpv6RangesAndMappedIpv4() {
+        CidrTrie trie = CidrTrie.of(List.of("2001:db8::/32", "10.0.0.0/8"));
+        assertTrue(trie.contains("2001:db8:1::1"));
+        assertTrue(trie.contains("[2001:db8::1]"));
+        assertFalse(trie.contains("2001:db9::1"));
+        // IPv4 映射地址按 IPv4 匹配
+        assertTrue(trie.contains("::ffff:10.1.1.1"));
+        assertFalse(trie.contains("::ffff:11.1.1.1"));
+        // 两个地址族互不影响
+        assertFalse(CidrTrie.of(List.of("0.0.0.0/0")).contains("2001:db8::1"));
+        assertTrue(CidrTrie.of(List.of("::/0")).contains("2001:db8::1"));
+    }
+
+    @Test
+    void overlappingEntriesAreRemovedIndependently() {
+        CidrTrie trie = CidrTrie.of(List.of("10.0.0.0/8", "10.1.0.0/16"));
+        assertEquals(2, trie.size());
+
+        CidrTrie withoutWide = trie.without("10.0.0.0/8");
+        assertEquals(1, withoutWide.size());
+        assertTrue(withoutWide.contains("10.1.2.3"));
+        assertFalse(withoutWide.contains("10.2.0.1"));
+
+        CidrTrie withoutNarrow = trie.without("10.1.0.0/16");
+        assertEquals(1, withoutNarrow.size());
+        assertTrue(withoutNarrow.contains("10.1.2.3"));
+        assertTrue(withoutNarrow.contains("10.2.0.1"));
+
+        // 原快照不受影响
+        assertTrue(trie.contains("10.2.0.1"));
+        assertFalse(trie.without("10.1.0.0/16").without("10.0.0.0/8").contains("10.1.2.3"));
+    }
+
+    @Test
+    void duplicatesAndInvalidEntriesLeaveTrieUnchanged() {
+        CidrTrie trie = CidrTrie.of(List.of("10.0.0.0/8"));
+        assertSame(trie, trie.with("10.0.0.0/8"));
+        assertSame(trie, trie.with("abc"));
+        assertSame(trie, trie.with("10.0.0.0/33"));
+        assertSame(trie, trie.with("999.1.1.1"));
+        assertSame(trie, trie.without("10.0.0.0/16"));
+        assertFalse(trie.contains("example.com"));
+        assertSame(CidrTrie.empty(), CidrTrie.of(List.of("not-an-ip")));
+    }
+
+    @Test
+    void parsesPrefixesAndIgnoresHostBits() {
+        assertTrue(CidrTrie.of(List.of("10.1.2.3/8")).contains("10.9.9.9"));
+        assertEquals(8, CidrTrie.parseCidr("::ffff:10.0.0.0/104").prefix());
+        assertEquals(4, CidrTrie.parseCidr("::ffff:10.0.0.0/104").address().length);
+        assertEquals(128, CidrTrie.parseCidr("2001:db8::1").prefix());
+        assertNull(CidrTrie.parseCidr("10.0.0.0/x"));
+        assertNull(CidrTrie.parseAddress("1.2.3"));
+        // 映射前缀不超过 /96 时不再折算成 0.0.0.0/0
+        assertNull(CidrTrie.parseCidr("::ffff:0:0/96"));
+        assertNull(CidrTrie.parseCidr("::ffff:10.0.0.0/64"));
+    }
+
+    @Test
+    void canonicalFormIsSharedBySpellingsOfOneNetwork() {
+        assertEquals("1.2.3.4", CidrTrie.canonical("1.2.3.4/32"));
+        assertEquals("1.2.3.4", CidrTrie.canonical("::ffff:1.2.3.4"));
+        assertEquals("10.0.0.0/24", CidrTrie.canonical("10.0.0.7/24"));
+        assertEquals("10.0.0.0/8", CidrTrie.canonical("::ffff:10.1.2.3/104"));
+        assertEquals("2001:db8::/32", CidrTrie.canonical("2001:0DB8:ffff::1/32"));
+        assertEquals("2001:0:0:1::/64", CidrTrie.canonical("2001:0:0:1:2:3:4:5/64"));
+        assertEquals("::1", CidrTrie.canonical("0:0:0:0:0:0:0:1"));
+        assertEquals("::", CidrTrie.canonical("::/128"));
+        assertEquals("1:0:0:2::3", CidrTrie.canonical("1:0:0:2:0:0:0:3"));
+        assertNull(CidrTrie.canonical("unknown"));
+
+        // 不同写法落在同一节点，按规范形式去重后删除一次即可
+        CidrTrie trie = CidrTrie.of(List.of("1.2.3.4", "1.2.3.4/32"));
+        assertEquals(1, trie.size());
+        assertFalse(trie.without(CidrTrie.canonical("::ffff:1.2.3.4")).contains("1.2.3.4"));
+    }
+}
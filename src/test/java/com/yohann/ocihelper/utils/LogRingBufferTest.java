@@ -0,0 +1,72 @@
+package com.yohann.ocihelper.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LogRingBufferTest {
+
+    @Test
+    void readsInOrderFromCursor() {
+        long cursor = LogRingBuffer.nextSeq();
+        for (int i = 0; i < 10; i++) {
+            LogRingBuffer.publish("line-" + i);
+        }
+        LogRingBuffer.Batch first = LogRingBuffer.read(cursor, 4);
+        assertEquals(cursor, first.from());
+        assertEquals(0, first.dropped());
+        assertEquals(List.of("line-0", "line-1", "line-2", "line-3"), first.texts());
+
+        LogRingBuffer.Batch rest = LogRingBuffer.read(first.next(), 100);
+        assertEquals(6, rest.texts().size());
+        assertEquals("line-9", rest.texts().get(5));
+        assertEquals(LogRingBuffer.nextSeq(), rest.next());
+        assertEquals(0, LogRingBuffer.read(rest.next(), 100).texts().size());
+    }
+
+    @Test
+    void readerThatFellBehindSkipsToOldestAfterWrapAround() {
+        long cursor = LogRingBuffer.nextSeq();
+        int overflow = 10;
+        for (int i = 0; i < LogRingBuffer.CAPACITY + overflow; i++) {
+            LogRingBuffer.publish("wrap-" + i);
+        }
+        LogRingBuffer.Batch batch = LogRingBuffer.read(cursor, LogRingBuffer.CAPACITY * 2);
+        assertEquals(overflow, batch.dropped());
+        assertEquals(cursor + overflow, batch.from());
+        assertEquals(LogRingBuffer.CAPACITY, batch.texts().size());
+        assertEquals("wrap-" + overflow, batch.texts().get(0));
+        assertEquals("wrap-" + (LogRingBuffer.CAPACITY + overflow - 1), batch.texts().get(LogRingBuffer.CAPACITY - 1));
+        assertEquals(LogRingBuffer.nextSeq(), batch.next());
+    }
+
+    @Test
+    void batchesAfterWrapAroundStayContiguous() {
+        int total = LogRingBuffer.CAPACITY * 3 + 7;
+        long cursor = LogRingBuffer.nextSeq();
+        for (int i = 0; i < total; i++) {
+            LogRingBuffer.publish("seq-" + i);
+        }
+        List<String> texts = new ArrayList<>();
+        long dropped = 0;
+        long next = cursor;
+        while (true) {
+            LogRingBuffer.Batch batch = LogRingBuffer.read(next, 1000);
+            if (batch.texts().isEmpty()) {
+                break;
+            }
+            dropped += batch.dropped();
+            texts.addAll(batch.texts());
+            next = batch.next();
+        }
+        assertEquals(total - LogRingBuffer.CAPACITY, dropped);
+        assertEquals(LogRingBuffer.CAPACITY, texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            assertEquals("seq-" + (dropped + i), texts.get(i));
+        }
+        assertEquals(Math.max(0, LogRingBuffer.nextSeq() - 5), LogRingBuffer.tail(5));
+    }
+}
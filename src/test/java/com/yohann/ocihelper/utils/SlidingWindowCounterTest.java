@@ -0,0 +1,113 @@
+package com.yohann.ocihelper.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SlidingWindowCounterTest {
+
+    private static final int THREADS = 16;
+
+    @Test
+    void countsExpireWithTheWindow() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(64, 1000, 10);
+        for (int i = 0; i < 5; i++) {
+            counter.increment("a", 0);
+        }
+        counter.increment("a", 500);
+        assertEquals(6, counter.count("a", 900));
+        assertEquals(1, counter.count("a", 1400));
+        assertEquals(0, counter.count("a", 1600));
+        assertEquals(0, counter.count("b", 900));
+    }
+
+    @Test
+    void resetForgetsKey() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(64, 1000, 10);
+        counter.increment("a", 0);
+        counter.increment("a", 0);
+        counter.reset("a");
+        assertEquals(0, counter.count("a", 0));
+        assertEquals(1, counter.increment("a", 0));
+    }
+
+    @Test
+    void hotKeySurvivesFloodOfOneOffKeys() {
+        // 只有一组 4 个槽位
+        SlidingWindowCounter counter = new SlidingWindowCounter(4, 60_000, 6);
+        for (int i = 0; i < 100; i++) {
+            counter.increment("hot", 0);
+        }
+        for (int i = 0; i < 1000; i++) {
+            counter.increment("one-off-" + i, 0);
+        }
+        assertEquals(100, counter.count("hot", 0));
+    }
+
+    @Test
+    void concurrentIncrementsOfFreshKeysAreNotLost() throws Exception {
+        int rounds = 2000;
+        // 每轮一个计数器，避免 key 之间互相淘汰
+        SlidingWindowCounter[] counters = new SlidingWindowCounter[rounds];
+        for (int r = 0; r < rounds; r++) {
+            counters[r] = new SlidingWindowCounter(16, 60_000, 6);
+        }
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int r = 0; r < rounds; r++) {
+                        barrier.await(10, TimeUnit.SECONDS);
+                        // 所有线程同时给同一个新 key 计数，都会竞争接管同一个空槽
+                        counters[r].increment("key-" + r, 0);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        for (int r = 0; r < rounds; r++) {
+            assertEquals(THREADS, counters[r].count("key-" + r, 0), "key-" + r);
+        }
+    }
+
+    @Test
+    void concurrentIncrementsOfHotKeyUnderChurnAreNotLost() throws Exception {
+        SlidingWindowCounter counter = new SlidingWindowCounter(4, 60_000, 6);
+        int perThread = 20_000;
+        int warmUp = 1000;
+        for (int i = 0; i < warmUp; i++) {
+            counter.increment("hot", 0);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int id = t;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        counter.increment("hot", 0);
+                        // 其余 key 不断接管同组的其他槽位
+                        counter.increment("churn-" + id + "-" + i, 0);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(warmUp + THREADS * perThread, counter.count("hot", 0));
+    }
+}
@@ -0,0 +1,118 @@
+package com.yohann.ocihelper.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimerWheelSchedulerTest {
+
+    private static final TimerWheelScheduler SCHEDULER = TimerWheelScheduler.INSTANCE;
+
+    @Test
+    void tasksFireInDeadlineOrder() throws Exception {
+        List<String> fired = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(3);
+        SCHEDULER.schedule(TimerWheelScheduler.TaskType.SYSTEM, "order-c", () -> {
+            fired.add("c");
+            latch.countDown();
+        }, 700, TimeUnit.MILLISECONDS);
+        SCHEDULER.schedule(TimerWheelScheduler.TaskType.SYSTEM, "order-a", () -> {
+            fired.add("a");
+            latch.countDown();
+        }, 100, TimeUnit.MILLISECONDS);
+        SCHEDULER.schedule(TimerWheelScheduler.TaskType.SYSTEM, "order-b", () -> {
+            fired.add("b");
+            latch.countDown();
+        }, 400, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("a", "b", "c"), fired);
+    }
+
+    @Test
+    void taskDoesNotFireBeforeItsDelay() throws Exception {
+        long start = System.nanoTime();
+        CountDownLatch latch = new CountDownLatch(1);
+        SCHEDULER.schedule(TimerWheelScheduler.TaskType.SYSTEM, "delay", latch::countDown, 500, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 500);
+    }
+
+    @Test
+    void cancelledTaskNeverRuns() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        TimerWheelScheduler.WheelTask task = SCHEDULER.schedule(TimerWheelScheduler.TaskType.SYSTEM, "cancel",
+                runs::incrementAndGet, 300, TimeUnit.MILLISECONDS);
+        assertTrue(task.cancel(false));
+        assertTrue(task.isCancelled());
+        Thread.sleep(800);
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void cancelStopsPeriodicTask() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(3);
+        TimerWheelScheduler.WheelTask task = SCHEDULER.scheduleWithFixedDelay(TimerWheelScheduler.TaskType.SYSTEM, "periodic", () -> {
+            runs.incrementAndGet();
+            latch.countDown();
+        }, 0, 100, TimeUnit.MILLISECONDS, 0);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        task.cancel(false);
+        // 等可能正在执行的一次跑完
+        Thread.sleep(300);
+        int afterCancel = runs.get();
+        Thread.sleep(500);
+        assertEquals(afterCancel, runs.get());
+    }
+
+    @Test
+    void blockingTasksDoNotCapExecution() throws Exception {
+        // 超过单个 tick 派发上限的阻塞任务仍能全部同时运行
+        int count = 600;
+        CountDownLatch started = new CountDownLatch(count);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < count; i++) {
+            SCHEDULER.schedule(TimerWheelScheduler.TaskType.CREATE, "blocking-" + i, () -> {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, 0, TimeUnit.MILLISECONDS);
+        }
+        try {
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void delayBeyondOneRotationWaitsForItsRound() throws Exception {
+        // 一圈 512 个 100ms 的槽，超过一圈的任务和 300ms 后的任务落在相近的槽里
+        AtomicInteger farRuns = new AtomicInteger();
+        TimerWheelScheduler.WheelTask far = SCHEDULER.schedule(TimerWheelScheduler.TaskType.SYSTEM, "overflow-far",
+                farRuns::incrementAndGet, 512 * 100 + 300, TimeUnit.MILLISECONDS);
+        CountDownLatch near = new CountDownLatch(1);
+        SCHEDULER.schedule(TimerWheelScheduler.TaskType.SYSTEM, "overflow-near", near::countDown, 300, TimeUnit.MILLISECONDS);
+        try {
+            assertTrue(near.await(5, TimeUnit.SECONDS));
+            Thread.sleep(500);
+            assertEquals(0, farRuns.get());
+            assertFalse(far.isDone());
+            assertTrue(far.getDelay(TimeUnit.SECONDS) > 45);
+        } finally {
+            far.cancel(false);
+        }
+    }
+}
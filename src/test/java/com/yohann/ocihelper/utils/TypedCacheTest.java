@@ -0,0 +1,127 @@
+package com.yohann.ocihelper.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TypedCacheTest {
+
+    private static final int THREADS = 8;
+
+    @Test
+    void entryExpiresAfterTtl() throws Exception {
+        TypedCache<String, String> cache = TypedCache.create("test-ttl", 1, TimeUnit.MINUTES, 100);
+        cache.put("short", "v", 100);
+        cache.put("long", "v");
+        assertEquals("v", cache.get("short"));
+        Thread.sleep(200);
+        assertNull(cache.get("short"));
+        assertEquals("v", cache.get("long"));
+    }
+
+    @Test
+    void overweightEvictsEntriesClosestToExpiry() {
+        TypedCache<String, String> cache = TypedCache.create("test-weight", 1, TimeUnit.MINUTES, 10, String::length);
+        cache.put("soon", "aaaa", 2_000);
+        cache.put("later", "bbbb", 20_000);
+        cache.put("latest", "cccc", 40_000);
+        assertNull(cache.get("soon"));
+        assertEquals("bbbb", cache.get("later"));
+        assertEquals("cccc", cache.get("latest"));
+        assertEquals(8L, cache.stats().get("weight"));
+
+        // 单个值超过上限时不缓存
+        cache.put("huge", "x".repeat(11));
+        assertNull(cache.get("huge"));
+        assertEquals(8L, cache.stats().get("weight"));
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        TypedCache<String, String> cache = TypedCache.create("test-single-flight", 1, TimeUnit.MINUTES, 100);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    barrier.await(5, TimeUnit.SECONDS);
+                    return cache.getOrLoad("key", () -> {
+                        calls.incrementAndGet();
+                        try {
+                            release.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return "loaded";
+                    });
+                }));
+            }
+            // 等其余线程都挂到同一次加载上
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((long) cache.stats().get("coalesced") < THREADS - 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+            for (Future<String> future : futures) {
+                assertEquals("loaded", future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1L, cache.stats().get("loads"));
+        assertEquals("loaded", cache.get("key"));
+    }
+
+    @Test
+    void nullAndFailedLoadsAreNotCached() {
+        TypedCache<String, String> cache = TypedCache.create("test-no-cache", 1, TimeUnit.MINUTES, 100);
+        AtomicInteger calls = new AtomicInteger();
+        assertNull(cache.getOrLoad("null", () -> {
+            calls.incrementAndGet();
+            return null;
+        }));
+        assertNull(cache.getOrLoad("null", () -> {
+            calls.incrementAndGet();
+            return null;
+        }));
+        assertEquals(2, calls.get());
+
+        assertThrows(IllegalStateException.class, () -> cache.getOrLoad("fail", () -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals("ok", cache.getOrLoad("fail", () -> "ok"));
+    }
+
+    @Test
+    void staleValueIsServedWhileReloading() throws Exception {
+        TypedCache<String, String> cache = TypedCache.<String, String>create("test-stale", 100, TimeUnit.MILLISECONDS, 100)
+                .staleWhileRevalidate(1, TimeUnit.MINUTES);
+        cache.put("key", "old");
+        Thread.sleep(200);
+        CountDownLatch reloaded = new CountDownLatch(1);
+        TypedCache.Snapshot<String> snapshot = cache.getSnapshot("key", () -> {
+            reloaded.countDown();
+            return "new";
+        });
+        assertTrue(snapshot.stale());
+        assertEquals("old", snapshot.value());
+        assertTrue(reloaded.await(5, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!"new".equals(cache.get("key")) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("new", cache.get("key"));
+    }
+}